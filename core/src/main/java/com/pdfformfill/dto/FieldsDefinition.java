@@ -0,0 +1,63 @@
+package com.pdfformfill.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * PDF 表单字段定义文件根结构，与前端导出的 JSON（imported 到后端）一致。
+ * 若来自 pdf-tool-spike 等前端：坐标为 viewport 像素（canvas 坐标），需提供 scale（1 PDF point = scale 像素）以便后端换算为 PDF 点。
+ * checkboxSymbol/checkboxCheckedImage：可选，勾选态图片引用（classpath:xxx、data URI 或 pdf.overlay.images.base-dir 内的文件路径）；空则用配置项默认。
+ * fontSize、fontColor、paddingX、paddingY：可选，用于文字 overlay；不传则用后端默认。
+ * fonts：可选，字体回退链（如 ["NotoSans", "NotoSansSC"]，也接受单个字符串），名称为 pdf.fonts.files 注册的字体或
+ * Standard 14 字体名；每个字符使用链中第一个包含该字形的字体。不传则用 pdf.fonts.default。
+ * fillMode：可选，"overlay"（默认，拍平表单后按坐标绘制）或 "acroform"（按名称把值写入模板自带的表单字段并生成外观，
+ * 输出仍可编辑；没有同名表单字段的字段仍按坐标绘制）。flattenFilled：可选，acroform 模式下只拍平已填写的字段。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FieldsDefinition(
+        List<FieldDefinition> fields,
+        Double scale,
+        @JsonAlias("checkboxSymbol") String checkboxCheckedImage,
+        Integer fontSize,
+        String fontColor,
+        Double paddingX,
+        Double paddingY,
+        @JsonAlias("font") @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY) List<String> fonts,
+        String fillMode,
+        Boolean flattenFilled
+) {
+    /** fillMode 取值：写入模板自带的 AcroForm 字段。 */
+    public static final String FILL_MODE_ACROFORM = "acroform";
+
+    public FieldsDefinition(List<FieldDefinition> fields) {
+        this(fields, null, null, null, null, null, null, null, null, null);
+    }
+
+    public FieldsDefinition(List<FieldDefinition> fields, Double scale) {
+        this(fields, scale, null, null, null, null, null, null, null, null);
+    }
+
+    public FieldsDefinition(List<FieldDefinition> fields, Double scale, String checkboxCheckedImage) {
+        this(fields, scale, checkboxCheckedImage, null, null, null, null, null, null, null);
+    }
+
+    public FieldsDefinition(List<FieldDefinition> fields, Double scale, String checkboxCheckedImage,
+                            Integer fontSize, String fontColor, Double paddingX, Double paddingY) {
+        this(fields, scale, checkboxCheckedImage, fontSize, fontColor, paddingX, paddingY, null, null, null);
+    }
+
+    public FieldsDefinition(List<FieldDefinition> fields, Double scale, String checkboxCheckedImage,
+                            Integer fontSize, String fontColor, Double paddingX, Double paddingY, List<String> fonts) {
+        this(fields, scale, checkboxCheckedImage, fontSize, fontColor, paddingX, paddingY, fonts, null, null);
+    }
+
+    /** fillMode 为 "acroform"（不区分大小写）时按表单字段填写；其他值与不传均为 overlay。 */
+    @JsonIgnore
+    public boolean acroFormFill() {
+        return FILL_MODE_ACROFORM.equalsIgnoreCase(fillMode);
+    }
+}
@@ -0,0 +1,147 @@
+package com.pdfformfill.engine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cooperative cancellation for one fill: a point in time after which the work is abandoned, and a flag another
+ * thread can set to abandon it early. The deadline is bound to the thread doing the work;
+ * the pipeline calls {@link #check()} between stages, between pages and inside the text-fitting loops, which
+ * throws {@link Cancelled} once the deadline has passed or the fill was cancelled. The exception unwinds through
+ * the try-with-resources blocks that own the documents, so they are closed as soon as the work stops.
+ * <p>
+ * With no deadline bound, {@link #check()} is a thread-local read and returns; the engine used without a
+ * deadline behaves exactly as before.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    /** Why a fill was abandoned. */
+    public enum Reason {
+        DEADLINE("deadline"),
+        CANCELLED("cancelled");
+
+        private final String tag;
+
+        Reason(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final long expiresNanos;
+    private final boolean bounded;
+    private volatile Reason cancelled;
+
+    private Deadline(long timeoutNanos, boolean bounded) {
+        this.expiresNanos = startNanos + timeoutNanos;
+        this.bounded = bounded;
+    }
+
+    /** A deadline {@code timeout} from now. */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(Math.max(0, timeout.toNanos()), true);
+    }
+
+    /** A deadline that never expires on its own but can still be {@link #cancel cancelled}. */
+    public static Deadline none() {
+        return new Deadline(Long.MAX_VALUE / 2, false);
+    }
+
+    /** The deadline bound to the current thread, or null. */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Throws {@link Cancelled} if the current thread's deadline has passed or was cancelled; does nothing when no
+     * deadline is bound.
+     */
+    public static void check() {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.checkNow();
+        }
+    }
+
+    /** Binds this deadline to the current thread until the returned scope is closed. */
+    public Scope bind() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    /** Marks the fill as abandoned; the thread doing it stops at its next check. Safe from any thread. */
+    public void cancel() {
+        cancelled = Reason.CANCELLED;
+    }
+
+    /** The reason the fill is abandoned now, or null while it may go on. */
+    public Reason reason() {
+        Reason reason = cancelled;
+        if (reason != null) {
+            return reason;
+        }
+        return System.nanoTime() - expiresNanos >= 0 ? Reason.DEADLINE : null;
+    }
+
+    /** False for {@link #none()}: the fill ends only when cancelled. */
+    public boolean bounded() {
+        return bounded;
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresNanos - System.nanoTime()));
+    }
+
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private void checkNow() {
+        Reason reason = reason();
+        if (reason != null) {
+            throw new Cancelled(reason, elapsedMillis());
+        }
+    }
+
+    /** Restores the previously bound deadline. */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /** Thrown by {@link #check()} when the fill is abandoned. Unchecked, so it passes through PDFBox callbacks. */
+    public static final class Cancelled extends RuntimeException {
+
+        private final Reason reason;
+        private final long elapsedMillis;
+
+        public Cancelled(Reason reason, long elapsedMillis) {
+            super((reason == Reason.DEADLINE ? "Deadline exceeded" : "Cancelled") + " after "
+                    + elapsedMillis + " ms", null, false, false);
+            this.reason = reason;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Reason reason() {
+            return reason;
+        }
+
+        public long elapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
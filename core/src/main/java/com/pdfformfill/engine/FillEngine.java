@@ -0,0 +1,220 @@
+package com.pdfformfill.engine;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.pdf.PdfTemplateLoader;
+import com.pdfformfill.pdf.TemplateLayout;
+import com.pdfformfill.pdf.overlay.OverlayOptions;
+import com.pdfformfill.pdf.overlay.PdfOverlayRenderer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain Java entry point to the fill engine, for embedding without the web service: compile a template and
+ * definition once into a {@link Job}, then fill it once per record and write the result to any channel.
+ * <pre>
+ *   FillEngine engine = new FillEngine();
+ *   FillEngine.Job job = engine.prepare(templateBytes, definition);
+ *   try (FileChannel out = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+ *       job.fill(record, out);
+ *   }
+ * </pre>
+ * The engine holds the shared, thread-safe state (fonts, fit cache, image cache inside the renderer); a job may
+ * be filled from many threads at once, each fill loading its own copy of the prepared template.
+ */
+public final class FillEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(FillEngine.class);
+
+    /** Checked-state image used when the definition does not name one. */
+    public static final String DEFAULT_CHECKBOX_CHECKED_IMAGE = "classpath:checked-symbol.png";
+
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final PdfTemplateLoader loader = new PdfTemplateLoader();
+    private final PdfOverlayRenderer renderer;
+    private final boolean flattenForms;
+    private final String checkboxCheckedImage;
+
+    /** Default renderer (Helvetica, default caches), forms flattened before overlay. */
+    public FillEngine() {
+        this(new PdfOverlayRenderer(), true, DEFAULT_CHECKBOX_CHECKED_IMAGE);
+    }
+
+    /**
+     * @param renderer             overlay renderer with its fonts and caches
+     * @param flattenForms         flatten AcroForm widgets into page content before drawing, so field
+     *                             backgrounds do not cover the overlay
+     * @param checkboxCheckedImage checked-state image reference used when the definition does not name one
+     */
+    public FillEngine(PdfOverlayRenderer renderer, boolean flattenForms, String checkboxCheckedImage) {
+        this.renderer = renderer;
+        this.flattenForms = flattenForms;
+        this.checkboxCheckedImage = checkboxCheckedImage != null ? checkboxCheckedImage : DEFAULT_CHECKBOX_CHECKED_IMAGE;
+    }
+
+    public PdfOverlayRenderer renderer() {
+        return renderer;
+    }
+
+    public boolean flattenForms() {
+        return flattenForms;
+    }
+
+    /** Overlay options for a definition, falling back to this engine's checked-state image. */
+    public OverlayOptions options(FieldsDefinition definition) {
+        return OverlayOptions.from(definition, checkboxCheckedImage);
+    }
+
+    /**
+     * Page count and page sizes of a template; only the page tree is read.
+     *
+     * @throws IOException if the template cannot be parsed or has no pages
+     */
+    public TemplateLayout layout(byte[] template) throws IOException {
+        return loader.layout(template);
+    }
+
+    /**
+     * Parses the template once, records its layout and flattens its form (when enabled and present), keeping
+     * the prepared bytes for {@link Job#load()}. A definition in the AcroForm fill mode keeps the form: its values
+     * are written into the fields, see {@link PdfOverlayRenderer#fillForm}.
+     *
+     * @throws IOException if the template cannot be parsed or has no pages
+     */
+    public Job prepare(byte[] template, FieldsDefinition definition) throws IOException {
+        try (PDDocument document = loader.load(new ByteArrayInputStream(template))) {
+            TemplateLayout layout = TemplateLayout.of(document);
+            if (layout.pageCount() <= 0) {
+                throw new IOException("PDF template has no pages.");
+            }
+            byte[] prepared = template;
+            boolean acroFormFill = definition != null && definition.acroFormFill();
+            if (flattenForms && !acroFormFill && document.getDocumentCatalog().getAcroForm(null) != null) {
+                flatten(document);
+                ByteArrayOutputStream out = new ByteArrayOutputStream(template.length);
+                document.save(out);
+                prepared = out.toByteArray();
+            }
+            return new Job(prepared, layout, definition);
+        }
+    }
+
+    /**
+     * If the document has an AcroForm, flattens it so that widget appearances (e.g. gray field backgrounds) are
+     * merged into the page content stream and the overlay drawn afterwards is not covered by annotation layers.
+     * A failed flatten is logged and ignored; the overlay still runs.
+     */
+    public static void flatten(PDDocument document) {
+        try {
+            PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm(null);
+            if (acroForm == null) {
+                return;
+            }
+            acroForm.flatten();
+            log.debug("AcroForm flattened so overlay text will appear above field backgrounds.");
+        } catch (Exception e) {
+            log.warn("Could not flatten AcroForm (document may have no form or flatten failed): {}. Overlay will still run.", e.getMessage());
+        }
+    }
+
+    /** A template and definition compiled for repeated fills. Immutable and safe to share between threads. */
+    public final class Job {
+
+        private final byte[] template;
+        private final TemplateLayout layout;
+        private final List<FieldDefinition> fields;
+        private final OverlayOptions options;
+        private final boolean acroFormFill;
+        private final boolean flattenFilled;
+
+        private Job(byte[] template, TemplateLayout layout, FieldsDefinition definition) {
+            this.template = template;
+            this.layout = layout;
+            this.fields = definition != null && definition.fields() != null ? definition.fields() : Collections.emptyList();
+            this.options = options(definition);
+            this.acroFormFill = definition != null && definition.acroFormFill();
+            this.flattenFilled = definition != null && Boolean.TRUE.equals(definition.flattenFilled());
+        }
+
+        /** Layout of the original template (before flattening). */
+        public TemplateLayout layout() {
+            return layout;
+        }
+
+        public int templatePages() {
+            return layout.pageCount();
+        }
+
+        public List<FieldDefinition> fields() {
+            return fields;
+        }
+
+        /** A fresh copy of the prepared template; the caller closes it. */
+        public PDDocument load() throws IOException {
+            return loader.load(new ByteArrayInputStream(template));
+        }
+
+        /**
+         * Draws one record (field name to value) onto a document returned by {@link #load()}, or in the AcroForm
+         * fill mode sets it into the document's form fields.
+         */
+        public void render(PDDocument document, Map<String, Object> record) throws IOException {
+            if (acroFormFill) {
+                renderer.fillForm(document, fields, record, options, flattenFilled);
+            } else {
+                renderer.render(document, fields, record, options);
+            }
+        }
+
+        /**
+         * Fills one record and writes the PDF to {@code out}, which is left open. Returns the number of pages.
+         */
+        public int fill(Map<String, Object> record, WritableByteChannel out) throws IOException {
+            try (PDDocument document = load()) {
+                render(document, record);
+                save(document, out);
+                return document.getNumberOfPages();
+            }
+        }
+
+        /** Fills one record into {@code output}, replacing an existing file. Returns the number of pages. */
+        public int fill(Map<String, Object> record, Path output) throws IOException {
+            try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                return fill(record, out);
+            }
+        }
+    }
+
+    /**
+     * Saves through a buffer so PDFBox's many small writes become few channel writes. PDFBox closes the stream it
+     * saves to; here that only flushes, so the channel stays open for the caller.
+     */
+    public static void save(PDDocument document, WritableByteChannel out) throws IOException {
+        OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), WRITE_BUFFER_BYTES) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        document.save(stream);
+        stream.flush();
+    }
+}
@@ -0,0 +1,41 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Text fitting for one field. Fits usually take microseconds, so the default threshold keeps only slow
+ * ones; the admin recording can lower it to 0 to capture every field.
+ */
+@Name("com.pdfformfill.FieldFit")
+@Label("Field Fit")
+@Category({"PDF Form Fill", "Overlay"})
+@Description("Choosing font size, wrapping and truncation for one field value")
+@StackTrace(false)
+@Threshold("100 us")
+public class FieldFitEvent extends Event {
+
+    @Label("Field")
+    public String field;
+
+    @Label("Text Length")
+    public int textLength;
+
+    @Label("Multi-line")
+    public boolean multiLine;
+
+    @Label("Font Size")
+    public float fontSize;
+
+    @Label("Iterations")
+    @Description("Width measurements (single-line) or wrap passes (multi-line)")
+    public int iterations;
+
+    @Label("Truncated")
+    public boolean truncated;
+}
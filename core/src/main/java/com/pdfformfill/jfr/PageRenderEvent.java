@@ -0,0 +1,22 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.pdfformfill.PageRender")
+@Label("Page Render")
+@Category({"PDF Form Fill", "Overlay"})
+@Description("Drawing all overlay fields of one page")
+@StackTrace(false)
+public class PageRenderEvent extends Event {
+
+    @Label("Page")
+    public int page;
+
+    @Label("Fields")
+    public int fields;
+}
@@ -0,0 +1,89 @@
+package com.pdfformfill.pdf;
+
+import com.pdfformfill.dto.FieldDefinition;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDCheckBox;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDPushButton;
+import org.apache.pdfbox.pdmodel.interactive.form.PDRadioButton;
+import org.apache.pdfbox.pdmodel.interactive.form.PDSignatureField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTerminalField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 从模板已有的 AcroForm 生成字段定义草稿：每个表单控件（Widget）一条，name 为完整字段名，
+ * type 按字段类型映射（勾选框 → checkbox，签名 → signature，其余 → text），
+ * 多行文本框为 verticalAlign top，矩形换算为定义使用的坐标系（左上角原点，pt，不带 scale）。
+ * 按钮与单选组不输出：单选组的每个控件同名，写成 checkbox 后 mock 数据会勾上组内所有选项，定义也无法表达导出值。
+ * <p>
+ * 只遍历字段树与页面的 /Annots，不加载内容流，也不像 {@code getAcroForm()} 那样修正表单或生成外观流。
+ */
+public final class AcroFormExtractor {
+
+    private AcroFormExtractor() {
+    }
+
+    /** 按字段树顺序返回草稿字段；模板没有 AcroForm 时返回空列表。 */
+    public static List<FieldDefinition> extract(PDDocument document) {
+        PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm(null);
+        if (acroForm == null) {
+            return List.of();
+        }
+        // 控件不一定带 /P，按页面的 /Annots 找所在页
+        Map<COSDictionary, Integer> pageOf = new IdentityHashMap<>();
+        List<PDPage> pages = new ArrayList<>(document.getNumberOfPages());
+        for (PDPage page : document.getPages()) {
+            pages.add(page);
+            COSArray annots = page.getCOSObject().getCOSArray(COSName.ANNOTS);
+            if (annots == null) {
+                continue;
+            }
+            for (int i = 0; i < annots.size(); i++) {
+                if (annots.getObject(i) instanceof COSDictionary annot) {
+                    pageOf.putIfAbsent(annot, pages.size());
+                }
+            }
+        }
+
+        List<FieldDefinition> fields = new ArrayList<>();
+        for (PDField field : acroForm.getFieldTree()) {
+            if (!(field instanceof PDTerminalField terminal) || field instanceof PDPushButton
+                    || field instanceof PDRadioButton) {
+                continue;
+            }
+            String type = field instanceof PDCheckBox ? "checkbox"
+                    : field instanceof PDSignatureField ? "signature" : "text";
+            String verticalAlign = field instanceof PDTextField text && text.isMultiline() ? "top" : null;
+            String description = field.getAlternateFieldName();
+            for (PDAnnotationWidget widget : terminal.getWidgets()) {
+                Integer page = pageOf.get(widget.getCOSObject());
+                PDRectangle rect = widget.getRectangle();
+                if (page == null || rect == null || rect.getWidth() <= 0 || rect.getHeight() <= 0) {
+                    continue;
+                }
+                PDRectangle box = pages.get(page - 1).getMediaBox();
+                fields.add(new FieldDefinition(field.getFullyQualifiedName(), type, description,
+                        pt(rect.getLowerLeftX() - box.getLowerLeftX()), pt(box.getUpperRightY() - rect.getUpperRightY()),
+                        pt(rect.getWidth()), pt(rect.getHeight()), page, verticalAlign));
+            }
+        }
+        return fields;
+    }
+
+    /** 保留两位小数，草稿中不出现 72.30000305 这样的 float 尾数。 */
+    private static double pt(float value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,23 @@
+package com.pdfformfill.pdf;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 内容哈希：模板 id、预览与合并检查的缓存键、图片缓存键都按字节内容的 SHA-256 计算，统一用这里的实现。
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /** 字节内容的 SHA-256，小写十六进制。 */
+    public static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
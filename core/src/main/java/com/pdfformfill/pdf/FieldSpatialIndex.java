@@ -0,0 +1,285 @@
+package com.pdfformfill.pdf;
+
+import com.pdfformfill.dto.FieldDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 字段矩形的按页空间索引（均匀网格），用于找出互相重叠的字段以及与某个矩形相交的字段，
+ * 避免对成千上万个字段做两两比较。
+ * <p>
+ * 矩形使用定义的坐标系（左上角为原点，y 向下），已按 scale 换算为 pt；给出模板布局时先裁剪到页面内。
+ * 每页的网格单元边长取该页矩形宽高的中位数，矩形登记到它覆盖的所有单元；一对相交矩形只在其交集左上角所在的单元中
+ * 报告一次，因此不需要去重。覆盖超过 {@link #MAX_CELLS_PER_RECT} 个单元的矩形不进网格，单独列出并与该页矩形逐一比较，
+ * 少数特大矩形不会让网格膨胀。字段尺寸相近（表单的常见情况）时建索引与查找重叠都接近线性，
+ * 总代价 O(n log n + k)（k 为重叠对数）。
+ */
+public final class FieldSpatialIndex {
+
+    /** 小于此值（pt）的交集视为相邻而不是重叠，避免共用边线的相邻格子被误报。 */
+    public static final float TOUCH_TOLERANCE = 0.5f;
+    /** checkbox 未给出宽高时绘制的边长（pt），与 overlay 一致。 */
+    public static final float DEFAULT_CHECKBOX_SIZE = 16f;
+    /** 矩形最多登记到的网格单元数；更大的矩形放进该页的超大矩形列表。 */
+    static final int MAX_CELLS_PER_RECT = 256;
+
+    /** 一个字段（或控件）的矩形：page 为 1 起始页码，(x, y) 为左上角。 */
+    public record Rect(String name, int page, float x, float y, float width, float height) {
+
+        public float maxX() {
+            return x + width;
+        }
+
+        public float maxY() {
+            return y + height;
+        }
+    }
+
+    /** 两个字段的重叠；overlapWidth/overlapHeight 为交集尺寸（pt）。 */
+    public record Overlap(Rect a, Rect b, float overlapWidth, float overlapHeight) {}
+
+    private final Map<Integer, PageGrid> pages;
+
+    private FieldSpatialIndex(Map<Integer, PageGrid> pages) {
+        this.pages = pages;
+    }
+
+    /**
+     * 字段绘制时占据的矩形（pt）；缺少坐标、页码或没有可用宽高（checkbox 除外，默认 16pt）的字段返回 null。
+     */
+    public static Rect rect(FieldDefinition field, float scale) {
+        if (field.name() == null || field.x() == null || field.y() == null || field.page() == null) {
+            return null;
+        }
+        String type = field.type() != null ? field.type().toLowerCase(Locale.ROOT) : "";
+        boolean checkbox = "checkbox".equals(type) || "boolean".equals(type);
+        float width = field.width() != null && field.width() > 0 ? field.width().floatValue() / scale
+                : (checkbox ? DEFAULT_CHECKBOX_SIZE : 0f);
+        float height = field.height() != null && field.height() > 0 ? field.height().floatValue() / scale
+                : (checkbox ? DEFAULT_CHECKBOX_SIZE : 0f);
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        return new Rect(field.name(), field.page(), field.x().floatValue() / scale, field.y().floatValue() / scale,
+                width, height);
+    }
+
+    /** 为字段建索引；没有矩形的字段（见 {@link #rect}）不参与。 */
+    public static FieldSpatialIndex of(List<FieldDefinition> fields, float scale) {
+        List<Rect> rects = new ArrayList<>(fields.size());
+        for (FieldDefinition field : fields) {
+            Rect r = rect(field, scale);
+            if (r != null) {
+                rects.add(r);
+            }
+        }
+        return build(rects);
+    }
+
+    public static FieldSpatialIndex build(Collection<Rect> rects) {
+        return build(rects, null);
+    }
+
+    /**
+     * 为矩形建索引；{@code layout} 不为 null 时每个矩形先裁剪到所在页面（页面之外的部分不可见，不参与重叠），
+     * 完全在页面之外或页码超出模板的矩形不参与。
+     */
+    public static FieldSpatialIndex build(Collection<Rect> rects, TemplateLayout layout) {
+        Map<Integer, List<Rect>> byPage = new TreeMap<>();
+        for (Rect r : rects) {
+            Rect clamped = layout != null ? clamp(r, layout.page(r.page())) : r;
+            if (clamped != null) {
+                byPage.computeIfAbsent(r.page(), p -> new ArrayList<>()).add(clamped);
+            }
+        }
+        Map<Integer, PageGrid> grids = new TreeMap<>();
+        for (Map.Entry<Integer, List<Rect>> e : byPage.entrySet()) {
+            grids.put(e.getKey(), new PageGrid(e.getValue()));
+        }
+        return new FieldSpatialIndex(grids);
+    }
+
+    /** 所有互相重叠的字段对，按页码、再按交集左上角排序。 */
+    public List<Overlap> overlaps() {
+        List<Overlap> result = new ArrayList<>();
+        pages.values().forEach(grid -> grid.overlaps(result));
+        return result;
+    }
+
+    /** 与 {@code query} 重叠（交集超过 {@link #TOUCH_TOLERANCE}）的字段。 */
+    public List<Rect> intersecting(Rect query) {
+        PageGrid grid = pages.get(query.page());
+        return grid != null ? grid.intersecting(query) : List.of();
+    }
+
+    /** {@code r} 在页面内的部分；页面不存在或没有交集时返回 null。 */
+    static Rect clamp(Rect r, TemplateLayout.PageSize page) {
+        if (page == null) {
+            return null;
+        }
+        float x = Math.max(r.x(), 0f);
+        float y = Math.max(r.y(), 0f);
+        float width = Math.min(r.maxX(), page.width()) - x;
+        float height = Math.min(r.maxY(), page.height()) - y;
+        if (!(width > 0) || !(height > 0)) {
+            return null;
+        }
+        return x == r.x() && y == r.y() && width == r.width() && height == r.height()
+                ? r : new Rect(r.name(), r.page(), x, y, width, height);
+    }
+
+    private static boolean overlapping(Rect a, Rect b) {
+        return overlapWidth(a, b) > TOUCH_TOLERANCE && overlapHeight(a, b) > TOUCH_TOLERANCE;
+    }
+
+    private static float overlapWidth(Rect a, Rect b) {
+        return Math.min(a.maxX(), b.maxX()) - Math.max(a.x(), b.x());
+    }
+
+    private static float overlapHeight(Rect a, Rect b) {
+        return Math.min(a.maxY(), b.maxY()) - Math.max(a.y(), b.y());
+    }
+
+    /** 一页的网格：单元 (cx, cy) → 覆盖该单元的矩形；覆盖单元过多的矩形在 oversized 中。 */
+    private static final class PageGrid {
+
+        private final float cellWidth;
+        private final float cellHeight;
+        private final List<Rect> rects;
+        private final TreeMap<Long, List<Rect>> cells = new TreeMap<>();
+        private final List<Rect> oversized = new ArrayList<>();
+        private final boolean[] isOversized;
+
+        PageGrid(List<Rect> rects) {
+            this.rects = rects;
+            this.isOversized = new boolean[rects.size()];
+            // 中位数而不是平均值：个别特大矩形不会把单元撑大，让所有小字段挤进同一个单元
+            this.cellWidth = Math.max(1f, median(rects, true));
+            this.cellHeight = Math.max(1f, median(rects, false));
+            for (int i = 0; i < rects.size(); i++) {
+                Rect r = rects.get(i);
+                if (cellCount(r) > MAX_CELLS_PER_RECT) {
+                    isOversized[i] = true;
+                    oversized.add(r);
+                    continue;
+                }
+                for (int cy = cellY(r.y()); cy <= cellY(r.maxY()); cy++) {
+                    for (int cx = cellX(r.x()); cx <= cellX(r.maxX()); cx++) {
+                        cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>(2)).add(r);
+                    }
+                }
+            }
+        }
+
+        void overlaps(List<Overlap> out) {
+            int start = out.size();
+            gridOverlaps(out);
+            if (oversized.isEmpty()) {
+                return;
+            }
+            for (int i = 0; i < rects.size(); i++) {
+                if (!isOversized[i]) {
+                    continue;
+                }
+                for (int j = 0; j < rects.size(); j++) {
+                    // 两个超大矩形的重叠对只在处理靠前的一个时报告；与网格一致，先出现的字段在前
+                    if (j == i || (isOversized[j] && j < i)) {
+                        continue;
+                    }
+                    Rect a = rects.get(Math.min(i, j));
+                    Rect b = rects.get(Math.max(i, j));
+                    if (overlapping(a, b)) {
+                        out.add(new Overlap(a, b, overlapWidth(a, b), overlapHeight(a, b)));
+                    }
+                }
+            }
+            // 与网格结果保持同一顺序：按交集左上角所在单元（行优先）稳定排序
+            out.subList(start, out.size()).sort(Comparator.comparingLong(
+                    o -> key(cellX(Math.max(o.a().x(), o.b().x())), cellY(Math.max(o.a().y(), o.b().y())))));
+        }
+
+        private void gridOverlaps(List<Overlap> out) {
+            for (Map.Entry<Long, List<Rect>> cell : cells.entrySet()) {
+                List<Rect> inCell = cell.getValue();
+                int cy = (int) (cell.getKey() >> 32);
+                int cx = (int) cell.getKey().longValue();
+                for (int i = 0; i < inCell.size(); i++) {
+                    for (int j = i + 1; j < inCell.size(); j++) {
+                        Rect a = inCell.get(i);
+                        Rect b = inCell.get(j);
+                        // 交集左上角所在单元负责报告，同一对只报告一次
+                        if (overlapping(a, b)
+                                && cellX(Math.max(a.x(), b.x())) == cx && cellY(Math.max(a.y(), b.y())) == cy) {
+                            out.add(new Overlap(a, b, overlapWidth(a, b), overlapHeight(a, b)));
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Rect> intersecting(Rect query) {
+            List<Rect> result = new ArrayList<>();
+            if (cellCount(query) > MAX_CELLS_PER_RECT) {
+                for (Rect r : rects) {
+                    if (overlapping(query, r)) {
+                        result.add(r);
+                    }
+                }
+                return result;
+            }
+            for (Rect r : oversized) {
+                if (overlapping(query, r)) {
+                    result.add(r);
+                }
+            }
+            for (int cy = cellY(query.y()); cy <= cellY(query.maxY()); cy++) {
+                for (int cx = cellX(query.x()); cx <= cellX(query.maxX()); cx++) {
+                    List<Rect> inCell = cells.get(key(cx, cy));
+                    if (inCell == null) {
+                        continue;
+                    }
+                    for (Rect r : inCell) {
+                        if (overlapping(query, r)
+                                && cellX(Math.max(query.x(), r.x())) == cx && cellY(Math.max(query.y(), r.y())) == cy) {
+                            result.add(r);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        private long cellCount(Rect r) {
+            return ((long) cellX(r.maxX()) - cellX(r.x()) + 1) * ((long) cellY(r.maxY()) - cellY(r.y()) + 1);
+        }
+
+        private static float median(List<Rect> rects, boolean width) {
+            float[] values = new float[rects.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = width ? rects.get(i).width() : rects.get(i).height();
+            }
+            Arrays.sort(values);
+            return values[values.length / 2];
+        }
+
+        private int cellX(float x) {
+            return (int) Math.floor(x / cellWidth);
+        }
+
+        private int cellY(float y) {
+            return (int) Math.floor(y / cellHeight);
+        }
+
+        /** 行优先：先按 cy 再按 cx 排序，overlaps() 的输出因此按从上到下、从左到右的顺序。 */
+        private static long key(int cx, int cy) {
+            return ((long) cy << 32) | (cx & 0xffffffffL);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.pdfformfill.pdf;
+
+import com.pdfformfill.dto.FieldDefinition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * merge 输出哪些模板页（请求参数 pages）：
+ * <ul>
+ *   <li>不传或 {@code all}：全部页面（默认，不做子集）</li>
+ *   <li>{@code fields}：definition 中字段所在的页（{@link FieldDefinition#page()}）</li>
+ *   <li>页码范围，如 {@code 1-3,7,10-}：1 起始，闭区间，{@code 10-} 表示到最后一页</li>
+ * </ul>
+ * 超出模板页数的页码忽略。
+ */
+public final class PageSelection {
+
+    public static final PageSelection ALL = new PageSelection(false, List.of());
+
+    private static final PageSelection FIELDS = new PageSelection(true, List.of());
+
+    /** 闭区间 [from, to]，to 为 Integer.MAX_VALUE 表示到最后一页。 */
+    private record Range(int from, int to) {}
+
+    private final boolean fieldPages;
+    private final List<Range> ranges;
+
+    private PageSelection(boolean fieldPages, List<Range> ranges) {
+        this.fieldPages = fieldPages;
+        this.ranges = ranges;
+    }
+
+    /**
+     * 解析 pages 参数。
+     *
+     * @throws IllegalArgumentException 格式不合法时
+     */
+    public static PageSelection parse(String spec) {
+        if (spec == null || spec.isBlank() || spec.trim().equalsIgnoreCase("all")) {
+            return ALL;
+        }
+        String s = spec.trim().toLowerCase(Locale.ROOT);
+        if (s.equals("fields")) {
+            return FIELDS;
+        }
+        List<Range> ranges = new ArrayList<>();
+        for (String part : s.split(",")) {
+            String p = part.trim();
+            int dash = p.indexOf('-');
+            try {
+                if (dash < 0) {
+                    int page = Integer.parseInt(p);
+                    ranges.add(checked(page, page, spec));
+                } else {
+                    int from = Integer.parseInt(p.substring(0, dash).trim());
+                    String end = p.substring(dash + 1).trim();
+                    ranges.add(checked(from, end.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(end), spec));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid pages: '" + spec + "' (use all, fields or ranges like 1-3,7)");
+            }
+        }
+        return new PageSelection(false, List.copyOf(ranges));
+    }
+
+    private static Range checked(int from, int to, String spec) {
+        if (from < 1 || to < from) {
+            throw new IllegalArgumentException("Invalid page range in '" + spec + "'");
+        }
+        return new Range(from, to);
+    }
+
+    public boolean isAll() {
+        return !fieldPages && ranges.isEmpty();
+    }
+
+    /**
+     * 解析为升序、去重的 1 起始页码；{@link #isAll()} 时返回全部页码。
+     */
+    public int[] resolve(List<FieldDefinition> fields, int pageCount) {
+        BitSet pages = new BitSet(pageCount + 1);
+        if (isAll()) {
+            pages.set(1, pageCount + 1);
+        } else if (fieldPages) {
+            if (fields != null) {
+                for (FieldDefinition field : fields) {
+                    if (field.page() != null && field.page() >= 1 && field.page() <= pageCount) {
+                        pages.set(field.page());
+                    }
+                }
+            }
+        } else {
+            for (Range range : ranges) {
+                if (range.from() <= pageCount) {
+                    pages.set(range.from(), Math.min(range.to(), pageCount) + 1);
+                }
+            }
+        }
+        return pages.stream().toArray();
+    }
+}
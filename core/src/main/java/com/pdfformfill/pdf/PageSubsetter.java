@@ -0,0 +1,203 @@
+package com.pdfformfill.pdf;
+
+import com.pdfformfill.dto.FieldDefinition;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+import org.apache.pdfbox.util.Matrix;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把模板中选中的页面复制到一个新文档（页码子集），后续 flatten、overlay 与保存只处理这些页。
+ * <p>
+ * PDFBox 按需解析对象：模板加载只读 xref，只有被访问的页面及其资源才会被解析；新文档保存时也只写出从选中页面
+ * 可达的对象。为此复制页面时会切断指回原文档其他部分的引用：
+ * <ul>
+ *   <li>页面字典浅复制，去掉 /Parent 与 /B（文章线程），继承的 MediaBox/CropBox/Rotate/Resources 显式写入；
+ *       内容流直接引用，不解码、不重新压缩</li>
+ *   <li>表单控件（Widget）的外观直接画进页面内容后移除（只拍平选中页面上的控件，而不是整个 AcroForm）：
+ *       控件属于整个字段树，无法单独带入子集，因此子集输出中的表单域总是被拍平</li>
+ *   <li>其他注释浅复制，去掉 /P、/Popup、/IRT 与指向页面的跳转（/Dest、GoTo 动作）；Popup 注释丢弃</li>
+ * </ul>
+ * 调用方在保存子集之前不能关闭原文档（子集引用原文档的对象）。
+ */
+public class PageSubsetter {
+
+    /**
+     * 子集文档与页码映射。
+     *
+     * @param document    新文档，由调用方关闭
+     * @param sourcePages 子集第 i 页（0 起始）对应的模板页码（1 起始）
+     */
+    public record Subset(PDDocument document, int[] sourcePages) {
+
+        /** 见 {@link PageSubsetter#remap(List, int[])}。 */
+        public List<FieldDefinition> remap(List<FieldDefinition> fields) {
+            return PageSubsetter.remap(fields, sourcePages);
+        }
+    }
+
+    /**
+     * 把字段的页码换成副本中的页码（sourcePages[i] 对应第 i + 1 页），丢弃不在副本中的页面上的字段。
+     */
+    public static List<FieldDefinition> remap(List<FieldDefinition> fields, int[] sourcePages) {
+        Map<Integer, Integer> newPage = new HashMap<>();
+        for (int i = 0; i < sourcePages.length; i++) {
+            newPage.put(sourcePages[i], i + 1);
+        }
+        List<FieldDefinition> result = new ArrayList<>(fields.size());
+        for (FieldDefinition f : fields) {
+            Integer page = f.page() != null ? newPage.get(f.page()) : null;
+            if (page != null) {
+                result.add(new FieldDefinition(f.name(), f.type(), f.description(), f.x(), f.y(), f.width(),
+                        f.height(), page, f.verticalAlign()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 把 {@code pages}（1 起始、升序）复制到新文档。
+     *
+     * @throws IllegalArgumentException 没有选中任何页面时（页码超出模板或 pages=fields 时没有字段，属请求错误）
+     * @throws IOException 读取页面失败时
+     */
+    public Subset subset(PDDocument source, int[] pages) throws IOException {
+        if (pages.length == 0) {
+            throw new IllegalArgumentException("No template pages selected.");
+        }
+        PDDocument target = new PDDocument();
+        try {
+            target.getDocument().setVersion(source.getDocument().getVersion());
+            append(target, source, pages);
+            return new Subset(target, pages.clone());
+        } catch (IOException | RuntimeException e) {
+            target.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 把 {@code pages}（1 起始）的一份副本追加到 {@code target} 末尾，返回追加的页面（顺序与 pages 相同）。
+     * 多次追加同一模板时，各副本共享模板的内容流与资源对象（字体、图片、Form XObject），保存时只写一次。
+     */
+    public List<PDPage> append(PDDocument target, PDDocument source, int[] pages) throws IOException {
+        List<PDPage> copies = new ArrayList<>(pages.length);
+        for (int page : pages) {
+            PDPage copy = copyPage(target, source.getPage(page - 1));
+            target.addPage(copy);
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static PDPage copyPage(PDDocument target, PDPage page) throws IOException {
+        COSDictionary dict = new COSDictionary(page.getCOSObject());
+        dict.removeItem(COSName.PARENT);
+        dict.removeItem(COSName.B);
+        dict.removeItem(COSName.ANNOTS);
+        // 内容流数组本身要复制：向副本追加内容时会修改数组，不能影响模板和其他副本（数组元素即流对象仍共享）
+        if (dict.getDictionaryObject(COSName.CONTENTS) instanceof COSArray contents) {
+            COSArray own = new COSArray();
+            for (int i = 0; i < contents.size(); i++) {
+                own.add(contents.get(i));
+            }
+            dict.setItem(COSName.CONTENTS, own);
+        }
+        PDPage copy = new PDPage(dict);
+        // 继承属性保存在原文档的页面树上，页面树不复制
+        copy.setMediaBox(page.getMediaBox());
+        copy.setCropBox(page.getCropBox());
+        copy.setRotation(page.getRotation());
+        if (page.getResources() != null) {
+            copy.setResources(page.getResources());
+        }
+
+        List<PDAnnotation> widgets = new ArrayList<>();
+        COSArray annots = new COSArray();
+        for (PDAnnotation annotation : page.getAnnotations()) {
+            String subtype = annotation.getSubtype();
+            if ("Widget".equals(subtype)) {
+                widgets.add(annotation);
+            } else if (!"Popup".equals(subtype)) {
+                annots.add(detach(annotation.getCOSObject()));
+            }
+        }
+        if (annots.size() > 0) {
+            dict.setItem(COSName.ANNOTS, annots);
+        }
+        flattenWidgets(target, copy, widgets);
+        return copy;
+    }
+
+    /** 注释的浅复制，去掉指回原文档页面树的引用。 */
+    private static COSDictionary detach(COSDictionary annotation) {
+        COSDictionary copy = new COSDictionary(annotation);
+        copy.removeItem(COSName.P);
+        copy.removeItem(COSName.POPUP);
+        copy.removeItem(COSName.getPDFName("IRT"));
+        copy.removeItem(COSName.DEST);
+        COSBase action = copy.getDictionaryObject(COSName.A);
+        if (action instanceof COSDictionary a && "GoTo".equals(a.getNameAsString(COSName.S))) {
+            copy.removeItem(COSName.A);
+        }
+        return copy;
+    }
+
+    /**
+     * 把控件的普通外观画进页面（与 PDAcroForm.flatten 相同的变换：外观 BBox 经 /Matrix 变换后映射到 /Rect），
+     * 隐藏或没有外观的控件直接丢弃。
+     */
+    private static void flattenWidgets(PDDocument target, PDPage page, List<PDAnnotation> widgets) throws IOException {
+        List<PDAnnotation> visible = new ArrayList<>(widgets.size());
+        for (PDAnnotation widget : widgets) {
+            if (isVisible(widget)) {
+                visible.add(widget);
+            }
+        }
+        if (visible.isEmpty()) {
+            return;
+        }
+        try (PDPageContentStream cs = new PDPageContentStream(target, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+            for (PDAnnotation widget : visible) {
+                PDAppearanceStream appearance = widget.getNormalAppearanceStream();
+                PDRectangle rect = widget.getRectangle();
+                Rectangle2D box = appearance.getBBox().transform(appearance.getMatrix()).getBounds2D();
+                Matrix transform = Matrix.getTranslateInstance(
+                        (float) (rect.getLowerLeftX() - box.getX()), (float) (rect.getLowerLeftY() - box.getY()));
+                transform.scale((float) (rect.getWidth() / box.getWidth()), (float) (rect.getHeight() / box.getHeight()));
+                cs.saveGraphicsState();
+                cs.transform(transform);
+                cs.drawForm(new PDFormXObject(appearance.getCOSObject()));
+                cs.restoreGraphicsState();
+            }
+        }
+    }
+
+    private static boolean isVisible(PDAnnotation widget) {
+        if (widget.isInvisible() || widget.isHidden() || widget.getRectangle() == null) {
+            return false;
+        }
+        PDAppearanceStream appearance = widget.getNormalAppearanceStream();
+        if (appearance == null) {
+            return false;
+        }
+        PDRectangle bbox = appearance.getBBox();
+        return bbox != null && bbox.getWidth() > 0 && bbox.getHeight() > 0
+                && widget.getRectangle().getWidth() > 0 && widget.getRectangle().getHeight() > 0;
+    }
+}
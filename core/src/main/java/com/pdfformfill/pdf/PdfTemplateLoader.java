@@ -0,0 +1,51 @@
+package com.pdfformfill.pdf;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * 加载 PDF 模板为 {@link PDDocument}，不填表、仅加载。
+ * 调用方负责关闭返回的 PDDocument（或使用 try-with-resources）。
+ */
+public class PdfTemplateLoader {
+
+    /**
+     * 从输入流加载 PDF，返回的文档由调用方负责关闭。
+     *
+     * @param inputStream PDF 数据流，由调用方管理生命周期
+     * @return 非 null 的 PDDocument
+     * @throws IOException 读取或解析失败时抛出
+     */
+    public PDDocument load(InputStream inputStream) throws IOException {
+        return Loader.loadPDF(new RandomAccessReadBuffer(inputStream));
+    }
+
+    /**
+     * 从文件加载 PDF（模板库中的模板），对象按需从文件读取，不把整个文件读入内存。返回的文档由调用方负责关闭。
+     *
+     * @throws IOException 读取或解析失败时抛出
+     */
+    public PDDocument load(Path file) throws IOException {
+        return Loader.loadPDF(file.toFile());
+    }
+
+    /**
+     * 只读取模板的页面布局（页数与各页尺寸）。PDFBox 按需解析对象，这里只访问页面树，内容流不会被读取。
+     *
+     * @throws IOException 解析失败或模板没有页面时抛出
+     */
+    public TemplateLayout layout(byte[] pdf) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            TemplateLayout layout = TemplateLayout.of(document);
+            if (layout.pageCount() == 0) {
+                throw new IOException("PDF template has no pages.");
+            }
+            return layout;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.pdfformfill.pdf;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.util.List;
+
+/**
+ * 模板的 sidecar 索引：遍历一次模板对象树得到的全部结构信息，以 JSON 保存在模板旁边（见 TemplateStore），
+ * 之后的 merge 与预检直接读取它，不再打开 PDF 遍历页面树与字段树。
+ * <p>
+ * 模板按内容 SHA-256 存储，同一 sha256 的索引永远有效；{@link #VERSION} 变化（索引格式或提取规则改变）时重建。
+ *
+ * @param version       索引格式版本
+ * @param sha256        模板内容的 SHA-256（十六进制），即模板 id
+ * @param bytes         模板字节数
+ * @param pages         各页 MediaBox 尺寸（pt）
+ * @param filledWidgets 已显示值的表单控件，见 {@link TemplateLayout#filledWidgets()}
+ * @param fields        从 AcroForm 提取的字段定义草稿，见 {@link AcroFormExtractor}
+ */
+public record TemplateIndex(
+        int version,
+        String sha256,
+        long bytes,
+        List<TemplateLayout.PageSize> pages,
+        List<FieldSpatialIndex.Rect> filledWidgets,
+        List<FieldDefinition> fields
+) {
+
+    public static final int VERSION = 2;
+
+    public TemplateIndex {
+        pages = pages != null ? List.copyOf(pages) : List.of();
+        filledWidgets = filledWidgets != null ? List.copyOf(filledWidgets) : List.of();
+        fields = fields != null ? List.copyOf(fields) : List.of();
+    }
+
+    /** 遍历已加载的模板建立索引（只读页面树、注释与字段树，不加载内容流）。 */
+    public static TemplateIndex of(String sha256, long bytes, PDDocument document) {
+        TemplateLayout layout = TemplateLayout.of(document);
+        return new TemplateIndex(VERSION, sha256, bytes, layout.pages(), layout.filledWidgets(),
+                AcroFormExtractor.extract(document));
+    }
+
+    public TemplateLayout layout() {
+        return new TemplateLayout(pages, filledWidgets);
+    }
+
+    /** 字段定义草稿（坐标为 pt，不带 scale），可直接用于 merge 或下载后编辑。 */
+    public FieldsDefinition definition() {
+        return new FieldsDefinition(fields);
+    }
+}
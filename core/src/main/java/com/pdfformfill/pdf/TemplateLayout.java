@@ -0,0 +1,110 @@
+package com.pdfformfill.pdf;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模板的页面布局：每页 MediaBox 的宽高（pt），与 overlay 绘制时换算坐标用的页面尺寸一致；
+ * 以及已经显示了值的表单控件（Widget）的矩形，字段画在这些控件上会与原有内容重叠。
+ * 只读取页面树中的页面字典（含继承的 MediaBox）与注释字典，不解析内容流与资源，因此远比加载并渲染模板便宜。
+ *
+ * @param filledWidgets 有值的控件（文本非空、勾选框非 Off），坐标与字段定义相同（左上角原点，pt），name 为完整字段名
+ */
+public record TemplateLayout(List<PageSize> pages, List<FieldSpatialIndex.Rect> filledWidgets) {
+
+    /** 一页的宽高（pt）。 */
+    public record PageSize(float width, float height) {}
+
+    /** 字段继承链（/Parent）的最大深度，防止损坏文件中的循环引用。 */
+    private static final int MAX_FIELD_DEPTH = 32;
+
+    public TemplateLayout {
+        pages = List.copyOf(pages);
+        filledWidgets = List.copyOf(filledWidgets);
+    }
+
+    public TemplateLayout(List<PageSize> pages) {
+        this(pages, List.of());
+    }
+
+    public static TemplateLayout of(PDDocument document) {
+        List<PageSize> sizes = new ArrayList<>(document.getNumberOfPages());
+        List<FieldSpatialIndex.Rect> widgets = new ArrayList<>();
+        int pageNumber = 0;
+        for (PDPage page : document.getPages()) {
+            pageNumber++;
+            PDRectangle box = page.getMediaBox();
+            sizes.add(new PageSize(box.getWidth(), box.getHeight()));
+            COSArray annots = page.getCOSObject().getCOSArray(COSName.ANNOTS);
+            if (annots == null) {
+                continue;
+            }
+            for (int i = 0; i < annots.size(); i++) {
+                if (annots.getObject(i) instanceof COSDictionary annot
+                        && COSName.WIDGET.equals(annot.getCOSName(COSName.SUBTYPE))
+                        && annot.getCOSArray(COSName.RECT) != null
+                        && showsValue(annot)) {
+                    PDRectangle rect = new PDRectangle(annot.getCOSArray(COSName.RECT));
+                    widgets.add(new FieldSpatialIndex.Rect(fieldName(annot), pageNumber,
+                            rect.getLowerLeftX() - box.getLowerLeftX(), box.getUpperRightY() - rect.getUpperRightY(),
+                            rect.getWidth(), rect.getHeight()));
+                }
+            }
+        }
+        return new TemplateLayout(sizes, widgets);
+    }
+
+    public int pageCount() {
+        return pages.size();
+    }
+
+    /** 第 page 页（1 起始）的尺寸，超出范围时返回 null。 */
+    public PageSize page(int page) {
+        return page >= 1 && page <= pages.size() ? pages.get(page - 1) : null;
+    }
+
+    /** 控件所属字段的值（/V 可继承自父字段）：非空文本、非 Off 的名称或非空数组视为有值。 */
+    private static boolean showsValue(COSDictionary widget) {
+        COSDictionary node = widget;
+        for (int depth = 0; node != null && depth < MAX_FIELD_DEPTH; depth++) {
+            COSBase value = node.getDictionaryObject(COSName.V);
+            if (value instanceof COSString s) {
+                return !s.getString().isBlank();
+            }
+            if (value instanceof COSName n) {
+                return !"Off".equals(n.getName());
+            }
+            if (value instanceof COSArray a) {
+                return a.size() > 0;
+            }
+            if (value != null) {
+                return false;
+            }
+            node = node.getCOSDictionary(COSName.PARENT);
+        }
+        return false;
+    }
+
+    /** 完整字段名：沿 /Parent 链拼接 /T。 */
+    private static String fieldName(COSDictionary widget) {
+        StringBuilder name = new StringBuilder();
+        COSDictionary node = widget;
+        for (int depth = 0; node != null && depth < MAX_FIELD_DEPTH; depth++) {
+            String partial = node.getString(COSName.T);
+            if (partial != null) {
+                name.insert(0, name.length() > 0 ? partial + "." : partial);
+            }
+            node = node.getCOSDictionary(COSName.PARENT);
+        }
+        return name.toString();
+    }
+}
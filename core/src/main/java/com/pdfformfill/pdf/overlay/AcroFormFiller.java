@@ -0,0 +1,468 @@
+package com.pdfformfill.pdf.overlay;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.engine.Deadline;
+import com.pdfformfill.jfr.FieldFitEvent;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceCharacteristicsDictionary;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDBorderStyleDictionary;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDCheckBox;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDRadioButton;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTerminalField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fills one document in the AcroForm fill mode (see {@link PdfOverlayRenderer#fillForm}). Text fields get their
+ * value in /V and a normal appearance written directly from a cached {@link AppearanceCache.Template}: only the
+ * text operators are produced per fill, fitted with the renderer's text-fit cache and font chain. Checkboxes with
+ * an on-state are checked through PDFBox; checkboxes without one get generated /Yes and /Off appearances (a
+ * check mark path), shared by all widgets of the same size and style in the document. A radio group is set
+ * to one of its on-values (a boolean selects the first on-value or Off). Choice fields and rotated or comb text
+ * widgets are set through PDFBox, which builds their appearances.
+ * <p>
+ * All generated appearances share one resource dictionary, so the fonts are referenced once per document.
+ * Not thread-safe; one instance per document.
+ */
+final class AcroFormFiller {
+
+    private static final Logger log = LoggerFactory.getLogger(AcroFormFiller.class);
+
+    private static final COSName ON = COSName.getPDFName("Yes");
+
+    private final PdfOverlayRenderer renderer;
+    private final PDDocument document;
+    private final PDAcroForm acroForm;
+    private final OverlayFont font;
+    private final OverlayOptions options;
+    private final AppearanceCache cache;
+    private final String color;
+    private final PDResources resources = new PDResources();
+    private final Map<PDFont, COSName> fontNames = new HashMap<>();
+    private final Map<AppearanceCache.Key, PDAppearanceStream> checkStreams = new HashMap<>();
+
+    AcroFormFiller(PdfOverlayRenderer renderer, PDDocument document, PDAcroForm acroForm, OverlayFont font,
+                   OverlayOptions options, AppearanceCache cache) {
+        this.renderer = renderer;
+        this.document = document;
+        this.acroForm = acroForm;
+        this.font = font;
+        this.options = options;
+        this.cache = cache;
+        this.color = colorOperator(options.fontColorRgb(), "rg");
+    }
+
+    /**
+     * Fills the form fields named by the definition; returns the definition fields to draw as overlay instead
+     * (no form field of that name, or an image or signature field).
+     */
+    List<FieldDefinition> fill(List<FieldDefinition> fields, Map<String, Object> fieldData, boolean flattenFilled)
+            throws IOException {
+        Map<String, PDTerminalField> byName = new HashMap<>();
+        for (PDField field : acroForm.getFieldTree()) {
+            if (field instanceof PDTerminalField terminal) {
+                byName.put(terminal.getFullyQualifiedName(), terminal);
+            }
+        }
+        List<FieldDefinition> overlay = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        List<PDField> filled = new ArrayList<>();
+        for (FieldDefinition definition : fields) {
+            if (definition.name() == null) {
+                continue;
+            }
+            String type = definition.type() != null ? definition.type().toLowerCase() : "";
+            PDTerminalField field = PdfOverlayRenderer.isImage(type) ? null : byName.get(definition.name());
+            if (field == null) {
+                overlay.add(definition);
+                continue;
+            }
+            // The extractor writes one definition entry per widget; the field fills all of them at once
+            if (!seen.add(definition.name())) {
+                continue;
+            }
+            Object value = fieldData != null ? fieldData.get(definition.name()) : null;
+            if (value == null) {
+                continue;
+            }
+            Deadline.check();
+            if (fill(field, definition, type, value)) {
+                filled.add(field);
+            }
+        }
+        registerSubsetFonts();
+        if (flattenFilled && !filled.isEmpty()) {
+            acroForm.flatten(filled, false);
+        }
+        return overlay;
+    }
+
+    private boolean fill(PDTerminalField field, FieldDefinition definition, String type, Object value) throws IOException {
+        try {
+            if (field instanceof PDCheckBox checkBox) {
+                check(checkBox, Boolean.TRUE.equals(value));
+            } else if (field instanceof PDRadioButton radio) {
+                if (!select(radio, definition, value)) {
+                    return false;
+                }
+            } else if (field instanceof PDTextField text && !text.isComb() && !rotated(text)) {
+                String string = value.toString();
+                text.getCOSObject().setString(COSName.V, string);
+                for (PDAnnotationWidget widget : text.getWidgets()) {
+                    appearText(text, definition, widget, string);
+                }
+            } else {
+                field.setValue(value.toString());
+            }
+            renderer.fireFieldRendered(type);
+            return true;
+        } catch (IOException | IllegalArgumentException | UnsupportedOperationException e) {
+            log.warn("AcroForm fill failed for field '{}': {}", definition.name(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void appearText(PDTextField field, FieldDefinition definition, PDAnnotationWidget widget, String value)
+            throws IOException {
+        PDRectangle rect = widget.getRectangle();
+        if (rect == null) {
+            return;
+        }
+        float width = rect.getWidth();
+        float height = rect.getHeight();
+        boolean multiLine = field.isMultiline();
+        String safe = font.sanitize(value);
+        float fontSize = options.fontSize();
+        List<String> lines = safe.isEmpty() ? List.of() : List.of(safe);
+        if (!safe.isEmpty()) {
+            long start = System.nanoTime();
+            FieldFitEvent fitEvent = new FieldFitEvent();
+            fitEvent.begin();
+            PdfOverlayRenderer.TextLayout layout = renderer.layoutBox(font, safe, width, height, multiLine,
+                    options.fontSize(), options.minFontSize(), options.paddingX(), options.paddingY());
+            if (layout.multiLine() != null) {
+                PdfOverlayRenderer.MultiLineResult ml = layout.multiLine();
+                fontSize = ml.fontSize();
+                lines = ml.lines();
+                renderer.fireFitEvents(definition.name(), fontSize < options.fontSize(), ml.truncated(), lines.size());
+                renderer.fireFieldFitted(definition.name(), safe.length(), fontSize, ml.iterations(), System.nanoTime() - start);
+                PdfOverlayRenderer.commitFitEvent(fitEvent, definition.name(), safe.length(), true, fontSize,
+                        ml.iterations(), ml.truncated());
+            } else if (layout.singleLine() != null) {
+                TextFitCache.SingleLineFit fit = layout.singleLine();
+                fontSize = fit.fontSize();
+                lines = List.of(fit.text());
+                renderer.fireFitEvents(definition.name(), fontSize < options.fontSize(), fit.truncated(), 1);
+                renderer.fireFieldFitted(definition.name(), safe.length(), fontSize, fit.iterations(), System.nanoTime() - start);
+                PdfOverlayRenderer.commitFitEvent(fitEvent, definition.name(), safe.length(), false, fontSize,
+                        fit.iterations(), fit.truncated());
+            }
+        }
+
+        String verticalAlign = multiLine ? "top"
+                : definition.verticalAlign() != null ? definition.verticalAlign().toLowerCase() : "middle";
+        float size = fontSize;
+        AppearanceCache.Key key = new AppearanceCache.Key(definition.name(), width, height, style(widget),
+                multiLine ? "multi" : "single", font.name(), size, field.getQ(), verticalAlign,
+                options.paddingX(), options.paddingY(), color);
+        AppearanceCache.Template template = cache.get(key,
+                () -> textTemplate(widget, width, height, size, verticalAlign));
+
+        StringBuilder ops = new StringBuilder(lines.size() * 64);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            float x = template.textX();
+            if (field.getQ() != 0) {
+                float slack = template.widthLimit() - font.stringWidth(line) / 1000f * size;
+                x += Math.max(0f, field.getQ() == 1 ? slack / 2f : slack);
+            }
+            ops.append("1 0 0 1 ");
+            number(ops, x).append(' ');
+            number(ops, template.baseline() - i * template.leading()).append(" Tm\n");
+            showText(ops, line, size);
+        }
+        byte[] text = ops.toString().getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream content = new ByteArrayOutputStream(
+                template.header().length + text.length + AppearanceCache.FOOTER.length);
+        content.writeBytes(template.header());
+        content.writeBytes(text);
+        content.writeBytes(AppearanceCache.FOOTER);
+        PDAppearanceDictionary appearance = new PDAppearanceDictionary();
+        appearance.setNormalAppearance(stream(width, height, content.toByteArray()));
+        widget.setAppearance(appearance);
+    }
+
+    /**
+     * Header of a text appearance: background and border from /MK, a clip inside the border, the text colour;
+     * and the text origin, first baseline and leading for the font size.
+     */
+    private AppearanceCache.Template textTemplate(PDAnnotationWidget widget, float width, float height, float fontSize,
+                                                  String verticalAlign) throws IOException {
+        StringBuilder header = new StringBuilder(128).append("/Tx BMC\nq\n");
+        float border = frame(header, widget, width, height);
+        number(header, border).append(' ');
+        number(header, border).append(' ');
+        number(header, width - 2 * border).append(' ');
+        number(header, height - 2 * border).append(" re W n\nBT\n").append(color);
+
+        PDFont primary = font.primary();
+        float ascent = primary.getFontDescriptor() != null
+                ? fontSize * primary.getFontDescriptor().getAscent() / 1000f : fontSize * 0.718f;
+        float descent = primary.getFontDescriptor() != null
+                ? fontSize * primary.getFontDescriptor().getDescent() / 1000f : fontSize * -0.176f;
+        float baseline = "top".equals(verticalAlign)
+                ? height - options.paddingY() - ascent
+                : height / 2f - (ascent + descent) / 2f;
+        return new AppearanceCache.Template(header.toString().getBytes(StandardCharsets.US_ASCII), options.paddingX(),
+                baseline, fontSize * PdfOverlayRenderer.DEFAULT_LINE_HEIGHT_FACTOR,
+                PdfOverlayRenderer.textWidthLimit(width, options.paddingX()));
+    }
+
+    /** Checks or clears a checkbox; one without an on-state first gets generated /Yes and /Off appearances. */
+    private void check(PDCheckBox checkBox, boolean checked) throws IOException {
+        if (!checkBox.getOnValue().isEmpty()) {
+            if (checked) {
+                checkBox.check();
+            } else {
+                checkBox.unCheck();
+            }
+            return;
+        }
+        for (PDAnnotationWidget widget : checkBox.getWidgets()) {
+            PDRectangle rect = widget.getRectangle();
+            if (rect == null) {
+                continue;
+            }
+            COSDictionary normal = new COSDictionary();
+            normal.setItem(ON, checkStream(widget, rect, true));
+            normal.setItem(COSName.Off, checkStream(widget, rect, false));
+            PDAppearanceDictionary appearance = new PDAppearanceDictionary();
+            appearance.getCOSObject().setItem(COSName.N, normal);
+            widget.setAppearance(appearance);
+            widget.getCOSObject().setItem(COSName.AS, checked ? ON : COSName.Off);
+        }
+        checkBox.getCOSObject().setItem(COSName.V, checked ? ON : COSName.Off);
+    }
+
+    /**
+     * Selects a radio group's state: a string must be one of its on-values or Off, true is the first on-value and
+     * false is Off. Returns false, leaving the group unset, for any other value (mock data has no on-values).
+     */
+    private static boolean select(PDRadioButton radio, FieldDefinition definition, Object value) throws IOException {
+        Set<String> onValues = radio.getOnValues();
+        String state;
+        if (value instanceof Boolean checked) {
+            state = checked ? onValues.stream().findFirst().orElse(null) : COSName.Off.getName();
+        } else {
+            state = value.toString();
+        }
+        if (state == null || !state.equals(COSName.Off.getName()) && !onValues.contains(state)) {
+            log.debug("Radio group '{}' left unset: '{}' is not one of {}", definition.name(), value, onValues);
+            return false;
+        }
+        radio.setValue(state);
+        return true;
+    }
+
+    private PDAppearanceStream checkStream(PDAnnotationWidget widget, PDRectangle rect, boolean on) throws IOException {
+        float width = rect.getWidth();
+        float height = rect.getHeight();
+        // Checkbox appearances do not depend on the field: keyed without its name, shared by same-size widgets
+        AppearanceCache.Key key = new AppearanceCache.Key(null, width, height, style(widget),
+                on ? "checkbox-on" : "checkbox-off", null, 0f, 0, null, 0f, 0f, color);
+        PDAppearanceStream shared = checkStreams.get(key);
+        if (shared != null) {
+            return shared;
+        }
+        AppearanceCache.Template template = cache.get(key, () -> {
+            StringBuilder content = new StringBuilder(160).append("q\n");
+            frame(content, widget, width, height);
+            if (on) {
+                // Check mark as a stroked path in the text colour: no font needed, drawn the same in every viewer
+                float side = Math.min(width, height);
+                float x = (width - side) / 2f;
+                float y = (height - side) / 2f;
+                content.append(colorOperator(options.fontColorRgb(), "RG"));
+                number(content, Math.max(1f, side * 0.12f)).append(" w 1 J 1 j\n");
+                number(content, x + side * 0.22f).append(' ');
+                number(content, y + side * 0.52f).append(" m\n");
+                number(content, x + side * 0.42f).append(' ');
+                number(content, y + side * 0.28f).append(" l\n");
+                number(content, x + side * 0.78f).append(' ');
+                number(content, y + side * 0.76f).append(" l\nS\n");
+            }
+            content.append("Q\n");
+            return new AppearanceCache.Template(content.toString().getBytes(StandardCharsets.US_ASCII), 0f, 0f, 0f, 0f);
+        });
+        PDAppearanceStream stream = stream(width, height, template.header());
+        checkStreams.put(key, stream);
+        return stream;
+    }
+
+    /**
+     * Fills the background and strokes the border from the widget's /MK; returns the border width (0 when the
+     * widget has no border colour).
+     */
+    private static float frame(StringBuilder content, PDAnnotationWidget widget, float width, float height) {
+        PDAppearanceCharacteristicsDictionary mk = widget.getAppearanceCharacteristics();
+        PDColor background = mk != null ? mk.getBackground() : null;
+        PDColor borderColor = mk != null ? mk.getBorderColour() : null;
+        String fill = colorOperator(background != null ? background.getComponents() : null, "rg");
+        if (!fill.isEmpty()) {
+            content.append(fill).append("0 0 ");
+            number(content, width).append(' ');
+            number(content, height).append(" re f\n");
+        }
+        float border = borderWidth(widget, borderColor);
+        if (border > 0) {
+            content.append(colorOperator(borderColor.getComponents(), "RG"));
+            number(content, border).append(" w\n");
+            number(content, border / 2f).append(' ');
+            number(content, border / 2f).append(' ');
+            number(content, width - border).append(' ');
+            number(content, height - border).append(" re S\n");
+        }
+        return border;
+    }
+
+    private static float borderWidth(PDAnnotationWidget widget, PDColor borderColor) {
+        if (borderColor == null || borderColor.getComponents().length == 0) {
+            return 0f;
+        }
+        PDBorderStyleDictionary style = widget.getBorderStyle();
+        return style != null ? style.getWidth() : 1f;
+    }
+
+    /** Background, border colour and border width: what {@link #frame} draws, as part of the cache key. */
+    private static String style(PDAnnotationWidget widget) {
+        PDAppearanceCharacteristicsDictionary mk = widget.getAppearanceCharacteristics();
+        if (mk == null) {
+            return "";
+        }
+        PDColor background = mk.getBackground();
+        PDColor borderColor = mk.getBorderColour();
+        return (background != null ? Arrays.toString(background.getComponents()) : "-") + "/"
+                + (borderColor != null ? Arrays.toString(borderColor.getComponents()) : "-") + "/"
+                + borderWidth(widget, borderColor);
+    }
+
+    private static boolean rotated(PDTextField field) {
+        for (PDAnnotationWidget widget : field.getWidgets()) {
+            PDAppearanceCharacteristicsDictionary mk = widget.getAppearanceCharacteristics();
+            if (mk != null && mk.getRotation() % 360 != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Appends {@code /Fn size Tf <hex> Tj} per run of the font chain. */
+    private void showText(StringBuilder ops, String line, float fontSize) throws IOException {
+        for (OverlayFont.Run run : font.runs(line)) {
+            PDFont pdFont = font.pdFont(run.face());
+            if (pdFont.willBeSubset()) {
+                run.text().codePoints().forEach(pdFont::addToSubset);
+            }
+            ops.append('/').append(fontName(pdFont).getName()).append(' ');
+            number(ops, fontSize).append(" Tf <");
+            for (byte b : pdFont.encode(run.text())) {
+                ops.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            ops.append("> Tj\n");
+        }
+    }
+
+    private COSName fontName(PDFont pdFont) {
+        return fontNames.computeIfAbsent(pdFont, resources::add);
+    }
+
+    private PDAppearanceStream stream(float width, float height, byte[] content) throws IOException {
+        PDAppearanceStream stream = new PDAppearanceStream(document);
+        stream.setBBox(new PDRectangle(width, height));
+        stream.setResources(resources);
+        try (OutputStream out = stream.getCOSObject().createOutputStream()) {
+            out.write(content);
+        }
+        return stream;
+    }
+
+    /**
+     * PDFBox embeds a subset font only if a content stream registered it with the document; appearances are
+     * written directly, so the fonts they use are registered through a content stream of a detached page, which
+     * is not saved.
+     */
+    private void registerSubsetFonts() throws IOException {
+        Set<PDFont> subset = new LinkedHashSet<>();
+        for (PDFont pdFont : fontNames.keySet()) {
+            if (pdFont.willBeSubset()) {
+                subset.add(pdFont);
+            }
+        }
+        if (subset.isEmpty()) {
+            return;
+        }
+        try (PDPageContentStream cs = new PDPageContentStream(document, new PDPage())) {
+            for (PDFont pdFont : subset) {
+                cs.setFont(pdFont, 1f);
+            }
+        }
+    }
+
+    /** Colour operator for 1 (gray), 3 (RGB) or 4 (CMYK) components; empty for none (transparent). */
+    private static String colorOperator(float[] components, String rgbOperator) {
+        if (components == null) {
+            return "";
+        }
+        String operator = switch (components.length) {
+            case 1 -> rgbOperator.equals("rg") ? "g" : "G";
+            case 3 -> rgbOperator;
+            case 4 -> rgbOperator.equals("rg") ? "k" : "K";
+            default -> null;
+        };
+        if (operator == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (float c : components) {
+            number(sb, c).append(' ');
+        }
+        return sb.append(operator).append('\n').toString();
+    }
+
+    /** Appends a number as PDF content-stream operators expect it: plain decimal, at most 3 fraction digits. */
+    private static StringBuilder number(StringBuilder sb, float value) {
+        float rounded = Math.round(value * 1000f) / 1000f;
+        if (rounded == (int) rounded) {
+            return sb.append((int) rounded);
+        }
+        return sb.append(new BigDecimal(Float.toString(rounded)).stripTrailingZeros().toPlainString());
+    }
+}
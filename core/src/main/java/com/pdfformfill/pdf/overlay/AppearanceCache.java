@@ -0,0 +1,118 @@
+package com.pdfformfill.pdf.overlay;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of widget appearance templates shared across requests, used by the AcroForm fill mode.
+ * The same field of the same template is filled with the same font at the same size over and over; its
+ * appearance stream differs per fill only in the text operators. The template holds everything else, already
+ * serialized: the marked-content header, the background and border from the widget's /MK, the clip, the text
+ * colour and the baseline, leading and text origin for that font size. Checkbox on/off appearances are cached
+ * whole.
+ * <p>
+ * Keyed by (field, widget size and style, font chain, font size, layout options); bounded by entry count,
+ * least recently used entries are evicted first. Thread-safe; like {@link TextFitCache}, a template is built
+ * outside the lock, so two threads missing on the same key may both build it.
+ */
+public class AppearanceCache {
+
+    /**
+     * Cache key. {@code style} is the widget's background, border colour and border width; {@code kind} tells a
+     * single-line, multi-line or checkbox appearance apart; {@code fontSize} is 0 for checkboxes.
+     */
+    record Key(String field, float width, float height, String style, String kind, String font, float fontSize,
+               int quadding, String verticalAlign, float paddingX, float paddingY, String color) {}
+
+    /**
+     * Serialized appearance: {@code header} is written before the text operators and {@link #FOOTER} after them.
+     * Text starts at ({@code textX}, {@code baseline}) and wraps every {@code leading} points within
+     * {@code widthLimit}. For checkboxes {@code header} is the whole stream.
+     */
+    record Template(byte[] header, float textX, float baseline, float leading, float widthLimit) {}
+
+    /** Closes the text object, the graphics state and the marked content opened by a text template's header. */
+    static final byte[] FOOTER = "ET\nQ\nEMC\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final LinkedHashMap<Key, Template> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AppearanceCache(boolean enabled, int maxEntries) {
+        this.enabled = enabled && maxEntries > 0;
+        this.maxEntries = maxEntries;
+    }
+
+    /** Cache with the default limit (tests, benchmarks). */
+    public AppearanceCache() {
+        this(true, 5_000);
+    }
+
+    /** Cache that never stores anything; every template is built. */
+    public static AppearanceCache disabled() {
+        return new AppearanceCache(false, 0);
+    }
+
+    Template get(Key key, TextFitCache.FitFunction<Template> build) throws IOException {
+        if (!enabled) {
+            return build.fit();
+        }
+        synchronized (this) {
+            Template cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        Template template = build.fit();
+        synchronized (this) {
+            entries.put(key, template);
+            Iterator<Template> it = entries.values().iterator();
+            while (entries.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+        return template;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /** Hits / (hits + misses) since start, or 0 before the first lookup. */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
@@ -0,0 +1,69 @@
+package com.pdfformfill.pdf.overlay;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Image XObjects of one document. The same image at the same pixel size is embedded once and every field that
+ * draws it references that XObject, so a stamp repeated on every page costs one image stream.
+ * Decoding and resampling go through the shared {@link ImageCache}.
+ */
+final class DocumentImages {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private record Key(String sha256, int width, int height) {}
+
+    private final PDDocument document;
+    private final ImageCache cache;
+    private final Map<Key, PDImageXObject> embedded = new HashMap<>();
+
+    DocumentImages(PDDocument document, ImageCache cache) {
+        this.document = document;
+        this.cache = cache;
+    }
+
+    /** The image at its original resolution. */
+    PDImageXObject original(ImageCache.Decoded decoded) throws IOException {
+        return embed(decoded, decoded.image());
+    }
+
+    /** The image downsampled for drawing at {@code widthPt} x {@code heightPt} points at the cache's dpi. */
+    PDImageXObject forBox(ImageCache.Decoded decoded, float widthPt, float heightPt) throws IOException {
+        int[] pixels = cache.targetPixels(widthPt, heightPt);
+        BufferedImage image = pixels == null ? decoded.image() : cache.scaled(decoded, pixels[0], pixels[1]);
+        return embed(decoded, image);
+    }
+
+    int size() {
+        return embedded.size();
+    }
+
+    private PDImageXObject embed(ImageCache.Decoded decoded, BufferedImage image) throws IOException {
+        Key key = new Key(decoded.sha256(), image.getWidth(), image.getHeight());
+        PDImageXObject xObject = embedded.get(key);
+        if (xObject == null) {
+            xObject = create(decoded, image);
+            embedded.put(key, xObject);
+        }
+        return xObject;
+    }
+
+    private PDImageXObject create(ImageCache.Decoded decoded, BufferedImage image) throws IOException {
+        if (decoded.jpeg() == null) {
+            return LosslessFactory.createFromImage(document, image);
+        }
+        if (image == decoded.image()) {
+            // Original JPEG stream embedded as-is (DCTDecode), no re-encoding
+            return JPEGFactory.createFromByteArray(document, decoded.jpeg());
+        }
+        return JPEGFactory.createFromImage(document, image, JPEG_QUALITY);
+    }
+}
@@ -0,0 +1,165 @@
+package com.pdfformfill.pdf.overlay;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A font shared across requests: coverage and glyph advance widths (in 1/1000 em, the unit of
+ * {@link PDFont#getStringWidth}) are computed once, so measuring text never goes back to the font program.
+ * {@link #load(PDDocument)} creates the per-document {@link PDFont} used for drawing.
+ */
+abstract class FontFace {
+
+    private final String name;
+
+    FontFace(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /** Whether the font has a glyph for the code point. */
+    abstract boolean supports(int codePoint);
+
+    /** Advance width of the code point in 1/1000 em; only meaningful when {@link #supports} is true. */
+    abstract float width(int codePoint);
+
+    /** PDFont for drawing into {@code document}. */
+    abstract PDFont load(PDDocument document) throws IOException;
+
+    static FontFace standard14(Standard14Fonts.FontName fontName) {
+        return new Standard14Face(fontName);
+    }
+
+    static FontFace trueType(String name, TrueTypeFont ttf) throws IOException {
+        return new TrueTypeFace(name, ttf);
+    }
+
+    /**
+     * Standard 14 Type 1 font (WinAnsiEncoding), not embedded. Widths for U+0000..U+00FF are precomputed;
+     * the few WinAnsi characters above U+00FF (euro sign, typographic quotes, dashes) are resolved on first use.
+     */
+    private static final class Standard14Face extends FontFace {
+
+        private final Standard14Fonts.FontName fontName;
+        /** Used only for measuring; drawing gets a fresh instance per document (PDFont is not thread-safe). */
+        private final PDType1Font font;
+        private final float[] latin1 = new float[256];
+        private final Map<Integer, Float> other = new ConcurrentHashMap<>();
+
+        Standard14Face(Standard14Fonts.FontName fontName) {
+            super(fontName.getName());
+            this.fontName = fontName;
+            this.font = new PDType1Font(fontName);
+            for (int c = 0; c < latin1.length; c++) {
+                latin1[c] = measure(c);
+            }
+        }
+
+        private float measure(int codePoint) {
+            try {
+                synchronized (font) {
+                    return font.getStringWidth(new String(Character.toChars(codePoint)));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                return Float.NaN;
+            }
+        }
+
+        @Override
+        boolean supports(int codePoint) {
+            return !Float.isNaN(width(codePoint));
+        }
+
+        @Override
+        float width(int codePoint) {
+            if (codePoint < latin1.length) {
+                return latin1[codePoint];
+            }
+            return other.computeIfAbsent(codePoint, this::measure);
+        }
+
+        @Override
+        PDFont load(PDDocument document) {
+            // Not embedded; the AFM metrics behind it are cached by PDFBox, so this is cheap
+            return new PDType1Font(fontName);
+        }
+    }
+
+    /**
+     * TrueType / OpenType (glyf outlines) font embedded as a subset per document. The parsed {@link TrueTypeFont}
+     * is shared; the Unicode cmap and horizontal metrics are read once at registration into a dense BMP table
+     * plus a map for supplementary planes.
+     */
+    private static final class TrueTypeFace extends FontFace {
+
+        private final TrueTypeFont ttf;
+        private final float[] bmp = new float[0x10000];
+        private final Map<Integer, Float> supplementary = new HashMap<>();
+
+        TrueTypeFace(String name, TrueTypeFont ttf) throws IOException {
+            super(name);
+            this.ttf = ttf;
+            Arrays.fill(bmp, Float.NaN);
+            CmapLookup cmap = ttf.getUnicodeCmapLookup(false);
+            float scale = 1000f / ttf.getUnitsPerEm();
+            int glyphs = ttf.getNumberOfGlyphs();
+            for (int gid = 1; gid < glyphs; gid++) {
+                List<Integer> codes = cmap.getCharCodes(gid);
+                if (codes == null) {
+                    continue;
+                }
+                float width = ttf.getAdvanceWidth(gid) * scale;
+                for (int code : codes) {
+                    if (code < bmp.length) {
+                        bmp[code] = width;
+                    } else {
+                        supplementary.put(code, width);
+                    }
+                }
+            }
+            // Read the tables PDType0Font and the subsetter use, so requests only hit already-parsed data
+            ttf.getHeader();
+            ttf.getHorizontalHeader();
+            ttf.getMaximumProfile();
+            ttf.getPostScript();
+            ttf.getOS2Windows();
+            ttf.getNaming();
+            ttf.getIndexToLocation();
+            ttf.getGlyph();
+        }
+
+        @Override
+        boolean supports(int codePoint) {
+            return !Float.isNaN(width(codePoint));
+        }
+
+        @Override
+        float width(int codePoint) {
+            if (codePoint < bmp.length) {
+                return bmp[codePoint];
+            }
+            return supplementary.getOrDefault(codePoint, Float.NaN);
+        }
+
+        @Override
+        PDFont load(PDDocument document) throws IOException {
+            // Does not take ownership of the shared TrueTypeFont; glyphs used by the document are subset on save
+            return PDType0Font.load(document, ttf, true);
+        }
+    }
+}
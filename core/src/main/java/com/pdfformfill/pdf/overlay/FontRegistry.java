@@ -0,0 +1,183 @@
+package com.pdfformfill.pdf.overlay;
+
+import org.apache.fontbox.ttf.OTFParser;
+import org.apache.fontbox.ttf.OpenTypeFont;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fonts available to the overlay renderer, parsed once at startup and shared by all requests.
+ * <p>
+ * {@code pdf.fonts.files} registers TrueType/OpenType (glyf outline) fonts as {@code name=path} entries separated by
+ * commas, where path is {@code classpath:xxx} or a file path. The Standard 14 fonts (Helvetica, Times-Roman,
+ * Courier, ...) are always available by name. {@code pdf.fonts.default} is the fallback chain used when a definition
+ * does not choose fonts; a definition's {@code fonts} list replaces it for that merge. Unknown names are skipped
+ * with a warning; if nothing is left, Helvetica is used.
+ */
+public class FontRegistry implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(FontRegistry.class);
+
+    private final Map<String, FontFace> faces = new ConcurrentHashMap<>();
+    private final Map<String, String> aliases = new ConcurrentHashMap<>();
+    private final List<TrueTypeFont> parsed = new ArrayList<>();
+    private final List<String> defaultChain;
+
+    /** Helvetica only. */
+    public FontRegistry() {
+        this("", "Helvetica");
+    }
+
+    public FontRegistry(String files, String defaultChain) {
+        for (Map.Entry<String, String> e : parseFiles(files).entrySet()) {
+            try {
+                register(e.getKey(), e.getValue());
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot load font '" + e.getKey() + "' from " + e.getValue() + ": "
+                        + ex.getMessage(), ex);
+            }
+        }
+        this.defaultChain = splitNames(defaultChain);
+    }
+
+    private void register(String name, String location) throws IOException {
+        long start = System.nanoTime();
+        byte[] bytes = readFont(location);
+        TrueTypeFont ttf = location.toLowerCase(Locale.ROOT).endsWith(".otf")
+                ? new OTFParser().parse(new RandomAccessReadBuffer(bytes))
+                : new TTFParser().parse(new RandomAccessReadBuffer(bytes));
+        if (ttf instanceof OpenTypeFont otf && !otf.isSupportedOTF()) {
+            ttf.close();
+            throw new IOException("OpenType fonts with CFF2 outlines are not supported");
+        }
+        if (ttf instanceof OpenTypeFont otf && otf.isPostScript()) {
+            ttf.close();
+            throw new IOException("OpenType fonts with CFF (PostScript) outlines cannot be embedded; use a TrueType-outline font");
+        }
+        parsed.add(ttf);
+        faces.put(key(name), FontFace.trueType(name, ttf));
+        aliases.put(key(name), name);
+        log.info("Font '{}' loaded from {} ({} glyphs) in {} ms", name, location, ttf.getNumberOfGlyphs(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Registered TrueType font names (Standard 14 names are always available in addition). */
+    public Set<String> names() {
+        return Set.copyOf(aliases.values());
+    }
+
+    public List<String> defaultChain() {
+        return defaultChain;
+    }
+
+    /**
+     * Font chain for drawing into {@code document}: {@code names} if given and non-empty, else the default chain.
+     */
+    public OverlayFont open(PDDocument document, List<String> names) {
+        List<String> chain = names != null && !names.isEmpty() ? names : defaultChain;
+        List<FontFace> resolved = new ArrayList<>(chain.size());
+        for (String name : chain) {
+            FontFace face = face(name);
+            if (face == null) {
+                log.warn("Unknown font '{}' skipped (registered: {}, or a Standard 14 name)", name, names());
+            } else if (!resolved.contains(face)) {
+                resolved.add(face);
+            }
+        }
+        return resolved.isEmpty() ? OverlayFont.helvetica(document) : new OverlayFont(document, resolved);
+    }
+
+    private FontFace face(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        FontFace face = faces.get(key(name));
+        if (face != null) {
+            return face;
+        }
+        Standard14Fonts.FontName standard = standard14(name.trim());
+        return standard == null ? null : faces.computeIfAbsent(key(name), k -> FontFace.standard14(standard));
+    }
+
+    private static Standard14Fonts.FontName standard14(String name) {
+        for (Standard14Fonts.FontName fontName : Standard14Fonts.FontName.values()) {
+            if (fontName.getName().equalsIgnoreCase(name)) {
+                return fontName;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] readFont(String location) throws IOException {
+        if (location.startsWith("classpath:")) {
+            String name = location.substring("classpath:".length()).trim();
+            try (InputStream in = FontRegistry.class.getResourceAsStream("/" + name)) {
+                if (in == null) {
+                    throw new FileNotFoundException("Font not found on classpath: " + name);
+                }
+                return in.readAllBytes();
+            }
+        }
+        File file = new File(location);
+        if (!file.isAbsolute()) {
+            file = new File(System.getProperty("user.dir", ""), location);
+        }
+        return Files.readAllBytes(file.toPath());
+    }
+
+    /** Parses {@code name=path,name=path}. */
+    static Map<String, String> parseFiles(String files) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (files == null || files.isBlank()) {
+            return result;
+        }
+        for (String entry : files.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int eq = entry.indexOf('=');
+            if (eq <= 0 || eq == entry.length() - 1) {
+                throw new IllegalArgumentException("pdf.fonts.files entries must be name=path: " + entry.trim());
+            }
+            result.put(entry.substring(0, eq).trim(), entry.substring(eq + 1).trim());
+        }
+        return result;
+    }
+
+    private static List<String> splitNames(String chain) {
+        if (chain == null || chain.isBlank()) {
+            return List.of("Helvetica");
+        }
+        return Arrays.stream(chain.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (TrueTypeFont ttf : parsed) {
+            ttf.close();
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.pdfformfill.pdf.overlay;
+
+import com.pdfformfill.pdf.ContentHash;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Decoded images shared across requests (signatures, stamps, photos and the checkbox symbol), keyed by the SHA-256
+ * of the encoded bytes so the same image decodes once no matter how it is referenced.
+ * <p>
+ * An image reference is a {@code data:image/...;base64,} URI, bare base64, a bundled image ({@code classpath:xxx.png},
+ * also .jpg, .jpeg, .gif or .bmp) or a file path. References come from request data, so a file path is only read
+ * when it resolves inside the configured base directory (none by default); trusted references, such as the configured
+ * checkbox image, are read as given. Encoded images larger than {@code maxImageBytes} are rejected before they are
+ * read. Downsampled variants for a given pixel size are cached next to the original, so a signature
+ * drawn into the same box on thousands of documents is decoded and resampled once. Bounded LRU by estimated pixel
+ * memory (4 bytes per pixel); images larger than {@code maxPixels} are rejected before decoding. Thread-safe;
+ * decoding and resampling run outside the lock.
+ */
+public class ImageCache {
+
+    private static final String DATA_URI_PREFIX = "data:";
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final List<String> IMAGE_SUFFIXES = List.of(".png", ".jpg", ".jpeg", ".gif", ".bmp");
+
+    /** Default cap on the encoded size of one image. */
+    public static final long DEFAULT_MAX_IMAGE_BYTES = 10L * 1024 * 1024;
+
+    /** A decoded image; {@code jpeg} holds the original bytes of a JPEG source so it can be embedded unchanged. */
+    record Decoded(String sha256, BufferedImage image, byte[] jpeg) {
+
+        int width() {
+            return image.getWidth();
+        }
+
+        int height() {
+            return image.getHeight();
+        }
+    }
+
+    private record Entry(Object value, long weight) {}
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxPixels;
+    private final int dpi;
+    private final Path baseDir;
+    private final long maxImageBytes;
+    private final Set<String> trusted;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    /** classpath reference → SHA-256; classpath resources do not change while the app runs. */
+    private final Map<String, String> classpathHashes = new ConcurrentHashMap<>();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param baseDir           directory that file references must resolve into; null allows no file references
+     * @param maxImageBytes     largest encoded image read from any reference
+     * @param trustedReferences references read as given (configured images, not request data)
+     */
+    public ImageCache(
+            boolean enabled,
+            long maxBytes,
+            long maxPixels,
+            int dpi,
+            Path baseDir,
+            long maxImageBytes,
+            Collection<String> trustedReferences) {
+        this.enabled = enabled && maxBytes > 0;
+        this.maxBytes = maxBytes;
+        this.maxPixels = maxPixels;
+        this.dpi = dpi;
+        this.baseDir = baseDir != null ? baseDir.toAbsolutePath().normalize() : null;
+        this.maxImageBytes = maxImageBytes;
+        this.trusted = trustedReferences.stream().filter(r -> r != null && !r.isBlank()).map(String::trim)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /** No file references and no trusted references (bundled images such as the default checkbox image are allowed). */
+    public ImageCache(
+            boolean enabled,
+            long maxBytes,
+            long maxPixels,
+            int dpi) {
+        this(enabled, maxBytes, maxPixels, dpi, null, DEFAULT_MAX_IMAGE_BYTES, List.of());
+    }
+
+    /** Cache with default limits (tests, benchmarks). */
+    public ImageCache() {
+        this(true, 64L * 1024 * 1024, 40_000_000L, 150);
+    }
+
+    /** Target resolution for images drawn into a field; 0 or less keeps the original resolution. */
+    public int dpi() {
+        return dpi;
+    }
+
+    /**
+     * Decodes the referenced image, or returns the cached decode of identical bytes.
+     *
+     * @throws IOException if the reference is not allowed or cannot be read, is not a supported image or exceeds
+     *                     the byte or pixel limit
+     */
+    Decoded load(String reference) throws IOException {
+        if (reference == null || reference.isBlank()) {
+            throw new IOException("Empty image reference");
+        }
+        String ref = reference.trim();
+        String knownHash = ref.startsWith(CLASSPATH_PREFIX) ? classpathHashes.get(ref) : null;
+        if (knownHash != null) {
+            Decoded cached = (Decoded) lookup(knownHash);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        byte[] encoded = readBytes(ref);
+        String sha = ContentHash.sha256(encoded);
+        if (ref.startsWith(CLASSPATH_PREFIX)) {
+            classpathHashes.put(ref, sha);
+        }
+        Decoded cached = knownHash == null ? (Decoded) lookup(sha) : null;
+        if (cached != null) {
+            return cached;
+        }
+        BufferedImage image = decode(encoded);
+        Decoded decoded = new Decoded(sha, image, isJpeg(encoded) ? encoded : null);
+        store(sha, decoded, weigh(image) + (decoded.jpeg() != null ? encoded.length : 0));
+        return decoded;
+    }
+
+    /**
+     * The image resampled to at most {@code width} x {@code height} pixels; the original when it is not larger.
+     * Never upsamples.
+     */
+    BufferedImage scaled(Decoded decoded, int width, int height) {
+        if (width <= 0 || height <= 0 || (width >= decoded.width() && height >= decoded.height())) {
+            return decoded.image();
+        }
+        int w = Math.min(width, decoded.width());
+        int h = Math.min(height, decoded.height());
+        String key = decoded.sha256() + "@" + w + "x" + h;
+        BufferedImage cached = (BufferedImage) lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        BufferedImage scaled = downsample(decoded.image(), w, h);
+        store(key, scaled, weigh(scaled));
+        return scaled;
+    }
+
+    /**
+     * Pixel size for drawing an image at {@code widthPt} x {@code heightPt} points at the configured dpi,
+     * or {@code null} when downsampling is off.
+     */
+    int[] targetPixels(float widthPt, float heightPt) {
+        if (dpi <= 0) {
+            return null;
+        }
+        return new int[]{pixels(widthPt), pixels(heightPt)};
+    }
+
+    /** Rounds up, ignoring float noise from the fit-to-box scaling (120.00001 pt is 120 pt). */
+    private int pixels(float points) {
+        return Math.max(1, (int) Math.ceil(points / 72f * dpi - 0.01f));
+    }
+
+    private synchronized Object lookup(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    private synchronized void store(String key, Object value, long weight) {
+        if (!enabled || weight > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(value, weight));
+        if (previous != null) {
+            bytes -= previous.weight();
+        }
+        bytes += weight;
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().weight();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private BufferedImage decode(byte[] encoded) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(encoded))) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IOException("Image too large: " + reader.getWidth(0) + "x" + reader.getHeight(0)
+                            + " exceeds pdf.overlay.images.max-pixels=" + maxPixels);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Halves the size with bilinear filtering until close to the target, then resamples to the exact size; a single
+     * bilinear step from a much larger image would skip most source pixels and alias.
+     */
+    static BufferedImage downsample(BufferedImage source, int width, int height) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+                : source.getColorModel().getNumComponents() == 1 ? BufferedImage.TYPE_BYTE_GRAY
+                : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    private byte[] readBytes(String ref) throws IOException {
+        boolean trustedRef = trusted.contains(ref);
+        if (ref.startsWith(CLASSPATH_PREFIX)) {
+            String name = ref.substring(CLASSPATH_PREFIX.length()).trim();
+            if (!trustedRef && (name.contains("..") || IMAGE_SUFFIXES.stream()
+                    .noneMatch(suffix -> name.toLowerCase(Locale.ROOT).endsWith(suffix)))) {
+                throw new IOException("Image reference not allowed: " + ref);
+            }
+            try (InputStream in = ImageCache.class.getResourceAsStream("/" + name)) {
+                if (in == null) {
+                    throw new FileNotFoundException("Image not found on classpath: " + name);
+                }
+                byte[] bytes = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxImageBytes + 1));
+                checkSize(bytes.length);
+                return bytes;
+            }
+        }
+        if (ref.startsWith(DATA_URI_PREFIX)) {
+            int comma = ref.indexOf(',');
+            if (comma < 0 || !ref.substring(0, comma).endsWith(";base64")) {
+                throw new IOException("Only base64 data URIs are supported");
+            }
+            return base64(ref.substring(comma + 1));
+        }
+        if (looksLikeBase64(ref)) {
+            return base64(ref);
+        }
+        Path file = trustedRef ? Path.of(System.getProperty("user.dir", "")).resolve(ref) : inBaseDir(ref);
+        if (!Files.isRegularFile(file)) {
+            throw new FileNotFoundException("Image file not found: " + ref);
+        }
+        checkSize(Files.size(file));
+        return Files.readAllBytes(file);
+    }
+
+    /** Resolves a file reference inside the base directory, following links; anything outside it is rejected. */
+    private Path inBaseDir(String ref) throws IOException {
+        if (baseDir == null) {
+            throw new IOException("Image reference not allowed: " + ref + " (file references need pdf.overlay.images.base-dir)");
+        }
+        Path file;
+        try {
+            file = baseDir.resolve(ref).normalize();
+        } catch (InvalidPathException e) {
+            throw new IOException("Image reference not allowed: " + ref, e);
+        }
+        if (!file.startsWith(baseDir) || Files.exists(file) && !file.toRealPath().startsWith(baseDir.toRealPath())) {
+            throw new IOException("Image reference not allowed: " + ref + " is outside pdf.overlay.images.base-dir");
+        }
+        return file;
+    }
+
+    private void checkSize(long size) throws IOException {
+        if (size > maxImageBytes) {
+            throw new IOException("Image too large: more than " + maxImageBytes
+                    + " bytes (pdf.overlay.images.max-bytes)");
+        }
+    }
+
+    private byte[] base64(String payload) throws IOException {
+        // Decoded size is at most 3/4 of the encoded length
+        checkSize(payload.length() / 4L * 3);
+        try {
+            return Base64.getMimeDecoder().decode(payload);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid base64 image data: " + e.getMessage(), e);
+        }
+    }
+
+    /** Long and only base64 characters; file paths have an extension, so the '.' rules them out. */
+    private static boolean looksLikeBase64(String s) {
+        if (s.length() < 64) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            boolean ok = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '+' || c == '/' || c == '=' || c == '\r' || c == '\n';
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isJpeg(byte[] bytes) {
+        return bytes.length > 3 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8 && (bytes[2] & 0xFF) == 0xFF;
+    }
+
+
+    /** Estimated retained bytes of a decoded image. */
+    static long weigh(BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Estimated memory retained by cached images, in bytes. */
+    public synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /** Hits / (hits + misses) since start, or 0 before the first lookup. */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
@@ -0,0 +1,159 @@
+package com.pdfformfill.pdf.overlay;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The fonts used to draw one document: an ordered fallback chain of {@link FontFace}s. Each character is drawn
+ * with the first font in the chain that has a glyph for it; characters no font supports become '?'.
+ * Measuring uses the shared width tables of the faces; the {@link PDFont}s (embedded subsets for TrueType) are
+ * created per document, lazily, the first time a face is needed for drawing.
+ */
+public final class OverlayFont {
+
+    private static final int REPLACEMENT = '?';
+
+    private static final FontFace HELVETICA = FontFace.standard14(Standard14Fonts.FontName.HELVETICA);
+
+    private final PDDocument document;
+    private final FontFace[] faces;
+    private final PDFont[] loaded;
+    private final String name;
+
+    OverlayFont(PDDocument document, List<FontFace> faces) {
+        if (faces.isEmpty()) {
+            throw new IllegalArgumentException("Font chain must not be empty");
+        }
+        this.document = document;
+        this.faces = faces.toArray(FontFace[]::new);
+        this.loaded = new PDFont[this.faces.length];
+        this.name = faces.stream().map(FontFace::name).collect(Collectors.joining("+"));
+    }
+
+    /** Helvetica only (no document needed for measuring; drawing needs {@link #helvetica(PDDocument)}). */
+    public static OverlayFont helvetica() {
+        return helvetica(null);
+    }
+
+    public static OverlayFont helvetica(PDDocument document) {
+        return new OverlayFont(document, List.of(HELVETICA));
+    }
+
+    /** Chain key, e.g. {@code "Helvetica+NotoSansSC"}; identifies the width tables (used by the fit cache). */
+    public String name() {
+        return name;
+    }
+
+    /** First font of the chain, used for ascent/descent when placing baselines. */
+    PDFont primary() throws IOException {
+        return pdFont(0);
+    }
+
+    /**
+     * Replaces characters that no font in the chain can draw: control characters become spaces, anything
+     * else unsupported becomes '?' (or is dropped if even '?' is missing).
+     */
+    public String sanitize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            int n = Character.charCount(cp);
+            int replacement = cp;
+            if (Character.isISOControl(cp)) {
+                replacement = ' ';
+            } else if (faceFor(cp) < 0) {
+                replacement = faceFor(REPLACEMENT) >= 0 ? REPLACEMENT : -1;
+            }
+            if (replacement != cp && sb == null) {
+                sb = new StringBuilder(text.length()).append(text, 0, i);
+            }
+            if (sb != null && replacement >= 0) {
+                sb.appendCodePoint(replacement);
+            }
+            i += n;
+        }
+        return sb != null ? sb.toString() : text;
+    }
+
+    /** Width of sanitized text in 1/1000 em (multiply by fontSize / 1000 for points). */
+    public float stringWidth(String text) {
+        float width = 0f;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            int face = faceFor(cp);
+            if (face >= 0) {
+                width += faces[face].width(cp);
+            }
+            i += Character.charCount(cp);
+        }
+        return width;
+    }
+
+    /**
+     * Shows sanitized text at the current text position (inside beginText/endText), switching fonts for runs of
+     * characters that need a fallback font.
+     */
+    void showText(PDPageContentStream cs, String text, float fontSize) throws IOException {
+        if (faces.length == 1) {
+            cs.setFont(pdFont(0), fontSize);
+            cs.showText(text);
+            return;
+        }
+        for (Run run : runs(text)) {
+            cs.setFont(pdFont(run.face()), fontSize);
+            cs.showText(run.text());
+        }
+    }
+
+    record Run(int face, String text) {}
+
+    /** Splits text into maximal runs drawn with the same font. */
+    List<Run> runs(String text) {
+        List<Run> runs = new ArrayList<>();
+        int start = 0;
+        int current = -1;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            int face = Math.max(0, faceFor(cp));
+            if (face != current) {
+                if (current >= 0) {
+                    runs.add(new Run(current, text.substring(start, i)));
+                }
+                current = face;
+                start = i;
+            }
+            i += Character.charCount(cp);
+        }
+        if (current >= 0) {
+            runs.add(new Run(current, text.substring(start)));
+        }
+        return runs;
+    }
+
+    private int faceFor(int codePoint) {
+        for (int f = 0; f < faces.length; f++) {
+            if (faces[f].supports(codePoint)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    /** The document's PDFont for a face of the chain, created on first use. */
+    PDFont pdFont(int face) throws IOException {
+        if (loaded[face] == null) {
+            loaded[face] = faces[face].load(document);
+        }
+        return loaded[face];
+    }
+}
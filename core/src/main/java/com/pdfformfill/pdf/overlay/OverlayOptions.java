@@ -2,6 +2,8 @@ package com.pdfformfill.pdf.overlay;
 
 import com.pdfformfill.dto.FieldsDefinition;
 
+import java.util.List;
+
 /**
  * 从导入的 JSON（FieldsDefinition）解析出的 overlay 渲染选项，用于替代写死的常量。
  */
@@ -12,7 +14,8 @@ public record OverlayOptions(
         float minFontSize,
         float[] fontColorRgb,
         float paddingX,
-        float paddingY
+        float paddingY,
+        List<String> fonts
 ) {
     /** Defaults used when imported JSON does not specify values. */
     public static final float DEFAULT_FONT_SIZE = 12f;
@@ -21,6 +24,12 @@ public record OverlayOptions(
     public static final float DEFAULT_PADDING_Y = 0f;
     public static final float[] DEFAULT_FONT_COLOR_RGB = new float[]{0f, 0f, 0f};
 
+    /** Options with the registry's default font chain. */
+    public OverlayOptions(Double scale, String checkboxImagePath, float fontSize, float minFontSize,
+                          float[] fontColorRgb, float paddingX, float paddingY) {
+        this(scale, checkboxImagePath, fontSize, minFontSize, fontColorRgb, paddingX, paddingY, null);
+    }
+
     /**
      * Build options from imported definition; use defaults for any null. Empty checkbox path
      * is replaced by defaultCheckboxPath.
@@ -40,7 +49,8 @@ public record OverlayOptions(
         float padY = def != null && def.paddingY() != null && def.paddingY() >= 0
                 ? def.paddingY().floatValue()
                 : DEFAULT_PADDING_Y;
-        return new OverlayOptions(scale, checkbox, fontSize, DEFAULT_MIN_FONT_SIZE, rgb, padX, padY);
+        List<String> fonts = def != null && def.fonts() != null && !def.fonts().isEmpty() ? def.fonts() : null;
+        return new OverlayOptions(scale, checkbox, fontSize, DEFAULT_MIN_FONT_SIZE, rgb, padX, padY, fonts);
     }
 
     /** Parse "#RRGGBB" or "#RGB" to RGB in [0,1]; invalid input returns black. */
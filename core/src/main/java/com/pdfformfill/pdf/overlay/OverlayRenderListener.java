@@ -0,0 +1,41 @@
+package com.pdfformfill.pdf.overlay;
+
+/**
+ * Callback for observing what {@link PdfOverlayRenderer} does with each field (metrics, tracing).
+ * All methods default to no-op; implementations must be cheap and must not throw.
+ */
+public interface OverlayRenderListener {
+
+    OverlayRenderListener NOOP = new OverlayRenderListener() {};
+
+    /** A field was drawn (text or checked checkbox). {@code type} is the lower-cased definition type. */
+    default void fieldRendered(String type) {
+    }
+
+    /** Text did not fit at the default font size and was drawn smaller. */
+    default void textShrunk(String fieldName) {
+    }
+
+    /** Text did not fit even at the minimum font size and was cut with an ellipsis (or lines were dropped). */
+    default void textTruncated(String fieldName) {
+    }
+
+    /** Multi-line field text was word-wrapped into {@code lines} lines. */
+    default void textWrapped(String fieldName, int lines) {
+    }
+
+    /**
+     * Text fitting finished for a field.
+     *
+     * @param textLength length of the (sanitized) value
+     * @param fontSize   final font size
+     * @param iterations width measurements (single-line) or wrap passes (multi-line) it took
+     * @param nanos      time spent fitting the field
+     */
+    default void fieldFitted(String fieldName, int textLength, float fontSize, int iterations, long nanos) {
+    }
+
+    /** All fields of one page were drawn. {@code page} is 1-based. */
+    default void pageRendered(int page, int fieldCount, long nanos) {
+    }
+}
@@ -0,0 +1,675 @@
+package com.pdfformfill.pdf.overlay;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.engine.Deadline;
+import com.pdfformfill.jfr.FieldFitEvent;
+import com.pdfformfill.jfr.PageRenderEvent;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Renders field values onto a PDF at positions defined by (x, y, width, height, page) from the
+ * field definition. Options (fontSize, fontColor, padding) come from imported JSON.
+ * Text is fitted into the box; checkbox/boolean fields draw the checked symbol; image/signature fields draw an image.
+ * Coordinate system: definition (x, y) is top-left origin, y downward; converted to PDF user space.
+ */
+public class PdfOverlayRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfOverlayRenderer.class);
+
+    private static final String ELLIPSIS = "...";
+    /** Default line height when field.height is null (for baseline placement). */
+    static final float DEFAULT_LINE_HEIGHT_FACTOR = 1.2f;
+    /** Fields with height >= this (in definition units) are treated as multi-line and get word wrap. */
+    private static final float MULTI_LINE_HEIGHT_THRESHOLD = 50f;
+
+    private final List<OverlayRenderListener> listeners;
+    private final TextFitCache fitCache;
+    private final FontRegistry fontRegistry;
+    private final ImageCache imageCache;
+    private final AppearanceCache appearanceCache;
+
+    public PdfOverlayRenderer() {
+        this(List.of());
+    }
+
+    public PdfOverlayRenderer(List<OverlayRenderListener> listeners) {
+        this(listeners, new TextFitCache());
+    }
+
+    public PdfOverlayRenderer(List<OverlayRenderListener> listeners, TextFitCache fitCache) {
+        this(listeners, fitCache, new FontRegistry());
+    }
+
+    public PdfOverlayRenderer(List<OverlayRenderListener> listeners, TextFitCache fitCache, FontRegistry fontRegistry) {
+        this(listeners, fitCache, fontRegistry, new ImageCache());
+    }
+
+    public PdfOverlayRenderer(List<OverlayRenderListener> listeners, TextFitCache fitCache, FontRegistry fontRegistry,
+                              ImageCache imageCache) {
+        this(listeners, fitCache, fontRegistry, imageCache, new AppearanceCache());
+    }
+
+    public PdfOverlayRenderer(List<OverlayRenderListener> listeners, TextFitCache fitCache, FontRegistry fontRegistry,
+                              ImageCache imageCache, AppearanceCache appearanceCache) {
+        this.listeners = listeners != null ? List.copyOf(listeners) : List.of();
+        this.fitCache = fitCache != null ? fitCache : TextFitCache.disabled();
+        this.fontRegistry = fontRegistry != null ? fontRegistry : new FontRegistry();
+        this.imageCache = imageCache != null ? imageCache : new ImageCache();
+        this.appearanceCache = appearanceCache != null ? appearanceCache : AppearanceCache.disabled();
+    }
+
+    /**
+     * For each field, draws its value at (page, x, y). Options (fontSize, fontColor, paddingX, paddingY, checkbox path)
+     * come from imported JSON via {@link OverlayOptions}; scale converts viewport pixels to PDF points when present.
+     *
+     * @param document  loaded PDF (modified in place)
+     * @param fields    list of field definitions (name, type, x, y, width, height, page, optional verticalAlign)
+     * @param fieldData map from field name to value (Object; will be stringified; image/signature fields take an
+     *                  image reference: data URI, base64, bundled classpath:xxx image or a file path that
+     *                  {@link ImageCache} allows)
+     * @param options   overlay options from FieldsDefinition (scale, checkbox path, fontSize, color, padding)
+     */
+    public void render(PDDocument document, List<FieldDefinition> fields, Map<String, Object> fieldData, OverlayOptions options) throws IOException {
+        if (document == null || fields == null || fields.isEmpty() || options == null) {
+            return;
+        }
+        session(document, options).render(fields, fieldData, pages(document));
+    }
+
+    /** The document's pages by index, without copying the page tree. */
+    private static List<PDPage> pages(PDDocument document) {
+        return new AbstractList<>() {
+            @Override
+            public PDPage get(int index) {
+                return document.getPage(index);
+            }
+
+            @Override
+            public int size() {
+                return document.getNumberOfPages();
+            }
+        };
+    }
+
+    /**
+     * AcroForm fill mode: sets each value into the template's own form field of the same (fully qualified) name
+     * and generates the widget appearances from cached templates (see {@link AppearanceCache}), instead of drawing
+     * over a flattened page. The fields stay editable unless {@code flattenFilled} is set, which flattens only the
+     * fields that were filled. Definition fields without a form field of their name, and image and signature
+     * fields, are drawn as overlay. A document without an AcroForm is rendered as by {@link #render}.
+     *
+     * @param document      loaded PDF, not flattened (modified in place)
+     * @param flattenFilled flatten the filled fields into the page content, leaving the other fields editable
+     */
+    public void fillForm(PDDocument document, List<FieldDefinition> fields, Map<String, Object> fieldData,
+                         OverlayOptions options, boolean flattenFilled) throws IOException {
+        if (document == null || fields == null || fields.isEmpty() || options == null) {
+            return;
+        }
+        PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm(null);
+        if (acroForm == null) {
+            render(document, fields, fieldData, options);
+            return;
+        }
+        OverlayFont font = fontRegistry.open(document, options.fonts());
+        List<FieldDefinition> overlay = new AcroFormFiller(this, document, acroForm, font, options, appearanceCache)
+                .fill(fields, fieldData, flattenFilled);
+        // The session (and the checkbox image it embeds) only when some fields are not in the form
+        if (!overlay.isEmpty()) {
+            session(document, options).render(overlay, fieldData, pages(document));
+        }
+    }
+
+    /**
+     * Prepares drawing into {@code document} for several renders: the font chain, embedded images and checkbox symbol
+     * are created once and shared, so copies of a template rendered into one document (combined output) reference
+     * the same font and image objects instead of embedding them per copy.
+     */
+    public Session session(PDDocument document, OverlayOptions options) {
+        return new Session(document, options);
+    }
+
+    /** Fonts, images and options for drawing into one document; see {@link #session}. Not thread-safe. */
+    public final class Session {
+
+        private final PDDocument document;
+        private final OverlayFont font;
+        private final DocumentImages images;
+        private final PDImageXObject checkboxImage;
+        private final float scale;
+        private final float defaultFontSize;
+        private final float minFontSize;
+        private final float[] colorRgb;
+        private final float paddingX;
+        private final float paddingY;
+
+        private Session(PDDocument document, OverlayOptions options) {
+            this.document = document;
+            this.font = fontRegistry.open(document, options.fonts());
+            this.images = new DocumentImages(document, imageCache);
+            this.checkboxImage = loadCheckboxImage(images, options.checkboxImagePath());
+            this.scale = (options.scale() != null && options.scale() > 0) ? options.scale().floatValue() : 1f;
+            this.defaultFontSize = options.fontSize();
+            this.minFontSize = options.minFontSize();
+            this.colorRgb = options.fontColorRgb();
+            this.paddingX = options.paddingX();
+            this.paddingY = options.paddingY();
+        }
+
+        /**
+         * Draws the fields; a field on page N is drawn on {@code pages.get(N - 1)}, which must belong to the
+         * session's document. The thread's {@link Deadline} is checked before each page and field and while fitting
+         * text, so an abandoned fill stops mid-page with {@link Deadline.Cancelled}.
+         */
+        public void render(List<FieldDefinition> fields, Map<String, Object> fieldData, List<PDPage> pages) throws IOException {
+            if (fields == null || fields.isEmpty()) {
+                return;
+            }
+            Map<Integer, List<FieldDefinition>> byPage = fields.stream()
+                    .filter(f -> f.page() != null && f.page() >= 1)
+                    .filter(f -> f.name() != null)
+                    .filter(f -> f.x() != null && f.y() != null)
+                    .collect(Collectors.groupingBy(FieldDefinition::page));
+
+            for (Map.Entry<Integer, List<FieldDefinition>> entry : byPage.entrySet()) {
+                int page1Based = entry.getKey();
+                int page0Based = page1Based - 1;
+                if (page0Based >= pages.size()) {
+                    log.warn("Page {} exceeds document pages ({}), skip overlay", page1Based, pages.size());
+                    continue;
+                }
+                Deadline.check();
+                long pageStart = System.nanoTime();
+                PageRenderEvent pageEvent = new PageRenderEvent();
+                pageEvent.begin();
+                PDPage page = pages.get(page0Based);
+                float pageHeight = page.getMediaBox().getHeight();
+
+                try (PDPageContentStream cs = new PDPageContentStream(document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+                    if (colorRgb != null && colorRgb.length >= 3) {
+                        cs.setNonStrokingColor(colorRgb[0], colorRgb[1], colorRgb[2]);
+                    }
+                    for (FieldDefinition field : entry.getValue()) {
+                        Deadline.check();
+                        Object value = fieldData != null ? fieldData.get(field.name()) : null;
+                        String type = field.type() != null ? field.type().toLowerCase() : "";
+
+                        if (isCheckboxOrBoolean(type)) {
+                            if (Boolean.TRUE.equals(value) && checkboxImage != null) {
+                                float xPt = field.x().floatValue() / scale;
+                                float yDefPt = field.y().floatValue() / scale;
+                                float widthPt = field.width() != null && field.width().floatValue() > 0
+                                        ? field.width().floatValue() / scale : 16f;
+                                float heightPt = field.height() != null && field.height().floatValue() > 0
+                                        ? field.height().floatValue() / scale : 16f;
+                                float yPdf = pageHeight - yDefPt - heightPt;
+                                try {
+                                    cs.drawImage(checkboxImage, xPt, yPdf, widthPt, heightPt);
+                                    fireFieldRendered(type);
+                                } catch (IOException e) {
+                                    log.warn("Draw checkbox image failed for field '{}': {}", field.name(), e.getMessage());
+                                }
+                            }
+                            continue;
+                        }
+
+                        if (isImage(type)) {
+                            if (value instanceof String reference && !reference.isBlank()) {
+                                drawImageField(cs, images, field, reference, scale, pageHeight, type);
+                            }
+                            continue;
+                        }
+
+                        String text = value != null ? value.toString() : "";
+                        if (text.isEmpty()) {
+                            continue;
+                        }
+                        String safe = font.sanitize(text);
+                        if (safe.isEmpty()) {
+                            continue;
+                        }
+                        long fieldStart = System.nanoTime();
+                        FieldFitEvent fitEvent = new FieldFitEvent();
+                        fitEvent.begin();
+                        float xPt = field.x().floatValue() / scale;
+                        float yDefPt = field.y().floatValue() / scale;
+                        float heightPt = field.height() != null ? field.height().floatValue() / scale : (defaultFontSize * DEFAULT_LINE_HEIGHT_FACTOR);
+                        TextLayout layout = layoutText(font, field, safe, scale, defaultFontSize, minFontSize, paddingX, paddingY);
+
+                        if (layout.multiLine() != null) {
+                            MultiLineResult ml = layout.multiLine();
+                            fireFitEvents(field.name(), ml.fontSize() < defaultFontSize, ml.truncated(), ml.lines().size());
+                            fireFieldFitted(field.name(), safe.length(), ml.fontSize(), ml.iterations(), System.nanoTime() - fieldStart);
+                            commitFitEvent(fitEvent, field.name(), safe.length(), true, ml.fontSize(), ml.iterations(), ml.truncated());
+                            try {
+                                drawMultiLine(cs, font, ml.lines(), ml.fontSize(), pageHeight, yDefPt, heightPt, xPt, paddingX, paddingY, ml.lineHeight());
+                                fireFieldRendered(type);
+                            } catch (IOException e) {
+                                log.warn("Overlay failed for field '{}': {}", field.name(), e.getMessage());
+                            }
+                        } else {
+                            float fontSize = defaultFontSize;
+                            String toDraw = safe;
+                            TextFitCache.SingleLineFit fit = layout.singleLine();
+                            if (fit != null) {
+                                fontSize = fit.fontSize();
+                                toDraw = fit.text();
+                                fireFitEvents(field.name(), fontSize < defaultFontSize, fit.truncated(), 1);
+                                fireFieldFitted(field.name(), safe.length(), fontSize, fit.iterations(), System.nanoTime() - fieldStart);
+                                commitFitEvent(fitEvent, field.name(), safe.length(), false, fontSize, fit.iterations(), fit.truncated());
+                            }
+                            float rectHeight = field.height() != null ? heightPt : (fontSize * DEFAULT_LINE_HEIGHT_FACTOR);
+                            String verticalAlign = field.verticalAlign() != null ? field.verticalAlign().toLowerCase() : "middle";
+                            float textX = xPt + paddingX;
+                            try {
+                                float yBaseline = baselineForVerticalAlign(pageHeight, yDefPt, rectHeight, fontSize, font.primary(), paddingY, verticalAlign);
+                                cs.beginText();
+                                cs.newLineAtOffset(textX, yBaseline);
+                                font.showText(cs, toDraw, fontSize);
+                                cs.endText();
+                                fireFieldRendered(type);
+                            } catch (IOException e) {
+                                log.warn("Overlay failed for field '{}': {}", field.name(), e.getMessage());
+                            }
+                        }
+                    }
+                }
+                firePageRendered(page1Based, entry.getValue().size(), System.nanoTime() - pageStart);
+                pageEvent.page = page1Based;
+                pageEvent.fields = entry.getValue().size();
+                pageEvent.commit();
+            }
+        }
+    }
+
+    /** How a text value is laid out in its field: multi-line, single-line fitted, or neither (no width to fit to). */
+    record TextLayout(MultiLineResult multiLine, TextFitCache.SingleLineFit singleLine) {}
+
+    /**
+     * Fits {@code safe} into the field box: multi-line fields with a usable height are wrapped, other fields with a
+     * width are shrunk and truncated on one line; fields without a width are drawn as is.
+     */
+    private TextLayout layoutText(OverlayFont font, FieldDefinition field, String safe, float scale,
+                                  float defaultFontSize, float minFontSize, float paddingX, float paddingY) throws IOException {
+        if (field.width() == null) {
+            return new TextLayout(null, null);
+        }
+        float widthPt = field.width().floatValue() / scale;
+        float heightPt = field.height() != null ? field.height().floatValue() / scale : (defaultFontSize * DEFAULT_LINE_HEIGHT_FACTOR);
+        return layoutBox(font, safe, widthPt, heightPt, isMultiLineField(field), defaultFontSize, minFontSize, paddingX, paddingY);
+    }
+
+    /** Fits {@code safe} into a box of the given size in points; shared by the overlay and the AcroForm fill mode. */
+    TextLayout layoutBox(OverlayFont font, String safe, float widthPt, float heightPt, boolean multiLine,
+                         float defaultFontSize, float minFontSize, float paddingX, float paddingY) throws IOException {
+        float textWidthLimit = textWidthLimit(widthPt, paddingX);
+        if (textWidthLimit <= 0) {
+            return new TextLayout(null, null);
+        }
+        float availableHeight = heightPt - 2 * paddingY;
+        if (multiLine && availableHeight > 0) {
+            return new TextLayout(fitCache.multiLine(font.name(), safe, textWidthLimit, availableHeight, defaultFontSize, minFontSize,
+                    () -> computeMultiLine(font, safe, textWidthLimit, availableHeight, defaultFontSize, minFontSize)), null);
+        }
+        return new TextLayout(null, fitCache.singleLine(font.name(), safe, textWidthLimit, defaultFontSize, minFontSize,
+                () -> fitSingleLine(font, safe, textWidthLimit, defaultFontSize, minFontSize)));
+    }
+
+    /** Width available to text in a box of {@code widthPt}: inside the padding, or half the box when it is too narrow. */
+    static float textWidthLimit(float widthPt, float paddingX) {
+        return widthPt > 2 * paddingX
+                ? widthPt - 2 * paddingX
+                : (widthPt > 0 ? widthPt * 0.5f : 0f);
+    }
+
+    /**
+     * Fit of one text field as {@link #render} would draw it: the field's page, the final font size, whether it is
+     * smaller than the definition's font size, whether text was cut (ellipsis or dropped lines) even at the minimum
+     * size, and the number of lines. Definitions may repeat a name on several pages, so the page is the field's own.
+     */
+    public record TextCheck(String field, Integer page, float fontSize, boolean shrunk, boolean truncated, int lines) {}
+
+    /**
+     * Fits the text values of {@code fields} exactly as {@link #render} does (same fonts, fit cache and options),
+     * without a document and without drawing. Checkbox, image and empty fields and fields without a width are
+     * skipped; results are in field order.
+     */
+    public List<TextCheck> checkText(List<FieldDefinition> fields, Map<String, Object> fieldData, OverlayOptions options) throws IOException {
+        List<TextCheck> checks = new ArrayList<>();
+        if (fields == null || options == null) {
+            return checks;
+        }
+        OverlayFont font = fontRegistry.open(null, options.fonts());
+        float scale = (options.scale() != null && options.scale() > 0) ? options.scale().floatValue() : 1f;
+        for (FieldDefinition field : fields) {
+            String type = field.type() != null ? field.type().toLowerCase() : "";
+            Object value = fieldData != null && field.name() != null ? fieldData.get(field.name()) : null;
+            if (value == null || isCheckboxOrBoolean(type) || isImage(type)) {
+                continue;
+            }
+            String safe = font.sanitize(value.toString());
+            if (safe.isEmpty()) {
+                continue;
+            }
+            TextLayout layout = layoutText(font, field, safe, scale, options.fontSize(), options.minFontSize(),
+                    options.paddingX(), options.paddingY());
+            if (layout.multiLine() != null) {
+                MultiLineResult ml = layout.multiLine();
+                checks.add(new TextCheck(field.name(), field.page(), ml.fontSize(), ml.fontSize() < options.fontSize(), ml.truncated(),
+                        ml.lines().size()));
+            } else if (layout.singleLine() != null) {
+                TextFitCache.SingleLineFit fit = layout.singleLine();
+                checks.add(new TextCheck(field.name(), field.page(), fit.fontSize(), fit.fontSize() < options.fontSize(), fit.truncated(), 1));
+            }
+        }
+        return checks;
+    }
+
+    void fireFieldRendered(String type) {
+        for (OverlayRenderListener listener : listeners) {
+            listener.fieldRendered(type);
+        }
+    }
+
+    void fireFieldFitted(String fieldName, int textLength, float fontSize, int iterations, long nanos) {
+        for (OverlayRenderListener listener : listeners) {
+            listener.fieldFitted(fieldName, textLength, fontSize, iterations, nanos);
+        }
+    }
+
+    static void commitFitEvent(FieldFitEvent event, String fieldName, int textLength, boolean multiLine,
+            float fontSize, int iterations, boolean truncated) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.field = fieldName;
+        event.textLength = textLength;
+        event.multiLine = multiLine;
+        event.fontSize = fontSize;
+        event.iterations = iterations;
+        event.truncated = truncated;
+        event.commit();
+    }
+
+    private void firePageRendered(int page, int fieldCount, long nanos) {
+        for (OverlayRenderListener listener : listeners) {
+            listener.pageRendered(page, fieldCount, nanos);
+        }
+    }
+
+    void fireFitEvents(String fieldName, boolean shrunk, boolean truncated, int lines) {
+        for (OverlayRenderListener listener : listeners) {
+            if (shrunk) {
+                listener.textShrunk(fieldName);
+            }
+            if (truncated) {
+                listener.textTruncated(fieldName);
+            }
+            if (lines > 1) {
+                listener.textWrapped(fieldName, lines);
+            }
+        }
+    }
+
+    private static boolean isCheckboxOrBoolean(String type) {
+        return "checkbox".equals(type) || "boolean".equals(type);
+    }
+
+    static boolean isImage(String type) {
+        return "image".equals(type) || "signature".equals(type);
+    }
+
+    /**
+     * Draws an image field scaled to fit the field rectangle with its aspect ratio kept, centered horizontally and
+     * vertically (top-aligned with verticalAlign "top"). The embedded image is downsampled to the target dpi for the
+     * drawn size and shared with other fields drawing the same image at that size.
+     */
+    private void drawImageField(PDPageContentStream cs, DocumentImages images, FieldDefinition field, String reference,
+            float scale, float pageHeight, String type) {
+        if (field.width() == null || field.height() == null || field.width() <= 0 || field.height() <= 0) {
+            log.warn("Image field '{}' needs width and height, skipped", field.name());
+            return;
+        }
+        float xPt = field.x().floatValue() / scale;
+        float yDefPt = field.y().floatValue() / scale;
+        float boxWidth = field.width().floatValue() / scale;
+        float boxHeight = field.height().floatValue() / scale;
+        try {
+            ImageCache.Decoded decoded = imageCache.load(reference);
+            float fit = Math.min(boxWidth / decoded.width(), boxHeight / decoded.height());
+            float drawWidth = decoded.width() * fit;
+            float drawHeight = decoded.height() * fit;
+            PDImageXObject image = images.forBox(decoded, drawWidth, drawHeight);
+            float x = xPt + (boxWidth - drawWidth) / 2f;
+            boolean top = "top".equalsIgnoreCase(field.verticalAlign());
+            float yTop = yDefPt + (top ? 0f : (boxHeight - drawHeight) / 2f);
+            cs.drawImage(image, x, pageHeight - yTop - drawHeight, drawWidth, drawHeight);
+            fireFieldRendered(type);
+        } catch (IOException e) {
+            log.warn("Draw image failed for field '{}': {}", field.name(), e.getMessage());
+        }
+    }
+
+    /** Definition height >= threshold (in definition units) → multi-line with wrap. */
+    private static boolean isMultiLineField(FieldDefinition field) {
+        return field.height() != null && field.height().floatValue() >= MULTI_LINE_HEIGHT_THRESHOLD;
+    }
+
+    /** Result of multi-line fitting; iterations is the number of wrap passes it took. */
+    record MultiLineResult(float fontSize, List<String> lines, float lineHeight, boolean truncated, int iterations) {}
+
+    /** Result of single-line shrinking; iterations is the number of width measurements it took. */
+    record ShrinkResult(float fontSize, int iterations) {}
+
+    /**
+     * Wraps text by width (word-boundary when possible); returns lines that fit in widthLimit at fontSize.
+     */
+    static List<String> wrapToLines(OverlayFont font, String text, float widthLimit, float fontSize) throws IOException {
+        List<String> result = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return result;
+        }
+        String[] tokens = text.trim().split("\\s+");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < tokens.length; i++) {
+            String word = tokens[i];
+            String candidate = line.length() > 0 ? line + " " + word : word;
+            if (textWidthInPoints(font, candidate, fontSize) <= widthLimit) {
+                if (line.length() > 0) line.append(' ');
+                line.append(word);
+            } else {
+                if (line.length() > 0) {
+                    result.add(line.toString());
+                    line = new StringBuilder();
+                }
+                if (textWidthInPoints(font, word, fontSize) <= widthLimit) {
+                    line.append(word);
+                } else {
+                    for (int j = 0; j < word.length(); j += Character.charCount(word.codePointAt(j))) {
+                        String ch = new String(Character.toChars(word.codePointAt(j)));
+                        String c = line.length() > 0 ? line + ch : ch;
+                        if (textWidthInPoints(font, c, fontSize) <= widthLimit) {
+                            line.append(ch);
+                        } else {
+                            if (line.length() > 0) {
+                                result.add(line.toString());
+                                line = new StringBuilder();
+                            }
+                            line.append(ch);
+                        }
+                    }
+                }
+            }
+        }
+        if (line.length() > 0) {
+            result.add(line.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Finds fontSize and wrapped lines so that text fits in widthLimit and total height <= availableHeight.
+     * Reduces fontSize and re-wraps until fit or minFontSize; if still over, truncates to lines that fit (last line ellipsis).
+     */
+    static MultiLineResult computeMultiLine(OverlayFont font, String text, float widthLimit,
+            float availableHeight, float defaultFontSize, float minFontSize) throws IOException {
+        float fontSize = defaultFontSize;
+        List<String> lines = wrapToLines(font, text, widthLimit, fontSize);
+        int iterations = 1;
+        float lineHeight = fontSize * DEFAULT_LINE_HEIGHT_FACTOR;
+        while (lines.size() * lineHeight > availableHeight && fontSize > minFontSize) {
+            Deadline.check();
+            fontSize -= 1f;
+            fontSize = Math.max(fontSize, minFontSize);
+            lines = wrapToLines(font, text, widthLimit, fontSize);
+            iterations++;
+            lineHeight = fontSize * DEFAULT_LINE_HEIGHT_FACTOR;
+        }
+        int maxLines = Math.max(1, (int) (availableHeight / lineHeight));
+        boolean droppedLines = lines.size() > maxLines;
+        if (droppedLines) {
+            lines = new ArrayList<>(lines.subList(0, maxLines));
+            String last = lines.get(lines.size() - 1);
+            if (textWidthInPoints(font, last, fontSize) > widthLimit) {
+                String truncated = truncateWithEllipsis(font, last, fontSize, widthLimit);
+                lines.set(lines.size() - 1, truncated);
+            }
+        }
+        return new MultiLineResult(fontSize, List.copyOf(lines), lineHeight, droppedLines, iterations);
+    }
+
+    /**
+     * Draws multiple lines top-aligned: first line at yDefPt + paddingY (definition top), then downward.
+     */
+    private void drawMultiLine(PDPageContentStream cs, OverlayFont font, List<String> lines, float fontSize,
+            float pageHeight, float yDefPt, float rectHeightPt, float xPt, float paddingX, float paddingY, float lineHeight) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        PDFont primary = font.primary();
+        float ascentPt = primary.getFontDescriptor() != null
+                ? fontSize * primary.getFontDescriptor().getAscent() / 1000f
+                : fontSize * 0.718f;
+        float yTopPdf = pageHeight - (yDefPt + paddingY);
+        float firstBaseline = yTopPdf - ascentPt;
+        float textX = xPt + paddingX;
+
+        for (int i = 0; i < lines.size(); i++) {
+            float baseline = firstBaseline - i * lineHeight;
+            cs.beginText();
+            cs.newLineAtOffset(textX, baseline);
+            font.showText(cs, lines.get(i), fontSize);
+            cs.endText();
+        }
+    }
+
+    /**
+     * Loads an image from classpath:name or file path (decoded once via the shared {@link ImageCache}).
+     * Returns null on failure or if path is null/blank.
+     */
+    private PDImageXObject loadCheckboxImage(DocumentImages images, String path) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        try {
+            return images.original(imageCache.load(path));
+        } catch (IOException e) {
+            log.warn("Failed to load checkbox image from {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Computes the PDF y-coordinate for the text baseline. Definition uses top-left origin with y downward.
+     * verticalAlign "top": top of text at yDefPt + paddingY; "middle" (default): text centered in rect (with paddingY as margin).
+     */
+    private static float baselineForVerticalAlign(float pageHeight, float yDefPt, float rectHeight, float fontSize, PDFont font, float paddingY, String verticalAlign) {
+        float ascentPt, descentPt;
+        if (font.getFontDescriptor() != null) {
+            ascentPt = fontSize * font.getFontDescriptor().getAscent() / 1000f;
+            descentPt = fontSize * font.getFontDescriptor().getDescent() / 1000f;
+        } else {
+            ascentPt = fontSize * 0.718f;
+            descentPt = fontSize * -0.176f;
+        }
+        if ("top".equals(verticalAlign)) {
+            float yTopDef = yDefPt + paddingY;
+            float yTopPdf = pageHeight - yTopDef;
+            return yTopPdf - ascentPt;
+        }
+        float rectCenterY = pageHeight - yDefPt - rectHeight / 2f;
+        float textVerticalCenterOffset = (ascentPt + descentPt) / 2f;
+        return rectCenterY - textVerticalCenterOffset;
+    }
+
+    /** Width of text in points (font size applied). */
+    private static float textWidthInPoints(OverlayFont font, String text, float fontSize) {
+        return font.stringWidth(text) / 1000f * fontSize;
+    }
+
+    /**
+     * Largest font size in [minFontSize, defaultFontSize] such that text width <= widthLimit.
+     * Uses a direct formula first (fontSize = default * widthLimit/currentWidth), then clamps
+     * and verifies; if still over, decrements by 1pt until fit.
+     */
+    static ShrinkResult shrinkToFit(OverlayFont font, String text, float widthLimit, float defaultFontSize, float minFontSize) throws IOException {
+        float textWidthAtDefault = textWidthInPoints(font, text, defaultFontSize);
+        if (textWidthAtDefault <= widthLimit) {
+            return new ShrinkResult(defaultFontSize, 1);
+        }
+        float ratio = widthLimit / textWidthAtDefault;
+        float candidate = defaultFontSize * ratio;
+        candidate = Math.max(minFontSize, Math.min(defaultFontSize, candidate));
+        float size = candidate;
+        int iterations = 1;
+        while (size >= minFontSize) {
+            Deadline.check();
+            iterations++;
+            if (textWidthInPoints(font, text, size) <= widthLimit) {
+                break;
+            }
+            size -= 1f;
+        }
+        return new ShrinkResult(Math.max(size, minFontSize), iterations);
+    }
+
+    /** Shrinks text to fit widthLimit and, if it still does not fit at minFontSize, truncates it with an ellipsis. */
+    static TextFitCache.SingleLineFit fitSingleLine(OverlayFont font, String text, float widthLimit,
+            float defaultFontSize, float minFontSize) throws IOException {
+        ShrinkResult shrink = shrinkToFit(font, text, widthLimit, defaultFontSize, minFontSize);
+        if (textWidthInPoints(font, text, shrink.fontSize()) > widthLimit) {
+            return new TextFitCache.SingleLineFit(shrink.fontSize(), truncateWithEllipsis(font, text, shrink.fontSize(), widthLimit),
+                    shrink.iterations(), true);
+        }
+        return new TextFitCache.SingleLineFit(shrink.fontSize(), text, shrink.iterations(), false);
+    }
+
+    /** Truncate text so that (text + ELLIPSIS) fits in widthLimit at given fontSize. */
+    static String truncateWithEllipsis(OverlayFont font, String text, float fontSize, float widthLimit) throws IOException {
+        float ellipsisWidth = textWidthInPoints(font, ELLIPSIS, fontSize);
+        float maxTextWidth = widthLimit - ellipsisWidth;
+        if (maxTextWidth <= 0) {
+            return ELLIPSIS;
+        }
+        String result = text;
+        while (result.length() > 0 && textWidthInPoints(font, result, fontSize) > maxTextWidth) {
+            Deadline.check();
+            result = result.substring(0, result.offsetByCodePoints(result.length(), -1));
+        }
+        return result + ELLIPSIS;
+    }
+}
@@ -0,0 +1,167 @@
+package com.pdfformfill.pdf.overlay;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of text-fit results shared across requests. The same values ("Smith", standard addresses,
+ * dates) are fitted into the same box sizes over and over; with the cache a repeated fit is a lookup instead of
+ * width measurements and re-wrapping.
+ * <p>
+ * Keyed by (font, text, width limit, available height, default/min font size); stores the final font size and the
+ * text or lines to draw. Bounded by entry count and by an estimate of retained bytes (key text + result lines +
+ * fixed per-entry overhead); least recently used entries are evicted first. Texts longer than
+ * {@code maxTextLength} are not cached. Thread-safe; the fit itself runs outside the lock, so two threads missing
+ * on the same key may both compute it (last write wins, results are identical).
+ */
+public class TextFitCache {
+
+    /** Rough per-entry overhead: map node, key record, result record, list, string headers. */
+    static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    /** Cache key; {@code availableHeight} is -1 for single-line fits. */
+    record Key(String font, String text, float widthLimit, float availableHeight, float defaultFontSize, float minFontSize) {}
+
+    /** Single-line fit: font size, the text to draw (possibly truncated with an ellipsis) and the measurements it took. */
+    record SingleLineFit(float fontSize, String text, int iterations, boolean truncated) {}
+
+    private record Entry(Object value, int weight) {}
+
+    @FunctionalInterface
+    interface FitFunction<V> {
+        V fit() throws IOException;
+    }
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int maxTextLength;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TextFitCache(
+            boolean enabled,
+            int maxEntries,
+            long maxBytes,
+            int maxTextLength) {
+        this.enabled = enabled && maxEntries > 0 && maxBytes > 0;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxTextLength = maxTextLength;
+    }
+
+    /** Cache with default limits (tests, benchmarks). */
+    public TextFitCache() {
+        this(true, 20_000, 16L * 1024 * 1024, 2_000);
+    }
+
+    /** Cache that never stores anything; every fit is computed. */
+    public static TextFitCache disabled() {
+        return new TextFitCache(false, 0, 0, 0);
+    }
+
+    SingleLineFit singleLine(String font, String text, float widthLimit, float defaultFontSize, float minFontSize,
+                             FitFunction<SingleLineFit> fit) throws IOException {
+        return get(new Key(font, text, widthLimit, -1f, defaultFontSize, minFontSize), fit);
+    }
+
+    PdfOverlayRenderer.MultiLineResult multiLine(String font, String text, float widthLimit, float availableHeight,
+                                                 float defaultFontSize, float minFontSize,
+                                                 FitFunction<PdfOverlayRenderer.MultiLineResult> fit) throws IOException {
+        return get(new Key(font, text, widthLimit, availableHeight, defaultFontSize, minFontSize), fit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V get(Key key, FitFunction<V> fit) throws IOException {
+        if (!enabled || key.text().length() > maxTextLength) {
+            return fit.fit();
+        }
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return (V) cached.value();
+            }
+        }
+        misses.increment();
+        V value = fit.fit();
+        Entry entry = new Entry(value, weigh(key, value));
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                bytes -= previous.weight();
+            }
+            bytes += entry.weight();
+            evictIfNeeded();
+        }
+        return value;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            bytes -= it.next().weight();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /** Estimated retained bytes of one entry (UTF-16 chars, so 2 bytes per char). */
+    static int weigh(Key key, Object value) {
+        int chars = key.text().length() + key.font().length();
+        if (value instanceof SingleLineFit single) {
+            chars += single.text() == key.text() ? 0 : single.text().length();
+        } else if (value instanceof PdfOverlayRenderer.MultiLineResult multi) {
+            List<String> lines = multi.lines();
+            for (String line : lines) {
+                chars += line.length();
+            }
+            chars += lines.size() * 8;
+        }
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Estimated memory retained by the cached entries, in bytes. */
+    public synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /** Hits / (hits + misses) since start, or 0 before the first lookup. */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
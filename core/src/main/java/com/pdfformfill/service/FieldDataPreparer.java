@@ -2,29 +2,47 @@ package com.pdfformfill.service;
 
 import com.pdfformfill.dto.FieldDefinition;
 import com.pdfformfill.dto.FieldsDefinition;
-import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 根据字段定义生成 mock 数据，用于填表测试。
- * 优先按 field name 做语义化 mock，例如：
+ * 优先按 field name 做语义化 mock（规则表 mock-rules.json，可用 pdf.mock.rules 替换），例如：
  * - name / first name / surname / family name → 看起来像人名
  * - phone / facsimile / fax → 看起来像电话号码
  * - email → 看起来像邮箱
  * - address → 看起来像地址
  * - dob / date of birth → 看起来像出生日期
- * - 其他字段则按 type 生成：string→"test", number→123, date→"2025-01-01", boolean/checkbox→true。
+ * - 其他字段则按 type 生成：string→"test", number→123, date→"2025-01-01", boolean/checkbox→true，
+ *   image/signature→示例签名图片（classpath:mock-signature.png）。
  */
-@Component
 public class FieldDataPreparer {
 
     private static final String MOCK_STRING = "test";
     private static final int MOCK_NUMBER = 123;
     private static final String MOCK_DATE = "2025-01-01";
     private static final Boolean MOCK_BOOLEAN = Boolean.TRUE;
+    /** image/signature 字段的 mock 值（图片引用）。 */
+    static final String MOCK_IMAGE = "classpath:mock-signature.png";
+
+    private final MockRuleTable rules;
+
+    /** 使用默认规则表 classpath:mock-rules.json。 */
+    public FieldDataPreparer() {
+        this("classpath:mock-rules.json");
+    }
+
+    public FieldDataPreparer(String rulesLocation) {
+        try {
+            this.rules = MockRuleTable.load(rulesLocation);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load mock rules from " + rulesLocation, e);
+        }
+    }
 
     /**
      * 为定义中的每个字段生成 mock 值，key 为 field name，value 与 type 对应。
@@ -63,67 +81,27 @@ public class FieldDataPreparer {
             "123 Sample Street, Sydney NSW 2000, Australia. Unit 5, Building B. Contact: reception. 123 Sample Street, Sydney NSW 2000, Australia. Unit 5, Building B. Contact: reception. 123 Sample Street, Sydney NSW 2000, Australia. Unit 5, Building B. Contact: reception. 123 Sample Street, Sydney NSW 2000, Australia. Unit 5, Building B. Contact: reception. 123 Sample Street, Sydney NSW 2000, Australia. Unit 5, Building B. Contact: reception. 123 Sample Street, Sydney NSW 2000, Australia. Unit 5, Building B. Contact: reception.";
 
     private Object mockValueFor(FieldDefinition field) {
-        String name = field.name();
         String type = field.type();
-        String safeName = name == null ? "" : name.toLowerCase();
         boolean isTopAligned = field.verticalAlign() != null && field.verticalAlign().equalsIgnoreCase("top");
 
-        // 先根据字段名做更“像真的” mock
-        // 人名相关
-        if (safeName.contains("first name")) {
-            return "John John John John John John John John";
-        }
-        if (safeName.contains("family name") || safeName.contains("surname")) {
-            return "Smith";
-        }
-        if (safeName.contains("worker") && safeName.contains("name")) {
-            return "Alex Railworker Alex Railworker Alex Railworker Alex Railworker Alex Railworker";
-        }
-        if (safeName.contains("doctor") && safeName.contains("appointment")) {
-            return "Dr Taylor";
-        }
-        if (safeName.contains("doctor")) {
-            return "Dr Smith";
-        }
-        if (safeName.contains("operator") && safeName.contains("rail")) {
-            return "ACME Rail Pty Ltd";
+        // 图片字段不走名称规则（"worker signature" 不应取到人名）
+        if (isImage(type)) {
+            return MOCK_IMAGE;
         }
 
-        // 联系方式
-        if (safeName.contains("email")) {
-            return "worker@example.com";
-        }
-        if (safeName.contains("phone") || safeName.contains("facsimile") || safeName.contains("fax")) {
-            return "+61 400 123 456";
+        // 先按规则表根据字段名做更“像真的” mock（人名、联系方式、地址、各类日期等，见 mock-rules.json）
+        MockRuleTable.Rule rule = rules.resolve(field);
+        if (rule != null) {
+            return rule.longText() ? MOCK_LONG_TEXT_TOP : rule.value();
         }
 
-        // 地址：top 对齐的框用长文本以便测试动态缩小字号
-        if (safeName.contains("address")) {
-            return isTopAligned ? MOCK_LONG_TEXT_TOP : "123 Sample Street, Sydney NSW 2000";
+        // 对于 date、string、number 仍然保留原来的 type 逻辑，保证兼容性
+        if (type == null) {
+            return MOCK_STRING;
         }
-
-        // 日期类：根据 name 做一点区分
         if (typeEquals(type, "date")) {
-            if (safeName.contains("dob") || safeName.contains("date of birth") || safeName.endsWith(" dob")) {
-                return "1990-01-01";
-            }
-            if (safeName.contains("next review")) {
-                return "2025-06-01";
-            }
-            if (safeName.contains("appointment")) {
-                return "2025-03-15";
-            }
-            if (safeName.contains("drug test") || safeName.contains("test date")) {
-                return "2025-02-01";
-            }
-            // 其他日期维持原来的固定值
             return MOCK_DATE;
         }
-
-        // 对于 string、number 仍然保留原来的 type 逻辑，保证兼容性
-        if (type == null) {
-            return MOCK_STRING;
-        }
         if (typeEquals(type, "number")) {
             return MOCK_NUMBER;
         }
@@ -134,6 +112,31 @@ public class FieldDataPreparer {
         return MOCK_STRING; // "string" 及未知类型
     }
 
+    /**
+     * 推断字段的语义类别（与 {@link #prepareMockData} 使用同一张规则表），供 {@link MockRecordGenerator} 使用。
+     */
+    public FieldKind kindOf(FieldDefinition field) {
+        String type = field.type();
+        if (isCheckboxOrBoolean(type)) {
+            return FieldKind.BOOLEAN;
+        }
+        if (isImage(type)) {
+            return FieldKind.IMAGE;
+        }
+        MockRuleTable.Rule rule = rules.resolve(field);
+        if (rule != null && rule.kind() != null) {
+            return rule.kind();
+        }
+        if (typeEquals(type, "date")) {
+            return FieldKind.DATE;
+        }
+        if (typeEquals(type, "number")) {
+            return FieldKind.NUMBER;
+        }
+        boolean isTopAligned = field.verticalAlign() != null && field.verticalAlign().equalsIgnoreCase("top");
+        return isTopAligned ? FieldKind.LONG_TEXT : FieldKind.TEXT;
+    }
+
     private boolean typeEquals(String type, String expected) {
         return type != null && type.equalsIgnoreCase(expected);
     }
@@ -141,4 +144,8 @@ public class FieldDataPreparer {
     private boolean isCheckboxOrBoolean(String type) {
         return typeEquals(type, "checkbox") || typeEquals(type, "boolean");
     }
+
+    private boolean isImage(String type) {
+        return typeEquals(type, "image") || typeEquals(type, "signature");
+    }
 }
@@ -0,0 +1,24 @@
+package com.pdfformfill.service;
+
+/**
+ * 字段语义类别，由 {@link FieldDataPreparer#kindOf} 按 field name / type 推断，
+ * 与固定 mock 值使用同一套名称规则；{@link MockRecordGenerator} 按类别选择值的生成方式与长度分布。
+ */
+public enum FieldKind {
+    FIRST_NAME,
+    FAMILY_NAME,
+    /** worker / doctor 等完整人名 */
+    PERSON_NAME,
+    ORGANISATION,
+    EMAIL,
+    PHONE,
+    ADDRESS,
+    DATE,
+    NUMBER,
+    BOOLEAN,
+    /** image / signature 字段，值为图片引用 */
+    IMAGE,
+    /** verticalAlign 为 top 的多行文本框 */
+    LONG_TEXT,
+    TEXT
+}
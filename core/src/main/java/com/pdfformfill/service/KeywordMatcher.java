@@ -0,0 +1,95 @@
+package com.pdfformfill.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick 多模式匹配：一次构建，之后对任意文本只扫描一遍即可找出出现的全部关键字，
+ * 耗时只与文本长度有关，与关键字数量无关。不可变，线程安全。
+ */
+final class KeywordMatcher {
+
+    /** goto 表：每个状态的子节点（字符 → 状态）。 */
+    private final List<Map<Character, Integer>> next = new ArrayList<>();
+    private final int[] fail;
+    /** 每个状态结束的关键字 id（含经 fail 链继承的），无则为 null。 */
+    private final int[][] output;
+    private final int keywordCount;
+
+    KeywordMatcher(List<String> keywords) {
+        this.keywordCount = keywords.size();
+        List<List<Integer>> out = new ArrayList<>();
+        next.add(new HashMap<>());
+        out.add(new ArrayList<>());
+        for (int id = 0; id < keywords.size(); id++) {
+            String keyword = keywords.get(id);
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keyword must not be empty");
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                Integer child = next.get(state).get(c);
+                if (child == null) {
+                    child = next.size();
+                    next.get(state).put(c, child);
+                    next.add(new HashMap<>());
+                    out.add(new ArrayList<>());
+                }
+                state = child;
+            }
+            out.get(state).add(id);
+        }
+
+        // BFS 计算 fail 链，并把 fail 状态的输出并入当前状态
+        fail = new int[next.size()];
+        Queue<Integer> queue = new ArrayDeque<>(next.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> e : next.get(state).entrySet()) {
+                int child = e.getValue();
+                int f = fail[state];
+                while (f != 0 && !next.get(f).containsKey(e.getKey())) {
+                    f = fail[f];
+                }
+                Integer target = next.get(f).get(e.getKey());
+                fail[child] = target != null && target != child ? target : 0;
+                out.get(child).addAll(out.get(fail[child]));
+                queue.add(child);
+            }
+        }
+        output = new int[out.size()][];
+        for (int s = 0; s < out.size(); s++) {
+            output[s] = out.get(s).isEmpty() ? null : out.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    int keywordCount() {
+        return keywordCount;
+    }
+
+    /** 返回 text 中出现的关键字 id 集合（text 应与关键字同样已转小写）。 */
+    BitSet find(String text) {
+        BitSet found = new BitSet(keywordCount);
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Integer child;
+            while ((child = next.get(state).get(c)) == null && state != 0) {
+                state = fail[state];
+            }
+            state = child != null ? child : 0;
+            if (output[state] != null) {
+                for (int id : output[state]) {
+                    found.set(id);
+                }
+            }
+        }
+        return found;
+    }
+}
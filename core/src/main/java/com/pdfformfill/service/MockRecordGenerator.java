@@ -0,0 +1,261 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * 可复现的大批量 mock 记录生成器：与 {@link FieldDataPreparer} 的固定值不同，每条记录都不一样，
+ * 文本长度按字段类别（{@link FieldKind}）的可配置分布抽样，用于批量填表、压测与基准测试。
+ * <p>
+ * 第 i 条记录只由 (seed, i) 决定：不需要保存已生成的记录，可以按需流式生成上百万条，
+ * 也可以并行生成或直接跳到任意下标，结果不变。
+ * <p>
+ * 长度分布配置格式为 {@code min,mean,max}（字符数），例如 {@code pdf.mock.lengths.address=18,40,160}。
+ */
+public class MockRecordGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final String[] FIRST_NAMES = {
+            "John", "Mary", "Wei", "Priya", "Liam", "Olivia", "Mohammed", "Chloe", "Noah", "Isla", "Jack", "Mia",
+            "Hiroshi", "Sofia", "Lucas", "Aroha", "Ethan", "Zara", "Oliver", "Grace", "Ngoc", "Fatima", "Henry", "Ava"};
+    private static final String[] FAMILY_NAMES = {
+            "Smith", "Nguyen", "Williams", "Brown", "Chen", "Patel", "Jones", "Singh", "Taylor", "Wilson", "Kim",
+            "Martin", "Anderson", "Thompson", "O'Connor", "Papadopoulos", "Rossi", "Walker", "Tran", "Kowalski"};
+    private static final String[] STREETS = {
+            "George", "Pitt", "King", "Queen", "Elizabeth", "Victoria", "Railway", "Station", "Church", "High", "Park",
+            "Bridge", "Hill", "Wattle", "Banksia", "Ocean"};
+    private static final String[] STREET_TYPES = {"Street", "Road", "Avenue", "Parade", "Lane", "Crescent", "Highway"};
+    private static final String[] SUBURBS = {
+            "Sydney NSW 2000", "Parramatta NSW 2150", "Newcastle NSW 2300", "Melbourne VIC 3000", "Geelong VIC 3220",
+            "Brisbane QLD 4000", "Townsville QLD 4810", "Perth WA 6000", "Adelaide SA 5000", "Hobart TAS 7000",
+            "Darwin NT 0800", "Canberra ACT 2600"};
+    private static final String[] ORG_SUFFIXES = {"Pty Ltd", "Rail Services", "Logistics", "Infrastructure Pty Ltd", "Group"};
+    private static final String[] WORDS = {
+            "worker", "reported", "minor", "discomfort", "after", "shift", "review", "scheduled", "follow", "up",
+            "required", "medication", "none", "known", "allergies", "cleared", "for", "duties", "with", "restrictions",
+            "night", "roster", "track", "maintenance", "safety", "briefing", "completed", "signed", "by", "supervisor"};
+    private static final String[] EMAIL_DOMAINS = {"example.com", "example.org", "mail.example.net", "rail.example.com.au"};
+
+    private final FieldDataPreparer fieldDataPreparer;
+    private final Map<FieldKind, LengthDistribution> lengths = new EnumMap<>(FieldKind.class);
+    private final LocalDate dateFrom;
+    private final LocalDate dateTo;
+
+    public MockRecordGenerator(
+            FieldDataPreparer fieldDataPreparer,
+            String nameLengths,
+            String personNameLengths,
+            String organisationLengths,
+            String addressLengths,
+            String textLengths,
+            String longTextLengths,
+            String dateFrom,
+            String dateTo
+    ) {
+        this.fieldDataPreparer = fieldDataPreparer;
+        LengthDistribution names = LengthDistribution.parse(nameLengths);
+        lengths.put(FieldKind.FIRST_NAME, names);
+        lengths.put(FieldKind.FAMILY_NAME, names);
+        lengths.put(FieldKind.PERSON_NAME, LengthDistribution.parse(personNameLengths));
+        lengths.put(FieldKind.ORGANISATION, LengthDistribution.parse(organisationLengths));
+        lengths.put(FieldKind.ADDRESS, LengthDistribution.parse(addressLengths));
+        lengths.put(FieldKind.TEXT, LengthDistribution.parse(textLengths));
+        lengths.put(FieldKind.LONG_TEXT, LengthDistribution.parse(longTextLengths));
+        this.dateFrom = LocalDate.parse(dateFrom);
+        this.dateTo = LocalDate.parse(dateTo);
+        if (this.dateTo.isBefore(this.dateFrom)) {
+            throw new IllegalArgumentException("pdf.mock.dates.to must not be before pdf.mock.dates.from");
+        }
+    }
+
+    /** 默认分布（测试与基准测试用）。 */
+    public MockRecordGenerator() {
+        this(new FieldDataPreparer(), "3,12,40", "8,18,60", "8,20,60", "18,40,160", "1,12,60", "20,180,900", "1950-01-01", "2030-12-31");
+    }
+
+    /**
+     * 为一个 definition 建立记录源：字段类别只推断一次，之后每条记录只做抽样。
+     */
+    public RecordSource source(FieldsDefinition definition, long seed) {
+        List<FieldDefinition> fields = definition == null || definition.fields() == null
+                ? Collections.emptyList()
+                : definition.fields();
+        List<String> names = new ArrayList<>(fields.size());
+        List<FieldKind> kinds = new ArrayList<>(fields.size());
+        for (FieldDefinition field : fields) {
+            if (field.name() != null) {
+                names.add(field.name());
+                kinds.add(fieldDataPreparer.kindOf(field));
+            }
+        }
+        return new RecordSource(names.toArray(String[]::new), kinds.toArray(FieldKind[]::new), seed);
+    }
+
+    /**
+     * 某个 definition + seed 下的无限记录序列。线程安全（无可变状态）。
+     */
+    public final class RecordSource {
+
+        private final String[] names;
+        private final FieldKind[] kinds;
+        private final long seed;
+
+        private RecordSource(String[] names, FieldKind[] kinds, long seed) {
+            this.names = names;
+            this.kinds = kinds;
+            this.seed = seed;
+        }
+
+        /** 第 {@code index} 条记录（从 0 开始）；同一 (seed, index) 总是得到相同结果。 */
+        public Map<String, Object> record(long index) {
+            SplittableRandom random = new SplittableRandom(mix64(seed + (index + 1) * GOLDEN_GAMMA));
+            Map<String, Object> record = new HashMap<>(names.length * 4 / 3 + 1);
+            for (int i = 0; i < names.length; i++) {
+                record.put(names[i], valueFor(kinds[i], random));
+            }
+            return record;
+        }
+
+        /** 惰性生成第 [0, count) 条记录；可 {@code .parallel()}，不会一次性持有全部记录。 */
+        public Stream<Map<String, Object>> stream(long count) {
+            return LongStream.range(0, count).mapToObj(this::record);
+        }
+    }
+
+    private Object valueFor(FieldKind kind, SplittableRandom random) {
+        return switch (kind) {
+            case FIRST_NAME -> names(FIRST_NAMES, " ", lengths.get(kind).sample(random), random);
+            case FAMILY_NAME -> names(FAMILY_NAMES, "-", lengths.get(kind).sample(random), random);
+            case PERSON_NAME -> fill(pick(FIRST_NAMES, random) + " " + pick(FAMILY_NAMES, random),
+                    FAMILY_NAMES, "-", lengths.get(kind).sample(random), random);
+            case ORGANISATION -> fill(pick(FAMILY_NAMES, random) + " " + pick(ORG_SUFFIXES, random),
+                    STREETS, " ", lengths.get(kind).sample(random), random);
+            case EMAIL -> (pick(FIRST_NAMES, random) + "." + pick(FAMILY_NAMES, random)).toLowerCase().replace("'", "")
+                    + random.nextInt(1000) + "@" + pick(EMAIL_DOMAINS, random);
+            case PHONE -> phone(random);
+            case ADDRESS -> address(lengths.get(kind).sample(random), random);
+            case DATE -> dateFrom.plusDays(random.nextLong(dateTo.toEpochDay() - dateFrom.toEpochDay() + 1)).toString();
+            case NUMBER -> random.nextInt(1_000_000);
+            case BOOLEAN -> random.nextBoolean();
+            // 真实场景中同一批签名/印章反复出现，用同一张图即可
+            case IMAGE -> FieldDataPreparer.MOCK_IMAGE;
+            case LONG_TEXT, TEXT -> sentence(lengths.get(kind).sample(random), random);
+        };
+    }
+
+    private static String names(String[] pool, String separator, int length, SplittableRandom random) {
+        return fill(pick(pool, random), pool, separator, length, random);
+    }
+
+    /** 从 {@code start} 开始不断追加词，直到接近目标长度（超出时截断到目标长度）。 */
+    private static String fill(String start, String[] pool, String separator, int length, SplittableRandom random) {
+        StringBuilder sb = new StringBuilder(Math.max(length, start.length()) + 16).append(start);
+        while (sb.length() < length) {
+            sb.append(separator).append(pick(pool, random));
+        }
+        return truncate(sb, length);
+    }
+
+    private static String address(int length, SplittableRandom random) {
+        StringBuilder sb = new StringBuilder(length + 32);
+        if (random.nextInt(4) == 0) {
+            sb.append("Unit ").append(1 + random.nextInt(40)).append(", ");
+        }
+        sb.append(1 + random.nextInt(999)).append(' ').append(pick(STREETS, random)).append(' ')
+                .append(pick(STREET_TYPES, random)).append(", ").append(pick(SUBURBS, random));
+        while (sb.length() < length) {
+            sb.append(". c/o ").append(pick(FIRST_NAMES, random)).append(' ').append(pick(FAMILY_NAMES, random))
+                    .append(", Building ").append((char) ('A' + random.nextInt(8)));
+        }
+        return truncate(sb, length);
+    }
+
+    private static String sentence(int length, SplittableRandom random) {
+        StringBuilder sb = new StringBuilder(length + 16);
+        String first = pick(WORDS, random);
+        sb.append(Character.toUpperCase(first.charAt(0))).append(first, 1, first.length());
+        while (sb.length() < length) {
+            sb.append(random.nextInt(12) == 0 ? ". " : " ").append(pick(WORDS, random));
+        }
+        return truncate(sb, length);
+    }
+
+    private static String phone(SplittableRandom random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> String.format("+61 4%02d %03d %03d", random.nextInt(100), random.nextInt(1000), random.nextInt(1000));
+            case 1 -> String.format("(0%d) %04d %04d", 2 + random.nextInt(7), random.nextInt(10000), random.nextInt(10000));
+            default -> String.format("04%02d%03d%03d", random.nextInt(100), random.nextInt(1000), random.nextInt(1000));
+        };
+    }
+
+    /** 截断到目标长度，并去掉末尾的空格/分隔符；目标长度不小于 1。 */
+    private static String truncate(StringBuilder sb, int length) {
+        if (sb.length() > length) {
+            sb.setLength(Math.max(1, length));
+        }
+        int end = sb.length();
+        while (end > 1 && " -,.".indexOf(sb.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return sb.substring(0, end);
+    }
+
+    private static String pick(String[] pool, SplittableRandom random) {
+        return pool[random.nextInt(pool.length)];
+    }
+
+    /** Stafford variant 13 混合函数，把相邻的 (seed, index) 打散成互不相关的种子。 */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 文本长度分布：以 mean 为中心、标准差 (max-min)/6 的正态分布，截断到 [min, max]；
+     * 另有 5% 的记录在 [mean, max] 上均匀取值，保证长尾（接近 max 的超长值）也会出现。
+     */
+    public record LengthDistribution(int min, int mean, int max) {
+
+        public LengthDistribution {
+            if (min < 1 || mean < min || max < mean) {
+                throw new IllegalArgumentException("Length distribution must satisfy 1 <= min <= mean <= max: "
+                        + min + "," + mean + "," + max);
+            }
+        }
+
+        /** 解析 {@code min,mean,max}。 */
+        public static LengthDistribution parse(String spec) {
+            String[] parts = spec.split(",");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Length distribution must be 'min,mean,max': " + spec);
+            }
+            return new LengthDistribution(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                    Integer.parseInt(parts[2].trim()));
+        }
+
+        public int sample(SplittableRandom random) {
+            if (max == min) {
+                return min;
+            }
+            if (random.nextInt(20) == 0) {
+                return mean + random.nextInt(max - mean + 1);
+            }
+            double sigma = (max - min) / 6.0;
+            long value = Math.round(mean + random.nextGaussian() * sigma);
+            return (int) Math.max(min, Math.min(max, value));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按字段名选择 mock 值的规则表（默认 classpath:mock-rules.json，可用 pdf.mock.rules 指向自定义文件）。
+ * <p>
+ * 规则按顺序排优先级，第一条命中的生效。每条规则的条件：
+ * <ul>
+ *   <li>{@code any}：字段名（小写）包含其中任意一个关键字</li>
+ *   <li>{@code all}：字段名包含全部关键字</li>
+ *   <li>{@code type}（可选）：字段 type 相同（忽略大小写）</li>
+ *   <li>{@code topAligned}（可选）：verticalAlign 是否为 top</li>
+ * </ul>
+ * 命中后取 {@code value}（{@code longText: true} 时用长文本），{@code kind} 供 {@link MockRecordGenerator} 使用。
+ * <p>
+ * 加载时把所有关键字编译成一个 {@link KeywordMatcher}（Aho-Corasick），并按关键字建立规则倒排表：
+ * 匹配一个字段名只需扫描一次名字，再检查名字里实际出现的关键字所关联的规则，与规则总数无关。
+ * 同一字段签名（name、type、是否 top 对齐）的结果会被缓存，模板重复使用时不再匹配。
+ */
+public final class MockRuleTable {
+
+    private static final int MEMO_MAX_ENTRIES = 10_000;
+    private static final int NO_RULE = -1;
+
+    /** 规则表中的一条规则（JSON 结构）。 */
+    public record Rule(List<String> any, List<String> all, String type, Boolean topAligned,
+                       Object value, boolean longText, FieldKind kind) {}
+
+    record RuleFile(List<Rule> rules) {}
+
+    private final List<Rule> rules;
+    private final KeywordMatcher matcher;
+    private final int[][] anyKeywords;
+    private final int[][] allKeywords;
+    /** 关键字 id → 引用它的规则下标（升序，即优先级从高到低）。 */
+    private final int[][] rulesByKeyword;
+    private final Map<FieldSignature, Integer> memo = new ConcurrentHashMap<>();
+
+    private record FieldSignature(String name, String type, boolean topAligned) {}
+
+    public MockRuleTable(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+        Map<String, Integer> keywordIds = new LinkedHashMap<>();
+        anyKeywords = new int[rules.size()][];
+        allKeywords = new int[rules.size()][];
+        for (int r = 0; r < rules.size(); r++) {
+            Rule rule = rules.get(r);
+            if (isEmpty(rule.any()) && isEmpty(rule.all())) {
+                throw new IllegalArgumentException("Mock rule #" + (r + 1) + " has no keywords (any/all)");
+            }
+            if (rule.value() == null && !rule.longText()) {
+                throw new IllegalArgumentException("Mock rule #" + (r + 1) + " has no value");
+            }
+            anyKeywords[r] = ids(rule.any(), keywordIds);
+            allKeywords[r] = ids(rule.all(), keywordIds);
+        }
+        matcher = new KeywordMatcher(new ArrayList<>(keywordIds.keySet()));
+
+        List<List<Integer>> byKeyword = new ArrayList<>();
+        for (int k = 0; k < keywordIds.size(); k++) {
+            byKeyword.add(new ArrayList<>());
+        }
+        for (int r = 0; r < rules.size(); r++) {
+            for (int k : anyKeywords[r]) {
+                addOnce(byKeyword.get(k), r);
+            }
+            for (int k : allKeywords[r]) {
+                addOnce(byKeyword.get(k), r);
+            }
+        }
+        rulesByKeyword = new int[byKeyword.size()][];
+        for (int k = 0; k < byKeyword.size(); k++) {
+            rulesByKeyword[k] = byKeyword.get(k).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * 从 classpath:xxx 或文件路径（相对路径基于 user.dir）加载规则表。
+     */
+    public static MockRuleTable load(String location) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        if (location.startsWith("classpath:")) {
+            String name = location.substring("classpath:".length()).trim();
+            try (InputStream in = MockRuleTable.class.getResourceAsStream("/" + name)) {
+                if (in == null) {
+                    throw new FileNotFoundException("Mock rules not found on classpath: " + name);
+                }
+                return new MockRuleTable(mapper.readValue(in, RuleFile.class).rules());
+            }
+        }
+        File file = new File(location);
+        if (!file.isAbsolute()) {
+            file = new File(System.getProperty("user.dir", ""), location);
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return new MockRuleTable(mapper.readValue(in, RuleFile.class).rules());
+        }
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /** 字段命中的第一条规则；没有命中返回 null（调用方按 type 取默认值）。 */
+    public Rule resolve(FieldDefinition field) {
+        boolean topAligned = field.verticalAlign() != null && field.verticalAlign().equalsIgnoreCase("top");
+        FieldSignature signature = new FieldSignature(field.name() == null ? "" : field.name(), field.type(), topAligned);
+        Integer index = memo.get(signature);
+        if (index == null) {
+            index = match(signature);
+            if (memo.size() >= MEMO_MAX_ENTRIES) {
+                memo.clear();
+            }
+            memo.put(signature, index);
+        }
+        return index == NO_RULE ? null : rules.get(index);
+    }
+
+    private int match(FieldSignature field) {
+        BitSet found = matcher.find(field.name().toLowerCase(Locale.ROOT));
+        int best = NO_RULE;
+        for (int k = found.nextSetBit(0); k >= 0; k = found.nextSetBit(k + 1)) {
+            for (int r : rulesByKeyword[k]) {
+                if (best != NO_RULE && r >= best) {
+                    break;
+                }
+                if (matches(r, found, field)) {
+                    best = r;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean matches(int r, BitSet found, FieldSignature field) {
+        Rule rule = rules.get(r);
+        if (rule.type() != null && !rule.type().equalsIgnoreCase(field.type())) {
+            return false;
+        }
+        if (rule.topAligned() != null && rule.topAligned() != field.topAligned()) {
+            return false;
+        }
+        for (int k : allKeywords[r]) {
+            if (!found.get(k)) {
+                return false;
+            }
+        }
+        if (anyKeywords[r].length == 0) {
+            return true;
+        }
+        for (int k : anyKeywords[r]) {
+            if (found.get(k)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] ids(List<String> keywords, Map<String, Integer> keywordIds) {
+        if (isEmpty(keywords)) {
+            return new int[0];
+        }
+        return keywords.stream()
+                .map(k -> k.toLowerCase(Locale.ROOT))
+                .mapToInt(k -> keywordIds.computeIfAbsent(k, key -> keywordIds.size()))
+                .distinct()
+                .toArray();
+    }
+
+    private static void addOnce(List<Integer> list, int value) {
+        if (list.isEmpty() || list.get(list.size() - 1) != value) {
+            list.add(value);
+        }
+    }
+
+    private static boolean isEmpty(List<String> list) {
+        return list == null || list.isEmpty();
+    }
+}
@@ -0,0 +1,195 @@
+package com.pdfformfill.synthetic;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceCharacteristicsDictionary;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDCheckBox;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic PDF templates with a matching {@link FieldsDefinition}, for benchmarks, load tests and
+ * warmup where real (confidential) templates cannot be used. Output is deterministic for a given {@link Spec}.
+ * <p>
+ * Each page carries some static text so there is a content stream to parse. Fields are laid out in a two-column
+ * grid using the definition's top-left coordinate system in PDF points (no scale). The grid does not overlap as
+ * long as the page has room (about 40 fields of the default mix per A4 page); past that it wraps to the top of
+ * the page and fields overlap, so checks on denser specs report {@code overlap} issues. Field names
+ * mix the patterns that {@code FieldDataPreparer} recognises (names, addresses, emails, phones, dates). With
+ * {@link Spec#acroFormWidgets()} every field also gets a gray AcroForm widget at the same rectangle, so the
+ * flatten-before-overlay path is exercised.
+ */
+public class SyntheticTemplateGenerator {
+
+    private static final float MARGIN = 36f;
+    private static final float ROW_HEIGHT = 30f;
+    private static final float MULTI_LINE_HEIGHT = 60f;
+    private static final float COLUMN_GAP = 12f;
+    private static final int COLUMNS = 2;
+
+    private static final String[] TEXT_NAMES = {
+            "First name", "Family name", "Worker name", "Email", "Phone", "Operator rail", "Doctor", "Notes"};
+    private static final String[] DATE_NAMES = {"Date of birth", "Appointment date", "Next review date", "Issued"};
+    private static final String[] MULTI_LINE_NAMES = {"Address", "Comments", "Medical history"};
+
+    /**
+     * @param pages            number of pages (A4)
+     * @param fields           number of overlay fields, distributed round-robin over pages; fields overlap once
+     *                         a page holds more than fit (see the class comment)
+     * @param acroFormWidgets  also create AcroForm widgets for the fields
+     * @param multiLineRatio   share of text fields that are multi-line, top-aligned boxes (height &gt;= 50)
+     * @param checkboxRatio    share of fields that are checkboxes
+     * @param dateRatio        share of fields that are dates
+     * @param seed             random seed for the type mix
+     */
+    public record Spec(int pages, int fields, boolean acroFormWidgets, double multiLineRatio, double checkboxRatio,
+                       double dateRatio, long seed) {
+
+        public static Spec of(int pages, int fields) {
+            return new Spec(pages, fields, false, 0.2, 0.15, 0.15, 42L);
+        }
+
+        public Spec withAcroFormWidgets(boolean widgets) {
+            return new Spec(pages, fields, widgets, multiLineRatio, checkboxRatio, dateRatio, seed);
+        }
+    }
+
+    public record SyntheticTemplate(byte[] pdf, FieldsDefinition definition) {}
+
+    public SyntheticTemplate generate(Spec spec) throws IOException {
+        if (spec.pages() < 1) {
+            throw new IllegalArgumentException("pages must be >= 1");
+        }
+        List<FieldDefinition> fields = layoutFields(spec);
+        try (PDDocument doc = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 0; p < spec.pages(); p++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.beginText();
+                    cs.setFont(font, 9);
+                    cs.newLineAtOffset(MARGIN, PDRectangle.A4.getHeight() - MARGIN / 2);
+                    cs.showText("Synthetic template - page " + (p + 1) + " of " + spec.pages());
+                    cs.endText();
+                }
+            }
+            if (spec.acroFormWidgets()) {
+                addWidgets(doc, fields);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return new SyntheticTemplate(out.toByteArray(), new FieldsDefinition(fields));
+        }
+    }
+
+    private List<FieldDefinition> layoutFields(Spec spec) {
+        SplittableRandom random = new SplittableRandom(spec.seed());
+        float pageWidth = PDRectangle.A4.getWidth();
+        float pageHeight = PDRectangle.A4.getHeight();
+        float columnWidth = (pageWidth - 2 * MARGIN - (COLUMNS - 1) * COLUMN_GAP) / COLUMNS;
+        float[] nextY = new float[spec.pages() * COLUMNS];
+        Arrays.fill(nextY, MARGIN);
+
+        List<FieldDefinition> fields = new ArrayList<>(spec.fields());
+        for (int i = 0; i < spec.fields(); i++) {
+            int page = i % spec.pages();
+            double r = random.nextDouble();
+            String type;
+            String name;
+            String verticalAlign = null;
+            float height = ROW_HEIGHT - 8f;
+            float width = columnWidth;
+            if (r < spec.checkboxRatio()) {
+                type = "checkbox";
+                name = "Agree " + i;
+                width = 14f;
+                height = 14f;
+            } else if (r < spec.checkboxRatio() + spec.dateRatio()) {
+                type = "date";
+                name = DATE_NAMES[random.nextInt(DATE_NAMES.length)] + " " + i;
+            } else if (r < spec.checkboxRatio() + spec.dateRatio() + spec.multiLineRatio()) {
+                type = "string";
+                name = MULTI_LINE_NAMES[random.nextInt(MULTI_LINE_NAMES.length)] + " " + i;
+                verticalAlign = "top";
+                height = MULTI_LINE_HEIGHT;
+            } else {
+                type = random.nextInt(10) == 0 ? "number" : "string";
+                name = TEXT_NAMES[random.nextInt(TEXT_NAMES.length)] + " " + i;
+            }
+
+            // Fill the emptier column of the page; when the page is full, wrap to the top (fields overlap but stay on the page)
+            int base = page * COLUMNS;
+            int column = nextY[base] <= nextY[base + 1] ? 0 : 1;
+            float y = nextY[base + column];
+            if (y + height > pageHeight - MARGIN) {
+                y = MARGIN;
+            }
+            nextY[base + column] = y + Math.max(height, ROW_HEIGHT - 8f) + 8f;
+            float x = MARGIN + column * (columnWidth + COLUMN_GAP);
+            fields.add(new FieldDefinition(name, type, "synthetic", (double) x, (double) y,
+                    (double) width, (double) height, page + 1, verticalAlign));
+        }
+        return fields;
+    }
+
+    private void addWidgets(PDDocument doc, List<FieldDefinition> fields) throws IOException {
+        PDAcroForm acroForm = new PDAcroForm(doc);
+        doc.getDocumentCatalog().setAcroForm(acroForm);
+        PDResources resources = new PDResources();
+        resources.put(COSName.HELV, new PDType1Font(Standard14Fonts.FontName.HELVETICA));
+        acroForm.setDefaultResources(resources);
+        acroForm.setDefaultAppearance("/Helv 0 Tf 0 g");
+
+        PDColor gray = new PDColor(new float[]{0.85f, 0.85f, 0.85f}, PDDeviceRGB.INSTANCE);
+        List<PDField> acroFields = new ArrayList<>(fields.size());
+        for (FieldDefinition f : fields) {
+            PDPage page = doc.getPage(f.page() - 1);
+            float pageHeight = page.getMediaBox().getHeight();
+            PDField field;
+            if ("checkbox".equals(f.type())) {
+                field = new PDCheckBox(acroForm);
+            } else {
+                PDTextField text = new PDTextField(acroForm);
+                text.setDefaultAppearance("/Helv 0 Tf 0 g");
+                text.setMultiline(f.height() >= 50);
+                field = text;
+            }
+            field.setPartialName(f.name());
+            PDAnnotationWidget widget = field.getWidgets().get(0);
+            widget.setRectangle(new PDRectangle(f.x().floatValue(),
+                    pageHeight - f.y().floatValue() - f.height().floatValue(),
+                    f.width().floatValue(), f.height().floatValue()));
+            widget.setPage(page);
+            widget.setPrinted(true);
+            PDAppearanceCharacteristicsDictionary mk = new PDAppearanceCharacteristicsDictionary(new COSDictionary());
+            mk.setBackground(gray);
+            widget.setAppearanceCharacteristics(mk);
+            page.getAnnotations().add(widget);
+            acroFields.add(field);
+        }
+        acroForm.setFields(acroFields);
+        // Build widget appearance streams (gray background) so flatten has real content to merge
+        acroForm.refreshAppearances();
+    }
+}
@@ -0,0 +1,68 @@
+package com.pdfformfill.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Deadlines are bound per thread: checks pass with none bound or before expiry, throw once it passes or another
+ * thread cancels, and closing the scope restores the previous binding.
+ */
+class DeadlineTest {
+
+    @Test
+    @SuppressWarnings("try")
+    void check_passes_without_a_deadline_and_before_expiry() {
+        assertThatCode(Deadline::check).doesNotThrowAnyException();
+        try (Deadline.Scope ignored = Deadline.after(Duration.ofMinutes(1)).bind()) {
+            assertThatCode(Deadline::check).doesNotThrowAnyException();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void check_throws_once_expired() {
+        Deadline deadline = Deadline.after(Duration.ZERO);
+        try (Deadline.Scope ignored = deadline.bind()) {
+            assertThatThrownBy(Deadline::check)
+                    .isInstanceOf(Deadline.Cancelled.class)
+                    .hasMessageStartingWith("Deadline exceeded after");
+        }
+        assertThat(deadline.bounded()).isTrue();
+        assertThat(deadline.remainingMillis()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void cancel_from_another_thread_is_seen_by_the_worker() throws InterruptedException {
+        Deadline deadline = Deadline.none();
+        Thread canceller = new Thread(deadline::cancel);
+        canceller.start();
+        canceller.join();
+
+        try (Deadline.Scope ignored = deadline.bind()) {
+            assertThatThrownBy(Deadline::check)
+                    .isInstanceOfSatisfying(Deadline.Cancelled.class,
+                            e -> assertThat(e.reason()).isEqualTo(Deadline.Reason.CANCELLED));
+        }
+        assertThat(deadline.bounded()).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void closing_a_scope_restores_the_outer_deadline() {
+        Deadline outer = Deadline.none();
+        Deadline inner = Deadline.after(Duration.ZERO);
+        try (Deadline.Scope o = outer.bind()) {
+            try (Deadline.Scope i = inner.bind()) {
+                assertThat(Deadline.current()).isSameAs(inner);
+            }
+            assertThat(Deadline.current()).isSameAs(outer);
+        }
+        assertThat(Deadline.current()).isNull();
+    }
+}
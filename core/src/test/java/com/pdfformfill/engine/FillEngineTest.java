@@ -0,0 +1,114 @@
+package com.pdfformfill.engine;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.synthetic.SyntheticTemplateGenerator;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Embedded engine: a template is parsed and flattened once per job, each fill draws one record onto a fresh copy
+ * and writes it to a channel the caller owns.
+ */
+class FillEngineTest {
+
+    @TempDir
+    Path dir;
+
+    private final FillEngine engine = new FillEngine();
+
+    private final FieldsDefinition definition = new FieldsDefinition(List.of(
+            new FieldDefinition("Name", "string", null, 50d, 50d, 200d, 20d, 1),
+            new FieldDefinition("City", "string", null, 50d, 80d, 200d, 20d, 2)));
+
+    @Test
+    void prepare_flattens_the_form_once_and_keeps_the_layout() throws IOException {
+        byte[] template = new SyntheticTemplateGenerator()
+                .generate(SyntheticTemplateGenerator.Spec.of(3, 12).withAcroFormWidgets(true)).pdf();
+
+        FillEngine.Job job = engine.prepare(template, definition);
+
+        assertThat(job.templatePages()).isEqualTo(3);
+        assertThat(job.layout()).isEqualTo(engine.layout(template));
+        try (PDDocument copy = job.load()) {
+            assertThat(copy.getDocumentCatalog().getAcroForm(null).getFields()).isEmpty();
+            assertThat(copy.getPage(0).getAnnotations()).isEmpty();
+        }
+    }
+
+    @Test
+    void acroform_fill_mode_keeps_the_form_and_fills_its_fields() throws IOException {
+        SyntheticTemplateGenerator.SyntheticTemplate synthetic = new SyntheticTemplateGenerator()
+                .generate(SyntheticTemplateGenerator.Spec.of(2, 6).withAcroFormWidgets(true));
+        FieldDefinition first = synthetic.definition().fields().stream()
+                .filter(f -> !"checkbox".equals(f.type())).findFirst().orElseThrow();
+        FieldsDefinition acroForm = new FieldsDefinition(synthetic.definition().fields(), null, null, null, null,
+                null, null, null, "acroform", null);
+
+        FillEngine.Job job = engine.prepare(synthetic.pdf(), acroForm);
+        try (PDDocument document = job.load()) {
+            assertThat(document.getDocumentCatalog().getAcroForm(null).getFields()).hasSize(6);
+            job.render(document, Map.of(first.name(), "Alice"));
+            assertThat(document.getDocumentCatalog().getAcroForm(null).getField(first.name()).getValueAsString())
+                    .isEqualTo("Alice");
+        }
+    }
+
+    @Test
+    void fill_writes_each_record_to_the_channel_and_leaves_it_open() throws IOException {
+        byte[] template = new SyntheticTemplateGenerator().generate(SyntheticTemplateGenerator.Spec.of(2, 4)).pdf();
+        FillEngine.Job job = engine.prepare(template, definition);
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        try (WritableByteChannel out = Channels.newChannel(first)) {
+            assertThat(job.fill(Map.of("Name", "Alice", "City", "Lyon"), out)).isEqualTo(2);
+            assertThat(out.isOpen()).isTrue();
+        }
+        try (WritableByteChannel out = Channels.newChannel(second)) {
+            job.fill(Map.of("Name", "Bob"), out);
+        }
+
+        assertThat(text(first.toByteArray())).contains("Alice", "Lyon");
+        assertThat(text(second.toByteArray())).contains("Bob").doesNotContain("Alice");
+    }
+
+    @Test
+    void fill_to_file_replaces_existing_output() throws IOException {
+        byte[] template = new SyntheticTemplateGenerator().generate(SyntheticTemplateGenerator.Spec.of(1, 2)).pdf();
+        FillEngine.Job job = engine.prepare(template, definition);
+        Path output = dir.resolve("out.pdf");
+
+        job.fill(Map.of("Name", "A much longer first value that is written first"), output);
+        job.fill(Map.of("Name", "Bob"), output);
+
+        try (PDDocument doc = Loader.loadPDF(output.toFile())) {
+            assertThat(new PDFTextStripper().getText(doc)).contains("Bob").doesNotContain("first value");
+        }
+    }
+
+    @Test
+    void rejects_a_template_that_is_not_a_pdf() {
+        assertThatThrownBy(() -> engine.prepare("not a pdf".getBytes(), definition)).isInstanceOf(IOException.class);
+    }
+
+    private static String text(byte[] pdf) throws IOException {
+        try (PDDocument doc = Loader.loadPDF(pdf)) {
+            return new PDFTextStripper().getText(doc);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.pdfformfill.pdf;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.pdf.FieldSpatialIndex.Overlap;
+import com.pdfformfill.pdf.FieldSpatialIndex.Rect;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 字段空间索引：重叠对与两两比较的结果一致且每对只报告一次；相邻（共用边线）不算重叠；按页隔离；
+ * 模板布局只收集有值的控件，坐标换算为定义坐标系。
+ */
+class FieldSpatialIndexTest {
+
+    @Test
+    void overlaps_match_pairwise_comparison() {
+        Random random = new Random(42);
+        List<Rect> rects = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            float w = 20 + random.nextInt(120);
+            float h = 10 + random.nextInt(30);
+            rects.add(new Rect("f" + i, 1 + random.nextInt(3), random.nextInt(600), random.nextInt(800), w, h));
+        }
+        // A few rectangles far larger than the grid cells take the oversized path
+        for (int i = 0; i < 6; i++) {
+            rects.add(i * 300, new Rect("big" + i, 1 + i % 3, -500 + i * 100, -300 + i * 50, 2000, 2000));
+        }
+
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < rects.size(); i++) {
+            for (int j = i + 1; j < rects.size(); j++) {
+                Rect a = rects.get(i);
+                Rect b = rects.get(j);
+                float ow = Math.min(a.maxX(), b.maxX()) - Math.max(a.x(), b.x());
+                float oh = Math.min(a.maxY(), b.maxY()) - Math.max(a.y(), b.y());
+                if (a.page() == b.page() && ow > FieldSpatialIndex.TOUCH_TOLERANCE && oh > FieldSpatialIndex.TOUCH_TOLERANCE) {
+                    expected.add(pair(a, b));
+                }
+            }
+        }
+
+        List<Overlap> overlaps = FieldSpatialIndex.build(rects).overlaps();
+        Set<String> actual = new HashSet<>();
+        for (Overlap o : overlaps) {
+            actual.add(pair(o.a(), o.b()));
+        }
+        assertThat(expected).isNotEmpty();
+        assertThat(overlaps).hasSize(expected.size());
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void touching_rectangles_and_other_pages_do_not_overlap() {
+        FieldSpatialIndex index = FieldSpatialIndex.build(List.of(
+                new Rect("a", 1, 0, 0, 50, 20),
+                new Rect("b", 1, 50, 0, 50, 20),
+                new Rect("c", 1, 0, 20, 50, 20),
+                new Rect("d", 2, 10, 5, 50, 20)));
+
+        assertThat(index.overlaps()).isEmpty();
+        assertThat(index.intersecting(new Rect("q", 1, 40, 10, 20, 20))).extracting(Rect::name)
+                .containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(index.intersecting(new Rect("q", 3, 40, 10, 20, 20))).isEmpty();
+    }
+
+    @Test
+    void oversized_rectangles_are_clamped_to_the_page_and_kept_out_of_the_grid() {
+        List<Rect> rects = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            rects.add(new Rect("tiny" + i, 1, (i % 100) * 6, (i / 100) * 6, 1, 1));
+        }
+        rects.add(new Rect("huge", 1, -1e9f, -1e9f, 2e9f, 2e9f));
+        TemplateLayout layout = new TemplateLayout(List.of(new TemplateLayout.PageSize(612, 792)));
+
+        for (FieldSpatialIndex index : List.of(FieldSpatialIndex.build(rects), FieldSpatialIndex.build(rects, layout))) {
+            List<Overlap> overlaps = index.overlaps();
+            assertThat(overlaps).hasSize(10_000);
+            assertThat(overlaps).allSatisfy(o -> assertThat(o.a().name()).startsWith("tiny"));
+            assertThat(overlaps).allSatisfy(o -> assertThat(o.b().name()).isEqualTo("huge"));
+            assertThat(index.intersecting(new Rect("q", 1, 0, 0, 4, 4))).extracting(Rect::name)
+                    .containsExactlyInAnyOrder("huge", "tiny0");
+        }
+        Overlap clamped = FieldSpatialIndex.build(rects, layout).overlaps().get(0);
+        assertThat(clamped.b()).isEqualTo(new Rect("huge", 1, 0, 0, 612, 792));
+        assertThat(FieldSpatialIndex.build(List.of(new Rect("off", 1, 700, 10, 50, 20),
+                new Rect("off2", 1, 710, 10, 50, 20)), layout).overlaps()).isEmpty();
+    }
+
+    @Test
+    void field_rect_applies_scale_and_checkbox_default_size() {
+        assertThat(FieldSpatialIndex.rect(new FieldDefinition("a", "string", null, 20d, 40d, 200d, 40d, 1), 2f))
+                .isEqualTo(new Rect("a", 1, 10, 20, 100, 20));
+        assertThat(FieldSpatialIndex.rect(new FieldDefinition("b", "checkbox", null, 20d, 40d, null, null, 1), 1f))
+                .isEqualTo(new Rect("b", 1, 20, 40, 16, 16));
+        assertThat(FieldSpatialIndex.rect(new FieldDefinition("c", "string", null, 20d, 40d, null, 20d, 1), 1f)).isNull();
+    }
+
+    @Test
+    void template_layout_collects_filled_widgets_in_definition_coordinates() throws IOException {
+        byte[] pdf;
+        try (PDDocument doc = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            doc.addPage(page);
+            PDAcroForm form = new PDAcroForm(doc);
+            doc.getDocumentCatalog().setAcroForm(form);
+            form.getFields().add(textField(form, page, "filled", "Jane", 100));
+            form.getFields().add(textField(form, page, "empty", "", 200));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            pdf = out.toByteArray();
+        }
+
+        try (PDDocument doc = Loader.loadPDF(pdf)) {
+            TemplateLayout layout = TemplateLayout.of(doc);
+            assertThat(layout.filledWidgets()).containsExactly(
+                    new Rect("filled", 1, 100, PDRectangle.LETTER.getHeight() - 120, 80, 20));
+        }
+    }
+
+    private static PDTextField textField(PDAcroForm form, PDPage page, String name, String value, float x) throws IOException {
+        PDTextField field = new PDTextField(form);
+        field.setPartialName(name);
+        PDAnnotationWidget widget = field.getWidgets().get(0);
+        widget.setRectangle(new PDRectangle(x, 100, 80, 20));
+        widget.setPage(page);
+        page.getAnnotations().add(widget);
+        field.getCOSObject().setString(COSName.V, value);
+        return field;
+    }
+
+    private static String pair(Rect a, Rect b) {
+        return a.name().compareTo(b.name()) < 0 ? a.name() + "|" + b.name() : b.name() + "|" + a.name();
+    }
+}
@@ -0,0 +1,175 @@
+package com.pdfformfill.pdf;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.synthetic.SyntheticTemplateGenerator;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 页码子集：pages 参数解析；只复制选中的页面，输出不再引用模板的其他页面，选中页面上的控件被拍平，字段页码重新映射；
+ * 多次追加的副本共享模板的内容流与资源。
+ */
+class PageSubsetterTest {
+
+    private final PageSubsetter subsetter = new PageSubsetter();
+
+    @Test
+    void selection_parses_all_fields_and_ranges() {
+        List<FieldDefinition> fields = List.of(field("a", 3), field("b", 1), field("c", 3), field("d", 99));
+
+        assertThat(PageSelection.parse(null).isAll()).isTrue();
+        assertThat(PageSelection.parse(" ALL ").resolve(fields, 3)).containsExactly(1, 2, 3);
+        assertThat(PageSelection.parse("fields").resolve(fields, 5)).containsExactly(1, 3);
+        assertThat(PageSelection.parse("4-,2, 1-2").resolve(fields, 6)).containsExactly(1, 2, 4, 5, 6);
+        assertThat(PageSelection.parse("8-9").resolve(fields, 6)).isEmpty();
+
+        assertThatThrownBy(() -> PageSelection.parse("0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageSelection.parse("3-1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageSelection.parse("first")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void subset_writes_only_selected_pages_and_flattens_their_widgets() throws IOException {
+        SyntheticTemplateGenerator.SyntheticTemplate template = new SyntheticTemplateGenerator()
+                .generate(SyntheticTemplateGenerator.Spec.of(60, 4).withAcroFormWidgets(true));
+        List<FieldDefinition> fields = template.definition().fields();
+
+        try (PDDocument source = Loader.loadPDF(template.pdf())) {
+            int[] pages = PageSelection.parse("fields").resolve(fields, source.getNumberOfPages());
+            assertThat(pages).containsExactly(1, 2, 3, 4);
+
+            PageSubsetter.Subset subset = subsetter.subset(source, new int[]{2, 4});
+            byte[] saved;
+            try (PDDocument doc = subset.document()) {
+                assertThat(subset.remap(fields)).extracting(FieldDefinition::page).containsExactly(1, 2);
+                saved = save(doc);
+            }
+
+            assertThat(saved.length).isLessThan(template.pdf().length / 5);
+            try (PDDocument loaded = Loader.loadPDF(saved)) {
+                assertThat(loaded.getNumberOfPages()).isEqualTo(2);
+                assertThat(loaded.getDocumentCatalog().getAcroForm()).isNull();
+                assertThat(new PDFTextStripper().getText(loaded))
+                        .contains("page 2 of 60", "page 4 of 60")
+                        .doesNotContain("page 1 of 60", "page 3 of 60");
+                for (PDPage page : loaded.getPages()) {
+                    assertThat(page.getAnnotations()).isEmpty();
+                    // Widget appearance drawn as a form XObject
+                    assertThat(page.getResources().getXObjectNames()).isNotEmpty();
+                }
+            }
+        }
+    }
+
+    @Test
+    void copied_page_keeps_inherited_attributes_and_drops_links_to_other_pages() throws IOException {
+        byte[] pdf;
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < 5; i++) {
+                PDPage page = new PDPage();
+                page.getCOSObject().removeItem(COSName.MEDIA_BOX);
+                doc.addPage(page);
+            }
+            doc.getPages().getCOSObject().setItem(COSName.MEDIA_BOX, PDRectangle.A5.getCOSArray());
+            PDAnnotationLink link = new PDAnnotationLink();
+            link.setRectangle(new PDRectangle(10, 10, 50, 20));
+            PDPageFitDestination dest = new PDPageFitDestination();
+            dest.setPage(doc.getPage(4));
+            link.setDestination(dest);
+            doc.getPage(0).getAnnotations().add(link);
+            pdf = save(doc);
+        }
+
+        try (PDDocument source = Loader.loadPDF(pdf)) {
+            PageSubsetter.Subset subset = subsetter.subset(source, new int[]{1});
+            byte[] saved;
+            try (PDDocument doc = subset.document()) {
+                saved = save(doc);
+            }
+            try (PDDocument loaded = Loader.loadPDF(saved)) {
+                assertThat(loaded.getNumberOfPages()).isEqualTo(1);
+                PDPage page = loaded.getPage(0);
+                assertThat(page.getCOSObject().getDictionaryObject(COSName.MEDIA_BOX)).isInstanceOf(COSArray.class);
+                assertThat(page.getMediaBox().getWidth()).isEqualTo(PDRectangle.A5.getWidth());
+                List<PDAnnotation> annotations = page.getAnnotations();
+                assertThat(annotations).hasSize(1);
+                assertThat(annotations.get(0).getCOSObject().containsKey(COSName.DEST)).isFalse();
+                assertThat(annotations.get(0).getCOSObject().containsKey(COSName.P)).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void appended_copies_share_template_content_and_resources() throws IOException {
+        SyntheticTemplateGenerator.SyntheticTemplate template = new SyntheticTemplateGenerator()
+                .generate(SyntheticTemplateGenerator.Spec.of(2, 4));
+        try (PDDocument source = Loader.loadPDF(template.pdf()); PDDocument target = new PDDocument()) {
+            // Template page with a content stream array, as after flattening
+            appendRect(source, source.getPage(0));
+            List<PDPage> first = subsetter.append(target, source, new int[]{1, 2});
+            List<PDPage> second = subsetter.append(target, source, new int[]{1, 2});
+
+            assertThat(target.getNumberOfPages()).isEqualTo(4);
+            assertThat(second.get(0).getCOSObject()).isNotSameAs(first.get(0).getCOSObject());
+            assertThat(second.get(0).getResources().getCOSObject()).isSameAs(first.get(0).getResources().getCOSObject());
+            appendRect(target, first.get(0));
+            // Appending to one copy leaves the template and the other copies unchanged
+            assertThat(contents(first.get(0)).size()).isEqualTo(3);
+            assertThat(contents(second.get(0)).size()).isEqualTo(2);
+            assertThat(contents(source.getPage(0)).size()).isEqualTo(2);
+            assertThat(contents(second.get(0)).get(0)).isSameAs(contents(first.get(0)).get(0));
+
+            byte[] twice = save(target);
+            subsetter.append(target, source, new int[]{1, 2});
+            byte[] threeTimes = save(target);
+            // A further copy adds page dictionaries, not another copy of the template content and fonts
+            assertThat(threeTimes.length - twice.length).isLessThan(template.pdf().length / 2);
+        }
+    }
+
+    @Test
+    void empty_selection_is_rejected() throws IOException {
+        try (PDDocument source = new PDDocument()) {
+            source.addPage(new PDPage());
+            assertThatThrownBy(() -> subsetter.subset(source, new int[0])).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private static void appendRect(PDDocument doc, PDPage page) throws IOException {
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page, PDPageContentStream.AppendMode.APPEND, true)) {
+            cs.addRect(0, 0, 10, 10);
+            cs.fill();
+        }
+    }
+
+    private static COSArray contents(PDPage page) {
+        return (COSArray) page.getCOSObject().getDictionaryObject(COSName.CONTENTS);
+    }
+
+    private static FieldDefinition field(String name, int page) {
+        return new FieldDefinition(name, "string", null, 10d, 10d, 50d, 20d, page);
+    }
+
+    private static byte[] save(PDDocument doc) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.save(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,191 @@
+package com.pdfformfill.pdf.overlay;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.synthetic.SyntheticTemplateGenerator;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDCheckBox;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDRadioButton;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AcroForm fill mode: values go into the template's own fields, the appearances come from cached templates and
+ * the output stays editable; radio groups take one of their on-values.
+ */
+class AcroFormFillTest {
+
+    private final AppearanceCache cache = new AppearanceCache();
+    private final PdfOverlayRenderer renderer = new PdfOverlayRenderer(List.of(), new TextFitCache(), new FontRegistry(),
+            new ImageCache(), cache);
+    private final SyntheticTemplateGenerator.SyntheticTemplate template = generate();
+
+    @Test
+    void fills_fields_by_name_and_keeps_them_editable() throws IOException {
+        Map<String, Object> data = values(template.definition().fields());
+
+        byte[] filled = fill(data, false);
+
+        try (PDDocument doc = Loader.loadPDF(filled)) {
+            PDAcroForm acroForm = doc.getDocumentCatalog().getAcroForm(null);
+            assertThat(acroForm.getFields()).hasSize(template.definition().fields().size());
+            for (PDField field : acroForm.getFieldTree()) {
+                if (field instanceof PDTextField text) {
+                    assertThat(text.getValue()).isEqualTo(data.get(text.getFullyQualifiedName()));
+                } else if (field instanceof PDCheckBox checkBox) {
+                    assertThat(checkBox.isChecked()).isTrue();
+                    assertThat(checkBox.getOnValue()).isEqualTo("Yes");
+                }
+            }
+            // The generated appearances show the values: flattening them puts the text on the page
+            acroForm.flatten();
+            String text = new PDFTextStripper().getText(doc);
+            data.values().stream().filter(String.class::isInstance)
+                    .forEach(value -> assertThat(text).contains((String) value));
+        }
+    }
+
+    @Test
+    void repeated_fills_reuse_the_appearance_templates() throws IOException {
+        Map<String, Object> data = values(template.definition().fields());
+
+        fill(data, false);
+        long misses = cache.misses();
+        fill(data, false);
+
+        assertThat(misses).isPositive();
+        assertThat(cache.misses()).isEqualTo(misses);
+        assertThat(cache.hits()).isGreaterThanOrEqualTo(misses);
+    }
+
+    @Test
+    void flatten_filled_flattens_only_the_filled_fields() throws IOException {
+        FieldDefinition first = template.definition().fields().stream()
+                .filter(f -> !"checkbox".equals(f.type())).findFirst().orElseThrow();
+        Map<String, Object> data = Map.of(first.name(), "Flattened value");
+
+        byte[] filled = fill(data, true);
+
+        try (PDDocument doc = Loader.loadPDF(filled)) {
+            PDAcroForm acroForm = doc.getDocumentCatalog().getAcroForm(null);
+            assertThat(acroForm.getField(first.name())).isNull();
+            assertThat(acroForm.getFields()).hasSize(template.definition().fields().size() - 1);
+            assertThat(new PDFTextStripper().getText(doc)).contains("Flattened value");
+        }
+    }
+
+    @Test
+    void fields_without_a_form_field_are_drawn_as_overlay() throws IOException {
+        List<FieldDefinition> fields = new ArrayList<>(template.definition().fields());
+        fields.add(new FieldDefinition("Not in the form", "string", null, 72d, 20d, 200d, 20d, 1));
+
+        try (PDDocument doc = Loader.loadPDF(template.pdf())) {
+            renderer.fillForm(doc, fields, Map.of("Not in the form", "Overlay value"), options(), false);
+            assertThat(new PDFTextStripper().getText(doc)).contains("Overlay value");
+            assertThat(doc.getDocumentCatalog().getAcroForm(null).getFields())
+                    .hasSize(template.definition().fields().size());
+        }
+    }
+
+    @Test
+    void radio_groups_take_an_on_value_or_a_boolean() throws IOException {
+        byte[] form = radioTemplate();
+        List<FieldDefinition> fields = List.of(new FieldDefinition("choice", "radio", null, 72d, 72d, 12d, 12d, 1));
+
+        assertThat(radioValue(form, fields, "B")).isEqualTo("B");
+        assertThat(radioValue(form, fields, Boolean.TRUE)).isEqualTo("A");
+        assertThat(radioValue(form, fields, Boolean.FALSE)).isEqualTo("Off");
+        // Not one of the group's states: left unset (no /V, read back as Off) rather than failing the fill
+        assertThat(radioValue(form, fields, "Value of choice")).isEqualTo("Off");
+    }
+
+    private String radioValue(byte[] form, List<FieldDefinition> fields, Object value) throws IOException {
+        try (PDDocument doc = Loader.loadPDF(form)) {
+            renderer.fillForm(doc, fields, Map.of("choice", value), options(), false);
+            PDRadioButton radio = (PDRadioButton) doc.getDocumentCatalog().getAcroForm(null).getField("choice");
+            return radio.getValue();
+        }
+    }
+
+    /** One page with a radio group "choice" of two widgets whose on-states are A and B. */
+    private static byte[] radioTemplate() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            doc.addPage(page);
+            PDAcroForm acroForm = new PDAcroForm(doc);
+            doc.getDocumentCatalog().setAcroForm(acroForm);
+            PDRadioButton radio = new PDRadioButton(acroForm);
+            radio.setPartialName("choice");
+            List<PDAnnotationWidget> widgets = new ArrayList<>();
+            for (String state : List.of("A", "B")) {
+                PDAnnotationWidget widget = new PDAnnotationWidget();
+                widget.setRectangle(new PDRectangle(72 + widgets.size() * 20, 700, 12, 12));
+                widget.setPage(page);
+                COSDictionary normal = new COSDictionary();
+                normal.setItem(COSName.getPDFName(state), new PDAppearanceStream(doc));
+                normal.setItem(COSName.Off, new PDAppearanceStream(doc));
+                PDAppearanceDictionary appearance = new PDAppearanceDictionary();
+                appearance.getCOSObject().setItem(COSName.N, normal);
+                widget.setAppearance(appearance);
+                widget.getCOSObject().setItem(COSName.AS, COSName.Off);
+                page.getAnnotations().add(widget);
+                widgets.add(widget);
+            }
+            radio.setWidgets(widgets);
+            acroForm.getFields().add(radio);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private byte[] fill(Map<String, Object> data, boolean flattenFilled) throws IOException {
+        try (PDDocument doc = Loader.loadPDF(template.pdf())) {
+            renderer.fillForm(doc, template.definition().fields(), data, options(), flattenFilled);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static Map<String, Object> values(List<FieldDefinition> fields) {
+        Map<String, Object> data = new HashMap<>();
+        for (FieldDefinition field : fields) {
+            data.put(field.name(), "checkbox".equals(field.type()) ? Boolean.TRUE : "Value of " + field.name());
+        }
+        return data;
+    }
+
+    private static OverlayOptions options() {
+        return new OverlayOptions(null, null, OverlayOptions.DEFAULT_FONT_SIZE, OverlayOptions.DEFAULT_MIN_FONT_SIZE,
+                OverlayOptions.DEFAULT_FONT_COLOR_RGB, OverlayOptions.DEFAULT_PADDING_X, OverlayOptions.DEFAULT_PADDING_Y);
+    }
+
+    private static SyntheticTemplateGenerator.SyntheticTemplate generate() {
+        try {
+            return new SyntheticTemplateGenerator()
+                    .generate(SyntheticTemplateGenerator.Spec.of(2, 24).withAcroFormWidgets(true));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
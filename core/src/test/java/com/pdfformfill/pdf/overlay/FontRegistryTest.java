@@ -0,0 +1,101 @@
+package com.pdfformfill.pdf.overlay;
+
+import com.pdfformfill.dto.FieldDefinition;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Fonts: TrueType fonts are parsed once and embedded as subsets, each character falls back along the chain,
+ * definitions can choose fonts, and Helvetica widths match PDFBox's own measurement.
+ */
+class FontRegistryTest {
+
+    private static final String LIBERATION = "Liberation=classpath:org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    private final FontRegistry registry = new FontRegistry(LIBERATION, "Helvetica, Liberation");
+
+    @Test
+    void characters_fall_back_along_the_chain_and_unsupported_become_question_marks() {
+        OverlayFont chain = registry.open(null, null);
+
+        assertThat(chain.name()).isEqualTo("Helvetica+Liberation");
+        assertThat(chain.sanitize("Zoë Иван 张\n")).isEqualTo("Zoë Иван ? ");
+        assertThat(chain.runs("Mr Иван")).extracting(OverlayFont.Run::face).containsExactly(0, 1);
+        assertThat(OverlayFont.helvetica().sanitize("Иван €5")).isEqualTo("???? €5");
+    }
+
+    @Test
+    void helvetica_widths_match_pdfbox() throws IOException {
+        PDType1Font helvetica = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        String text = "Sample Street, Sydney NSW 2000 – “quoted”";
+        assertThat(OverlayFont.helvetica().stringWidth(text)).isCloseTo(helvetica.getStringWidth(text),
+                offset(0.01f));
+    }
+
+    @Test
+    void render_embeds_truetype_subset_and_keeps_non_latin_text() throws IOException {
+        PdfOverlayRenderer renderer = new PdfOverlayRenderer(List.of(), new TextFitCache(), registry);
+        byte[] pdf;
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage(PDRectangle.A4));
+            List<FieldDefinition> fields = List.of(
+                    new FieldDefinition("Name", "string", null, 72d, 100d, 300d, 24d, 1),
+                    new FieldDefinition("Notes", "string", null, 72d, 200d, 300d, 80d, 1, "top"));
+            renderer.render(doc, fields, Map.of("Name", "Иван Petrov", "Notes", "Адрес: ул. Ленина 1 ".repeat(8)),
+                    new OverlayOptions(null, null, 12f, 6f, new float[]{0, 0, 0}, 3f, 0f));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            pdf = out.toByteArray();
+        }
+
+        try (PDDocument doc = Loader.loadPDF(pdf)) {
+            String text = new PDFTextStripper().getText(doc);
+            assertThat(text).contains("Иван Petrov").contains("Адрес");
+            List<String> fontNames = fontNames(doc);
+            assertThat(fontNames).anyMatch(n -> n.matches("[A-Z]{6}\\+LiberationSans"));
+            assertThat(fontNames).contains("Helvetica");
+        }
+    }
+
+    @Test
+    void definition_fonts_replace_the_default_chain_and_unknown_names_are_skipped() {
+        assertThat(registry.open(null, List.of("liberation", "NoSuchFont")).name()).isEqualTo("Liberation");
+        assertThat(registry.open(null, List.of("Times-Roman")).name()).isEqualTo("Times-Roman");
+        assertThat(registry.open(null, List.of("NoSuchFont")).name()).isEqualTo("Helvetica");
+        assertThat(registry.names()).containsExactly("Liberation");
+    }
+
+    @Test
+    void invalid_font_configuration_fails_fast() {
+        assertThatThrownBy(() -> new FontRegistry("Broken", "Helvetica")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new FontRegistry("Missing=classpath:no-such-font.ttf", "Helvetica"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static List<String> fontNames(PDDocument doc) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (COSName name : doc.getPage(0).getResources().getFontNames()) {
+            PDFont font = doc.getPage(0).getResources().getFont(name);
+            names.add(font.getName());
+        }
+        return names;
+    }
+}
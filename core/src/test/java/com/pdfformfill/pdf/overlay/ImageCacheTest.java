@@ -0,0 +1,156 @@
+package com.pdfformfill.pdf.overlay;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Image cache: identical bytes decode once however they are referenced, downsampled variants are cached and never
+ * larger than the original, the pixel, byte and memory limits are enforced, and file references cannot leave the base
+ * directory.
+ */
+class ImageCacheTest {
+
+    private static final String SIGNATURE = "classpath:mock-signature.png";
+
+    @Test
+    void same_bytes_decode_once_across_reference_forms() throws IOException {
+        ImageCache cache = new ImageCache();
+        String base64 = Base64.getEncoder().encodeToString(resourceBytes("mock-signature.png"));
+
+        ImageCache.Decoded fromClasspath = cache.load(SIGNATURE);
+        ImageCache.Decoded fromDataUri = cache.load("data:image/png;base64," + base64);
+        ImageCache.Decoded fromBase64 = cache.load(base64);
+        ImageCache.Decoded again = cache.load(SIGNATURE);
+
+        assertThat(fromDataUri).isSameAs(fromClasspath);
+        assertThat(fromBase64).isSameAs(fromClasspath);
+        assertThat(again).isSameAs(fromClasspath);
+        assertThat(fromClasspath.jpeg()).isNull();
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(3);
+        assertThat(cache.estimatedBytes()).isEqualTo(ImageCache.weigh(fromClasspath.image()));
+    }
+
+    @Test
+    void scaled_variant_is_cached_and_never_upsampled() throws IOException {
+        ImageCache cache = new ImageCache();
+        ImageCache.Decoded signature = cache.load(SIGNATURE);
+
+        BufferedImage small = cache.scaled(signature, 150, 50);
+        assertThat(small.getWidth()).isEqualTo(150);
+        assertThat(small.getHeight()).isEqualTo(50);
+        assertThat(small.getColorModel().hasAlpha()).isTrue();
+        assertThat(cache.scaled(signature, 150, 50)).isSameAs(small);
+        assertThat(cache.scaled(signature, 5000, 5000)).isSameAs(signature.image());
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void target_pixels_follow_dpi() {
+        assertThat(new ImageCache(true, 1 << 20, 1_000_000, 144).targetPixels(72f, 36f)).containsExactly(144, 72);
+        assertThat(new ImageCache(true, 1 << 20, 1_000_000, 0).targetPixels(72f, 36f)).isNull();
+    }
+
+    @Test
+    void oversized_image_is_rejected_before_decoding() throws IOException {
+        ImageCache cache = new ImageCache(true, 1 << 20, 1_000, 150);
+        String png = Base64.getEncoder().encodeToString(png(100, 100));
+
+        assertThatThrownBy(() -> cache.load(png))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("max-pixels");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void memory_limit_evicts_least_recently_used() throws IOException {
+        ImageCache cache = new ImageCache(true, 4L * 100 * 100 * 2, 1_000_000, 150);
+        ImageCache.Decoded a = cache.load(Base64.getEncoder().encodeToString(png(100, 100)));
+        cache.load(Base64.getEncoder().encodeToString(png(100, 101)));
+        cache.load(Base64.getEncoder().encodeToString(png(100, 99)));
+
+        assertThat(cache.evictions()).isGreaterThanOrEqualTo(1);
+        assertThat(cache.estimatedBytes()).isLessThanOrEqualTo(4L * 100 * 100 * 2);
+        assertThat(cache.load(Base64.getEncoder().encodeToString(png(100, 100)))).isNotSameAs(a);
+    }
+
+    @Test
+    void unreadable_references_fail_with_io_exception() {
+        ImageCache cache = new ImageCache();
+        assertThatThrownBy(() -> cache.load("classpath:missing.png")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> cache.load("no-such-dir/missing.png")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> cache.load("data:text/plain,hello")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> cache.load(Base64.getEncoder().encodeToString(new byte[128])))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void file_references_must_stay_inside_the_base_dir(@TempDir Path dir) throws IOException {
+        Path base = Files.createDirectory(dir.resolve("images"));
+        Files.write(base.resolve("stamp.png"), png(10, 10));
+        Files.write(dir.resolve("outside.png"), png(10, 10));
+        ImageCache cache = new ImageCache(true, 1 << 20, 1_000_000, 150, base, 1 << 20, List.of());
+
+        assertThat(cache.load("stamp.png").width()).isEqualTo(10);
+        assertThat(cache.load(base.resolve("stamp.png").toString()).width()).isEqualTo(10);
+        assertThatThrownBy(() -> cache.load("/etc/passwd")).isInstanceOf(IOException.class)
+                .hasMessageContaining("not allowed");
+        assertThatThrownBy(() -> cache.load("../outside.png")).isInstanceOf(IOException.class)
+                .hasMessageContaining("not allowed");
+        assertThatThrownBy(() -> cache.load("sub/../../outside.png")).isInstanceOf(IOException.class)
+                .hasMessageContaining("not allowed");
+        // Without a base dir no file is read, and classpath references are limited to bundled images
+        ImageCache noFiles = new ImageCache();
+        assertThatThrownBy(() -> noFiles.load("/etc/passwd")).isInstanceOf(IOException.class)
+                .hasMessageContaining("not allowed");
+        assertThatThrownBy(() -> noFiles.load("classpath:mock-rules.json")).isInstanceOf(IOException.class)
+                .hasMessageContaining("not allowed");
+        assertThatThrownBy(() -> noFiles.load("classpath:../secret.png")).isInstanceOf(IOException.class)
+                .hasMessageContaining("not allowed");
+    }
+
+    @Test
+    void trusted_references_are_read_as_given(@TempDir Path dir) throws IOException {
+        Path symbol = dir.resolve("symbol.png");
+        Files.write(symbol, png(12, 12));
+        ImageCache cache = new ImageCache(true, 1 << 20, 1_000_000, 150, null, 1 << 20, List.of(symbol.toString()));
+
+        assertThat(cache.load(symbol.toString()).width()).isEqualTo(12);
+    }
+
+    @Test
+    void images_over_the_byte_limit_are_rejected_before_reading() throws IOException {
+        ImageCache cache = new ImageCache(true, 1 << 20, 1_000_000, 150, null, 64, List.of());
+
+        assertThatThrownBy(() -> cache.load(Base64.getEncoder().encodeToString(png(100, 100))))
+                .isInstanceOf(IOException.class).hasMessageContaining("max-bytes");
+        assertThatThrownBy(() -> cache.load(SIGNATURE))
+                .isInstanceOf(IOException.class).hasMessageContaining("max-bytes");
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] resourceBytes(String name) throws IOException {
+        try (InputStream in = ImageCacheTest.class.getResourceAsStream("/" + name)) {
+            return in.readAllBytes();
+        }
+    }
+}
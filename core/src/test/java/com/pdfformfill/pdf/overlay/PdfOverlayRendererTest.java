@@ -1,21 +1,30 @@
 package com.pdfformfill.pdf.overlay;
 
 import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.engine.Deadline;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.io.RandomAccessReadBuffer;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Phase 1 acceptance: render one field onto a blank one-page PDF, then assert the page text contains the value.
@@ -100,6 +109,73 @@ class PdfOverlayRendererTest {
         }
     }
 
+    /** Image fields: the same signature on two pages is one downsampled XObject; a bad reference is skipped. */
+    @Test
+    void render_image_fields_share_one_downsampled_xobject() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage(PDRectangle.A4));
+            doc.addPage(new PDPage(PDRectangle.A4));
+            List<FieldDefinition> fields = List.of(
+                    new FieldDefinition("sig1", "signature", null, 72d, 600d, 120d, 40d, 1),
+                    new FieldDefinition("sig2", "image", null, 300d, 600d, 120d, 40d, 1),
+                    new FieldDefinition("sig3", "signature", null, 72d, 100d, 120d, 40d, 2),
+                    new FieldDefinition("broken", "image", null, 72d, 200d, 120d, 40d, 2)
+            );
+            Map<String, Object> fieldData = Map.of(
+                    "sig1", "classpath:mock-signature.png",
+                    "sig2", "classpath:mock-signature.png",
+                    "sig3", "classpath:mock-signature.png",
+                    "broken", "classpath:missing.png");
+            renderer.render(doc, fields, fieldData, defaultOptions());
+
+            Set<PDImageXObject> images = new HashSet<>();
+            Set<COSBase> streams = new HashSet<>();
+            for (PDPage page : doc.getPages()) {
+                for (COSName name : page.getResources().getXObjectNames()) {
+                    PDImageXObject image = (PDImageXObject) page.getResources().getXObject(name);
+                    images.add(image);
+                    streams.add(image.getCOSObject());
+                }
+            }
+            assertThat(streams).hasSize(1);
+            PDImageXObject image = images.iterator().next();
+            // 120x40 pt box, 900x300 px source → 120/72*150 = 250 px wide at 150 dpi
+            assertThat(image.getWidth()).isEqualTo(250);
+            assertThat(image.getHeight()).isEqualTo(84);
+        }
+    }
+
+    /** A session renders several copies into one document with one font and one checkbox image for all of them. */
+    @Test
+    void session_shares_fonts_and_images_across_copies() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            List<FieldDefinition> fields = List.of(
+                    new FieldDefinition("name", "string", null, 72d, 100d, 200d, 20d, 1),
+                    new FieldDefinition("chk", "checkbox", null, 72d, 200d, 16d, 16d, 1));
+            PdfOverlayRenderer.Session session = renderer.session(doc, optionsWithCheckbox("classpath:checked-symbol.png"));
+            for (int i = 0; i < 3; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                session.render(fields, Map.of("name", "Copy " + i, "chk", true), List.of(page));
+            }
+
+            Set<COSBase> fonts = new HashSet<>();
+            Set<COSBase> images = new HashSet<>();
+            for (PDPage page : doc.getPages()) {
+                for (COSName name : page.getResources().getFontNames()) {
+                    fonts.add(page.getResources().getFont(name).getCOSObject());
+                }
+                for (COSName name : page.getResources().getXObjectNames()) {
+                    images.add(page.getResources().getXObject(name).getCOSObject());
+                }
+            }
+            assertThat(fonts).hasSize(1);
+            assertThat(images).hasSize(1);
+            String text = new PDFTextStripper().getText(doc);
+            assertThat(text).contains("Copy 0", "Copy 1", "Copy 2");
+        }
+    }
+
     /** Long text with verticalAlign top: font is shrunk to fit width, full text appears (no ellipsis). */
     @Test
     void render_long_text_vertical_align_top_shrinks_to_fit() throws IOException {
@@ -182,6 +258,58 @@ class PdfOverlayRendererTest {
         }
     }
 
+    /** A fill cancelled while drawing page 1 stops before page 2 and before the next field. */
+    @Test
+    @SuppressWarnings("try")
+    void render_stops_at_the_next_check_once_the_deadline_is_cancelled() throws IOException {
+        Deadline deadline = Deadline.none();
+        List<Integer> pages = new ArrayList<>();
+        List<String> rendered = new ArrayList<>();
+        PdfOverlayRenderer cancelling = new PdfOverlayRenderer(List.of(new OverlayRenderListener() {
+            @Override
+            public void fieldRendered(String type) {
+                rendered.add(type);
+                deadline.cancel();
+            }
+
+            @Override
+            public void pageRendered(int page, int fieldCount, long nanos) {
+                pages.add(page);
+            }
+        }));
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage(PDRectangle.A4));
+            doc.addPage(new PDPage(PDRectangle.A4));
+            List<FieldDefinition> fields = List.of(
+                    new FieldDefinition("A", "string", null, 72d, 100d, 200d, 24d, 1),
+                    new FieldDefinition("B", "string", null, 72d, 200d, 200d, 24d, 1),
+                    new FieldDefinition("C", "string", null, 72d, 100d, 200d, 24d, 2));
+
+            try (Deadline.Scope ignored = deadline.bind()) {
+                assertThatThrownBy(() -> cancelling.render(doc, fields, Map.of("A", "a", "B", "b", "C", "c"), defaultOptions()))
+                        .isInstanceOf(Deadline.Cancelled.class)
+                        .extracting(e -> ((Deadline.Cancelled) e).reason())
+                        .isEqualTo(Deadline.Reason.CANCELLED);
+            }
+            assertThat(rendered).hasSize(1);
+            assertThat(pages).isEmpty();
+            assertThat(Deadline.current()).isNull();
+        }
+    }
+
+    /** An expired deadline also stops the fitting loops, which may run outside a render (e.g. the layout check). */
+    @Test
+    @SuppressWarnings("try")
+    void fitting_loops_check_the_deadline() {
+        OverlayFont font = OverlayFont.helvetica();
+        try (Deadline.Scope ignored = Deadline.after(Duration.ZERO).bind()) {
+            assertThatThrownBy(() -> PdfOverlayRenderer.shrinkToFit(font, "x".repeat(200), 50f, 12f, 6f))
+                    .isInstanceOf(Deadline.Cancelled.class);
+            assertThatThrownBy(() -> PdfOverlayRenderer.truncateWithEllipsis(font, "x".repeat(200), 12f, 50f))
+                    .isInstanceOf(Deadline.Cancelled.class);
+        }
+    }
+
     private static OverlayOptions defaultOptions() {
         return new OverlayOptions(null, null, OverlayOptions.DEFAULT_FONT_SIZE, OverlayOptions.DEFAULT_MIN_FONT_SIZE,
                 OverlayOptions.DEFAULT_FONT_COLOR_RGB, OverlayOptions.DEFAULT_PADDING_X, OverlayOptions.DEFAULT_PADDING_Y);
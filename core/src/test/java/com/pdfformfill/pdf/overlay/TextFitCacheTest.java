@@ -0,0 +1,93 @@
+package com.pdfformfill.pdf.overlay;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Text-fit cache: repeated fits are served from the cache with the same result, limits evict the least
+ * recently used entries, and hit rate / memory are reported.
+ */
+class TextFitCacheTest {
+
+    private static final OverlayFont FONT = OverlayFont.helvetica();
+
+    @Test
+    void repeated_fit_is_a_lookup_with_identical_result() throws IOException {
+        TextFitCache cache = new TextFitCache();
+        AtomicInteger computed = new AtomicInteger();
+        String text = "A much longer value that must shrink and then be truncated with an ellipsis";
+
+        TextFitCache.SingleLineFit first = cache.singleLine(FONT.name(), text, 80f, 10f, 6f, () -> {
+            computed.incrementAndGet();
+            return PdfOverlayRenderer.fitSingleLine(FONT, text, 80f, 10f, 6f);
+        });
+        TextFitCache.SingleLineFit second = cache.singleLine(FONT.name(), text, 80f, 10f, 6f, () -> {
+            computed.incrementAndGet();
+            return PdfOverlayRenderer.fitSingleLine(FONT, text, 80f, 10f, 6f);
+        });
+
+        assertThat(computed).hasValue(1);
+        assertThat(second).isSameAs(first);
+        assertThat(first.truncated()).isTrue();
+        assertThat(first.text()).endsWith("...");
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hitRate()).isEqualTo(0.5);
+        assertThat(cache.estimatedBytes()).isGreaterThan(TextFitCache.ENTRY_OVERHEAD_BYTES);
+    }
+
+    @Test
+    void key_includes_box_size_and_font_sizes() throws IOException {
+        TextFitCache cache = new TextFitCache();
+        PdfOverlayRenderer.MultiLineResult narrow = cache.multiLine(FONT.name(), "one two three four five six", 40f, 60f, 10f, 6f,
+                () -> PdfOverlayRenderer.computeMultiLine(FONT, "one two three four five six", 40f, 60f, 10f, 6f));
+        PdfOverlayRenderer.MultiLineResult wide = cache.multiLine(FONT.name(), "one two three four five six", 400f, 60f, 10f, 6f,
+                () -> PdfOverlayRenderer.computeMultiLine(FONT, "one two three four five six", 400f, 60f, 10f, 6f));
+
+        assertThat(narrow.lines().size()).isGreaterThan(wide.lines().size());
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.hits()).isZero();
+    }
+
+    @Test
+    void entry_and_byte_limits_evict_least_recently_used() throws IOException {
+        TextFitCache cache = new TextFitCache(true, 2, Long.MAX_VALUE, 100);
+        fit(cache, "a");
+        fit(cache, "b");
+        fit(cache, "a");
+        fit(cache, "c");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictions()).isEqualTo(1);
+        fit(cache, "a");
+        assertThat(cache.hits()).isEqualTo(2);
+
+        TextFitCache small = new TextFitCache(true, 100, 3L * TextFitCache.ENTRY_OVERHEAD_BYTES, 100);
+        for (int i = 0; i < 10; i++) {
+            fit(small, "value " + i);
+        }
+        assertThat(small.estimatedBytes()).isLessThanOrEqualTo(3L * TextFitCache.ENTRY_OVERHEAD_BYTES);
+        assertThat(small.size()).isLessThan(3);
+    }
+
+    @Test
+    void long_texts_and_disabled_cache_are_not_stored() throws IOException {
+        TextFitCache cache = new TextFitCache(true, 100, Long.MAX_VALUE, 5);
+        fit(cache, "longer than five");
+        assertThat(cache.size()).isZero();
+
+        TextFitCache disabled = TextFitCache.disabled();
+        fit(disabled, "x");
+        fit(disabled, "x");
+        assertThat(disabled.size()).isZero();
+        assertThat(disabled.hits()).isZero();
+    }
+
+    private static void fit(TextFitCache cache, String text) throws IOException {
+        cache.singleLine(FONT.name(), text, 100f, 10f, 6f, () -> PdfOverlayRenderer.fitSingleLine(FONT, text, 100f, 10f, 6f));
+    }
+}
@@ -37,6 +37,18 @@ class FieldDataPreparerTest {
         assertThat(result.get("f_date")).isEqualTo("2025-01-01").isInstanceOf(String.class);
     }
 
+    @Test
+    void prepareMockData_image_and_signature_get_image_reference_not_name_rule() {
+        FieldsDefinition definition = new FieldsDefinition(List.of(
+                new FieldDefinition("Worker signature", "signature", null, null, null, null, null, 1),
+                new FieldDefinition("Photo", "image", null, null, null, null, null, 1)
+        ));
+        Map<String, Object> result = preparer.prepareMockData(definition);
+        assertThat(result.get("Worker signature")).isEqualTo("classpath:mock-signature.png");
+        assertThat(result.get("Photo")).isEqualTo("classpath:mock-signature.png");
+        assertThat(preparer.kindOf(definition.fields().get(0))).isEqualTo(FieldKind.IMAGE);
+    }
+
     @Test
     void prepareMockData_null_definition_returns_empty_map() {
         Map<String, Object> result = preparer.prepareMockData(null);
@@ -111,4 +123,27 @@ class FieldDataPreparerTest {
         assertThat(result.get("flag1")).isEqualTo(Boolean.FALSE);
         assertThat(result.get("text1")).isEqualTo("test");
     }
+
+    @Test
+    void prepareMockData_date_and_doctor_rules_follow_rule_order_and_type() {
+        FieldsDefinition definition = new FieldsDefinition(List.of(
+                new FieldDefinition("Doctor appointment", "string", null, null, null, null, null, 1),
+                new FieldDefinition("Treating doctor", "string", null, null, null, null, null, 1),
+                new FieldDefinition("Next review date", "date", null, null, null, null, null, 1),
+                new FieldDefinition("Appointment date", "date", null, null, null, null, null, 1),
+                new FieldDefinition("Drug test date", "date", null, null, null, null, null, 1),
+                new FieldDefinition("Appointment", "string", null, null, null, null, null, 1),
+                new FieldDefinition("Operator of rail", "string", null, null, null, null, null, 1)
+        ));
+
+        Map<String, Object> result = preparer.prepareMockData(definition);
+
+        assertThat(result.get("Doctor appointment")).isEqualTo("Dr Taylor");
+        assertThat(result.get("Treating doctor")).isEqualTo("Dr Smith");
+        assertThat(result.get("Next review date")).isEqualTo("2025-06-01");
+        assertThat(result.get("Appointment date")).isEqualTo("2025-03-15");
+        assertThat(result.get("Drug test date")).isEqualTo("2025-02-01");
+        assertThat(result.get("Appointment")).isEqualTo("test");
+        assertThat(result.get("Operator of rail")).isEqualTo("ACME Rail Pty Ltd");
+    }
 }
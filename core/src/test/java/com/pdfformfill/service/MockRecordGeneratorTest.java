@@ -0,0 +1,91 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 随机记录生成：同一 (seed, index) 结果一致、记录之间互不相同、文本长度落在配置的分布范围内。
+ */
+class MockRecordGeneratorTest {
+
+    private static final FieldsDefinition DEFINITION = new FieldsDefinition(List.of(
+            new FieldDefinition("First name", "string", null, null, null, null, null, 1),
+            new FieldDefinition("Family name", "string", null, null, null, null, null, 1),
+            new FieldDefinition("Email", "string", null, null, null, null, null, 1),
+            new FieldDefinition("Phone", "string", null, null, null, null, null, 1),
+            new FieldDefinition("Address", "string", null, null, null, null, null, 1, "top"),
+            new FieldDefinition("Date of birth", "date", null, null, null, null, null, 1),
+            new FieldDefinition("Count", "number", null, null, null, null, null, 1),
+            new FieldDefinition("Agree", "checkbox", null, null, null, null, null, 1),
+            new FieldDefinition("Notes", "string", null, null, null, null, null, 1, "top")
+    ));
+
+    private final MockRecordGenerator generator = new MockRecordGenerator();
+
+    @Test
+    void kindOf_uses_the_same_name_rules_as_fixed_mock_values() {
+        assertThat(DEFINITION.fields()).extracting(new FieldDataPreparer()::kindOf).containsExactly(
+                FieldKind.FIRST_NAME, FieldKind.FAMILY_NAME, FieldKind.EMAIL, FieldKind.PHONE, FieldKind.ADDRESS,
+                FieldKind.DATE, FieldKind.NUMBER, FieldKind.BOOLEAN, FieldKind.LONG_TEXT);
+    }
+
+    @Test
+    void same_seed_and_index_give_same_record_and_records_differ() {
+        MockRecordGenerator.RecordSource source = generator.source(DEFINITION, 7L);
+
+        assertThat(source.record(12_345)).isEqualTo(generator.source(DEFINITION, 7L).record(12_345));
+        assertThat(source.record(0)).isNotEqualTo(source.record(1));
+        assertThat(source.record(0)).isNotEqualTo(generator.source(DEFINITION, 8L).record(0));
+        assertThat(source.stream(1_000).parallel().map(r -> r.get("Address")).collect(Collectors.toSet()))
+                .hasSizeGreaterThan(990);
+        assertThat(source.stream(5).toList()).containsExactly(
+                source.record(0), source.record(1), source.record(2), source.record(3), source.record(4));
+    }
+
+    @Test
+    void values_have_the_field_type_and_configured_lengths() {
+        MockRecordGenerator bounded = new MockRecordGenerator(new FieldDataPreparer(), "5,8,10", "8,18,60", "8,20,60", "30,50,70",
+                "1,12,60", "100,200,300", "2000-01-01", "2000-12-31");
+        MockRecordGenerator.RecordSource source = bounded.source(DEFINITION, 1L);
+
+        IntSummaryStatistics address = source.stream(2_000)
+                .mapToInt(r -> ((String) r.get("Address")).length()).summaryStatistics();
+        assertThat(address.getMin()).isGreaterThanOrEqualTo(25);
+        assertThat(address.getMax()).isLessThanOrEqualTo(70);
+        assertThat(address.getAverage()).isBetween(40.0, 60.0);
+
+        Map<String, Object> record = source.record(3);
+        assertThat(((String) record.get("First name")).length()).isBetween(1, 10);
+        assertThat(((String) record.get("Notes")).length()).isBetween(90, 300);
+        assertThat((String) record.get("Date of birth")).startsWith("2000-");
+        assertThat((String) record.get("Email")).contains("@");
+        assertThat(record.get("Count")).isInstanceOf(Integer.class);
+        assertThat(record.get("Agree")).isInstanceOf(Boolean.class);
+        Set<Object> checks = source.stream(50).map(r -> r.get("Agree")).collect(Collectors.toSet());
+        assertThat(checks).containsExactlyInAnyOrder(true, false);
+    }
+
+    @Test
+    void length_distribution_stays_within_bounds_and_rejects_bad_specs() {
+        MockRecordGenerator.LengthDistribution d = MockRecordGenerator.LengthDistribution.parse("3, 12, 40");
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(d.sample(random)).isBetween(3, 40);
+        }
+        assertThatThrownBy(() -> MockRecordGenerator.LengthDistribution.parse("10,5,20"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MockRecordGenerator.LengthDistribution.parse("1,2"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
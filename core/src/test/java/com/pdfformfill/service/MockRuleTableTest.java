@@ -0,0 +1,85 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.dto.FieldDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 规则表：按顺序取第一条命中的规则；any / all / type / topAligned 条件；关键字可重叠；规则很多时仍正确。
+ */
+class MockRuleTableTest {
+
+    @Test
+    void first_matching_rule_wins_and_conditions_are_checked() {
+        MockRuleTable table = new MockRuleTable(List.of(
+                rule(List.of(), List.of("worker", "name"), null, null, "worker name"),
+                rule(List.of("name"), List.of(), null, null, "name"),
+                rule(List.of("dob", "date of birth"), List.of(), "date", null, "dob"),
+                rule(List.of("address"), List.of(), null, true, "long address"),
+                rule(List.of("address"), List.of(), null, null, "address")
+        ));
+
+        assertThat(value(table, field("Rail worker's name", "string", null))).isEqualTo("worker name");
+        assertThat(value(table, field("Family NAME", "string", null))).isEqualTo("name");
+        assertThat(value(table, field("Worker", "string", null))).isNull();
+        assertThat(value(table, field("Worker date of birth", "date", null))).isEqualTo("dob");
+        assertThat(value(table, field("Worker date of birth", "string", null))).isNull();
+        assertThat(value(table, field("Home address", "string", "top"))).isEqualTo("long address");
+        assertThat(value(table, field("Home address", "string", null))).isEqualTo("address");
+        // 重复查询走缓存，结果不变
+        assertThat(value(table, field("Home address", "string", "top"))).isEqualTo("long address");
+    }
+
+    @Test
+    void overlapping_and_nested_keywords_are_all_found() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("he", "she", "his", "hers", "test date", "date"));
+
+        assertThat(matcher.find("ushers").stream().toArray()).containsExactly(0, 1, 3);
+        assertThat(matcher.find("drug test date").stream().toArray()).containsExactly(4, 5);
+        assertThat(matcher.find("nothing here").cardinality()).isEqualTo(1);
+    }
+
+    @Test
+    void large_rule_tables_keep_priority_order() {
+        List<MockRuleTable.Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rules.add(rule(List.of("key" + i + "x"), List.of(), null, null, "v" + i));
+        }
+        rules.add(rule(List.of("key4"), List.of(), null, null, "prefix"));
+        MockRuleTable table = new MockRuleTable(rules);
+
+        assertThat(table.size()).isEqualTo(501);
+        assertThat(value(table, field("a key499x b", "string", null))).isEqualTo("v499");
+        // "key42x" 同时包含 key42x 与 key4，前者的规则在前
+        assertThat(value(table, field("key42x", "string", null))).isEqualTo("v42");
+        assertThat(value(table, field("key4", "string", null))).isEqualTo("prefix");
+        assertThat(value(table, field("key", "string", null))).isNull();
+    }
+
+    @Test
+    void default_rule_file_loads_and_invalid_rules_are_rejected() throws Exception {
+        assertThat(MockRuleTable.load("classpath:mock-rules.json").size()).isGreaterThan(10);
+        assertThatThrownBy(() -> new MockRuleTable(List.of(rule(List.of(), List.of(), null, null, "x"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MockRuleTable(List.of(rule(List.of("a"), List.of(), null, null, null))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Object value(MockRuleTable table, FieldDefinition field) {
+        MockRuleTable.Rule rule = table.resolve(field);
+        return rule == null ? null : rule.value();
+    }
+
+    private static MockRuleTable.Rule rule(List<String> any, List<String> all, String type, Boolean top, Object value) {
+        return new MockRuleTable.Rule(any, all, type, top, value, false, FieldKind.TEXT);
+    }
+
+    private static FieldDefinition field(String name, String type, String verticalAlign) {
+        return new FieldDefinition(name, type, null, null, null, null, null, 1, verticalAlign);
+    }
+}
@@ -0,0 +1,52 @@
+package com.pdfformfill.synthetic;
+
+import com.pdfformfill.dto.FieldDefinition;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 合成模板：页数、字段数与定义一致，字段都在页面内；可选 AcroForm 控件；同一 seed 结果一致。
+ */
+class SyntheticTemplateGeneratorTest {
+
+    private final SyntheticTemplateGenerator generator = new SyntheticTemplateGenerator();
+
+    @Test
+    void generates_pages_and_matching_definition() throws IOException {
+        SyntheticTemplateGenerator.SyntheticTemplate t = generator.generate(SyntheticTemplateGenerator.Spec.of(3, 120));
+
+        assertThat(t.definition().fields()).hasSize(120);
+        assertThat(t.definition().fields()).extracting(FieldDefinition::type).contains("string", "date", "checkbox");
+        assertThat(t.definition().fields()).anyMatch(f -> "top".equals(f.verticalAlign()));
+        try (PDDocument doc = Loader.loadPDF(t.pdf())) {
+            assertThat(doc.getNumberOfPages()).isEqualTo(3);
+            assertThat(doc.getDocumentCatalog().getAcroForm()).isNull();
+            float height = doc.getPage(0).getMediaBox().getHeight();
+            assertThat(t.definition().fields()).allMatch(f -> f.y() + f.height() <= height && f.page() <= 3);
+        }
+    }
+
+    @Test
+    void widgets_add_an_acroform_field_per_definition_field() throws IOException {
+        SyntheticTemplateGenerator.SyntheticTemplate t = generator.generate(
+                SyntheticTemplateGenerator.Spec.of(2, 30).withAcroFormWidgets(true));
+
+        try (PDDocument doc = Loader.loadPDF(t.pdf())) {
+            PDAcroForm acroForm = doc.getDocumentCatalog().getAcroForm();
+            assertThat(acroForm).isNotNull();
+            assertThat(acroForm.getFields()).hasSize(30);
+        }
+    }
+
+    @Test
+    void same_spec_gives_same_definition() throws IOException {
+        SyntheticTemplateGenerator.Spec spec = SyntheticTemplateGenerator.Spec.of(2, 50);
+        assertThat(generator.generate(spec).definition()).isEqualTo(generator.generate(spec).definition());
+    }
+}
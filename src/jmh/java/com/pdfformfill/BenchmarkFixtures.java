@@ -0,0 +1,76 @@
+package com.pdfformfill;
+
+import com.pdfformfill.dto.FieldDefinition;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generated templates, definitions and values shared by the benchmarks.
+ */
+public final class BenchmarkFixtures {
+
+    public static final String SHORT_TEXT = "Smith";
+    public static final String LONG_TEXT = "123 Sample Street, Sydney NSW 2000, Australia. Unit 5, Building B. Contact: reception. "
+            .repeat(6).trim();
+
+    private BenchmarkFixtures() {
+    }
+
+    /** Blank A4 PDF with the given number of pages. */
+    public static byte[] blankTemplate(int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                doc.addPage(new PDPage(PDRectangle.A4));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * {@code count} fields spread over {@code pages} pages in a grid: mostly single-line strings, every fifth
+     * a multi-line top-aligned box and every seventh a checkbox.
+     */
+    public static List<FieldDefinition> fields(int count, int pages) {
+        List<FieldDefinition> fields = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int page = i % pages + 1;
+            int slot = i / pages;
+            double x = 40 + (slot % 3) * 180;
+            double y = 40 + (slot / 3 % 25) * 30;
+            if (i % 7 == 6) {
+                fields.add(new FieldDefinition("check " + i, "checkbox", null, x, y, 14d, 14d, page));
+            } else if (i % 5 == 4) {
+                fields.add(new FieldDefinition("address " + i, "string", null, x, y, 170d, 56d, page, "top"));
+            } else {
+                fields.add(new FieldDefinition("name " + i, "string", null, x, y, 170d, 24d, page));
+            }
+        }
+        return fields;
+    }
+
+    /** Values for {@link #fields}: long text for multi-line boxes, alternating short/long for single-line. */
+    public static Map<String, Object> values(List<FieldDefinition> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            FieldDefinition f = fields.get(i);
+            if ("checkbox".equals(f.type())) {
+                values.put(f.name(), i % 2 == 0);
+            } else if (f.height() >= 50) {
+                values.put(f.name(), LONG_TEXT);
+            } else {
+                values.put(f.name(), i % 2 == 0 ? SHORT_TEXT : LONG_TEXT.substring(0, 60));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,68 @@
+package com.pdfformfill.pdf.overlay;
+
+import com.pdfformfill.BenchmarkFixtures;
+import com.pdfformfill.dto.FieldDefinition;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PdfOverlayRenderer#render} across field counts on a freshly loaded 4-page template per invocation
+ * (render mutates the document, so loading is in per-invocation setup and not measured). {@code fitCache=true}
+ * shows the steady state where every value/box pair has been fitted before.
+ */
+@State(Scope.Thread)
+public class OverlayRenderBenchmark {
+
+    private static final int PAGES = 4;
+
+    @Param({"10", "100", "1000"})
+    public int fieldCount;
+
+    @Param({"false", "true"})
+    public boolean fitCache;
+
+    private PdfOverlayRenderer renderer;
+    private byte[] template;
+    private List<FieldDefinition> fields;
+    private Map<String, Object> values;
+    private OverlayOptions options;
+    private PDDocument document;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        renderer = new PdfOverlayRenderer(List.of(), fitCache ? new TextFitCache() : TextFitCache.disabled());
+        template = BenchmarkFixtures.blankTemplate(PAGES);
+        fields = BenchmarkFixtures.fields(fieldCount, PAGES);
+        values = BenchmarkFixtures.values(fields);
+        options = new OverlayOptions(null, "classpath:checked-symbol.png", OverlayOptions.DEFAULT_FONT_SIZE,
+                OverlayOptions.DEFAULT_MIN_FONT_SIZE, OverlayOptions.DEFAULT_FONT_COLOR_RGB,
+                OverlayOptions.DEFAULT_PADDING_X, OverlayOptions.DEFAULT_PADDING_Y);
+    }
+
+    @Setup(Level.Invocation)
+    public void loadDocument() throws IOException {
+        document = Loader.loadPDF(template);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeDocument() throws IOException {
+        document.close();
+    }
+
+    @Benchmark
+    public PDDocument render() throws IOException {
+        renderer.render(document, fields, values, options);
+        return document;
+    }
+}
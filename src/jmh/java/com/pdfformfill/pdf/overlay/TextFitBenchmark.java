@@ -0,0 +1,59 @@
+package com.pdfformfill.pdf.overlay;
+
+import com.pdfformfill.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Text fitting primitives of {@link PdfOverlayRenderer} on short and long values, with the same limits the
+ * renderer uses for a 170pt wide field (single-line) and a 170x56pt box (multi-line). {@code font} compares
+ * Standard 14 Helvetica with an embedded TrueType font (Liberation Sans, bundled with PDFBox) measured through
+ * the same cached width tables.
+ */
+@State(Scope.Benchmark)
+public class TextFitBenchmark {
+
+    @Param({"short", "long"})
+    public String length;
+
+    @Param({"Helvetica", "LiberationSans"})
+    public String fontName;
+
+    private OverlayFont font;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        FontRegistry registry = new FontRegistry(
+                "LiberationSans=classpath:org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf", "Helvetica");
+        font = registry.open(null, List.of(fontName));
+        text = "short".equals(length) ? BenchmarkFixtures.SHORT_TEXT : BenchmarkFixtures.LONG_TEXT;
+    }
+
+    @Benchmark
+    public PdfOverlayRenderer.ShrinkResult shrinkToFit() throws IOException {
+        return PdfOverlayRenderer.shrinkToFit(font, text, 164f, OverlayOptions.DEFAULT_FONT_SIZE, OverlayOptions.DEFAULT_MIN_FONT_SIZE);
+    }
+
+    @Benchmark
+    public String truncateWithEllipsis() throws IOException {
+        return PdfOverlayRenderer.truncateWithEllipsis(font, text, OverlayOptions.DEFAULT_MIN_FONT_SIZE, 164f);
+    }
+
+    @Benchmark
+    public List<String> wrapToLines() throws IOException {
+        return PdfOverlayRenderer.wrapToLines(font, text, 164f, OverlayOptions.DEFAULT_FONT_SIZE);
+    }
+
+    @Benchmark
+    public PdfOverlayRenderer.MultiLineResult computeMultiLine() throws IOException {
+        return PdfOverlayRenderer.computeMultiLine(font, text, 164f, 56f,
+                OverlayOptions.DEFAULT_FONT_SIZE, OverlayOptions.DEFAULT_MIN_FONT_SIZE);
+    }
+}
@@ -0,0 +1,71 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.PdfFormFillApplication;
+import com.pdfformfill.dto.MergeResponse;
+import com.pdfformfill.synthetic.SyntheticTemplateGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * End-to-end {@link PdfFormFillService#merge} (load, parse, mock data, flatten, render, save) on generated
+ * templates from {@link SyntheticTemplateGenerator}, with the real Spring wiring (metrics, tracing) but no web
+ * server. {@code widgets=true} adds AcroForm widgets so the flatten stage has work to do.
+ */
+@State(Scope.Benchmark)
+public class MergePipelineBenchmark {
+
+    @Param({"1", "20"})
+    public int pages;
+
+    @Param({"20", "200"})
+    public int fieldCount;
+
+    @Param({"false", "true"})
+    public boolean widgets;
+
+    private ConfigurableApplicationContext context;
+    private PdfFormFillService service;
+    private Path outputDir;
+    private MockMultipartFile template;
+    private MockMultipartFile definition;
+
+    @Setup
+    public void setUp() throws IOException {
+        outputDir = Files.createTempDirectory("merge-bench");
+        context = new SpringApplicationBuilder(PdfFormFillApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--pdf.output.dir=" + outputDir, "--logging.level.root=WARN");
+        service = context.getBean(PdfFormFillService.class);
+        ObjectMapper mapper = context.getBean(ObjectMapper.class);
+        SyntheticTemplateGenerator.SyntheticTemplate generated = new SyntheticTemplateGenerator()
+                .generate(SyntheticTemplateGenerator.Spec.of(pages, fieldCount).withAcroFormWidgets(widgets));
+        template = new MockMultipartFile("template", "bench.pdf", "application/pdf", generated.pdf());
+        byte[] json = mapper.writeValueAsBytes(generated.definition());
+        definition = new MockMultipartFile("definition", "bench.json", "application/json", json);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(outputDir);
+    }
+
+    @Benchmark
+    public MergeResponse merge() throws IOException {
+        return service.merge(template, definition);
+    }
+}
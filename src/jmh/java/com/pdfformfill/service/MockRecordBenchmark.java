@@ -0,0 +1,44 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.synthetic.SyntheticTemplateGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Cost of one generated record ({@link MockRecordGenerator}) versus the fixed mock values
+ * ({@link FieldDataPreparer}) for a synthetic definition.
+ */
+@State(Scope.Benchmark)
+public class MockRecordBenchmark {
+
+    @Param({"20", "200"})
+    public int fieldCount;
+
+    private final FieldDataPreparer preparer = new FieldDataPreparer();
+    private FieldsDefinition definition;
+    private MockRecordGenerator.RecordSource source;
+    private long index;
+
+    @Setup
+    public void setUp() throws IOException {
+        definition = new SyntheticTemplateGenerator().generate(SyntheticTemplateGenerator.Spec.of(1, fieldCount)).definition();
+        source = new MockRecordGenerator().source(definition, 42L);
+    }
+
+    @Benchmark
+    public Map<String, Object> fixedMockData() {
+        return preparer.prepareMockData(definition);
+    }
+
+    @Benchmark
+    public Map<String, Object> generatedRecord() {
+        return source.record(index++);
+    }
+}
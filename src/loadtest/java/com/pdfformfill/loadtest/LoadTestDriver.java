@@ -0,0 +1,278 @@
+package com.pdfformfill.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pdfformfill.synthetic.SyntheticTemplateGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Local load driver for a running service: posts merges at a fixed concurrency and reports throughput,
+ * latency percentiles and the server's heap/GC deltas (from Actuator), saving the result as JSON so runs can be
+ * compared between builds.
+ * <p>
+ * Usage ({@code ./gradlew loadTest -PloadTestArgs="..."}):
+ * <pre>
+ *   --url http://localhost:8080   service base URL
+ *   --concurrency 8               parallel clients
+ *   --requests 500                total merges (after warmup)
+ *   --warmup 50                   merges before measuring
+ *   --pages 4 --fields 60         synthetic template size
+ *   --widgets                     add AcroForm widgets (exercises flatten)
+ *   --distinct                    send ?seed=&lt;n&gt; so every merge gets a different generated record
+ *   --template a.pdf --definition d.json   use files instead of a synthetic template
+ *   --out build/loadtest          result directory
+ *   --generate-only               only write the synthetic template/definition to --out
+ * </pre>
+ */
+public final class LoadTestDriver {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private LoadTestDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        String baseUrl = opts.getOrDefault("url", "http://localhost:8080");
+        int concurrency = Integer.parseInt(opts.getOrDefault("concurrency", "8"));
+        int requests = Integer.parseInt(opts.getOrDefault("requests", "500"));
+        int warmup = Integer.parseInt(opts.getOrDefault("warmup", "50"));
+        Path outDir = Paths.get(opts.getOrDefault("out", "build/loadtest"));
+        Files.createDirectories(outDir);
+
+        byte[] template;
+        byte[] definition;
+        String label;
+        if (opts.containsKey("template")) {
+            template = Files.readAllBytes(Paths.get(opts.get("template")));
+            definition = Files.readAllBytes(Paths.get(opts.get("definition")));
+            label = opts.get("template");
+        } else {
+            SyntheticTemplateGenerator.Spec spec = SyntheticTemplateGenerator.Spec
+                    .of(Integer.parseInt(opts.getOrDefault("pages", "4")), Integer.parseInt(opts.getOrDefault("fields", "60")))
+                    .withAcroFormWidgets(opts.containsKey("widgets"));
+            SyntheticTemplateGenerator.SyntheticTemplate generated = new SyntheticTemplateGenerator().generate(spec);
+            template = generated.pdf();
+            definition = MAPPER.writeValueAsBytes(generated.definition());
+            label = "synthetic-" + spec.pages() + "p-" + spec.fields() + "f" + (spec.acroFormWidgets() ? "-widgets" : "");
+            Files.write(outDir.resolve(label + ".pdf"), template);
+            Files.write(outDir.resolve(label + ".json"), definition);
+        }
+        if (opts.containsKey("generate-only")) {
+            System.out.println("Wrote " + outDir.resolve(label + ".pdf") + " and definition");
+            return;
+        }
+
+        // The client's executor threads are not daemons; shut them down so the JVM exits when the run ends
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(concurrency);
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(clientExecutor)
+                    .build();
+            measure(client, baseUrl, opts, outDir, template, definition, label, concurrency, requests, warmup);
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private static void measure(HttpClient client, String baseUrl, Map<String, String> opts, Path outDir,
+                                byte[] template, byte[] definition, String label, int concurrency, int requests,
+                                int warmup) throws IOException, InterruptedException {
+        String boundary = "----loadtest" + UUID.randomUUID();
+        byte[] body = multipartBody(boundary, template, definition);
+        boolean distinct = opts.containsKey("distinct");
+        IntFunction<HttpRequest> request = i -> HttpRequest
+                .newBuilder(URI.create(baseUrl + "/api/pdf/merge" + (distinct ? "?seed=" + i : "")))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        System.out.printf("Warmup: %d merges%n", warmup);
+        run(client, request, warmup, concurrency);
+
+        Map<String, Object> before = serverStats(client, baseUrl);
+        System.out.printf("Measuring: %d merges at concurrency %d against %s%n", requests, concurrency, baseUrl);
+        RunResult result = run(client, i -> request.apply(warmup + i), requests, concurrency);
+        Map<String, Object> after = serverStats(client, baseUrl);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("url", baseUrl);
+        report.put("template", label);
+        report.put("templateBytes", template.length);
+        report.put("distinctRecords", distinct);
+        report.put("concurrency", concurrency);
+        report.put("requests", requests);
+        report.put("errors", result.errors());
+        report.put("durationSeconds", result.elapsedNanos() / 1e9);
+        report.put("throughputPerSecond", requests / (result.elapsedNanos() / 1e9));
+        report.put("latencyMs", percentiles(result.latenciesNanos()));
+        report.put("serverBefore", before);
+        report.put("serverAfter", after);
+        report.put("serverGcDelta", gcDelta(before, after));
+
+        Path file = outDir.resolve("result-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        MAPPER.writeValue(file.toFile(), report);
+        System.out.println(MAPPER.writeValueAsString(report));
+        System.out.println("Saved " + file.toAbsolutePath());
+    }
+
+    private record RunResult(long[] latenciesNanos, int errors, long elapsedNanos) {}
+
+    private static RunResult run(HttpClient client, IntFunction<HttpRequest> request, int total, int concurrency) throws InterruptedException {
+        long[] latencies = new long[total];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicLong firstError = new AtomicLong(-1);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            workers.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < total) {
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = client.send(request.apply(i), HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                            if (firstError.compareAndSet(-1, response.statusCode())) {
+                                System.err.println("HTTP " + response.statusCode() + ": "
+                                        + new String(response.body(), StandardCharsets.UTF_8));
+                            }
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        errors.incrementAndGet();
+                        if (firstError.compareAndSet(-1, 0)) {
+                            System.err.println("Request failed: " + e);
+                        }
+                    }
+                    latencies[i] = System.nanoTime() - t0;
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        return new RunResult(latencies, errors.get(), System.nanoTime() - start);
+    }
+
+    private static Map<String, Double> percentiles(long[] latenciesNanos) {
+        long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+        Map<String, Double> p = new LinkedHashMap<>();
+        if (sorted.length == 0) {
+            return p;
+        }
+        p.put("min", sorted[0] / 1e6);
+        p.put("p50", sorted[index(sorted.length, 0.50)] / 1e6);
+        p.put("p90", sorted[index(sorted.length, 0.90)] / 1e6);
+        p.put("p99", sorted[index(sorted.length, 0.99)] / 1e6);
+        p.put("max", sorted[sorted.length - 1] / 1e6);
+        p.put("mean", Arrays.stream(sorted).average().orElse(0) / 1e6);
+        return p;
+    }
+
+    private static int index(int length, double quantile) {
+        return Math.min(length - 1, (int) Math.ceil(quantile * length) - 1);
+    }
+
+    /** Heap and GC figures from /actuator/metrics; missing metrics are skipped (e.g. Actuator not exposed). */
+    private static Map<String, Object> serverStats(HttpClient client, String baseUrl) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("heapUsedBytes", metric(client, baseUrl, "jvm.memory.used?tag=area:heap", "VALUE"));
+        stats.put("heapCommittedBytes", metric(client, baseUrl, "jvm.memory.committed?tag=area:heap", "VALUE"));
+        stats.put("gcPauseCount", metric(client, baseUrl, "jvm.gc.pause", "COUNT"));
+        stats.put("gcPauseTotalSeconds", metric(client, baseUrl, "jvm.gc.pause", "TOTAL_TIME"));
+        stats.put("allocatedBytes", metric(client, baseUrl, "jvm.gc.memory.allocated", "COUNT"));
+        return stats;
+    }
+
+    private static Double metric(HttpClient client, String baseUrl, String path, String statistic) {
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + path)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            for (JsonNode m : MAPPER.readTree(response.body()).path("measurements")) {
+                if (statistic.equals(m.path("statistic").asText())) {
+                    return m.path("value").asDouble();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // metric unavailable
+        }
+        return null;
+    }
+
+    private static Map<String, Double> gcDelta(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Double> delta = new LinkedHashMap<>();
+        for (String key : new String[]{"gcPauseCount", "gcPauseTotalSeconds", "allocatedBytes"}) {
+            if (before.get(key) instanceof Double b && after.get(key) instanceof Double a) {
+                delta.put(key, a - b);
+            }
+        }
+        return delta;
+    }
+
+    private static byte[] multipartBody(String boundary, byte[] template, byte[] definition) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writePart(out, boundary, "template", "template.pdf", "application/pdf", template);
+        writePart(out, boundary, "definition", "definition.json", "application/json", definition);
+        out.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static void writePart(ByteArrayOutputStream out, String boundary, String name, String filename,
+                                  String contentType, byte[] content) throws IOException {
+        String header = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n";
+        out.write(header.getBytes(StandardCharsets.US_ASCII));
+        out.write(content);
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                opts.put(key, args[++i]);
+            } else {
+                opts.put(key, "true");
+            }
+        }
+        return opts;
+    }
+}
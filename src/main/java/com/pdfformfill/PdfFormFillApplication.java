@@ -1,12 +1,24 @@
 package com.pdfformfill;
 
+import com.pdfformfill.cli.BatchFillCommand;
+import com.pdfformfill.cli.ShardCoordinatorCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 public class PdfFormFillApplication {
 
     public static void main(String[] args) {
+        // java -jar app.jar batch ...：不启动 web 服务器的批量填表（见 BatchFillCommand）
+        if (args.length > 0 && BatchFillCommand.COMMAND.equals(args[0])) {
+            System.exit(BatchFillCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        // java -jar app.jar coordinate ...：把批次切成分片分发给各实例的 POST /api/pdf/shards（见 ShardCoordinatorCommand）
+        if (args.length > 0 && ShardCoordinatorCommand.COMMAND.equals(args[0])) {
+            System.exit(ShardCoordinatorCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
         SpringApplication.run(PdfFormFillApplication.class, args);
     }
 }
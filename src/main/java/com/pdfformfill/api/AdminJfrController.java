@@ -0,0 +1,69 @@
+package com.pdfformfill.api;
+
+import com.pdfformfill.jfr.JfrRecordingService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * 管理接口：启动/停止 JFR 录制，录制中包含 merge 阶段、页面渲染与字段适配的领域事件。
+ * 仅在 pdf.admin.enabled=true 时注册，生产环境应只在内网暴露。
+ */
+@RestController
+@RequestMapping("/api/admin/jfr")
+@ConditionalOnProperty(name = "pdf.admin.enabled", havingValue = "true")
+public class AdminJfrController {
+
+    private final JfrRecordingService jfrRecordingService;
+
+    public AdminJfrController(JfrRecordingService jfrRecordingService) {
+        this.jfrRecordingService = jfrRecordingService;
+    }
+
+    @Operation(summary = "开始 JFR 录制", description = "settings 为 JDK 预设（default/profile）；maxSeconds 到时自动停止并写文件；fieldFitThresholdMicros=0 记录每个字段的适配事件。")
+    @PostMapping("/start")
+    public ResponseEntity<?> start(
+            @RequestParam(value = "settings", defaultValue = "profile") String settings,
+            @RequestParam(value = "maxSeconds", required = false) Long maxSeconds,
+            @RequestParam(value = "fieldFitThresholdMicros", required = false) Long fieldFitThresholdMicros
+    ) throws IOException {
+        try {
+            return ResponseEntity.ok(jfrRecordingService.start(
+                    settings,
+                    maxSeconds != null ? Duration.ofSeconds(maxSeconds) : null,
+                    fieldFitThresholdMicros != null ? Duration.ofNanos(fieldFitThresholdMicros * 1000L) : null));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new PdfMergeController.ErrorBody(e.getMessage()));
+        } catch (ParseException | NoSuchFileException e) {
+            return ResponseEntity.badRequest().body(new PdfMergeController.ErrorBody("Unknown JFR settings: " + settings));
+        }
+    }
+
+    @Operation(summary = "停止 JFR 录制", description = "停止当前录制并返回 .jfr 文件路径（pdf.jfr.dir 下）。")
+    @PostMapping("/stop")
+    public ResponseEntity<?> stop() throws IOException {
+        JfrRecordingService.RecordingStatus status = jfrRecordingService.stop();
+        if (status == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new PdfMergeController.ErrorBody("No JFR recording is running."));
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    @Operation(summary = "当前 JFR 录制状态")
+    @GetMapping
+    public ResponseEntity<?> status() {
+        JfrRecordingService.RecordingStatus status = jfrRecordingService.status();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.noContent().build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.pdfformfill.api;
 
+import com.pdfformfill.metrics.MergeMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -17,9 +18,16 @@ public class GlobalExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final MergeMetrics mergeMetrics;
+
+    public GlobalExceptionHandler(MergeMetrics mergeMetrics) {
+        this.mergeMetrics = mergeMetrics;
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleException(Exception e) {
         log.error("Unhandled exception for /api/pdf/merge", e);
+        mergeMetrics.recordError(e.getClass().getSimpleName(), HttpStatus.INTERNAL_SERVER_ERROR.value());
         String message = e.getClass().getSimpleName() + ": " + (e.getMessage() != null ? e.getMessage() : "(no message)");
         return ResponseEntity
                 .status(HttpStatus.INTERNAL_SERVER_ERROR)
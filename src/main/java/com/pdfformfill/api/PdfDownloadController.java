@@ -0,0 +1,158 @@
+package com.pdfformfill.api;
+
+import com.pdfformfill.service.PdfOutputStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 下载已保存的输出 PDF：支持 HTTP Range（断点续传 / 部分下载）、强 ETag 与 Cache-Control。
+ * 文件体优先交给 Tomcat sendfile 零拷贝发送；连接器不支持时退回 {@link FileChannel#transferTo}。
+ */
+@RestController
+@RequestMapping("/api/pdf")
+public class PdfDownloadController {
+
+    /** Tomcat NIO/NIO2 连接器的 sendfile 请求属性（与 DefaultServlet 使用的一致）。 */
+    static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final PdfOutputStore outputStore;
+
+    @Value("${pdf.download.cache-max-age-seconds:31536000}")
+    private long cacheMaxAgeSeconds = 31536000L;
+
+    public PdfDownloadController(PdfOutputStore outputStore) {
+        this.outputStore = outputStore;
+    }
+
+    @Operation(
+            summary = "下载已生成的 PDF",
+            description = "按 merge 返回的 downloadUrl 下载输出文件。支持 Range（单区间）、If-Range、If-None-Match；输出文件不可变，响应带强 ETag 与长期 Cache-Control。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "完整文件"),
+            @ApiResponse(responseCode = "206", description = "Range 指定的部分内容"),
+            @ApiResponse(responseCode = "304", description = "If-None-Match 命中，未修改"),
+            @ApiResponse(responseCode = "404", description = "文件不存在或文件名不合法"),
+            @ApiResponse(responseCode = "416", description = "Range 无法满足")
+    })
+    @RequestMapping(value = "/outputs/{filename:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void download(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Optional<Path> resolved = outputStore.resolve(filename);
+        if (resolved.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path file = resolved.get();
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attrs.size();
+        String etag = PdfOutputStore.etag(file, attrs);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, attrs.lastModifiedTime().toMillis());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + cacheMaxAgeSeconds + ", immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                // 语法无效的 Range 按 RFC 9110 §14.2 忽略，返回完整文件
+                ranges = List.of();
+            }
+            // 多区间（multipart/byteranges）对 PDF 下载意义不大，同样允许忽略 Range 返回完整文件
+            if (ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"");
+        response.setContentLengthLong(count);
+        if (RequestMethod.HEAD.name().equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // Tomcat 在 servlet 返回后用 sendfile 直接从页缓存发送，数据不经过 JVM 堆
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || c.equals(etag) || c.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** If-Range 缺省时 Range 生效；带值时只有与当前强 ETag 完全一致才生效（日期形式按不匹配处理）。 */
+    private static boolean ifRangeMatches(String ifRange, String etag) {
+        return ifRange == null || ifRange.trim().equals(etag);
+    }
+}
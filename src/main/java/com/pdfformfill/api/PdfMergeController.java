@@ -1,9 +1,17 @@
 package com.pdfformfill.api;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.pdfformfill.dto.MergeCheckResponse;
 import com.pdfformfill.dto.MergeResponse;
+import com.pdfformfill.engine.Deadline;
+import com.pdfformfill.metrics.MergeMetrics;
+import com.pdfformfill.pdf.PageSelection;
+import com.pdfformfill.service.MergeCheckService;
+import com.pdfformfill.service.MergeDeadlines;
 import com.pdfformfill.service.PdfFormFillService;
+import com.pdfformfill.service.TemplateStore;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -11,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,45 +35,156 @@ import java.io.IOException;
 public class PdfMergeController {
 
     private final PdfFormFillService pdfFormFillService;
+    private final MergeCheckService mergeCheckService;
+    private final TemplateStore templateStore;
+    private final MergeMetrics mergeMetrics;
+    private final MergeDeadlines mergeDeadlines;
 
-    public PdfMergeController(PdfFormFillService pdfFormFillService) {
+    public PdfMergeController(PdfFormFillService pdfFormFillService, MergeCheckService mergeCheckService,
+                              TemplateStore templateStore, MergeMetrics mergeMetrics, MergeDeadlines mergeDeadlines) {
         this.pdfFormFillService = pdfFormFillService;
+        this.mergeCheckService = mergeCheckService;
+        this.templateStore = templateStore;
+        this.mergeMetrics = mergeMetrics;
+        this.mergeDeadlines = mergeDeadlines;
     }
 
     @Operation(
             summary = "合并并保存填好的 PDF",
             description = "上传任意 PDF 模板与 issue-115 格式的字段定义 JSON，按定义生成 mock 数据并在 (x,y,width,height,page) 位置 overlay 绘制文本，保存到 pdf.output.dir，返回输出文件路径。"
+                    + "也可以用 templateId 指定模板库（POST /api/pdf/templates）中的模板代替上传，此时 definition 可省略，使用从 AcroForm 提取的定义草稿。"
+                    + "请求头 X-Request-Timeout（毫秒）或 pdf.merge.timeout-ms 给出截止时间：超过后在下一个检查点（阶段之间、页面与字段之间、文字适配循环中、保存的每个缓冲区）放弃并返回 503。"
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "保存成功，返回 outputPath"),
-            @ApiResponse(responseCode = "400", description = "请求参数无效（缺少文件或 definition 非合法 JSON）"),
-            @ApiResponse(responseCode = "500", description = "保存失败（如模板无效、目录无写权限）")
+            @ApiResponse(responseCode = "400", description = "请求参数无效（缺少文件、definition 非合法 JSON 或 X-Request-Timeout 不是正数）"),
+            @ApiResponse(responseCode = "404", description = "templateId 对应的模板不存在"),
+            @ApiResponse(responseCode = "500", description = "保存失败（如模板无效、目录无写权限）"),
+            @ApiResponse(responseCode = "503", description = "超过截止时间，merge 已放弃，不留输出文件")
     })
     @PostMapping(value = "/merge", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @SuppressWarnings("try")
     public ResponseEntity<?> merge(
-            @RequestParam("template") MultipartFile template,
-            @RequestParam("definition") MultipartFile definition
+            @RequestParam(value = "template", required = false) MultipartFile template,
+            @Parameter(description = "可选：模板库中的模板 id，代替上传 template")
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestParam(value = "definition", required = false) MultipartFile definition,
+            @Parameter(description = "可选：按 seed 生成随机 mock 记录（长度按字段类别分布），不传则用固定 mock 值")
+            @RequestParam(value = "seed", required = false) Long seed,
+            @Parameter(description = "可选：只输出部分页面。all（默认）| fields（字段所在页）| 页码范围如 1-3,7,10-；子集中的表单域总是被拍平")
+            @RequestParam(value = "pages", required = false) String pages,
+            @Parameter(description = "可选：合并输出份数。按 seed（默认 0）生成 records 条随机记录，各填一份模板并依次合并为一个 PDF（共享字体、图片等资源）")
+            @RequestParam(value = "records", required = false) Integer records,
+            @Parameter(description = "可选：截止时间（毫秒）；pdf.merge.timeout-ms 不为 0 时取两者较小者")
+            @RequestHeader(value = MergeDeadlines.TIMEOUT_HEADER, required = false) Long timeoutMillis
     ) {
-        if (template.isEmpty()) {
-            return ResponseEntity.badRequest().body(new ErrorBody("Missing or empty template file."));
+        ResponseEntity<?> invalid = validateInputs(template, templateId, definition);
+        if (invalid != null) {
+            return invalid;
         }
-        if (definition.isEmpty()) {
-            return ResponseEntity.badRequest().body(new ErrorBody("Missing or empty definition file."));
+        PageSelection pageSelection;
+        try {
+            pageSelection = PageSelection.parse(pages);
+        } catch (IllegalArgumentException e) {
+            mergeMetrics.recordError("InvalidPages", HttpStatus.BAD_REQUEST.value());
+            return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
         }
-
+        Deadline deadline;
         try {
-            MergeResponse result = pdfFormFillService.merge(template, definition);
+            deadline = mergeDeadlines.deadline(timeoutMillis);
+        } catch (IllegalArgumentException e) {
+            mergeMetrics.recordError("InvalidTimeout", HttpStatus.BAD_REQUEST.value());
+            return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
+        }
+
+        try (Deadline.Scope ignored = deadline.bind()) {
+            MergeResponse result = templateId != null
+                    ? pdfFormFillService.merge(templateId, definition, seed, pageSelection, records)
+                    : pdfFormFillService.merge(template, definition, seed, pageSelection, records);
             return ResponseEntity.ok(result);
+        } catch (Deadline.Cancelled e) {
+            mergeMetrics.recordError("DeadlineExceeded", HttpStatus.SERVICE_UNAVAILABLE.value());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ErrorBody("Merge cancelled: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            mergeMetrics.recordError("InvalidRequest", HttpStatus.BAD_REQUEST.value());
+            return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
         } catch (JsonProcessingException e) {
+            mergeMetrics.recordError("InvalidDefinition", HttpStatus.BAD_REQUEST.value());
             return ResponseEntity.badRequest()
                     .body(new ErrorBody("Invalid definition JSON: " + (e.getMessage() != null ? e.getMessage() : "parse error")));
         } catch (IOException e) {
+            mergeMetrics.recordError(e.getClass().getSimpleName(), HttpStatus.INTERNAL_SERVER_ERROR.value());
             String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new ErrorBody("Failed to generate or save PDF: " + message));
         }
     }
 
+    @Operation(
+            summary = "预检模板与字段定义（不生成 PDF）",
+            description = "只读取模板的页面树与页面尺寸，校验每个字段的名称、坐标、页码与矩形是否在页面内，并用与 merge 相同的 mock 数据计算文字适配，列出会被缩小或截断的字段。开销远小于 merge，适合编辑器在每次修改后调用。"
+                    + "与 merge 相同，可用 templateId 代替上传模板，页面布局直接读取模板库的 sidecar 索引。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "预检完成，issues 为空表示所有字段都能按定义绘制"),
+            @ApiResponse(responseCode = "400", description = "请求参数无效（缺少文件或 definition 非合法 JSON）"),
+            @ApiResponse(responseCode = "404", description = "templateId 对应的模板不存在"),
+            @ApiResponse(responseCode = "500", description = "模板无法解析")
+    })
+    @PostMapping(value = "/merge/check", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> check(
+            @RequestParam(value = "template", required = false) MultipartFile template,
+            @Parameter(description = "可选：模板库中的模板 id，代替上传 template")
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestParam(value = "definition", required = false) MultipartFile definition,
+            @Parameter(description = "可选：与 merge 相同，按 seed 生成用于文字适配检查的随机 mock 记录")
+            @RequestParam(value = "seed", required = false) Long seed
+    ) {
+        ResponseEntity<?> invalid = validateInputs(template, templateId, definition);
+        if (invalid != null) {
+            return invalid;
+        }
+        try {
+            MergeCheckResponse result = templateId != null
+                    ? mergeCheckService.check(templateId, definition, seed)
+                    : mergeCheckService.check(template, definition, seed);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            mergeMetrics.recordError("InvalidRequest", HttpStatus.BAD_REQUEST.value());
+            return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
+        } catch (JsonProcessingException e) {
+            mergeMetrics.recordError("InvalidDefinition", HttpStatus.BAD_REQUEST.value());
+            return ResponseEntity.badRequest()
+                    .body(new ErrorBody("Invalid definition JSON: " + (e.getMessage() != null ? e.getMessage() : "parse error")));
+        } catch (IOException e) {
+            mergeMetrics.recordError(e.getClass().getSimpleName(), HttpStatus.INTERNAL_SERVER_ERROR.value());
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorBody("Failed to read template: " + message));
+        }
+    }
+
+    /** 模板二选一：上传的 template 或模板库的 templateId；上传模板时 definition 必填。参数有效时返回 null。 */
+    private ResponseEntity<?> validateInputs(MultipartFile template, String templateId, MultipartFile definition) {
+        if (templateId != null) {
+            if (template != null) {
+                return ResponseEntity.badRequest().body(new ErrorBody("Send either template or templateId, not both."));
+            }
+            if (templateStore.resolve(templateId).isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorBody("Unknown template: " + templateId));
+            }
+            return null;
+        }
+        if (template == null || template.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Missing or empty template file."));
+        }
+        if (definition == null || definition.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Missing or empty definition file."));
+        }
+        return null;
+    }
+
     @Schema(description = "错误响应体")
     public record ErrorBody(String message) {}
 }
@@ -0,0 +1,106 @@
+package com.pdfformfill.api;
+
+import com.pdfformfill.api.PdfMergeController.ErrorBody;
+import com.pdfformfill.service.PdfOutputStore;
+import com.pdfformfill.service.PdfPreviewService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 页面预览：把已生成的输出 PDF 或上传的模板的某一页渲染为 PNG，前端无需下载整份 PDF 即可查看。
+ * 渲染结果按 (文档, 页码, dpi) 缓存，并预取后续页面（见 {@link PdfPreviewService}）。
+ */
+@RestController
+@RequestMapping("/api/pdf")
+public class PdfPreviewController {
+
+    private final PdfOutputStore outputStore;
+    private final PdfPreviewService previewService;
+
+    @Value("${pdf.download.cache-max-age-seconds:31536000}")
+    private long cacheMaxAgeSeconds = 31536000L;
+
+    public PdfPreviewController(PdfOutputStore outputStore, PdfPreviewService previewService) {
+        this.outputStore = outputStore;
+        this.previewService = previewService;
+    }
+
+    @Operation(
+            summary = "预览输出 PDF 的某一页",
+            description = "把 merge 生成的输出文件的第 page 页（1 起始）渲染为 PNG。输出文件不可变，响应带长期 Cache-Control。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "PNG 图片"),
+            @ApiResponse(responseCode = "400", description = "页码超出范围或 dpi 不合法"),
+            @ApiResponse(responseCode = "404", description = "文件不存在或文件名不合法")
+    })
+    @GetMapping("/outputs/{filename}/pages/{page}")
+    public ResponseEntity<?> outputPage(
+            @PathVariable String filename,
+            @PathVariable int page,
+            @Parameter(description = "可选：渲染分辨率，默认 pdf.preview.default-dpi")
+            @RequestParam(value = "dpi", required = false) Integer dpi
+    ) throws IOException {
+        Optional<Path> file = outputStore.resolve(filename);
+        if (file.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            byte[] png = previewService.outputPage(file.get(), page, dpi != null ? dpi : previewService.defaultDpi());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_PNG)
+                    .cacheControl(CacheControl.maxAge(Duration.ofSeconds(cacheMaxAgeSeconds)).cachePublic().immutable())
+                    .body(png);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
+        }
+    }
+
+    @Operation(
+            summary = "预览模板的某一页",
+            description = "把上传的 PDF 模板的第 page 页（1 起始，默认 1）渲染为 PNG；相同内容的模板按 SHA-256 命中缓存。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "PNG 图片"),
+            @ApiResponse(responseCode = "400", description = "缺少模板、页码超出范围或 dpi 不合法"),
+            @ApiResponse(responseCode = "500", description = "模板无法解析或渲染")
+    })
+    @PostMapping(value = "/preview", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> templatePage(
+            @RequestParam("template") MultipartFile template,
+            @RequestParam(value = "page", defaultValue = "1") int page,
+            @Parameter(description = "可选：渲染分辨率，默认 pdf.preview.default-dpi")
+            @RequestParam(value = "dpi", required = false) Integer dpi
+    ) {
+        if (template.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Missing or empty template file."));
+        }
+        try {
+            byte[] png = previewService.templatePage(template.getBytes(), page, dpi != null ? dpi : previewService.defaultDpi());
+            return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(png);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
+        } catch (IOException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return ResponseEntity.internalServerError().body(new ErrorBody("Failed to render preview: " + message));
+        }
+    }
+}
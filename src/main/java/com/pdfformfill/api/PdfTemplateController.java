@@ -0,0 +1,79 @@
+package com.pdfformfill.api;
+
+import com.pdfformfill.api.PdfMergeController.ErrorBody;
+import com.pdfformfill.dto.TemplateResponse;
+import com.pdfformfill.pdf.TemplateIndex;
+import com.pdfformfill.service.TemplateStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * 模板库：上传模板后按内容 SHA-256 保存并建立 sidecar 索引（页面尺寸与从 AcroForm 提取的字段定义草稿），
+ * 之后 merge / 预检用 templateId 引用，不必每次上传模板、也不再遍历 PDF 对象树（见 {@link TemplateStore}）。
+ */
+@RestController
+@RequestMapping("/api/pdf")
+public class PdfTemplateController {
+
+    private final TemplateStore templateStore;
+
+    public PdfTemplateController(TemplateStore templateStore) {
+        this.templateStore = templateStore;
+    }
+
+    @Operation(
+            summary = "上传模板到模板库",
+            description = "保存模板并遍历一次 AcroForm 与页面树，生成字段定义草稿（名称、类型、页码、左上角坐标系下的矩形）与页面尺寸，"
+                    + "作为 sidecar 索引保存在模板旁边。相同内容的模板只保存一次，返回相同的 templateId。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "已保存，返回 templateId 与草稿字段数"),
+            @ApiResponse(responseCode = "400", description = "缺少模板文件"),
+            @ApiResponse(responseCode = "500", description = "模板无法解析或保存失败")
+    })
+    @PostMapping(value = "/templates", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> upload(@RequestParam("template") MultipartFile template) {
+        if (template.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Missing or empty template file."));
+        }
+        try {
+            TemplateIndex index = templateStore.put(template.getBytes());
+            return ResponseEntity.ok(TemplateResponse.ok(index.sha256(), index.pages().size(), index.fields().size()));
+        } catch (IOException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorBody("Failed to store template: " + message));
+        }
+    }
+
+    @Operation(
+            summary = "下载模板的字段定义草稿",
+            description = "从 sidecar 索引读取从 AcroForm 提取的字段定义（坐标为 pt，不带 scale），可编辑后作为 merge 的 definition 上传。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "字段定义 JSON"),
+            @ApiResponse(responseCode = "404", description = "模板不存在")
+    })
+    @GetMapping(value = "/templates/{templateId}/definition", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> definition(@PathVariable String templateId) throws IOException {
+        Optional<TemplateIndex> index = templateStore.index(templateId);
+        if (index.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorBody("Unknown template: " + templateId));
+        }
+        return ResponseEntity.ok(index.get().definition());
+    }
+}
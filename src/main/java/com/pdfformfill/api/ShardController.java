@@ -0,0 +1,79 @@
+package com.pdfformfill.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.pdfformfill.api.PdfMergeController.ErrorBody;
+import com.pdfformfill.service.ShardFillService;
+import com.pdfformfill.service.TemplateStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 分片填表：分片协调器（{@code java -jar app.jar coordinate ...}）把一个大批次切成分片后逐个发到这里，
+ * 本实例填完分片中的每条记录再返回各条的下载地址。
+ */
+@RestController
+@RequestMapping("/api/pdf")
+public class ShardController {
+
+    private final ShardFillService shardFillService;
+    private final TemplateStore templateStore;
+
+    public ShardController(ShardFillService shardFillService, TemplateStore templateStore) {
+        this.shardFillService = shardFillService;
+        this.templateStore = templateStore;
+    }
+
+    @Operation(
+            summary = "填一个分片",
+            description = "模板须先上传到模板库（POST /api/pdf/templates）。记录来自 records 文件（JSON Lines、JSON 数组或对象），"
+                    + "或按 seed 生成第 first 条起的 count 条 mock 记录。每条记录输出一个 PDF，返回各条的下载地址、页数或错误；"
+                    + "单条失败不影响其余记录。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "分片已处理，返回每条记录的结果"),
+            @ApiResponse(responseCode = "400", description = "请求参数无效（缺少记录来源、记录超过 pdf.shard.max-records 条、定义或记录不是合法 JSON、布局检查拒绝）"),
+            @ApiResponse(responseCode = "404", description = "templateId 对应的模板不存在")
+    })
+    @PostMapping(value = "/shards", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> fill(
+            @Parameter(description = "模板库中的模板 id")
+            @RequestParam("templateId") String templateId,
+            @Parameter(description = "可选：定义 JSON；省略时使用从 AcroForm 提取的定义草稿")
+            @RequestParam(value = "definition", required = false) MultipartFile definition,
+            @Parameter(description = "记录文件：JSON Lines、JSON 数组或单个对象")
+            @RequestParam(value = "records", required = false) MultipartFile records,
+            @Parameter(description = "不传 records 时：第一条 mock 记录的序号（从 0 起）")
+            @RequestParam(value = "first", required = false, defaultValue = "0") long first,
+            @Parameter(description = "不传 records 时：生成的 mock 记录条数")
+            @RequestParam(value = "count", required = false) Integer count,
+            @Parameter(description = "mock 记录的 seed（默认 0），同一 seed 结果相同")
+            @RequestParam(value = "seed", required = false, defaultValue = "0") long seed,
+            @Parameter(description = "可选：分片名，仅用于日志与响应")
+            @RequestParam(value = "shard", required = false) String shard
+    ) throws IOException {
+        if (templateStore.resolve(templateId).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorBody("Unknown template: " + templateId));
+        }
+        byte[] definitionBytes = definition != null && !definition.isEmpty() ? definition.getBytes() : null;
+        try (InputStream in = records != null ? records.getInputStream() : null) {
+            return ResponseEntity.ok(shardFillService.fill(shard, templateId, definitionBytes, in, first, count, seed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Invalid JSON: " + e.getOriginalMessage()));
+        }
+    }
+}
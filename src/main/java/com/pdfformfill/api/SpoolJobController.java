@@ -0,0 +1,143 @@
+package com.pdfformfill.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.api.PdfMergeController.ErrorBody;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.dto.SpoolJobStatus;
+import com.pdfformfill.pdf.TemplateIndex;
+import com.pdfformfill.service.SpoolQueue;
+import com.pdfformfill.service.TemplateStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * 批量任务：提交到共享 spool 目录（见 {@link SpoolQueue}），由挂载同一目录的所有实例分片领取并填表，
+ * 接收请求的实例立即返回任务 id，状态可在任一实例查询。需开启 pdf.spool.enabled。
+ */
+@RestController
+@RequestMapping("/api/pdf")
+@ConditionalOnProperty(name = "pdf.spool.enabled", havingValue = "true")
+public class SpoolJobController {
+
+    private final SpoolQueue spoolQueue;
+    private final TemplateStore templateStore;
+    private final ObjectMapper objectMapper;
+
+    public SpoolJobController(SpoolQueue spoolQueue, TemplateStore templateStore, ObjectMapper objectMapper) {
+        this.spoolQueue = spoolQueue;
+        this.templateStore = templateStore;
+        this.objectMapper = objectMapper;
+    }
+
+    @Operation(
+            summary = "提交批量填表任务",
+            description = "模板（上传或 templateId）与定义写入共享 spool 目录，记录按 pdf.spool.chunk-records 条切成分片，"
+                    + "各实例领取分片并行填表，每条记录输出一个 record-<n>.pdf。记录来自 records 文件（JSON Lines、JSON 数组或对象，字段名 → 值），"
+                    + "或按 seed 生成 count 条 mock 记录（二选一）。用 templateId 时 definition 可省略，使用从 AcroForm 提取的定义草稿。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "已排队，返回任务状态与 statusUrl"),
+            @ApiResponse(responseCode = "400", description = "请求参数无效（缺少模板、definition 或记录来源，记录超过 pdf.spool.max-records 条，或记录文件不是合法 JSON）"),
+            @ApiResponse(responseCode = "404", description = "templateId 对应的模板不存在")
+    })
+    @PostMapping(value = "/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> submit(
+            @RequestParam(value = "template", required = false) MultipartFile template,
+            @Parameter(description = "可选：模板库中的模板 id，代替上传 template")
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestParam(value = "definition", required = false) MultipartFile definition,
+            @Parameter(description = "记录文件：JSON Lines、JSON 数组或单个对象")
+            @RequestParam(value = "records", required = false) MultipartFile records,
+            @Parameter(description = "不传 records 时：生成的 mock 记录条数")
+            @RequestParam(value = "count", required = false) Long count,
+            @Parameter(description = "mock 记录的 seed（默认 0），同一 seed 结果相同")
+            @RequestParam(value = "seed", required = false) Long seed
+    ) throws IOException {
+        if ((records != null) == (count != null)) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Send either records or count."));
+        }
+        byte[] templateBytes;
+        TemplateIndex index = null;
+        if (templateId != null) {
+            if (template != null) {
+                return ResponseEntity.badRequest().body(new ErrorBody("Send either template or templateId, not both."));
+            }
+            Optional<Path> file = templateStore.resolve(templateId);
+            if (file.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorBody("Unknown template: " + templateId));
+            }
+            templateBytes = Files.readAllBytes(file.get());
+            index = templateStore.index(templateId).orElse(null);
+        } else if (template == null || template.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Missing or empty template file."));
+        } else {
+            templateBytes = template.getBytes();
+        }
+
+        FieldsDefinition fieldsDefinition;
+        try {
+            if (definition != null && !definition.isEmpty()) {
+                fieldsDefinition = objectMapper.readValue(definition.getBytes(), FieldsDefinition.class);
+            } else if (index != null) {
+                fieldsDefinition = index.definition();
+            } else {
+                return ResponseEntity.badRequest().body(new ErrorBody("Missing or empty definition file."));
+            }
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Invalid definition JSON: " + e.getOriginalMessage()));
+        }
+
+        SpoolQueue.Job job;
+        try {
+            if (records != null) {
+                try (InputStream in = records.getInputStream()) {
+                    job = spoolQueue.submit(templateBytes, fieldsDefinition, in);
+                }
+            } else {
+                job = spoolQueue.submit(templateBytes, fieldsDefinition, count, seed != null ? seed : 0L);
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(new ErrorBody("Invalid records JSON: " + e.getOriginalMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(spoolQueue.status(job.id()).orElseThrow());
+    }
+
+    @Operation(
+            summary = "查询批量任务状态",
+            description = "汇总各分片的进度：已完成分片的输出份数、失败数与页数，正在处理的分片及其实例。任一实例返回的结果相同。"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "任务状态"),
+            @ApiResponse(responseCode = "404", description = "任务不存在")
+    })
+    @GetMapping(value = "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> status(@PathVariable String jobId) throws IOException {
+        Optional<SpoolJobStatus> status = spoolQueue.status(jobId);
+        if (status.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorBody("Unknown job: " + jobId));
+        }
+        return ResponseEntity.ok(status.get());
+    }
+}
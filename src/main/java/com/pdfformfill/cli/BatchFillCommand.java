@@ -0,0 +1,353 @@
+package com.pdfformfill.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.PdfFormFillApplication;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.metrics.MergeMetrics;
+import com.pdfformfill.metrics.MergeStage;
+import com.pdfformfill.service.MockRecordGenerator;
+import com.pdfformfill.service.PdfFormFillService;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless batch mode: fills a template once per record with the same engine as {@code POST /api/pdf/merge}
+ * (layout guard, flatten, overlay fonts and fit cache), but without the web server, HTTP, multipart or JSON
+ * responses. The template is parsed, checked and flattened once; each record then loads the flattened bytes,
+ * draws and saves into the output directory (through a temporary file that is forced and renamed). Records are spread over a work-stealing pool sized to the
+ * cores, with a bounded number in flight so a large records file streams through in constant memory.
+ * <p>
+ * Usage ({@code java -jar pdf-form-fill.jar batch ...} or {@code ./gradlew batchFill -PbatchArgs="..."}):
+ * <pre>
+ *   --template form.pdf        template PDF
+ *   --definition form.json     field definition (same format as merge)
+ *   --records r.jsonl          records (field name to value): JSON Lines, a JSON array or object, or a directory
+ *                              of such files; see {@link BatchRecords} for output names
+ *   --count 1000 --seed 0      without --records: generated mock records (as merge?seed=), named record-&lt;n&gt;
+ *   --out batch-out            output directory, created if missing
+ *   --threads 8                worker threads (default: available processors)
+ *   --journal dir              progress journal (default: &lt;out&gt;/.journal; "off" to disable), see below
+ *   --pdf.fonts.default=...    any --key=value is passed to Spring as a property
+ * </pre>
+ * Progress is journaled ({@link BatchJournal}): rerunning the same command after the run was killed, or after
+ * some records failed, fills only the records that are not written yet; a journaled record whose output file
+ * is missing is filled again. The journal is deleted once every record has been written.
+ * <p>
+ * Exit status: 0 when every record was written, 1 when some records failed, 2 for invalid arguments.
+ */
+public final class BatchFillCommand {
+
+    /** First program argument that selects batch mode in {@link PdfFormFillApplication#main}. */
+    public static final String COMMAND = "batch";
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final long JOURNAL_SYNC_MILLIS = 1000;
+
+    /**
+     * Parsed command-line options; records is null when generating count mock records, journal is null when
+     * progress is not journaled.
+     */
+    record Options(Path template, Path definition, Path records, long count, long seed, Path out, int threads,
+                   Path journal) {
+
+        static Options parse(Map<String, String> opts) {
+            if (!opts.containsKey("template") || !opts.containsKey("definition")) {
+                throw new IllegalArgumentException("--template and --definition are required");
+            }
+            if (opts.containsKey("records") == opts.containsKey("count")) {
+                throw new IllegalArgumentException("Give either --records or --count");
+            }
+            long count = Long.parseLong(opts.getOrDefault("count", "0"));
+            int threads = Integer.parseInt(opts.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            if (threads < 1 || (!opts.containsKey("records") && count < 1)) {
+                throw new IllegalArgumentException("--threads and --count must be positive");
+            }
+            Path out = Paths.get(opts.getOrDefault("out", "batch-out"));
+            String journal = opts.getOrDefault("journal", out.resolve(".journal").toString());
+            return new Options(Paths.get(opts.get("template")), Paths.get(opts.get("definition")),
+                    opts.containsKey("records") ? Paths.get(opts.get("records")) : null, count,
+                    Long.parseLong(opts.getOrDefault("seed", "0")), out, threads,
+                    "off".equals(journal) ? null : Paths.get(journal));
+        }
+    }
+
+    /** Outcome of a run; resumed counts the records an earlier run had already written. */
+    record Result(long records, long failed, long pages, long elapsedNanos, long resumed) {}
+
+    private final PdfFormFillService service;
+    private final MockRecordGenerator mockRecordGenerator;
+    private final MergeMetrics mergeMetrics;
+    private final ObjectMapper objectMapper;
+    private final PrintStream out;
+
+    BatchFillCommand(PdfFormFillService service, MockRecordGenerator mockRecordGenerator, MergeMetrics mergeMetrics,
+                     ObjectMapper objectMapper, PrintStream out) {
+        this.service = service;
+        this.mockRecordGenerator = mockRecordGenerator;
+        this.mergeMetrics = mergeMetrics;
+        this.objectMapper = objectMapper;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /** Runs a batch and returns the exit status. */
+    public static int run(String[] args) {
+        Options options;
+        List<String> springArgs = new ArrayList<>();
+        try {
+            options = Options.parse(parseArgs(args, springArgs));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: batch --template form.pdf --definition form.json (--records r.jsonl | --count N"
+                    + " [--seed S]) [--out dir] [--threads N] [--journal dir|off] [--spring.property=value ...]");
+            return 2;
+        }
+        if (springArgs.stream().noneMatch(a -> a.startsWith("--logging.level.root="))) {
+            springArgs.add("--logging.level.root=WARN");
+        }
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PdfFormFillApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(springArgs.toArray(String[]::new))) {
+            BatchFillCommand command = new BatchFillCommand(context.getBean(PdfFormFillService.class),
+                    context.getBean(MockRecordGenerator.class), context.getBean(MergeMetrics.class),
+                    context.getBean(ObjectMapper.class), System.out);
+            Result result = command.execute(options);
+            return result.failed() > 0 ? 1 : 0;
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    Result execute(Options options) throws IOException, InterruptedException {
+        byte[] template = Files.readAllBytes(options.template());
+        FieldsDefinition definition = objectMapper.readValue(options.definition().toFile(), FieldsDefinition.class);
+        Files.createDirectories(options.out());
+
+        long start = System.nanoTime();
+        PdfFormFillService.BatchFill batch = service.batch(template, definition);
+        long prepareNanos = System.nanoTime() - start;
+        out.printf(Locale.ROOT, "Template %s: %d pages, prepared in %d ms; filling with %d threads into %s%n",
+                options.template().getFileName(), batch.templatePages(), TimeUnit.NANOSECONDS.toMillis(prepareNanos),
+                options.threads(), options.out());
+
+        BatchJournal journal = options.journal() != null
+                ? BatchJournal.open(options.journal(), options.out(), journalKey(options, template),
+                        BatchJournal.DEFAULT_SEGMENT_BYTES, JOURNAL_SYNC_MILLIS)
+                : null;
+        if (journal != null && journal.writtenRecords() > 0) {
+            out.printf(Locale.ROOT, "Resuming from journal %s: %d records (%d pages) already written%n",
+                    options.journal(), journal.writtenRecords(), journal.writtenPages());
+        }
+
+        ExecutorService pool = Executors.newWorkStealingPool(options.threads());
+        // Bound the records in flight so the reader never runs far ahead of the workers
+        Semaphore inFlight = new Semaphore(options.threads() * 4);
+        LongAdder done = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LongAdder pages = new LongAdder();
+        LatencyHistogram latencies = new LatencyHistogram();
+        long resumed = 0;
+        long nextProgress = System.nanoTime() + PROGRESS_INTERVAL_NANOS;
+        try (BatchJournal progress = journal) {
+            try (BatchRecords files = options.records() != null ? BatchRecords.open(options.records(), objectMapper) : null) {
+                Iterator<BatchRecords.Entry> records = files != null ? files : mockRecords(definition, options);
+                for (long next = 0; records.hasNext(); next++) {
+                    BatchRecords.Entry record = records.next();
+                    long index = next;
+                    if (progress != null && progress.written(index)
+                            && Files.exists(options.out().resolve(record.name() + ".pdf"))) {
+                        resumed++;
+                        continue;
+                    }
+                    inFlight.acquire();
+                    pool.execute(() -> {
+                        long t0 = System.nanoTime();
+                        try {
+                            String output = record.name() + ".pdf";
+                            int recordPages = fill(batch, record.data(), options.out().resolve(output));
+                            if (progress != null) {
+                                progress.record(index, recordPages, output);
+                            }
+                            pages.add(recordPages);
+                            latencies.record(System.nanoTime() - t0);
+                            done.increment();
+                        } catch (IOException | RuntimeException e) {
+                            failed.increment();
+                            System.err.println("Record " + record.name() + " failed: " + e.getMessage());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    long now = System.nanoTime();
+                    if (now >= nextProgress) {
+                        out.printf(Locale.ROOT, "  %d records written, %.1f records/s%n", done.sum(),
+                                done.sum() / ((now - start) / 1e9));
+                        nextProgress = now + PROGRESS_INTERVAL_NANOS;
+                    }
+                }
+            } finally {
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            if (progress != null) {
+                if (failed.sum() == 0) {
+                    progress.delete();
+                } else {
+                    out.printf(Locale.ROOT, "Journal kept in %s: rerun the same command to retry the %d failed records%n",
+                            options.journal(), failed.sum());
+                }
+            }
+        }
+
+        Result result = new Result(done.sum() + failed.sum(), failed.sum(), pages.sum(), System.nanoTime() - start,
+                resumed);
+        printSummary(result, latencies, options.threads());
+        return result;
+    }
+
+    /**
+     * Fills into a temporary file next to output, forces it to disk and renames it into place, so the journal
+     * only ever records complete, durable outputs and a killed run leaves no truncated PDF under a record's name.
+     */
+    private static int fill(PdfFormFillService.BatchFill batch, Map<String, Object> record, Path output)
+            throws IOException {
+        Path tmp = output.resolveSibling("." + output.getFileName() + ".tmp");
+        try {
+            int recordPages = batch.fill(record, tmp);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return recordPages;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Identifies a batch for its journal: the template and definition content, the record source (path and
+     * modification time, or count and seed) and the output directory. A changed input starts a new journal.
+     */
+    static String journalKey(Options options, byte[] template) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        sha256.update(template);
+        sha256.update(Files.readAllBytes(options.definition()));
+        String source = options.records() != null
+                ? options.records().toAbsolutePath() + "@" + Files.getLastModifiedTime(options.records()).toMillis()
+                : "mock:" + options.count() + ":" + options.seed();
+        sha256.update((source + "|" + options.out().toAbsolutePath()).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    private Iterator<BatchRecords.Entry> mockRecords(FieldsDefinition definition, Options options) {
+        MockRecordGenerator.RecordSource source = mockRecordGenerator.source(definition, options.seed());
+        int width = String.valueOf(options.count()).length();
+        return new Iterator<>() {
+            private long index;
+
+            @Override
+            public boolean hasNext() {
+                return index < options.count();
+            }
+
+            @Override
+            public BatchRecords.Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long i = index++;
+                return new BatchRecords.Entry(String.format(Locale.ROOT, "record-%0" + width + "d", i + 1), source.record(i));
+            }
+        };
+    }
+
+    private void printSummary(Result result, LatencyHistogram latencies, int threads) {
+        double seconds = result.elapsedNanos() / 1e9;
+        out.printf(Locale.ROOT, "Filled %d records (%d failed), %d pages in %.2f s: %.1f records/s, %.1f pages/s%s%n",
+                result.records() - result.failed(), result.failed(), result.pages(), seconds,
+                (result.records() - result.failed()) / seconds, result.pages() / seconds,
+                result.resumed() > 0 ? "; " + result.resumed() + " written by an earlier run" : "");
+        if (latencies.count() > 0) {
+            out.printf(Locale.ROOT, "Per record (ms): p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                    latencies.percentileNanos(0.50) / 1e6, latencies.percentileNanos(0.90) / 1e6,
+                    latencies.percentileNanos(0.99) / 1e6, latencies.maxNanos() / 1e6);
+        }
+        Map<String, String> stages = new LinkedHashMap<>();
+        for (MergeStage stage : List.of(MergeStage.LOAD, MergeStage.RENDER, MergeStage.SAVE)) {
+            double stageSeconds = mergeMetrics.stageTotalTime(stage, TimeUnit.NANOSECONDS) / 1e9;
+            stages.put(stage.tag(), String.format(Locale.ROOT, "%.1f%%", 100 * stageSeconds / (seconds * threads)));
+        }
+        out.println("Worker time by stage: " + stages);
+    }
+
+    /** {@code --key value} pairs and flags go to the returned map; {@code --key=value} goes to springArgs. */
+    static Map<String, String> parseArgs(String[] args, List<String> springArgs) {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i] + " (in " + Arrays.toString(args) + ")");
+            }
+            if (args[i].contains("=")) {
+                springArgs.add(args[i]);
+                continue;
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                opts.put(key, args[++i]);
+            } else {
+                opts.put(key, "true");
+            }
+        }
+        return opts;
+    }
+}
@@ -0,0 +1,312 @@
+package com.pdfformfill.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe progress of one batch run, so a run that was killed resumes where it stopped instead of filling
+ * every record again.
+ * <p>
+ * The journal is an append-only log of memory-mapped segments ({@code segment-<n>.log}). A segment opens with
+ * the batch's key (a digest of the template, definition, record source and output directory), followed by one
+ * entry per written record: its index, page count and output file. Appending is a copy into the mapped buffer
+ * under a lock; a daemon thread forces dirty pages to disk every sync interval, so the fsync cost is shared by
+ * all records written in that interval. A killed process loses nothing, since the mapped pages are already in
+ * the page cache; a machine crash loses at most the last interval, whose records are simply filled again.
+ * Callers force each output to disk before journaling it, and a replayed entry whose output file is missing
+ * counts as not written, so the journal never claims an output the disk does not hold.
+ * <p>
+ * When a segment is full the next one starts with a checkpoint: the written records as ranges of indices and
+ * the page total. Older segments are then deleted, so the journal stays about one segment long however many
+ * records the batch has. Opening compacts the same way. Entries carry a CRC, and replay stops at the first torn
+ * or zeroed entry. A journal whose key differs from the batch being started is discarded.
+ */
+final class BatchJournal implements Closeable {
+
+    /** Default segment size; a record entry takes about 40 bytes plus its output name. */
+    static final int DEFAULT_SEGMENT_BYTES = 8 << 20;
+
+    private static final byte BATCH = 1;
+    private static final byte RECORD = 2;
+    private static final byte CHECKPOINT = 3;
+    private static final byte RANGE = 4;
+
+    /** length (int) + crc (int) + type (byte) */
+    private static final int HEADER_BYTES = 9;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final Path outputs;
+    private final String key;
+    private final int segmentBytes;
+    private final BitSet written = new BitSet();
+    private final ScheduledExecutorService syncer;
+
+    private long pages;
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private boolean dirty;
+
+    private BatchJournal(Path dir, Path outputs, String key, int segmentBytes, long syncIntervalMillis) {
+        this.dir = dir;
+        this.outputs = outputs;
+        this.key = key;
+        this.segmentBytes = segmentBytes;
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pdf-batch-journal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the journal in dir for the batch identified by key, replaying the records it already wrote.
+     * The journal is compacted into a fresh segment before any new entry is appended.
+     */
+    static BatchJournal open(Path dir, String key, int segmentBytes, long syncIntervalMillis) throws IOException {
+        return open(dir, null, key, segmentBytes, syncIntervalMillis);
+    }
+
+    /**
+     * Same, and a replayed record whose output file is no longer in outputs (deleted, or its rename lost in a
+     * crash) is not counted as written, so it is filled again.
+     */
+    static BatchJournal open(Path dir, Path outputs, String key, int segmentBytes, long syncIntervalMillis)
+            throws IOException {
+        Files.createDirectories(dir);
+        BatchJournal journal = new BatchJournal(dir, outputs, key, segmentBytes, syncIntervalMillis);
+        try {
+            List<Path> segments = segments(dir);
+            for (Path segment : segments) {
+                if (!journal.replay(segment)) {
+                    journal.written.clear();
+                    journal.pages = 0;
+                    break;
+                }
+            }
+            long last = segments.isEmpty() ? 0 : number(segments.get(segments.size() - 1));
+            journal.startSegment(last + 1, segments);
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /** Whether the record at index was written by an earlier (or this) run. */
+    synchronized boolean written(long index) {
+        return written.get(Math.toIntExact(index));
+    }
+
+    synchronized long writtenRecords() {
+        return written.cardinality();
+    }
+
+    synchronized long writtenPages() {
+        return pages;
+    }
+
+    /** Records that the record at index was written to output with the given page count. */
+    synchronized void record(long index, int recordPages, String output) throws IOException {
+        byte[] name = output.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(8 + 4 + 2 + name.length)
+                .putLong(index).putInt(recordPages).putShort((short) name.length).put(name);
+        append(RECORD, entry.array());
+        if (!written.get(Math.toIntExact(index))) {
+            written.set(Math.toIntExact(index));
+            pages += recordPages;
+        }
+    }
+
+    /** Deletes the journal once every record is written; a later run with the same key starts from scratch. */
+    void delete() throws IOException {
+        close();
+        for (Path segment : segments(dir)) {
+            Files.deleteIfExists(segment);
+        }
+        try (Stream<Path> rest = Files.list(dir)) {
+            if (rest.findAny().isEmpty()) {
+                Files.delete(dir);
+            }
+        }
+    }
+
+    /** Forces outstanding entries to disk and stops the sync thread. */
+    @Override
+    public void close() throws IOException {
+        syncer.shutdownNow();
+        synchronized (this) {
+            if (channel != null) {
+                buffer.force();
+                channel.close();
+                channel = null;
+                buffer = null;
+            }
+        }
+    }
+
+    /** Reads one segment into the in-memory state; returns false when it belongs to another batch. */
+    private boolean replay(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            CRC32 crc = new CRC32();
+            boolean first = true;
+            while (data.remaining() >= HEADER_BYTES) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining() - 1) {
+                    break;
+                }
+                ByteBuffer entry = data.slice(data.position(), length + 1);
+                crc.reset();
+                crc.update(entry.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                data.position(data.position() + length + 1);
+                byte type = entry.get();
+                try {
+                    if (first) {
+                        if (type != BATCH || !key.equals(string(entry, entry.remaining()))) {
+                            return false;
+                        }
+                        first = false;
+                        continue;
+                    }
+                    apply(type, entry);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    break;
+                }
+            }
+            return true;
+        }
+    }
+
+    private void apply(byte type, ByteBuffer entry) {
+        switch (type) {
+            case RECORD -> {
+                int index = Math.toIntExact(entry.getLong());
+                int recordPages = entry.getInt();
+                String output = string(entry, entry.getShort());
+                if (outputs != null && !Files.exists(outputs.resolve(output))) {
+                    return;
+                }
+                if (!written.get(index)) {
+                    written.set(index);
+                    pages += recordPages;
+                }
+            }
+            case CHECKPOINT -> pages = entry.getLong();
+            case RANGE -> written.set(Math.toIntExact(entry.getLong()), Math.toIntExact(entry.getLong()));
+            default -> throw new IllegalArgumentException("Unknown journal entry " + type);
+        }
+    }
+
+    /**
+     * Maps a new segment, writes the batch key and a checkpoint of everything written so far, forces it, and
+     * only then deletes the segments it replaces.
+     */
+    private void startSegment(long number, List<Path> replaced) throws IOException {
+        long ranges = 0;
+        for (int from = written.nextSetBit(0); from >= 0; from = written.nextSetBit(written.nextClearBit(from))) {
+            ranges++;
+        }
+        if ((ranges + 2) * (HEADER_BYTES + 16) + key.length() * 4L > segmentBytes / 2) {
+            throw new IOException("Journal checkpoint of " + ranges + " ranges does not fit half a segment of "
+                    + segmentBytes + " bytes");
+        }
+        Path path = dir.resolve(String.format(Locale.ROOT, "%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        FileChannel next = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileChannel previous = channel;
+        MappedByteBuffer previousBuffer = buffer;
+        channel = next;
+        buffer = next.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment = number;
+        append(BATCH, key.getBytes(StandardCharsets.UTF_8));
+        append(CHECKPOINT, ByteBuffer.allocate(8).putLong(pages).array());
+        for (int from = written.nextSetBit(0); from >= 0; ) {
+            int to = written.nextClearBit(from);
+            append(RANGE, ByteBuffer.allocate(16).putLong(from).putLong(to).array());
+            from = written.nextSetBit(to);
+        }
+        buffer.force();
+        dirty = false;
+        if (previous != null) {
+            previousBuffer.force();
+            previous.close();
+        }
+        for (Path old : replaced) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    private void append(byte type, byte[] payload) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES + payload.length) {
+            if (buffer.position() == 0 || payload.length + HEADER_BYTES > segmentBytes / 2) {
+                throw new IOException("Journal entry of " + payload.length + " bytes does not fit a segment");
+            }
+            List<Path> replaced = new ArrayList<>(segments(dir));
+            replaced.removeIf(p -> number(p) > segment);
+            startSegment(segment + 1, replaced);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(type).put(payload);
+        dirty = true;
+    }
+
+    /** Batched fsync: one force per interval covers every record appended in it. */
+    private void sync() {
+        MappedByteBuffer toForce;
+        synchronized (this) {
+            if (!dirty || buffer == null) {
+                return;
+            }
+            dirty = false;
+            toForce = buffer;
+        }
+        toForce.force();
+    }
+
+    private static String string(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static long number(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,163 @@
+package com.pdfformfill.cli;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Records for a batch run (field name to value, as in the definition), read lazily so a large records file is
+ * never held in memory.
+ * <p>
+ * A file holds JSON objects as JSON Lines, a JSON array or a single object. A directory is read file by file
+ * ({@code *.json}, {@code *.jsonl}, {@code *.ndjson}, sorted by name). Each record is named after its file:
+ * {@code <file>} when the file holds exactly one record, otherwise {@code <file>-<n>} with n counted from 1.
+ * A directory whose files could map two records to the same name (same name without the extension, or one file
+ * named like a numbered record of another) is rejected up front, so no output silently overwrites another.
+ */
+final class BatchRecords implements Iterator<BatchRecords.Entry>, Closeable {
+
+    /** One record and the base name of its output file. */
+    record Entry(String name, Map<String, Object> data) {}
+
+    /** A base name that record n of another file would also get: {@code <base>-<n>}. */
+    private static final Pattern NUMBERED = Pattern.compile("(.+)-[1-9][0-9]*");
+
+    private final ObjectReader reader;
+    private final Iterator<Path> files;
+    private MappingIterator<Map<String, Object>> current;
+    private Path currentFile;
+    private String currentBase;
+    private int currentIndex;
+    private Entry next;
+
+    private BatchRecords(ObjectReader reader, List<Path> files) {
+        this.reader = reader;
+        this.files = files.iterator();
+    }
+
+    static BatchRecords open(Path path, ObjectMapper mapper) throws IOException {
+        List<Path> files;
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> list = Files.list(path)) {
+                files = list.filter(Files::isRegularFile).filter(BatchRecords::isRecordFile).sorted().toList();
+            }
+            checkNames(files);
+        } else if (Files.isRegularFile(path)) {
+            files = List.of(path);
+        } else {
+            throw new IOException("Records not found: " + path);
+        }
+        return new BatchRecords(mapper.readerFor(new TypeReference<Map<String, Object>>() {}), files);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Invalid records in " + currentFile + ": " + e.getMessage(), e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Entry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Entry entry = next;
+        next = null;
+        return entry;
+    }
+
+    private void advance() throws IOException {
+        while (true) {
+            if (current != null && current.hasNextValue()) {
+                Map<String, Object> data = current.nextValue();
+                currentIndex++;
+                // Look one record ahead so a file holding a single record is named after the file alone
+                boolean single = currentIndex == 1 && !current.hasNextValue();
+                next = new Entry(single ? currentBase : currentBase + "-" + currentIndex, data);
+                return;
+            }
+            closeCurrent();
+            if (!files.hasNext()) {
+                return;
+            }
+            currentFile = files.next();
+            currentBase = baseName(currentFile);
+            currentIndex = 0;
+            current = reader.readValues(currentFile.toFile());
+        }
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+    }
+
+    /**
+     * Rejects files whose records could get the same output name: equal base names, or a base name of the form
+     * {@code <other base>-<n>}, which collides with record n of a multi-record file. Compared case-insensitively,
+     * since the output directory may be on a case-insensitive file system.
+     *
+     * @throws IllegalArgumentException naming both files
+     */
+    static void checkNames(List<Path> files) {
+        Map<String, Path> bases = new HashMap<>();
+        for (Path file : files) {
+            Path other = bases.putIfAbsent(baseName(file).toLowerCase(Locale.ROOT), file);
+            if (other != null) {
+                throw collision(other, file);
+            }
+        }
+        for (Path file : files) {
+            Matcher numbered = NUMBERED.matcher(baseName(file).toLowerCase(Locale.ROOT));
+            Path other = numbered.matches() ? bases.get(numbered.group(1)) : null;
+            if (other != null) {
+                throw collision(other, file);
+            }
+        }
+    }
+
+    private static IllegalArgumentException collision(Path a, Path b) {
+        return new IllegalArgumentException("Records files " + a.getFileName() + " and " + b.getFileName()
+                + " would write to the same output name; rename one of them");
+    }
+
+    private static String baseName(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    private static boolean isRecordFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+}
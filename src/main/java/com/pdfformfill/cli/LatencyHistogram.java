@@ -0,0 +1,61 @@
+package com.pdfformfill.cli;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Fixed-size latency histogram for batch summaries: log-scale buckets from 1 µs to about an hour, each 2% wide,
+ * so percentiles are accurate to about 1% whatever the number of records and memory stays constant. Thread-safe;
+ * recording is lock-free.
+ */
+final class LatencyHistogram {
+
+    private static final double MIN_NANOS = 1_000;
+    private static final double GROWTH = 1.02;
+    private static final int BUCKETS = 1_120;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+        max.accumulate(nanos);
+    }
+
+    long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    long maxNanos() {
+        return max.get();
+    }
+
+    /** Upper bound of the bucket holding the p-quantile (0 &lt; p &lt;= 1), capped at the maximum; 0 when empty. */
+    long percentileNanos(double p) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(max.get(), (long) (MIN_NANOS * Math.pow(GROWTH, i + 1)));
+            }
+        }
+        return max.get();
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos <= MIN_NANOS) {
+            return 0;
+        }
+        int index = (int) (Math.log(nanos / MIN_NANOS) / Math.log(GROWTH));
+        return Math.min(BUCKETS - 1, index);
+    }
+}
@@ -0,0 +1,52 @@
+package com.pdfformfill.cli;
+
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A {@code multipart/form-data} request body for {@link java.net.http.HttpClient}, which has no built-in
+ * form encoding. Parts are kept as byte arrays, so a body is only as large as the shard it carries.
+ */
+final class MultipartBody {
+
+    private final String boundary = "----pdf-form-fill-" + UUID.randomUUID();
+    private final List<byte[]> parts = new ArrayList<>();
+
+    MultipartBody field(String name, String value) {
+        parts.add(header("Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"));
+        parts.add(value.getBytes(StandardCharsets.UTF_8));
+        parts.add(header("\r\n"));
+        return this;
+    }
+
+    MultipartBody file(String name, String filename, String contentType, byte[] content) {
+        parts.add(header("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n"));
+        parts.add(content);
+        parts.add(header("\r\n"));
+        return this;
+    }
+
+    String contentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    HttpRequest.BodyPublisher publisher() {
+        List<byte[]> body = new ArrayList<>(parts.size() + 1);
+        for (int i = 0; i < parts.size(); i += 3) {
+            body.add(header("--" + boundary + "\r\n"));
+            body.add(parts.get(i));
+            body.add(parts.get(i + 1));
+            body.add(parts.get(i + 2));
+        }
+        body.add(header("--" + boundary + "--\r\n"));
+        return HttpRequest.BodyPublishers.ofByteArrays(body);
+    }
+
+    private static byte[] header(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,521 @@
+package com.pdfformfill.cli;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.PdfFormFillApplication;
+import com.pdfformfill.dto.ShardResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coordinator for batches too large for one instance: splits the records into shards, sends each shard to one
+ * of a list of worker instances ({@code POST /api/pdf/shards}) and writes a manifest that maps every record to
+ * the PDF a worker produced for it. The coordinator itself fills nothing and starts no Spring context.
+ * <p>
+ * The template is uploaded once to each worker's template store. Every worker gets {@code --per-worker} shards
+ * at a time. A shard that fails (connection error, timeout, any status but 200 or 400) goes back to the front of
+ * the queue and the worker that failed pauses before taking another, so the retry usually lands elsewhere; after
+ * {@code --max-attempts} its records are reported as failed. A 400 (definition or records rejected) fails the
+ * shard at once. Shards are cut lazily from the records and the manifest is written in record order as shards
+ * complete, so only a bounded window of shards is held in memory however large the batch.
+ * <p>
+ * Usage ({@code java -jar pdf-form-fill.jar coordinate ...} or {@code ./gradlew coordinate -PcoordinateArgs="..."}):
+ * <pre>
+ *   --template form.pdf          template PDF
+ *   --definition form.json       field definition; without it workers use the draft derived from the AcroForm
+ *   --records r.jsonl            records, as for batch (file or directory, see {@link BatchRecords})
+ *   --count 100000 --seed 0      without --records: generated mock records, named record-&lt;n&gt;
+ *   --workers http://a:8080,...  worker base URLs
+ *   --shard-records 500          records per shard
+ *   --per-worker 2               shards in flight per worker
+ *   --max-attempts 3             attempts per shard before its records are reported as failed
+ *   --timeout-seconds 600        per shard request
+ *   --manifest manifest.json     where to write the manifest
+ * </pre>
+ * Exit status: 0 when every record was written, 1 when some records failed, 2 for invalid arguments.
+ */
+public final class ShardCoordinatorCommand {
+
+    /** First program argument that selects coordinator mode in {@link PdfFormFillApplication#main}. */
+    public static final String COMMAND = "coordinate";
+
+    private static final String TEMPLATES_PATH = "/api/pdf/templates";
+    private static final String SHARDS_PATH = "/api/pdf/shards";
+
+    /** Parsed command-line options; records is null when generating count mock records. */
+    record Options(Path template, Path definition, Path records, long count, long seed, List<URI> workers,
+                   int shardRecords, int perWorker, int maxAttempts, Duration timeout, Path manifest) {
+
+        static Options parse(Map<String, String> opts) {
+            if (!opts.containsKey("template") || !opts.containsKey("workers")) {
+                throw new IllegalArgumentException("--template and --workers are required");
+            }
+            if (opts.containsKey("records") == opts.containsKey("count")) {
+                throw new IllegalArgumentException("Give either --records or --count");
+            }
+            List<URI> workers = new ArrayList<>();
+            for (String url : opts.get("workers").split(",")) {
+                if (!url.isBlank()) {
+                    workers.add(URI.create(url.strip().replaceAll("/+$", "")));
+                }
+            }
+            long count = Long.parseLong(opts.getOrDefault("count", "0"));
+            int shardRecords = Integer.parseInt(opts.getOrDefault("shard-records", "500"));
+            int perWorker = Integer.parseInt(opts.getOrDefault("per-worker", "2"));
+            int maxAttempts = Integer.parseInt(opts.getOrDefault("max-attempts", "3"));
+            long timeoutSeconds = Long.parseLong(opts.getOrDefault("timeout-seconds", "600"));
+            if (workers.isEmpty() || shardRecords < 1 || perWorker < 1 || maxAttempts < 1 || timeoutSeconds < 1
+                    || (!opts.containsKey("records") && count < 1)) {
+                throw new IllegalArgumentException("--workers needs a URL; --count, --shard-records, --per-worker,"
+                        + " --max-attempts and --timeout-seconds must be positive");
+            }
+            return new Options(Paths.get(opts.get("template")),
+                    opts.containsKey("definition") ? Paths.get(opts.get("definition")) : null,
+                    opts.containsKey("records") ? Paths.get(opts.get("records")) : null, count,
+                    Long.parseLong(opts.getOrDefault("seed", "0")), List.copyOf(workers), shardRecords, perWorker,
+                    maxAttempts, Duration.ofSeconds(timeoutSeconds), Paths.get(opts.getOrDefault("manifest", "manifest.json")));
+        }
+    }
+
+    /** Outcome of a run. */
+    record Result(long records, long failed, long pages, int shards, long retries, long elapsedNanos) {}
+
+    /**
+     * A slice of the batch. records holds the shard as JSON Lines; it is null for mock records, which the
+     * worker generates itself from firstRecord and the seed.
+     */
+    record Shard(int index, long firstRecord, List<String> names, byte[] records) {}
+
+    /** A finished shard: the worker's response, or the error of its last attempt. */
+    private record Outcome(Shard shard, URI worker, ShardResponse response, String error) {}
+
+    private final ObjectMapper objectMapper;
+    private final HttpClient http;
+    private final PrintStream out;
+    private final long retryBackoffMillis;
+
+    ShardCoordinatorCommand(ObjectMapper objectMapper, HttpClient http, PrintStream out, long retryBackoffMillis) {
+        this.objectMapper = objectMapper;
+        this.http = http;
+        this.out = out;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /** Runs a sharded batch and returns the exit status. */
+    public static int run(String[] args) {
+        Options options;
+        try {
+            List<String> unused = new ArrayList<>();
+            options = Options.parse(BatchFillCommand.parseArgs(args, unused));
+            if (!unused.isEmpty()) {
+                throw new IllegalArgumentException("Unexpected argument: " + unused.get(0)
+                        + " (worker settings belong on the workers)");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: coordinate --template form.pdf [--definition form.json] (--records r.jsonl"
+                    + " | --count N [--seed S]) --workers http://host:port,... [--shard-records N] [--per-worker N]"
+                    + " [--max-attempts N] [--timeout-seconds N] [--manifest manifest.json]");
+            return 2;
+        }
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            Result result = new ShardCoordinatorCommand(new ObjectMapper(), http, System.out, 1000).execute(options);
+            return result.failed() > 0 ? 1 : 0;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Coordination failed: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    Result execute(Options options) throws IOException, InterruptedException {
+        byte[] template = Files.readAllBytes(options.template());
+        byte[] definition = options.definition() != null ? Files.readAllBytes(options.definition()) : null;
+        long start = System.nanoTime();
+
+        Map<URI, String> templateIds = new LinkedHashMap<>();
+        for (URI worker : options.workers()) {
+            try {
+                templateIds.put(worker, upload(worker, template, options.template().getFileName().toString()));
+            } catch (IOException e) {
+                out.println("Worker " + worker + " skipped: template upload failed: " + describe(e));
+            }
+        }
+        if (templateIds.isEmpty()) {
+            throw new IOException("No worker accepted the template");
+        }
+        out.printf(Locale.ROOT, "Template %s uploaded to %d workers; %d shards of up to %d records in flight per worker%n",
+                options.template().getFileName(), templateIds.size(), options.perWorker(), options.shardRecords());
+
+        Path manifestDir = options.manifest().toAbsolutePath().getParent();
+        if (manifestDir != null) {
+            Files.createDirectories(manifestDir);
+        }
+        try (BatchRecords files = options.records() != null ? BatchRecords.open(options.records(), objectMapper) : null;
+             JsonGenerator manifest = objectMapper.getFactory()
+                     .createGenerator(options.manifest().toFile(), JsonEncoding.UTF8)
+                     .useDefaultPrettyPrinter()) {
+            Iterator<Shard> shards = files != null ? recordShards(files, options) : mockShards(options);
+            Result result = new Dispatch(options, templateIds, definition, manifest).run(shards, start);
+            double seconds = result.elapsedNanos() / 1e9;
+            out.printf(Locale.ROOT, "Filled %d records (%d failed), %d pages in %d shards (%d retries) in %.2f s:"
+                            + " %.1f records/s; manifest %s%n",
+                    result.records() - result.failed(), result.failed(), result.pages(), result.shards(),
+                    result.retries(), seconds, (result.records() - result.failed()) / seconds, options.manifest());
+            return result;
+        }
+    }
+
+    /** Uploads the template to a worker's template store and returns its templateId. */
+    private String upload(URI worker, byte[] template, String filename) throws IOException, InterruptedException {
+        MultipartBody body = new MultipartBody().file("template", filename, "application/pdf", template);
+        HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(URI.create(worker + TEMPLATES_PATH))
+                .header("Content-Type", body.contentType())
+                .POST(body.publisher())
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + ": " + message(response.body()));
+        }
+        JsonNode templateId = objectMapper.readTree(response.body()).get("templateId");
+        if (templateId == null || !templateId.isTextual()) {
+            throw new IOException("No templateId in response");
+        }
+        return templateId.asText();
+    }
+
+    /** Cuts the records into shards of JSON Lines, reading only one shard ahead. */
+    private Iterator<Shard> recordShards(BatchRecords records, Options options) {
+        return new Iterator<>() {
+            private int index;
+            private long first;
+
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public Shard next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<String> names = new ArrayList<>();
+                ByteArrayOutputStream jsonl = new ByteArrayOutputStream();
+                try {
+                    while (names.size() < options.shardRecords() && records.hasNext()) {
+                        BatchRecords.Entry entry = records.next();
+                        names.add(entry.name());
+                        jsonl.write(objectMapper.writeValueAsBytes(entry.data()));
+                        jsonl.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                Shard shard = new Shard(index++, first, names, jsonl.toByteArray());
+                first += names.size();
+                return shard;
+            }
+        };
+    }
+
+    /** Mock record ranges; names match the batch command's. */
+    private static Iterator<Shard> mockShards(Options options) {
+        int width = String.valueOf(options.count()).length();
+        return new Iterator<>() {
+            private int index;
+            private long first;
+
+            @Override
+            public boolean hasNext() {
+                return first < options.count();
+            }
+
+            @Override
+            public Shard next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int size = (int) Math.min(options.shardRecords(), options.count() - first);
+                List<String> names = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    names.add(String.format(Locale.ROOT, "record-%0" + width + "d", first + i + 1));
+                }
+                Shard shard = new Shard(index++, first, names, null);
+                first += size;
+                return shard;
+            }
+        };
+    }
+
+    private String message(byte[] body) {
+        try {
+            JsonNode message = objectMapper.readTree(body).get("message");
+            if (message != null && message.isTextual()) {
+                return message.asText();
+            }
+        } catch (IOException e) {
+            // not JSON: fall through to the raw body
+        }
+        String text = new String(body, StandardCharsets.UTF_8).strip();
+        return text.length() > 200 ? text.substring(0, 200) + "..." : text;
+    }
+
+    private static String describe(IOException e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    /** One run: the shard queue, the worker slots that drain it and the in-order manifest writer. */
+    private final class Dispatch {
+
+        private final Options options;
+        private final Map<URI, String> templateIds;
+        private final byte[] definition;
+        private final JsonGenerator manifest;
+
+        private final BlockingDeque<Shard> queue = new LinkedBlockingDeque<>();
+        /** Shards produced but not yet written to the manifest; bounds memory when one shard is slow. */
+        private final Semaphore window;
+        private final Map<Integer, Integer> attempts = new ConcurrentHashMap<>();
+        private final Map<URI, LongAdder> shardsByWorker = new ConcurrentHashMap<>();
+        /** Workers that just failed a shard take no new shard until this System.nanoTime(). */
+        private final Map<URI, Long> pausedUntil = new ConcurrentHashMap<>();
+        private final LongAdder retries = new LongAdder();
+
+        private final Object lock = new Object();
+        private final Map<Integer, Outcome> finished = new HashMap<>();
+        private int produced;
+        private int written;
+        private long records;
+        private long failed;
+        private long pages;
+        private IOException writeFailure;
+        private volatile boolean done;
+
+        Dispatch(Options options, Map<URI, String> templateIds, byte[] definition, JsonGenerator manifest) {
+            this.options = options;
+            this.templateIds = templateIds;
+            this.definition = definition;
+            this.manifest = manifest;
+            this.window = new Semaphore(templateIds.size() * options.perWorker() * 4);
+        }
+
+        Result run(Iterator<Shard> shards, long start) throws IOException, InterruptedException {
+            manifest.writeStartObject();
+            manifest.writeStringField("template", options.template().getFileName().toString());
+            manifest.writeArrayFieldStart("workers");
+            for (URI worker : templateIds.keySet()) {
+                manifest.writeString(worker.toString());
+            }
+            manifest.writeEndArray();
+            manifest.writeArrayFieldStart("records");
+
+            AtomicInteger n = new AtomicInteger();
+            ExecutorService slots = Executors.newFixedThreadPool(templateIds.size() * options.perWorker(), r -> {
+                Thread t = new Thread(r, "pdf-shard-dispatch-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            for (URI worker : templateIds.keySet()) {
+                for (int i = 0; i < options.perWorker(); i++) {
+                    slots.execute(() -> serve(worker));
+                }
+            }
+            try {
+                while (shards.hasNext()) {
+                    window.acquire();
+                    Shard shard = shards.next();
+                    synchronized (lock) {
+                        produced++;
+                    }
+                    queue.addLast(shard);
+                }
+                synchronized (lock) {
+                    while (written < produced && writeFailure == null) {
+                        lock.wait();
+                    }
+                    if (writeFailure != null) {
+                        throw writeFailure;
+                    }
+                }
+            } finally {
+                done = true;
+                slots.shutdownNow();
+            }
+
+            manifest.writeEndArray();
+            long elapsedNanos = System.nanoTime() - start;
+            manifest.writeObjectFieldStart("summary");
+            manifest.writeNumberField("records", records);
+            manifest.writeNumberField("failed", failed);
+            manifest.writeNumberField("pages", pages);
+            manifest.writeNumberField("shards", produced);
+            manifest.writeNumberField("retries", retries.sum());
+            manifest.writeNumberField("elapsedMs", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            manifest.writeObjectFieldStart("shardsByWorker");
+            for (URI worker : templateIds.keySet()) {
+                LongAdder count = shardsByWorker.get(worker);
+                manifest.writeNumberField(worker.toString(), count != null ? count.sum() : 0);
+            }
+            manifest.writeEndObject();
+            manifest.writeEndObject();
+            manifest.writeEndObject();
+            return new Result(records, failed, pages, produced, retries.sum(), elapsedNanos);
+        }
+
+        /** One slot of a worker: takes shards from the queue until the run is done. */
+        private void serve(URI worker) {
+            try {
+                while (!done) {
+                    long pause = pausedUntil.getOrDefault(worker, 0L) - System.nanoTime();
+                    if (pause > 0) {
+                        TimeUnit.NANOSECONDS.sleep(pause);
+                        continue;
+                    }
+                    Shard shard = queue.pollFirst(100, TimeUnit.MILLISECONDS);
+                    if (shard == null) {
+                        continue;
+                    }
+                    int attempt = attempts.merge(shard.index(), 1, Integer::sum);
+                    String error;
+                    boolean retry;
+                    try {
+                        HttpResponse<byte[]> response = send(worker, shard);
+                        if (response.statusCode() == 200) {
+                            shardsByWorker.computeIfAbsent(worker, w -> new LongAdder()).increment();
+                            finish(new Outcome(shard, worker,
+                                    objectMapper.readValue(response.body(), ShardResponse.class), null));
+                            continue;
+                        }
+                        error = "HTTP " + response.statusCode() + ": " + message(response.body());
+                        retry = response.statusCode() != 400;
+                    } catch (IOException e) {
+                        error = describe(e);
+                        retry = true;
+                    }
+                    if (!retry || attempt >= options.maxAttempts()) {
+                        out.printf(Locale.ROOT, "Shard %d failed on %s after %d attempts: %s%n",
+                                shard.index() + 1, worker, attempt, error);
+                        finish(new Outcome(shard, worker, null, error));
+                        continue;
+                    }
+                    out.printf(Locale.ROOT, "Shard %d failed on %s (attempt %d of %d), retrying: %s%n",
+                            shard.index() + 1, worker, attempt, options.maxAttempts(), error);
+                    retries.increment();
+                    // Pause the whole worker so another one is likely to take the retry
+                    pausedUntil.put(worker, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis * attempt));
+                    queue.addFirst(shard);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private HttpResponse<byte[]> send(URI worker, Shard shard) throws IOException, InterruptedException {
+            MultipartBody body = new MultipartBody()
+                    .field("templateId", templateIds.get(worker))
+                    .field("shard", String.valueOf(shard.index() + 1))
+                    .field("first", String.valueOf(shard.firstRecord()))
+                    .field("count", String.valueOf(shard.names().size()))
+                    .field("seed", String.valueOf(options.seed()));
+            if (definition != null) {
+                body.file("definition", "definition.json", "application/json", definition);
+            }
+            if (shard.records() != null) {
+                body.file("records", "shard-" + (shard.index() + 1) + ".jsonl", "application/x-ndjson", shard.records());
+            }
+            return http.send(HttpRequest.newBuilder(URI.create(worker + SHARDS_PATH))
+                    .timeout(options.timeout())
+                    .header("Content-Type", body.contentType())
+                    .POST(body.publisher())
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+        }
+
+        /** Records a finished shard and writes every shard that is now next in record order. */
+        private void finish(Outcome outcome) {
+            synchronized (lock) {
+                finished.put(outcome.shard().index(), outcome);
+                try {
+                    for (Outcome next; writeFailure == null && (next = finished.remove(written)) != null; written++) {
+                        write(next);
+                        window.release();
+                    }
+                    manifest.flush();
+                } catch (IOException e) {
+                    writeFailure = e;
+                }
+                lock.notifyAll();
+            }
+        }
+
+        private void write(Outcome outcome) throws IOException {
+            Shard shard = outcome.shard();
+            Map<Integer, ShardResponse.Output> outputs = new HashMap<>();
+            if (outcome.response() != null && outcome.response().outputs() != null) {
+                for (ShardResponse.Output output : outcome.response().outputs()) {
+                    outputs.put(output.index(), output);
+                }
+            }
+            for (int i = 0; i < shard.names().size(); i++) {
+                ShardResponse.Output output = outputs.get(i);
+                manifest.writeStartObject();
+                manifest.writeNumberField("record", shard.firstRecord() + i + 1);
+                manifest.writeStringField("name", shard.names().get(i));
+                manifest.writeNumberField("shard", shard.index() + 1);
+                manifest.writeStringField("worker", outcome.worker().toString());
+                records++;
+                if (output != null && output.error() == null && output.downloadUrl() != null) {
+                    manifest.writeStringField("url", outcome.worker().resolve(output.downloadUrl()).toString());
+                    int recordPages = output.pages() != null ? output.pages() : 0;
+                    manifest.writeNumberField("pages", recordPages);
+                    pages += recordPages;
+                } else {
+                    manifest.writeStringField("error", output != null ? output.error()
+                            : outcome.error() != null ? outcome.error() : "Missing from worker response");
+                    failed++;
+                }
+                manifest.writeEndObject();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pdfformfill.config;
+
+import com.pdfformfill.engine.FillEngine;
+import com.pdfformfill.pdf.PageSubsetter;
+import com.pdfformfill.pdf.PdfTemplateLoader;
+import com.pdfformfill.pdf.overlay.AppearanceCache;
+import com.pdfformfill.pdf.overlay.FontRegistry;
+import com.pdfformfill.pdf.overlay.ImageCache;
+import com.pdfformfill.pdf.overlay.OverlayRenderListener;
+import com.pdfformfill.pdf.overlay.PdfOverlayRenderer;
+import com.pdfformfill.pdf.overlay.TextFitCache;
+import com.pdfformfill.service.FieldDataPreparer;
+import com.pdfformfill.service.MockRecordGenerator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 填表引擎（core 模块，不依赖 Spring）的装配：从配置项构造字体、缓存、渲染器与 mock 数据生成器，
+ * web 层与命令行批处理共用同一组实例。配置项及默认值与拆分前各类上的 {@code @Value} 相同。
+ */
+@Configuration(proxyBeanMethods = false)
+public class FillEngineConfiguration {
+
+    @Bean
+    public FontRegistry fontRegistry(
+            @Value("${pdf.fonts.files:}") String files,
+            @Value("${pdf.fonts.default:Helvetica}") String defaultChain) {
+        return new FontRegistry(files, defaultChain);
+    }
+
+    @Bean
+    public TextFitCache textFitCache(
+            @Value("${pdf.overlay.fit-cache.enabled:true}") boolean enabled,
+            @Value("${pdf.overlay.fit-cache.max-entries:20000}") int maxEntries,
+            @Value("${pdf.overlay.fit-cache.max-bytes:16777216}") long maxBytes,
+            @Value("${pdf.overlay.fit-cache.max-text-length:2000}") int maxTextLength) {
+        return new TextFitCache(enabled, maxEntries, maxBytes, maxTextLength);
+    }
+
+    @Bean
+    public ImageCache imageCache(
+            @Value("${pdf.overlay.images.cache.enabled:true}") boolean enabled,
+            @Value("${pdf.overlay.images.cache.max-bytes:67108864}") long maxBytes,
+            @Value("${pdf.overlay.images.max-pixels:40000000}") long maxPixels,
+            @Value("${pdf.overlay.images.dpi:150}") int dpi,
+            @Value("${pdf.overlay.images.base-dir:}") String baseDir,
+            @Value("${pdf.overlay.images.max-bytes:10485760}") long maxImageBytes,
+            @Value("${pdf.checkbox.checked-image:classpath:checked-symbol.png}") String checkboxCheckedImage) {
+        // 图片引用来自请求数据：只有配置的勾选图片按原样读取，文件引用须在 base-dir 内
+        return new ImageCache(enabled, maxBytes, maxPixels, dpi, baseDir.isBlank() ? null : Path.of(baseDir),
+                maxImageBytes, List.of(checkboxCheckedImage));
+    }
+
+    @Bean
+    public AppearanceCache appearanceCache(
+            @Value("${pdf.overlay.appearance-cache.enabled:true}") boolean enabled,
+            @Value("${pdf.overlay.appearance-cache.max-entries:5000}") int maxEntries) {
+        return new AppearanceCache(enabled, maxEntries);
+    }
+
+    /** 渲染监听器（指标、追踪）按 {@code @Order} 顺序注入。 */
+    @Bean
+    public PdfOverlayRenderer pdfOverlayRenderer(ObjectProvider<OverlayRenderListener> listeners, TextFitCache fitCache,
+                                                 FontRegistry fontRegistry, ImageCache imageCache,
+                                                 AppearanceCache appearanceCache) {
+        return new PdfOverlayRenderer(listeners.orderedStream().toList(), fitCache, fontRegistry, imageCache,
+                appearanceCache);
+    }
+
+    @Bean
+    public FillEngine fillEngine(
+            PdfOverlayRenderer pdfOverlayRenderer,
+            @Value("${pdf.flatten-before-overlay:true}") boolean flattenBeforeOverlay,
+            @Value("${pdf.checkbox.checked-image:classpath:checked-symbol.png}") String checkboxCheckedImage) {
+        return new FillEngine(pdfOverlayRenderer, flattenBeforeOverlay, checkboxCheckedImage);
+    }
+
+    @Bean
+    public PdfTemplateLoader pdfTemplateLoader() {
+        return new PdfTemplateLoader();
+    }
+
+    @Bean
+    public PageSubsetter pageSubsetter() {
+        return new PageSubsetter();
+    }
+
+    @Bean
+    public FieldDataPreparer fieldDataPreparer(@Value("${pdf.mock.rules:classpath:mock-rules.json}") String rulesLocation) {
+        return new FieldDataPreparer(rulesLocation);
+    }
+
+    @Bean
+    public MockRecordGenerator mockRecordGenerator(
+            FieldDataPreparer fieldDataPreparer,
+            @Value("${pdf.mock.lengths.name:3,12,40}") String nameLengths,
+            @Value("${pdf.mock.lengths.person-name:8,18,60}") String personNameLengths,
+            @Value("${pdf.mock.lengths.organisation:8,20,60}") String organisationLengths,
+            @Value("${pdf.mock.lengths.address:18,40,160}") String addressLengths,
+            @Value("${pdf.mock.lengths.text:1,12,60}") String textLengths,
+            @Value("${pdf.mock.lengths.long-text:20,180,900}") String longTextLengths,
+            @Value("${pdf.mock.dates.from:1950-01-01}") String dateFrom,
+            @Value("${pdf.mock.dates.to:2030-12-31}") String dateTo) {
+        return new MockRecordGenerator(fieldDataPreparer, nameLengths, personNameLengths, organisationLengths,
+                addressLengths, textLengths, longTextLengths, dateFrom, dateTo);
+    }
+}
@@ -2,22 +2,44 @@ package com.pdfformfill.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 
+import java.util.List;
+
 /**
- * 阶段 3：仅做解析与校验时的成功响应（暂不生成 PDF）。
+ * 预检（POST /api/pdf/merge/check）的响应：只解析模板页面树与定义并校验字段，不生成 PDF。
+ * issues 列出会被跳过、画到页面外或文字放不下的字段；为空表示 merge 会按定义完整绘制所有字段。
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record MergeCheckResponse(
         boolean success,
         String message,
         Integer templatePages,
-        Integer definitionFields
+        Integer definitionFields,
+        List<FieldIssue> issues
 ) {
+    /**
+     * 单个字段的问题。
+     *
+     * @param problem  missingName | missingPosition | pageOutOfRange | invalidSize | outOfBounds（字段不会被绘制或超出页面）、
+     *                 overlap（与另一字段重叠）| widgetCollision（画在已有值的表单控件上）、
+     *                 shrunk（字号小于定义的 fontSize）| truncated（最小字号下仍放不下，被截断）
+     * @param fontSize shrunk / truncated 时实际绘制的字号
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record FieldIssue(String field, Integer page, String problem, String message, Float fontSize) {}
+
     public static MergeCheckResponse ok(int templatePages, int definitionFields) {
+        return ok(templatePages, definitionFields, List.of());
+    }
+
+    public static MergeCheckResponse ok(int templatePages, int definitionFields, List<FieldIssue> issues) {
         return new MergeCheckResponse(
                 true,
-                "Template and definition parsed successfully.",
+                issues.isEmpty()
+                        ? "Template and definition parsed successfully."
+                        : "Template and definition parsed; " + issues.size() + " field issue(s) found.",
                 templatePages,
-                definitionFields
+                definitionFields,
+                issues
         );
     }
 }
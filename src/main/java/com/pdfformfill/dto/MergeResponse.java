@@ -4,22 +4,33 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * 阶段 6：合并并保存成功后的响应，包含输出文件路径。
+ * downloadUrl 为服务端下载地址（GET，支持 Range / ETag），跨主机的客户端应使用它而不是 outputPath。
+ * outputPages：只输出部分页面（pages 参数）时的输出页数；输出全部页面时不返回。
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record MergeResponse(
         boolean success,
         String message,
         String outputPath,
+        String downloadUrl,
         Integer templatePages,
-        Integer definitionFields
+        Integer definitionFields,
+        Integer outputPages
 ) {
-    public static MergeResponse ok(String outputPath, int templatePages, int definitionFields) {
+    public static MergeResponse ok(String outputPath, String downloadUrl, int templatePages, int definitionFields) {
+        return ok(outputPath, downloadUrl, templatePages, definitionFields, null);
+    }
+
+    public static MergeResponse ok(String outputPath, String downloadUrl, int templatePages, int definitionFields,
+                                   Integer outputPages) {
         return new MergeResponse(
                 true,
                 "Filled PDF saved successfully.",
                 outputPath,
+                downloadUrl,
                 templatePages,
-                definitionFields
+                definitionFields,
+                outputPages
         );
     }
 }
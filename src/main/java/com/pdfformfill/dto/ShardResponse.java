@@ -0,0 +1,22 @@
+package com.pdfformfill.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * 分片填表（POST /api/pdf/shards）的响应：outputs 与请求中的记录一一对应、顺序相同；
+ * 成功的记录给出 downloadUrl（本实例的 GET /api/pdf/outputs/{filename}）与页数，失败的记录给出 error。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ShardResponse(
+        String shard,
+        int records,
+        int failed,
+        long pages,
+        long elapsedMs,
+        List<Output> outputs
+) {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Output(int index, String downloadUrl, Integer pages, String error) {}
+}
@@ -0,0 +1,36 @@
+package com.pdfformfill.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * 批量任务（POST /api/pdf/jobs）的状态，由共享 spool 目录中的分片标记与结果汇总，任一实例返回的结果相同。
+ * state：queued（没有分片开始）| running | done（全部分片完成）| failed（全部分片结束且有分片整体失败，见 errors）。
+ * recordsWritten / recordsFailed / pages 只统计已完成的分片；instances 为处理过或正在处理分片的实例；
+ * outputDir 为输出目录（共享目录中的路径），每条记录一个 record-&lt;n&gt;.pdf。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SpoolJobStatus(
+        String jobId,
+        String state,
+        long records,
+        long recordsWritten,
+        long recordsFailed,
+        long pages,
+        int parts,
+        int partsDone,
+        int partsRunning,
+        List<String> instances,
+        String outputDir,
+        long createdAt,
+        Long finishedAt,
+        List<String> errors
+) {
+    /** 状态查询地址（GET），任一实例均可。 */
+    @JsonProperty
+    public String statusUrl() {
+        return "/api/pdf/jobs/" + jobId;
+    }
+}
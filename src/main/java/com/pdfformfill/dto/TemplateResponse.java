@@ -0,0 +1,28 @@
+package com.pdfformfill.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 模板上传（POST /api/pdf/templates）的响应：templateId 为模板内容的 SHA-256，merge / 预检可用它代替上传模板。
+ * definitionFields 为从 AcroForm 提取的草稿字段数，草稿可从 definitionUrl 下载（GET）。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TemplateResponse(
+        boolean success,
+        String message,
+        String templateId,
+        Integer templatePages,
+        Integer definitionFields,
+        String definitionUrl
+) {
+    public static TemplateResponse ok(String templateId, int templatePages, int definitionFields) {
+        return new TemplateResponse(
+                true,
+                "Template stored and indexed.",
+                templateId,
+                templatePages,
+                definitionFields,
+                "/api/pdf/templates/" + templateId + "/definition"
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.pdfformfill.Flatten")
+@Label("AcroForm Flatten")
+@Category({"PDF Form Fill", "Merge"})
+@Description("Flattening the template's AcroForm before overlay")
+@StackTrace(false)
+public class FlattenEvent extends StageEvent {
+}
@@ -0,0 +1,34 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+
+import java.util.List;
+
+/**
+ * The custom event types of this service. {@link #register()} loads and registers them up front: on JDK 17,
+ * an event class first loaded while a recording is running can fail with a duplicate-definition LinkageError.
+ */
+public final class JfrEvents {
+
+    public static final List<Class<? extends Event>> ALL = List.of(
+            MergeEvent.class, MergeStageEvent.class, TemplateLoadEvent.class, FlattenEvent.class,
+            SaveEvent.class, PageRenderEvent.class, FieldFitEvent.class);
+
+    private static volatile boolean registered;
+
+    private JfrEvents() {
+    }
+
+    public static void register() {
+        if (registered) {
+            return;
+        }
+        synchronized (JfrEvents.class) {
+            if (!registered) {
+                ALL.forEach(FlightRecorder::register);
+                registered = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 按需启动/停止 JFR 录制（管理接口调用），录制内容为 JDK 预设配置（default/profile）加上本服务的领域事件，
+ * 停止时写入 pdf.jfr.dir 下的 .jfr 文件。同一时间只允许一个录制。
+ */
+@Service
+public class JfrRecordingService {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrRecordingService.class);
+    private static final DateTimeFormatter FILE_TS = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path dir;
+    private Recording recording;
+
+    public JfrRecordingService(@Value("${pdf.jfr.dir:${user.dir}/jfr}") String dir) {
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        // 启动时即注册领域事件，之后通过 -XX:StartFlightRecording 或本服务开始的录制都能安全捕获
+        JfrEvents.register();
+    }
+
+    /**
+     * 开始录制。
+     *
+     * @param settings          JDK 预设名（"default" 开销低，"profile" 采样更密）
+     * @param maxDuration       最长录制时间，null 表示直到 stop；到时自动停止并写文件
+     * @param fieldFitThreshold FieldFit 事件阈值，null 用事件默认（100 us），Duration.ZERO 记录每个字段
+     */
+    public synchronized RecordingStatus start(String settings, Duration maxDuration, Duration fieldFitThreshold)
+            throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A JFR recording is already running (id " + recording.getId() + ").");
+        }
+        Configuration configuration = Configuration.getConfiguration(settings != null ? settings : "profile");
+        Recording r = new Recording(configuration);
+        r.setName("pdf-form-fill-" + LocalDateTime.now().format(FILE_TS));
+        for (Class<? extends Event> type : JfrEvents.ALL) {
+            r.enable(type);
+        }
+        if (fieldFitThreshold != null) {
+            r.enable(FieldFitEvent.class).withThreshold(fieldFitThreshold);
+        }
+        Files.createDirectories(dir);
+        r.setDestination(dir.resolve(r.getName() + ".jfr"));
+        if (maxDuration != null) {
+            r.setDuration(maxDuration);
+        }
+        r.start();
+        recording = r;
+        log.info("JFR recording {} started with settings '{}'", r.getName(), configuration.getName());
+        return status();
+    }
+
+    /** 停止当前录制并写入文件；没有录制时返回 null。 */
+    public synchronized RecordingStatus stop() throws IOException {
+        if (recording == null) {
+            return null;
+        }
+        Recording r = recording;
+        if (r.getState() == RecordingState.RUNNING) {
+            r.stop();
+        }
+        RecordingStatus status = new RecordingStatus(r.getId(), r.getName(), RecordingState.STOPPED.name(),
+                r.getDestination() != null ? r.getDestination().toString() : null);
+        r.close();
+        recording = null;
+        log.info("JFR recording {} written to {}", status.name(), status.file());
+        return status;
+    }
+
+    public synchronized RecordingStatus status() {
+        if (recording == null) {
+            return null;
+        }
+        return new RecordingStatus(recording.getId(), recording.getName(), recording.getState().name(),
+                recording.getDestination() != null ? recording.getDestination().toString() : null);
+    }
+
+    public record RecordingStatus(long id, String name, String state, String file) {}
+}
@@ -0,0 +1,37 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a whole merge, carrying the template identity so stage, page and field events on the
+ * same thread can be attributed to it.
+ */
+@Name("com.pdfformfill.Merge")
+@Label("Merge")
+@Category({"PDF Form Fill", "Merge"})
+@Description("One call to PdfFormFillService.merge")
+@StackTrace(false)
+public class MergeEvent extends Event {
+
+    @Label("Template")
+    public String template;
+
+    @Label("Template Size")
+    @DataAmount
+    public long templateBytes;
+
+    @Label("Template Pages")
+    public int templatePages;
+
+    @Label("Definition Fields")
+    public int definitionFields;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,15 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.pdfformfill.MergeStage")
+@Label("Merge Stage")
+@Category({"PDF Form Fill", "Merge"})
+@Description("A merge stage without a dedicated event type (parse, prepare, render)")
+@StackTrace(false)
+public class MergeStageEvent extends StageEvent {
+}
@@ -0,0 +1,15 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.pdfformfill.Save")
+@Label("Save Output")
+@Category({"PDF Form Fill", "Merge"})
+@Description("Writing the filled PDF to the output directory")
+@StackTrace(false)
+public class SaveEvent extends StageEvent {
+}
@@ -0,0 +1,26 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base type for merge pipeline stage events. Load, flatten and save have their own event types so
+ * recordings can filter on them directly; the remaining stages use {@link MergeStageEvent}.
+ */
+public abstract class StageEvent extends Event {
+
+    @Label("Stage")
+    public String stage;
+
+    /** Creates the event type that matches the stage (template load, flatten, save or generic). */
+    public static StageEvent forStage(String stage) {
+        StageEvent event = switch (stage) {
+            case "load" -> new TemplateLoadEvent();
+            case "flatten" -> new FlattenEvent();
+            case "save" -> new SaveEvent();
+            default -> new MergeStageEvent();
+        };
+        event.stage = stage;
+        return event;
+    }
+}
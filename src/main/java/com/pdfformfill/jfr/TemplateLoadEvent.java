@@ -0,0 +1,15 @@
+package com.pdfformfill.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.pdfformfill.TemplateLoad")
+@Label("Template Load")
+@Category({"PDF Form Fill", "Merge"})
+@Description("Loading and parsing the PDF template")
+@StackTrace(false)
+public class TemplateLoadEvent extends StageEvent {
+}
@@ -0,0 +1,42 @@
+package com.pdfformfill.metrics;
+
+import com.pdfformfill.pdf.overlay.AppearanceCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * AcroForm 填写模式外观模板缓存（{@link AppearanceCache}）的指标：命中/未命中/淘汰次数、命中率与条目数。
+ */
+@Component
+public class AppearanceCacheMetrics implements MeterBinder {
+
+    private final AppearanceCache cache;
+
+    public AppearanceCacheMetrics(AppearanceCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pdf.overlay.appearance.cache.requests", cache, AppearanceCache::hits)
+                .description("Appearance template cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("pdf.overlay.appearance.cache.requests", cache, AppearanceCache::misses)
+                .description("Appearance template cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("pdf.overlay.appearance.cache.evictions", cache, AppearanceCache::evictions)
+                .description("Appearance template cache entries evicted by the size limit")
+                .register(registry);
+        Gauge.builder("pdf.overlay.appearance.cache.hit.ratio", cache, AppearanceCache::hitRate)
+                .description("Appearance template cache hit ratio since start")
+                .register(registry);
+        Gauge.builder("pdf.overlay.appearance.cache.size", cache, AppearanceCache::size)
+                .description("Appearance template cache entries")
+                .register(registry);
+    }
+}
@@ -0,0 +1,46 @@
+package com.pdfformfill.metrics;
+
+import com.pdfformfill.pdf.overlay.ImageCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * 图片缓存（{@link ImageCache}）的指标：解码图片与缩放结果的命中/未命中/淘汰次数、命中率、条目数与估算像素内存。
+ */
+@Component
+public class ImageCacheMetrics implements MeterBinder {
+
+    private final ImageCache cache;
+
+    public ImageCacheMetrics(ImageCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pdf.overlay.image.cache.requests", cache, ImageCache::hits)
+                .description("Image cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("pdf.overlay.image.cache.requests", cache, ImageCache::misses)
+                .description("Image cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("pdf.overlay.image.cache.evictions", cache, ImageCache::evictions)
+                .description("Image cache entries evicted by the size limits")
+                .register(registry);
+        Gauge.builder("pdf.overlay.image.cache.hit.ratio", cache, ImageCache::hitRate)
+                .description("Image cache hit ratio since start")
+                .register(registry);
+        Gauge.builder("pdf.overlay.image.cache.size", cache, ImageCache::size)
+                .description("Image cache entries")
+                .register(registry);
+        Gauge.builder("pdf.overlay.image.cache.memory", cache, ImageCache::estimatedBytes)
+                .description("Estimated memory retained by the image cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,151 @@
+package com.pdfformfill.metrics;
+
+import com.pdfformfill.engine.Deadline;
+import com.pdfformfill.jfr.StageEvent;
+import com.pdfformfill.trace.MergeTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * merge 流水线的 Micrometer 指标：各阶段耗时（带直方图）、整体耗时、模板大小/页数分布、错误计数、
+ * 因截止时间到期或被取消而放弃的 merge 计数（按原因与所在阶段）。
+ * 通过 /actuator/prometheus 暴露给 Prometheus 抓取。
+ */
+@Component
+public class MergeMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<MergeStage, Timer> stageTimers = new EnumMap<>(MergeStage.class);
+    private final Timer mergeTimer;
+    private final DistributionSummary templateBytes;
+    private final DistributionSummary templatePages;
+
+    public MergeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (MergeStage stage : MergeStage.values()) {
+            stageTimers.put(stage, Timer.builder("pdf.merge.stage")
+                    .description("Time spent in one stage of the merge pipeline")
+                    .tag("stage", stage.tag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        this.mergeTimer = Timer.builder("pdf.merge")
+                .description("End-to-end merge time")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.templateBytes = DistributionSummary.builder("pdf.template.size")
+                .description("Size of uploaded PDF templates")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.templatePages = DistributionSummary.builder("pdf.template.pages")
+                .description("Number of pages in uploaded PDF templates")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * 计时执行一个有返回值的阶段；耗时同时记入当前线程的 {@link MergeTrace}（若有），
+     * 并发出对应的 JFR 阶段事件（未录制时开销可忽略）。开始前与执行中检查当前线程的 {@link Deadline}，
+     * 放弃时按该阶段计入 pdf.merge.cancelled 并抛出 {@link Deadline.Cancelled}。
+     */
+    public <T> T recordStage(MergeStage stage, IOCallable<T> body) throws IOException {
+        checkDeadline(stage.tag());
+        StageEvent event = StageEvent.forStage(stage.tag());
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return body.call();
+        } catch (Deadline.Cancelled e) {
+            recordCancelled(stage.tag(), e.reason());
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            event.commit();
+            stageTimers.get(stage).record(elapsed, TimeUnit.NANOSECONDS);
+            MergeTrace.recordStage(stage.tag(), elapsed);
+        }
+    }
+
+    /** 计时执行一个无返回值的阶段。 */
+    public void runStage(MergeStage stage, IORunnable body) throws IOException {
+        recordStage(stage, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /** 计时整个 merge。 */
+    public <T> T recordMerge(IOCallable<T> body) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return body.call();
+        } finally {
+            mergeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** 启动以来某阶段的累计耗时（批处理结束时打印阶段分解用）。 */
+    public double stageTotalTime(MergeStage stage, TimeUnit unit) {
+        return stageTimers.get(stage).totalTime(unit);
+    }
+
+    /**
+     * 检查当前线程的 {@link Deadline}（没有绑定时直接返回）；已过期或已取消时按 stage 计入 pdf.merge.cancelled 后抛出。
+     */
+    private void checkDeadline(String stage) {
+        try {
+            Deadline.check();
+        } catch (Deadline.Cancelled e) {
+            recordCancelled(stage, e.reason());
+            throw e;
+        }
+    }
+
+    private void recordCancelled(String stage, Deadline.Reason reason) {
+        Counter.builder("pdf.merge.cancelled")
+                .description("Merges abandoned because their deadline passed or they were cancelled")
+                .tag("reason", reason.tag())
+                .tag("stage", stage)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordTemplate(long sizeBytes, int pages) {
+        templateBytes.record(sizeBytes);
+        templatePages.record(pages);
+    }
+
+    /**
+     * 记录一次错误响应。
+     *
+     * @param error  异常简单类名或错误类别
+     * @param status HTTP 状态码
+     */
+    public void recordError(String error, int status) {
+        Counter.builder("pdf.merge.errors")
+                .description("Merge requests that ended in an error response")
+                .tag("error", error)
+                .tag("status", String.valueOf(status))
+                .register(registry)
+                .increment();
+    }
+
+    @FunctionalInterface
+    public interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface IORunnable {
+        void run() throws IOException;
+    }
+}
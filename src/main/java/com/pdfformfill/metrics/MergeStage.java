@@ -0,0 +1,27 @@
+package com.pdfformfill.metrics;
+
+/**
+ * merge 流水线的各阶段，对应 {@code pdf.merge.stage} 计时器的 stage 标签。
+ */
+public enum MergeStage {
+    LOAD("load"),
+    PARSE("parse"),
+    PREPARE("prepare"),
+    /** 只输出部分页面时，把选中页面复制到新文档（含这些页面上的控件拍平） */
+    SUBSET("subset"),
+    FLATTEN("flatten"),
+    RENDER("render"),
+    /** 合并输出：逐份复制模板页面并绘制该份记录（包含每份的 subset 与 render） */
+    COMBINE("combine"),
+    SAVE("save");
+
+    private final String tag;
+
+    MergeStage(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
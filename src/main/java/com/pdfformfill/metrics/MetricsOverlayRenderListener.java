@@ -0,0 +1,65 @@
+package com.pdfformfill.metrics;
+
+import com.pdfformfill.pdf.overlay.OverlayRenderListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 将 {@link com.pdfformfill.pdf.overlay.PdfOverlayRenderer} 的字段事件转为计数器：
+ * 按 type 统计绘制的字段数，以及 shrink / truncate / wrap 事件数。
+ */
+@Component
+public class MetricsOverlayRenderListener implements OverlayRenderListener {
+
+    /** type 来自用户上传的 definition，只保留已知取值，避免标签基数失控。 */
+    private static final Set<String> KNOWN_TYPES = Set.of("string", "number", "date", "checkbox", "boolean");
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> fieldCounters = new ConcurrentHashMap<>();
+    private final Counter shrunk;
+    private final Counter truncated;
+    private final Counter wrapped;
+
+    public MetricsOverlayRenderListener(MeterRegistry registry) {
+        this.registry = registry;
+        this.shrunk = fitCounter("shrink");
+        this.truncated = fitCounter("truncate");
+        this.wrapped = fitCounter("wrap");
+    }
+
+    @Override
+    public void fieldRendered(String type) {
+        String tag = KNOWN_TYPES.contains(type) ? type : "other";
+        fieldCounters.computeIfAbsent(tag, t -> Counter.builder("pdf.overlay.fields")
+                .description("Fields drawn by the overlay renderer")
+                .tag("type", t)
+                .register(registry)).increment();
+    }
+
+    @Override
+    public void textShrunk(String fieldName) {
+        shrunk.increment();
+    }
+
+    @Override
+    public void textTruncated(String fieldName) {
+        truncated.increment();
+    }
+
+    @Override
+    public void textWrapped(String fieldName, int lines) {
+        wrapped.increment();
+    }
+
+    private Counter fitCounter(String event) {
+        return Counter.builder("pdf.overlay.text.fit")
+                .description("Text fitting events in the overlay renderer")
+                .tag("event", event)
+                .register(registry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.pdfformfill.metrics;
+
+import com.pdfformfill.service.PdfPreviewService;
+import com.pdfformfill.service.PreviewCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * 页面预览的指标：预览缓存（{@link PreviewCache}）的命中/未命中/淘汰次数、命中率、条目数与估算内存，以及实际渲染与预取的页数。
+ */
+@Component
+public class PreviewMetrics implements MeterBinder {
+
+    private final PreviewCache cache;
+    private final PdfPreviewService previewService;
+
+    public PreviewMetrics(PreviewCache cache, PdfPreviewService previewService) {
+        this.cache = cache;
+        this.previewService = previewService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pdf.preview.cache.requests", cache, PreviewCache::hits)
+                .description("Preview cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("pdf.preview.cache.requests", cache, PreviewCache::misses)
+                .description("Preview cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("pdf.preview.cache.evictions", cache, PreviewCache::evictions)
+                .description("Preview cache entries evicted by the size limit")
+                .register(registry);
+        Gauge.builder("pdf.preview.cache.hit.ratio", cache, PreviewCache::hitRate)
+                .description("Preview cache hit ratio since start")
+                .register(registry);
+        Gauge.builder("pdf.preview.cache.size", cache, PreviewCache::size)
+                .description("Preview cache entries")
+                .register(registry);
+        Gauge.builder("pdf.preview.cache.memory", cache, PreviewCache::estimatedBytes)
+                .description("Estimated memory retained by the preview cache")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("pdf.preview.pages.rendered", previewService, PdfPreviewService::renderedPages)
+                .description("Pages rendered to PNG, including prefetched pages")
+                .register(registry);
+        FunctionCounter.builder("pdf.preview.pages.prefetched", previewService, PdfPreviewService::prefetchedPages)
+                .description("Pages rendered ahead of the request by the preview thread pool")
+                .register(registry);
+    }
+}
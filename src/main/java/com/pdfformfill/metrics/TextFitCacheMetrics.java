@@ -0,0 +1,46 @@
+package com.pdfformfill.metrics;
+
+import com.pdfformfill.pdf.overlay.TextFitCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文字适配缓存（{@link TextFitCache}）的指标：命中/未命中/淘汰次数、命中率、条目数与估算内存占用。
+ */
+@Component
+public class TextFitCacheMetrics implements MeterBinder {
+
+    private final TextFitCache cache;
+
+    public TextFitCacheMetrics(TextFitCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pdf.overlay.fit.cache.requests", cache, TextFitCache::hits)
+                .description("Text-fit cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("pdf.overlay.fit.cache.requests", cache, TextFitCache::misses)
+                .description("Text-fit cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("pdf.overlay.fit.cache.evictions", cache, TextFitCache::evictions)
+                .description("Text-fit cache entries evicted by the size limits")
+                .register(registry);
+        Gauge.builder("pdf.overlay.fit.cache.hit.ratio", cache, TextFitCache::hitRate)
+                .description("Text-fit cache hit ratio since start")
+                .register(registry);
+        Gauge.builder("pdf.overlay.fit.cache.size", cache, TextFitCache::size)
+                .description("Text-fit cache entries")
+                .register(registry);
+        Gauge.builder("pdf.overlay.fit.cache.memory", cache, TextFitCache::estimatedBytes)
+                .description("Estimated memory retained by the text-fit cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,143 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.MergeCheckResponse.FieldIssue;
+import com.pdfformfill.pdf.FieldSpatialIndex;
+import com.pdfformfill.pdf.TemplateLayout;
+import com.pdfformfill.trace.MergeTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * 字段布局分析：超出页面的字段、互相重叠的字段、画在已有值的表单控件上的字段。
+ * 重叠与控件碰撞通过按页的空间索引（{@link FieldSpatialIndex}）查找，不做两两比较，数千个字段也只需几毫秒。
+ * <p>
+ * 预检接口总是返回这些问题；merge 前是否检查由 pdf.overlay.layout-guard 决定：
+ * off（默认，不检查）| warn（记录警告日志并写入慢请求追踪）| reject（有问题时拒绝请求，返回 400）。
+ */
+@Component
+public class FieldLayoutAnalyzer {
+
+    private static final Logger log = LoggerFactory.getLogger(FieldLayoutAnalyzer.class);
+
+    /** 拒绝请求或记录日志时列出的问题条数上限。 */
+    private static final int MAX_REPORTED = 5;
+
+    public enum Guard { OFF, WARN, REJECT }
+
+    private final Guard guard;
+
+    @Autowired
+    public FieldLayoutAnalyzer(@Value("${pdf.overlay.layout-guard:off}") String guard) {
+        this.guard = Guard.valueOf(guard.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /** 不做 merge 前检查（预检仍可用）。 */
+    public FieldLayoutAnalyzer() {
+        this("off");
+    }
+
+    public Guard guard() {
+        return guard;
+    }
+
+    /**
+     * 超出页面（outOfBounds）、字段重叠（overlap，每对报告一次，记在先出现的字段上）与控件碰撞（widgetCollision）。
+     * 页码超出模板的字段不参与。
+     */
+    public List<FieldIssue> analyze(List<FieldDefinition> fields, float scale, TemplateLayout layout) {
+        return analyze(fields, scale, layout, false);
+    }
+
+    /**
+     * 同上；acroFormFill 为 true 时（定义为 acroform 填表模式）与字段同名的控件不算碰撞：值写入控件本身，不叠加绘制。
+     */
+    public List<FieldIssue> analyze(List<FieldDefinition> fields, float scale, TemplateLayout layout,
+                                    boolean acroFormFill) {
+        List<FieldIssue> issues = new ArrayList<>();
+        List<FieldSpatialIndex.Rect> rects = new ArrayList<>(fields.size());
+        for (FieldDefinition field : fields) {
+            if (field.name() == null || field.x() == null || field.y() == null || field.page() == null) {
+                continue;
+            }
+            TemplateLayout.PageSize size = layout.page(field.page());
+            if (size == null) {
+                continue;
+            }
+            FieldSpatialIndex.Rect rect = FieldSpatialIndex.rect(field, scale);
+            // 没有宽高的文字字段只检查起点
+            FieldSpatialIndex.Rect box = rect != null ? rect : new FieldSpatialIndex.Rect(field.name(), field.page(),
+                    field.x().floatValue() / scale, field.y().floatValue() / scale, 0f, 0f);
+            float tolerance = FieldSpatialIndex.TOUCH_TOLERANCE;
+            if (box.x() < -tolerance || box.y() < -tolerance
+                    || box.maxX() > size.width() + tolerance || box.maxY() > size.height() + tolerance) {
+                issues.add(new FieldIssue(field.name(), field.page(), "outOfBounds", String.format(Locale.ROOT,
+                        "Rectangle (%.1f, %.1f, %.1f x %.1f pt) extends outside page %d (%.1f x %.1f pt)",
+                        box.x(), box.y(), box.width(), box.height(), field.page(), size.width(), size.height()), null));
+            }
+            if (rect != null) {
+                rects.add(rect);
+            }
+        }
+
+        // 裁剪到页面：页面外的部分看不见，也不会让网格随超大矩形膨胀
+        FieldSpatialIndex index = FieldSpatialIndex.build(rects, layout);
+        for (FieldSpatialIndex.Overlap overlap : index.overlaps()) {
+            issues.add(new FieldIssue(overlap.a().name(), overlap.a().page(), "overlap", String.format(Locale.ROOT,
+                    "Overlaps field '%s' by %.1f x %.1f pt", overlap.b().name(), overlap.overlapWidth(),
+                    overlap.overlapHeight()), null));
+        }
+        for (FieldSpatialIndex.Rect widget : layout.filledWidgets()) {
+            for (FieldSpatialIndex.Rect hit : index.intersecting(widget)) {
+                if (acroFormFill && hit.name().equals(widget.name())) {
+                    continue;
+                }
+                issues.add(new FieldIssue(hit.name(), hit.page(), "widgetCollision",
+                        "Overlaps form field '" + widget.name() + "', which already shows a value", null));
+            }
+        }
+        return issues;
+    }
+
+    /**
+     * merge 前的检查（pdf.overlay.layout-guard）：off 时什么都不做。
+     *
+     * @throws IllegalArgumentException reject 模式下发现问题时
+     */
+    public void guard(List<FieldDefinition> fields, Double scale, TemplateLayout layout) {
+        guard(fields, scale, layout, false);
+    }
+
+    /**
+     * 同上；acroFormFill 见 {@link #analyze(List, float, TemplateLayout, boolean)}。
+     *
+     * @throws IllegalArgumentException reject 模式下发现问题时
+     */
+    public void guard(List<FieldDefinition> fields, Double scale, TemplateLayout layout, boolean acroFormFill) {
+        if (guard == Guard.OFF || fields == null || fields.isEmpty()) {
+            return;
+        }
+        List<FieldIssue> issues = analyze(fields, scale != null && scale > 0 ? scale.floatValue() : 1f, layout,
+                acroFormFill);
+        MergeTrace.annotate("layoutIssues", issues.size());
+        if (issues.isEmpty()) {
+            return;
+        }
+        String summary = issues.stream().limit(MAX_REPORTED)
+                .map(i -> "'" + i.field() + "' (page " + i.page() + "): " + i.message())
+                .collect(Collectors.joining("; "))
+                + (issues.size() > MAX_REPORTED ? "; and " + (issues.size() - MAX_REPORTED) + " more" : "");
+        if (guard == Guard.REJECT) {
+            throw new IllegalArgumentException(issues.size() + " field layout issue(s): " + summary);
+        }
+        log.warn("{} field layout issue(s): {}", issues.size(), summary);
+    }
+}
@@ -0,0 +1,185 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.dto.MergeCheckResponse;
+import com.pdfformfill.dto.MergeCheckResponse.FieldIssue;
+import com.pdfformfill.pdf.ContentHash;
+import com.pdfformfill.pdf.PdfTemplateLoader;
+import com.pdfformfill.pdf.TemplateIndex;
+import com.pdfformfill.pdf.TemplateLayout;
+import com.pdfformfill.pdf.overlay.OverlayOptions;
+import com.pdfformfill.pdf.overlay.PdfOverlayRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预检：不生成 PDF，只校验定义能否按预期绘制，开销远小于 merge，编辑器可在每次修改后调用。
+ * <ul>
+ *   <li>模板只读取页面树与各页 MediaBox（{@link TemplateLayout}），不加载内容流；布局按模板内容的 SHA-256 缓存，
+ *       编辑定义时反复上传同一模板只需计算一次摘要；模板库（{@link TemplateStore}）中的模板直接读取 sidecar 索引</li>
+ *   <li>逐个字段校验名称、坐标、页码与尺寸；超出页面、互相重叠或画在已有值的控件上的字段由 {@link FieldLayoutAnalyzer}
+ *       通过空间索引找出（按 scale 换算为 pt，与绘制时一致）</li>
+ *   <li>用与 merge 相同的 mock 数据（seed 可选）和相同的字体、字号与适配缓存计算文字适配，报告被缩小或被截断的字段</li>
+ * </ul>
+ */
+@Service
+public class MergeCheckService {
+
+    /** merge 时会被整体跳过的字段问题。 */
+    private static final Set<String> SKIPPED = Set.of("missingName", "missingPosition", "pageOutOfRange");
+
+    private final PdfTemplateLoader pdfTemplateLoader;
+    private final ObjectMapper objectMapper;
+    private final FieldDataPreparer fieldDataPreparer;
+    private final MockRecordGenerator mockRecordGenerator;
+    private final PdfOverlayRenderer pdfOverlayRenderer;
+    private final FieldLayoutAnalyzer fieldLayoutAnalyzer;
+    private final TemplateStore templateStore;
+    private final Map<String, TemplateLayout> layouts;
+
+    @Value("${pdf.checkbox.checked-image:classpath:checked-symbol.png}")
+    private String defaultCheckboxCheckedImage;
+
+    public MergeCheckService(
+            PdfTemplateLoader pdfTemplateLoader,
+            ObjectMapper objectMapper,
+            FieldDataPreparer fieldDataPreparer,
+            MockRecordGenerator mockRecordGenerator,
+            PdfOverlayRenderer pdfOverlayRenderer,
+            FieldLayoutAnalyzer fieldLayoutAnalyzer,
+            TemplateStore templateStore,
+            @Value("${pdf.check.layout-cache-size:256}") int layoutCacheSize
+    ) {
+        this.pdfTemplateLoader = pdfTemplateLoader;
+        this.objectMapper = objectMapper;
+        this.fieldDataPreparer = fieldDataPreparer;
+        this.mockRecordGenerator = mockRecordGenerator;
+        this.pdfOverlayRenderer = pdfOverlayRenderer;
+        this.fieldLayoutAnalyzer = fieldLayoutAnalyzer;
+        this.templateStore = templateStore;
+        int maxLayouts = Math.max(0, layoutCacheSize);
+        this.layouts = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TemplateLayout> eldest) {
+                return size() > maxLayouts;
+            }
+        });
+    }
+
+    /**
+     * 校验模板与定义；seed 含义与 merge 相同（决定用于文字适配的 mock 值）。
+     *
+     * @throws com.fasterxml.jackson.core.JsonProcessingException definition 不是合法 JSON 时
+     * @throws IOException 模板无法解析或没有页面时
+     */
+    public MergeCheckResponse check(MultipartFile template, MultipartFile definition, Long seed) throws IOException {
+        TemplateLayout layout = layout(template.getBytes());
+        FieldsDefinition fieldsDefinition = objectMapper.readValue(definition.getBytes(), FieldsDefinition.class);
+        List<FieldDefinition> fields = fieldsDefinition.fields() != null ? fieldsDefinition.fields() : List.of();
+        return MergeCheckResponse.ok(layout.pageCount(), fields.size(), check(layout, fieldsDefinition, seed));
+    }
+
+    /**
+     * 校验模板库中的模板（templateId 为内容 SHA-256），页面布局来自 sidecar 索引；
+     * definition 为 null 或空时校验从 AcroForm 提取的定义草稿。
+     *
+     * @throws IllegalArgumentException 模板不存在时
+     */
+    public MergeCheckResponse check(String templateId, MultipartFile definition, Long seed) throws IOException {
+        TemplateIndex index = templateStore.index(templateId)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown template: " + templateId));
+        FieldsDefinition fieldsDefinition = definition != null && !definition.isEmpty()
+                ? objectMapper.readValue(definition.getBytes(), FieldsDefinition.class)
+                : index.definition();
+        List<FieldDefinition> fields = fieldsDefinition.fields() != null ? fieldsDefinition.fields() : List.of();
+        return MergeCheckResponse.ok(index.pages().size(), fields.size(), check(index.layout(), fieldsDefinition, seed));
+    }
+
+    /** 见 {@link #check(MultipartFile, MultipartFile, Long)}；返回按字段顺序排列的问题。 */
+    public List<FieldIssue> check(TemplateLayout layout, FieldsDefinition fieldsDefinition, Long seed) throws IOException {
+        List<FieldDefinition> fields = fieldsDefinition.fields() != null ? fieldsDefinition.fields() : List.of();
+        OverlayOptions options = OverlayOptions.from(fieldsDefinition, defaultCheckboxCheckedImage);
+        float scale = options.scale() != null ? options.scale().floatValue() : 1f;
+
+        List<FieldIssue> issues = new ArrayList<>();
+        List<FieldDefinition> drawable = new ArrayList<>(fields.size());
+        for (FieldDefinition field : fields) {
+            FieldIssue issue = checkPlacement(field, layout);
+            if (issue != null) {
+                issues.add(issue);
+            }
+            // 尺寸不合法的字段仍会被绘制（图片字段除外，文字适配本来就跳过图片），继续检查布局与文字适配
+            if (issue == null || !SKIPPED.contains(issue.problem())) {
+                drawable.add(field);
+            }
+        }
+        issues.addAll(fieldLayoutAnalyzer.analyze(drawable, scale, layout, fieldsDefinition.acroFormFill()));
+
+        Map<String, Object> fieldData = seed != null
+                ? mockRecordGenerator.source(fieldsDefinition, seed).record(0)
+                : fieldDataPreparer.prepareMockData(fieldsDefinition);
+        for (PdfOverlayRenderer.TextCheck fit : pdfOverlayRenderer.checkText(drawable, fieldData, options)) {
+            if (fit.truncated()) {
+                issues.add(new FieldIssue(fit.field(), fit.page(), "truncated",
+                        String.format(Locale.ROOT, "Text does not fit even at the minimum font size %.1f and will be cut",
+                                options.minFontSize()),
+                        fit.fontSize()));
+            } else if (fit.shrunk()) {
+                issues.add(new FieldIssue(fit.field(), fit.page(), "shrunk",
+                        String.format(Locale.ROOT, "Text will be drawn at font size %.1f instead of %.1f",
+                                fit.fontSize(), options.fontSize()), fit.fontSize()));
+            }
+        }
+        return issues;
+    }
+
+    /** 会导致字段不被绘制或尺寸不可用的问题；没有问题时返回 null。 */
+    private static FieldIssue checkPlacement(FieldDefinition field, TemplateLayout layout) {
+        String name = field.name();
+        Integer page = field.page();
+        if (name == null || name.isBlank()) {
+            return new FieldIssue(name, page, "missingName", "Field has no name and will be skipped", null);
+        }
+        if (field.x() == null || field.y() == null) {
+            return new FieldIssue(name, page, "missingPosition", "Field has no x/y and will be skipped", null);
+        }
+        TemplateLayout.PageSize size = page != null ? layout.page(page) : null;
+        if (size == null) {
+            return new FieldIssue(name, page, "pageOutOfRange",
+                    "Page " + page + " is outside the template (1-" + layout.pageCount() + ")", null);
+        }
+        String type = field.type() != null ? field.type().toLowerCase(Locale.ROOT) : "";
+        boolean image = "image".equals(type) || "signature".equals(type);
+        if ((field.width() != null && field.width() < 0) || (field.height() != null && field.height() < 0)
+                || (image && (field.width() == null || field.height() == null || field.width() <= 0 || field.height() <= 0))) {
+            return new FieldIssue(name, page, "invalidSize",
+                    image ? "Image fields need a positive width and height" : "Width and height must not be negative", null);
+        }
+        return null;
+    }
+
+    private TemplateLayout layout(byte[] pdf) throws IOException {
+        String sha = ContentHash.sha256(pdf);
+        TemplateLayout layout = layouts.get(sha);
+        if (layout == null) {
+            layout = templateStore.index(sha).map(TemplateIndex::layout).orElse(null);
+        }
+        if (layout == null) {
+            layout = pdfTemplateLoader.layout(pdf);
+            layouts.put(sha, layout);
+        }
+        return layout;
+    }
+}
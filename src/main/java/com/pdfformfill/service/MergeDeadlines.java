@@ -0,0 +1,41 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.engine.Deadline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * merge 请求的截止时间：来自请求头 {@value #TIMEOUT_HEADER}（毫秒）或 pdf.merge.timeout-ms（0 = 不限）；
+ * 两者都有时取较小者，即配置是上限，请求头只能缩短。客户端把自己的超时作为请求头发送，服务端就在客户端放弃的
+ * 同时放弃这次 merge，不再为没人读取的结果继续解析、渲染与保存。
+ */
+@Component
+public class MergeDeadlines {
+
+    /** 请求头：本次 merge 最多用多少毫秒，超过后放弃并返回 503。 */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final long timeoutMillis;
+
+    public MergeDeadlines(@Value("${pdf.merge.timeout-ms:0}") long timeoutMillis) {
+        this.timeoutMillis = Math.max(0, timeoutMillis);
+    }
+
+    /**
+     * 本次请求的截止时间，从现在起算；请求头与配置都没有时为 {@link Deadline#none()}。
+     *
+     * @param requestedMillis 请求头中的毫秒数，可为 null
+     * @throws IllegalArgumentException requestedMillis 不是正数时
+     */
+    public Deadline deadline(Long requestedMillis) {
+        if (requestedMillis != null && requestedMillis <= 0) {
+            throw new IllegalArgumentException(TIMEOUT_HEADER + " must be a positive number of milliseconds");
+        }
+        long millis = requestedMillis != null
+                ? (timeoutMillis > 0 ? Math.min(requestedMillis, timeoutMillis) : requestedMillis)
+                : timeoutMillis;
+        return millis > 0 ? Deadline.after(Duration.ofMillis(millis)) : Deadline.none();
+    }
+}
@@ -4,119 +4,330 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pdfformfill.dto.FieldDefinition;
 import com.pdfformfill.dto.FieldsDefinition;
 import com.pdfformfill.dto.MergeResponse;
+import com.pdfformfill.engine.Deadline;
+import com.pdfformfill.engine.FillEngine;
+import com.pdfformfill.jfr.MergeEvent;
+import com.pdfformfill.metrics.MergeMetrics;
+import com.pdfformfill.metrics.MergeStage;
+import com.pdfformfill.pdf.PageSelection;
+import com.pdfformfill.pdf.PageSubsetter;
 import com.pdfformfill.pdf.PdfTemplateLoader;
+import com.pdfformfill.pdf.TemplateIndex;
+import com.pdfformfill.pdf.TemplateLayout;
 import com.pdfformfill.pdf.overlay.OverlayOptions;
 import com.pdfformfill.pdf.overlay.PdfOverlayRenderer;
+import com.pdfformfill.trace.MergeTrace;
+import com.pdfformfill.trace.MergeTracer;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * 编排：加载模板 → 解析定义 → 准备 mock 数据 → overlay 渲染（任意 PDF 均按坐标绘制）→ 保存。
+ * 当前线程绑定了 {@link Deadline} 时，每个阶段开始前、渲染的页面与字段之间、保存的每个缓冲区都会检查它，
+ * 放弃时抛出 {@link Deadline.Cancelled}，打开的模板与输出文档随 try-with-resources 关闭。
  */
 @Service
 public class PdfFormFillService {
 
-    private static final Logger log = LoggerFactory.getLogger(PdfFormFillService.class);
-
     private final PdfTemplateLoader pdfTemplateLoader;
     private final ObjectMapper objectMapper;
     private final FieldDataPreparer fieldDataPreparer;
+    private final MockRecordGenerator mockRecordGenerator;
+    private final FillEngine fillEngine;
     private final PdfOverlayRenderer pdfOverlayRenderer;
+    private final PdfOutputStore pdfOutputStore;
+    private final PageSubsetter pageSubsetter;
+    private final FieldLayoutAnalyzer fieldLayoutAnalyzer;
+    private final TemplateStore templateStore;
+    private final MergeMetrics mergeMetrics;
+    private final MergeTracer mergeTracer;
 
-    @Value("${pdf.output.dir:${user.dir}/filled-pdfs}")
-    private String outputDir;
-
-    @Value("${pdf.flatten-before-overlay:true}")
-    private boolean flattenBeforeOverlay;
-
-    @Value("${pdf.checkbox.checked-image:classpath:checked-symbol.png}")
-    private String defaultCheckboxCheckedImage;
+    @Value("${pdf.combined.max-records:1000}")
+    private int maxCombinedRecords;
 
     public PdfFormFillService(
             PdfTemplateLoader pdfTemplateLoader,
             ObjectMapper objectMapper,
             FieldDataPreparer fieldDataPreparer,
-            PdfOverlayRenderer pdfOverlayRenderer
+            MockRecordGenerator mockRecordGenerator,
+            FillEngine fillEngine,
+            PdfOutputStore pdfOutputStore,
+            PageSubsetter pageSubsetter,
+            FieldLayoutAnalyzer fieldLayoutAnalyzer,
+            TemplateStore templateStore,
+            MergeMetrics mergeMetrics,
+            MergeTracer mergeTracer
     ) {
         this.pdfTemplateLoader = pdfTemplateLoader;
         this.objectMapper = objectMapper;
         this.fieldDataPreparer = fieldDataPreparer;
-        this.pdfOverlayRenderer = pdfOverlayRenderer;
+        this.mockRecordGenerator = mockRecordGenerator;
+        this.fillEngine = fillEngine;
+        this.pdfOverlayRenderer = fillEngine.renderer();
+        this.pdfOutputStore = pdfOutputStore;
+        this.pageSubsetter = pageSubsetter;
+        this.fieldLayoutAnalyzer = fieldLayoutAnalyzer;
+        this.templateStore = templateStore;
+        this.mergeMetrics = mergeMetrics;
+        this.mergeTracer = mergeTracer;
     }
 
     /**
      * 接收模板与定义文件，生成填好的 PDF 并保存到 pdf.output.dir，返回保存路径。
      */
     public MergeResponse merge(MultipartFile template, MultipartFile definition) throws IOException {
-        try (PDDocument document = pdfTemplateLoader.load(template.getInputStream())) {
+        return merge(template, definition, null);
+    }
+
+    /**
+     * 同上；seed 不为 null 时用 {@link MockRecordGenerator} 按 seed 生成一条随机记录代替固定 mock 值
+     * （同一 seed 结果相同，压测时每个请求用不同 seed 即可得到不同长度的文本）。
+     */
+    public MergeResponse merge(MultipartFile template, MultipartFile definition, Long seed) throws IOException {
+        return merge(template, definition, seed, PageSelection.ALL);
+    }
+
+    /**
+     * 同上；pages 不是 {@link PageSelection#ALL} 时只输出选中的页面：选中页复制到新文档后再 flatten、overlay 与保存，
+     * 耗时与输出大小随用到的页数而不是模板页数增长（子集中的表单域总是被拍平，见 {@link PageSubsetter}；
+     * 因此 fillMode 为 acroform 的定义在子集与合并输出中也按 overlay 绘制）。
+     */
+    public MergeResponse merge(MultipartFile template, MultipartFile definition, Long seed, PageSelection pages) throws IOException {
+        return merge(template, definition, seed, pages, null);
+    }
+
+    /**
+     * 同上；records 不为 null 时为合并输出：把 records 份填好的模板（第 i 份用 seed 的第 i 条随机记录，seed 默认 0）
+     * 依次追加到同一个 PDF。各份共享模板的内容流与资源（字体、图片、Form XObject）以及 overlay 的字体与图片，
+     * 只写一次；新生成的内容流缓存在临时文件中，内存不随份数增长。
+     *
+     * @throws IllegalArgumentException records 不在 1..pdf.combined.max-records 之间时
+     */
+    public MergeResponse merge(MultipartFile template, MultipartFile definition, Long seed, PageSelection pages,
+                               Integer records) throws IOException {
+        return merge(new TemplateInput(template.getOriginalFilename(), template.getSize(),
+                        () -> pdfTemplateLoader.load(template.getInputStream()), null),
+                () -> parseDefinition(definition), seed, pages, records);
+    }
+
+    /**
+     * 同上，模板来自模板库（templateId 为内容 SHA-256）：模板从文件按需读取，merge 前的布局检查使用 sidecar 索引，
+     * 不再遍历页面与字段树；definition 为 null 或空时使用从 AcroForm 提取的定义草稿。
+     *
+     * @throws IllegalArgumentException 模板不存在时
+     */
+    public MergeResponse merge(String templateId, MultipartFile definition, Long seed, PageSelection pages,
+                               Integer records) throws IOException {
+        TemplateIndex index = templateStore.index(templateId)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown template: " + templateId));
+        Path file = templateStore.resolve(templateId)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown template: " + templateId));
+        MergeMetrics.IOCallable<FieldsDefinition> fieldsDefinition = definition != null && !definition.isEmpty()
+                ? () -> parseDefinition(definition)
+                : index::definition;
+        return merge(new TemplateInput(file.getFileName().toString(), index.bytes(), () -> pdfTemplateLoader.load(file), index),
+                fieldsDefinition, seed, pages, records);
+    }
+
+    /** 一次 merge 的模板：上传的文件，或模板库中的模板（index 为其 sidecar 索引，上传的模板为 null）。 */
+    private record TemplateInput(String name, long size, MergeMetrics.IOCallable<PDDocument> loader, TemplateIndex index) {}
+
+    private MergeResponse merge(TemplateInput template, MergeMetrics.IOCallable<FieldsDefinition> definition, Long seed,
+                                PageSelection pages, Integer records) throws IOException {
+        if (records != null && (records < 1 || records > maxCombinedRecords)) {
+            throw new IllegalArgumentException("records must be between 1 and " + maxCombinedRecords);
+        }
+        MergeTrace trace = mergeTracer.begin(template.name());
+        MergeEvent event = new MergeEvent();
+        event.begin();
+        String outcome = "error";
+        try {
+            MergeResponse response = mergeMetrics.recordMerge(() -> doMerge(template, definition, seed, pages, records));
+            outcome = "ok";
+            event.templatePages = response.templatePages();
+            event.definitionFields = response.definitionFields();
+            return response;
+        } catch (Deadline.Cancelled e) {
+            outcome = "cancelled";
+            throw e;
+        } finally {
+            mergeTracer.finish(trace, outcome);
+            event.template = template.name();
+            event.templateBytes = template.size();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    private MergeResponse doMerge(TemplateInput template, MergeMetrics.IOCallable<FieldsDefinition> definition, Long seed,
+                                  PageSelection pages, Integer records) throws IOException {
+        try (PDDocument document = mergeMetrics.recordStage(MergeStage.LOAD, template.loader())) {
             int templatePages = document.getNumberOfPages();
             if (templatePages <= 0) {
                 throw new IOException("PDF template has no pages.");
             }
+            mergeMetrics.recordTemplate(template.size(), templatePages);
+            MergeTrace.annotate("templateBytes", template.size());
+            MergeTrace.annotate("templatePages", templatePages);
 
-            String definitionJson = new String(definition.getBytes(), StandardCharsets.UTF_8);
-            FieldsDefinition fieldsDefinition = objectMapper.readValue(definitionJson, FieldsDefinition.class);
+            FieldsDefinition fieldsDefinition = mergeMetrics.recordStage(MergeStage.PARSE, definition);
             int definitionFields = fieldsDefinition.fields() != null ? fieldsDefinition.fields().size() : 0;
+            MergeTrace.annotate("definitionFields", definitionFields);
+            if (fieldLayoutAnalyzer.guard() != FieldLayoutAnalyzer.Guard.OFF) {
+                // 只有单份、全部页面的输出走 acroform 填表，合并与子集输出仍叠加绘制
+                boolean acroFormFill = fieldsDefinition.acroFormFill() && records == null
+                        && (pages == null || pages.isAll());
+                fieldLayoutAnalyzer.guard(fieldsDefinition.fields(), fieldsDefinition.scale(),
+                        template.index() != null ? template.index().layout() : TemplateLayout.of(document),
+                        acroFormFill);
+            }
 
-            Map<String, Object> fieldData = fieldDataPreparer.prepareMockData(fieldsDefinition);
-
-            // Flatten AcroForm so widget appearances (e.g. gray field backgrounds) are merged
-            // into the page content stream. Our overlay then draws on top and is no longer covered.
-            if (flattenBeforeOverlay) {
-                flattenAcroFormIfPresent(document);
+            if (records != null) {
+                return combine(document, fieldsDefinition, seed != null ? seed : 0L,
+                        pages != null ? pages : PageSelection.ALL, records, templatePages, definitionFields);
             }
 
+            Map<String, Object> fieldData = mergeMetrics.recordStage(MergeStage.PREPARE,
+                    () -> seed != null
+                            ? mockRecordGenerator.source(fieldsDefinition, seed).record(0)
+                            : fieldDataPreparer.prepareMockData(fieldsDefinition));
+
             List<FieldDefinition> fields = fieldsDefinition.fields() != null
                     ? fieldsDefinition.fields()
                     : Collections.emptyList();
-            OverlayOptions options = OverlayOptions.from(fieldsDefinition, defaultCheckboxCheckedImage);
-            pdfOverlayRenderer.render(document, fields, fieldData, options);
+            OverlayOptions options = fillEngine.options(fieldsDefinition);
+
+            if (pages != null && !pages.isAll()) {
+                int[] selected = pages.resolve(fields, templatePages);
+                MergeTrace.annotate("outputPages", selected.length);
+                PageSubsetter.Subset subset = mergeMetrics.recordStage(MergeStage.SUBSET,
+                        () -> pageSubsetter.subset(document, selected));
+                try (PDDocument subsetDocument = subset.document()) {
+                    List<FieldDefinition> subsetFields = subset.remap(fields);
+                    mergeMetrics.runStage(MergeStage.RENDER,
+                            () -> pdfOverlayRenderer.render(subsetDocument, subsetFields, fieldData, options));
+                    Path output = mergeMetrics.recordStage(MergeStage.SAVE, () -> pdfOutputStore.save(subsetDocument));
+                    return MergeResponse.ok(output.toString(), pdfOutputStore.downloadUrl(output), templatePages,
+                            definitionFields, selected.length);
+                }
+            }
 
-            String outputPath = saveToOutputDir(document);
-            return MergeResponse.ok(outputPath, templatePages, definitionFields);
+            // acroform 模式：值写入模板自带的表单字段，不拍平
+            if (fieldsDefinition.acroFormFill()) {
+                boolean flattenFilled = Boolean.TRUE.equals(fieldsDefinition.flattenFilled());
+                mergeMetrics.runStage(MergeStage.RENDER,
+                        () -> pdfOverlayRenderer.fillForm(document, fields, fieldData, options, flattenFilled));
+                Path output = mergeMetrics.recordStage(MergeStage.SAVE, () -> pdfOutputStore.save(document));
+                return MergeResponse.ok(output.toString(), pdfOutputStore.downloadUrl(output), templatePages, definitionFields);
+            }
+
+            // Flatten AcroForm so widget appearances (e.g. gray field backgrounds) are merged
+            // into the page content stream. Our overlay then draws on top and is no longer covered.
+            if (fillEngine.flattenForms()) {
+                mergeMetrics.runStage(MergeStage.FLATTEN, () -> FillEngine.flatten(document));
+            }
+
+            mergeMetrics.runStage(MergeStage.RENDER, () -> pdfOverlayRenderer.render(document, fields, fieldData, options));
+
+            Path output = mergeMetrics.recordStage(MergeStage.SAVE, () -> pdfOutputStore.save(document));
+            return MergeResponse.ok(output.toString(), pdfOutputStore.downloadUrl(output), templatePages, definitionFields);
         }
     }
 
     /**
-     * If the document has an AcroForm, flatten it so that form field widget appearances
-     * (e.g. gray backgrounds) are merged into the page content stream. After that, our
-     * overlay text is drawn on top and is no longer covered by annotation layers.
+     * 批量填表（命令行批处理，见 {@code com.pdfformfill.cli.BatchFillCommand}）：模板由 {@link FillEngine#prepare}
+     * 只加载、拍平一次并检查布局，之后每份输出从拍平后的字节加载、绘制并直接写到指定文件，不经过 HTTP、multipart 与输出目录。
+     *
+     * @throws IOException 模板无法解析或没有页面时
+     * @throws IllegalArgumentException 布局检查为 reject 且定义有布局问题时
      */
-    private void flattenAcroFormIfPresent(PDDocument document) {
-        try {
-            PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm(null);
-            if (acroForm == null) {
-                return;
-            }
-            acroForm.flatten();
-            log.debug("AcroForm flattened so overlay text will appear above field backgrounds.");
-        } catch (Exception e) {
-            log.warn("Could not flatten AcroForm (document may have no form or flatten failed): {}. Overlay will still run.", e.getMessage());
+    public BatchFill batch(byte[] template, FieldsDefinition fieldsDefinition) throws IOException {
+        FillEngine.Job job = fillEngine.prepare(template, fieldsDefinition);
+        if (fieldLayoutAnalyzer.guard() != FieldLayoutAnalyzer.Guard.OFF) {
+            fieldLayoutAnalyzer.guard(fieldsDefinition.fields(), fieldsDefinition.scale(), job.layout(),
+                    fieldsDefinition.acroFormFill());
+        }
+        return new BatchFill(job, fieldsDefinition);
+    }
+
+    /** 一次批处理：{@link FillEngine.Job} 加上各阶段指标，{@link #fill} 可在多个线程中并发调用（每份独立加载模板）。 */
+    public final class BatchFill {
+
+        private final FillEngine.Job job;
+        private final FieldsDefinition definition;
+
+        private BatchFill(FillEngine.Job job, FieldsDefinition definition) {
+            this.job = job;
+            this.definition = definition;
+        }
+
+        public int templatePages() {
+            return job.templatePages();
+        }
+
+        public FieldsDefinition definition() {
+            return definition;
+        }
+
+        /** 用一条记录（字段名 → 值）填模板并保存到 output，返回输出页数。 */
+        public int fill(Map<String, Object> record, Path output) throws IOException {
+            return mergeMetrics.recordMerge(() -> {
+                try (PDDocument document = mergeMetrics.recordStage(MergeStage.LOAD, job::load)) {
+                    mergeMetrics.runStage(MergeStage.RENDER, () -> job.render(document, record));
+                    mergeMetrics.runStage(MergeStage.SAVE, () -> document.save(output.toFile()));
+                    return document.getNumberOfPages();
+                }
+            });
+        }
+    }
+
+    private MergeResponse combine(PDDocument document, FieldsDefinition fieldsDefinition, long seed, PageSelection pages,
+                                  int records, int templatePages, int definitionFields) throws IOException {
+        List<FieldDefinition> fields = fieldsDefinition.fields() != null
+                ? fieldsDefinition.fields()
+                : Collections.emptyList();
+        int[] selected = pages.resolve(fields, templatePages);
+        if (selected.length == 0) {
+            throw new IllegalArgumentException("No template pages selected.");
+        }
+        MergeTrace.annotate("records", records);
+        MergeTrace.annotate("outputPages", (long) selected.length * records);
+
+        // 模板只拍平一次，各份共享拍平后的内容流
+        if (fillEngine.flattenForms()) {
+            mergeMetrics.runStage(MergeStage.FLATTEN, () -> FillEngine.flatten(document));
+        }
+        MockRecordGenerator.RecordSource source = mockRecordGenerator.source(fieldsDefinition, seed);
+        OverlayOptions options = fillEngine.options(fieldsDefinition);
+        try (PDDocument combined = new PDDocument(IOUtils.createTempFileOnlyStreamCache())) {
+            combined.getDocument().setVersion(document.getDocument().getVersion());
+            mergeMetrics.runStage(MergeStage.COMBINE, () -> {
+                PdfOverlayRenderer.Session session = pdfOverlayRenderer.session(combined, options);
+                List<FieldDefinition> copyFields = PageSubsetter.remap(fields, selected);
+                for (int i = 0; i < records; i++) {
+                    List<PDPage> copy = pageSubsetter.append(combined, document, selected);
+                    session.render(copyFields, source.record(i), copy);
+                }
+            });
+            Path output = mergeMetrics.recordStage(MergeStage.SAVE, () -> pdfOutputStore.save(combined));
+            return MergeResponse.ok(output.toString(), pdfOutputStore.downloadUrl(output), templatePages,
+                    definitionFields, combined.getNumberOfPages());
         }
     }
 
-    private String saveToOutputDir(PDDocument document) throws IOException {
-        String dirStr = outputDir != null ? outputDir : System.getProperty("user.dir") + "/filled-pdfs";
-        Path dir = Paths.get(dirStr);
-        Files.createDirectories(dir);
-        String filename = "filled-" + UUID.randomUUID() + ".pdf";
-        Path target = dir.resolve(filename);
-        document.save(target.toFile());
-        return target.toAbsolutePath().toString();
+    private FieldsDefinition parseDefinition(MultipartFile definition) throws IOException {
+        String definitionJson = new String(definition.getBytes(), StandardCharsets.UTF_8);
+        return objectMapper.readValue(definitionJson, FieldsDefinition.class);
     }
 }
@@ -0,0 +1,145 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.engine.Deadline;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 生成结果的存储目录（pdf.output.dir）：负责保存填好的 PDF，并按文件名安全地解析回磁盘路径供下载。
+ * 输出文件名为 filled-&lt;uuid&gt;.pdf，写入后不再修改，因此可以使用强 ETag 与长期缓存。
+ */
+@Component
+public class PdfOutputStore {
+
+    /** 只接受本服务生成的文件名，避免路径穿越（../）或访问目录内其他文件。 */
+    private static final Pattern OUTPUT_NAME = Pattern.compile("filled-[0-9a-fA-F-]{36}\\.pdf");
+
+    private final Path dir;
+
+    public PdfOutputStore(@Value("${pdf.output.dir:${user.dir}/filled-pdfs}") String outputDir) {
+        String dirStr = outputDir != null ? outputDir : System.getProperty("user.dir") + "/filled-pdfs";
+        this.dir = Paths.get(dirStr).toAbsolutePath().normalize();
+    }
+
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * 保存文档到输出目录，返回保存后的绝对路径。先写到同目录的临时文件（见 {@link #tempFile}），写完后原子改名，
+     * 下载与预览接口只会看到完整的文件。每写出一个缓冲区检查一次当前线程的 {@link Deadline}：
+     * 保存中途放弃（或失败）时删除写了一半的临时文件。
+     */
+    public Path save(PDDocument document) throws IOException {
+        Path target = newFile();
+        Path tmp = tempFile(target);
+        try {
+            try (OutputStream out = new BufferedOutputStream(new DeadlineOutputStream(Files.newOutputStream(tmp)),
+                    WRITE_BUFFER_BYTES)) {
+                document.save(out);
+            }
+            moveIntoPlace(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return target;
+    }
+
+    /**
+     * target 的临时文件：同目录、以点开头，不匹配输出文件名，{@link #resolve} 不会返回它。
+     */
+    public Path tempFile(Path target) {
+        return target.resolveSibling("." + target.getFileName() + ".tmp");
+    }
+
+    /** 把写完的临时文件原子改名为 target；文件系统不支持原子改名时退回普通改名。 */
+    public void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 为一个新输出分配路径（文件尚未创建），例如批量分片逐条写出；调用方写到 {@link #tempFile} 后用
+     * {@link #moveIntoPlace} 改名。
+     */
+    public Path newFile() throws IOException {
+        Files.createDirectories(dir);
+        return dir.resolve(newFilename());
+    }
+
+    /**
+     * 按文件名解析已保存的输出；文件名不合法或文件不存在时返回 empty。
+     */
+    public Optional<Path> resolve(String filename) {
+        if (filename == null || !OUTPUT_NAME.matcher(filename).matches()) {
+            return Optional.empty();
+        }
+        Path file = dir.resolve(filename).normalize();
+        if (!file.startsWith(dir) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    /**
+     * 下载地址（相对路径），与 {@code GET /api/pdf/outputs/{filename}} 对应。
+     */
+    public String downloadUrl(Path file) {
+        return "/api/pdf/outputs/" + file.getFileName();
+    }
+
+    /**
+     * 强 ETag：输出文件写入后不可变，用 文件名 + 大小 + 修改时间 的摘要即可唯一标识其字节内容。
+     */
+    public static String etag(Path file, BasicFileAttributes attrs) {
+        String key = file.getFileName() + ":" + attrs.size() + ":" + attrs.lastModifiedTime().toMillis();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    /** 每次写入底层文件前检查截止时间；上层有缓冲，检查次数约为输出字节数 / 64 KiB。 */
+    private static final class DeadlineOutputStream extends FilterOutputStream {
+
+        DeadlineOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Deadline.check();
+            out.write(b, off, len);
+        }
+    }
+
+    private static String newFilename() {
+        return "filled-" + UUID.randomUUID() + ".pdf";
+    }
+}
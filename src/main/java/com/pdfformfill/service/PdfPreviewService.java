@@ -0,0 +1,260 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.pdf.ContentHash;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 页面预览：用 PDFBox {@link PDFRenderer} 把输出 PDF 或上传的模板的某一页渲染为 PNG。
+ * <p>
+ * 渲染结果按 (文档标识, 页码, dpi) 缓存在 {@link PreviewCache}；未命中时在请求线程渲染所请求的页，
+ * 同时把其后 prefetch-pages 页分成若干段交给预览线程池并行渲染（每段打开自己的 PDDocument，PDFBox 文档不是线程安全的），
+ * 用户向后翻页时直接命中缓存。正在渲染的页登记在 in-flight 表中，同一页的并发请求等待同一次渲染而不重复渲染。
+ */
+@Service
+public class PdfPreviewService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfPreviewService.class);
+
+    /** 打开预览文档；每次调用返回一个新的 PDDocument，由调用方关闭。 */
+    @FunctionalInterface
+    public interface DocumentOpener {
+        PDDocument open() throws IOException;
+    }
+
+    private final PreviewCache cache;
+    private final int defaultDpi;
+    private final int maxDpi;
+    private final long maxPixels;
+    private final int prefetchPages;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final Map<PreviewCache.Key, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder renderedPages = new LongAdder();
+    private final LongAdder prefetchedPages = new LongAdder();
+
+    @Autowired
+    public PdfPreviewService(
+            PreviewCache cache,
+            @Value("${pdf.preview.default-dpi:96}") int defaultDpi,
+            @Value("${pdf.preview.max-dpi:300}") int maxDpi,
+            @Value("${pdf.preview.max-pixels:40000000}") long maxPixels,
+            @Value("${pdf.preview.prefetch-pages:3}") int prefetchPages,
+            @Value("${pdf.preview.threads:0}") int threads) {
+        this.cache = cache;
+        this.defaultDpi = defaultDpi;
+        this.maxDpi = maxDpi;
+        this.maxPixels = maxPixels;
+        this.prefetchPages = Math.max(0, prefetchPages);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // 队列有界：预取只是优化，线程池忙时直接放弃，不堆积
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(this.threads * 4), previewThreads());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public int defaultDpi() {
+        return defaultDpi;
+    }
+
+    /**
+     * 已保存的输出文件的第 page 页（1 起始）。输出文件不可变，文档标识用与下载接口相同的强 ETag。
+     *
+     * @throws IllegalArgumentException 页码超出范围、dpi 不合法或渲染尺寸超过 max-pixels 时
+     */
+    public byte[] outputPage(Path file, int page, int dpi) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        String document = "output:" + PdfOutputStore.etag(file, attrs);
+        return page(document, () -> Loader.loadPDF(file.toFile()), page, dpi);
+    }
+
+    /** 上传的 PDF（模板）的第 page 页，文档标识为内容的 SHA-256。 */
+    public byte[] templatePage(byte[] pdf, int page, int dpi) throws IOException {
+        return page("sha256:" + ContentHash.sha256(pdf), () -> Loader.loadPDF(pdf), page, dpi);
+    }
+
+    /**
+     * 第 page 页的 PNG：先查缓存与正在进行的渲染，否则打开文档渲染该页并预取其后几页。
+     *
+     * @param document 唯一标识文档字节的字符串，作为缓存键的一部分
+     */
+    public byte[] page(String document, DocumentOpener opener, int page, int dpi) throws IOException {
+        if (dpi < 1 || dpi > maxDpi) {
+            throw new IllegalArgumentException("dpi must be between 1 and " + maxDpi);
+        }
+        if (page < 1) {
+            throw new IllegalArgumentException("page must be 1 or greater");
+        }
+        PreviewCache.Key key = new PreviewCache.Key(document, page, dpi);
+        byte[] png = cache.get(key);
+        if (png == null) {
+            png = awaitInFlight(key);
+        }
+        if (png != null) {
+            return png;
+        }
+        try (PDDocument doc = opener.open()) {
+            int pageCount = doc.getNumberOfPages();
+            if (page > pageCount) {
+                throw new IllegalArgumentException("page " + page + " is out of range (document has " + pageCount + " pages)");
+            }
+            prefetch(document, opener, page + 1, Math.min(pageCount, page + prefetchPages), dpi);
+
+            CompletableFuture<byte[]> mine = new CompletableFuture<>();
+            CompletableFuture<byte[]> other = inFlight.putIfAbsent(key, mine);
+            if (other != null) {
+                png = join(other);
+                if (png != null) {
+                    return png;
+                }
+            }
+            try {
+                png = render(doc, page, dpi);
+                cache.put(key, png);
+                mine.complete(png);
+                return png;
+            } catch (IOException | RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+    }
+
+    /** 渲染 [from, to] 中尚未缓存、也不在渲染中的页，分成最多 threads 段并行渲染。 */
+    private void prefetch(String document, DocumentOpener opener, int from, int to, int dpi) {
+        List<PreviewCache.Key> keys = new ArrayList<>();
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        for (int p = from; p <= to; p++) {
+            PreviewCache.Key key = new PreviewCache.Key(document, p, dpi);
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            if (!cache.contains(key) && inFlight.putIfAbsent(key, future) == null) {
+                keys.add(key);
+                futures.add(future);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        int chunks = Math.min(threads, keys.size());
+        for (int c = 0; c < chunks; c++) {
+            int start = keys.size() * c / chunks;
+            int end = keys.size() * (c + 1) / chunks;
+            List<PreviewCache.Key> chunkKeys = keys.subList(start, end);
+            List<CompletableFuture<byte[]>> chunkFutures = futures.subList(start, end);
+            try {
+                executor.execute(() -> renderChunk(opener, chunkKeys, chunkFutures));
+            } catch (RejectedExecutionException e) {
+                abandon(chunkKeys, chunkFutures, e);
+            }
+        }
+    }
+
+    private void renderChunk(DocumentOpener opener, List<PreviewCache.Key> keys, List<CompletableFuture<byte[]>> futures) {
+        int done = 0;
+        try (PDDocument doc = opener.open()) {
+            for (; done < keys.size(); done++) {
+                PreviewCache.Key key = keys.get(done);
+                byte[] png = render(doc, key.page(), key.dpi());
+                prefetchedPages.increment();
+                cache.put(key, png);
+                futures.get(done).complete(png);
+                inFlight.remove(key, futures.get(done));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Preview prefetch failed: {}", e.toString());
+            abandon(keys.subList(done, keys.size()), futures.subList(done, futures.size()), e);
+        }
+    }
+
+    /** 放弃预取：等待中的请求拿到 null 后自己渲染。 */
+    private void abandon(List<PreviewCache.Key> keys, List<CompletableFuture<byte[]>> futures, Exception cause) {
+        for (int i = 0; i < keys.size(); i++) {
+            futures.get(i).completeExceptionally(cause);
+            inFlight.remove(keys.get(i), futures.get(i));
+        }
+    }
+
+    private byte[] awaitInFlight(PreviewCache.Key key) {
+        CompletableFuture<byte[]> pending = inFlight.get(key);
+        return pending != null ? join(pending) : null;
+    }
+
+    /** 等待另一线程的渲染结果；失败时返回 null，由调用方自己渲染。 */
+    private static byte[] join(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    private byte[] render(PDDocument doc, int page, int dpi) throws IOException {
+        PDRectangle box = doc.getPage(page - 1).getCropBox();
+        double pixels = (box.getWidth() / 72.0 * dpi) * (box.getHeight() / 72.0 * dpi);
+        if (pixels > maxPixels) {
+            throw new IllegalArgumentException("Page " + page + " at " + dpi + " dpi exceeds pdf.preview.max-pixels");
+        }
+        BufferedImage image = new PDFRenderer(doc).renderImageWithDPI(page - 1, dpi, ImageType.RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        ImageIO.write(image, "png", out);
+        renderedPages.increment();
+        return out.toByteArray();
+    }
+
+    /** 实际渲染的页数（含预取）。 */
+    public long renderedPages() {
+        return renderedPages.sum();
+    }
+
+    /** 由预取渲染的页数。 */
+    public long prefetchedPages() {
+        return prefetchedPages.sum();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static ThreadFactory previewThreads() {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "pdf-preview-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package com.pdfformfill.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 页面预览缓存：按 (文档标识, 页码, dpi) 缓存渲染好的 PNG，跨请求共享。
+ * <p>
+ * 文档标识由调用方给出且必须能唯一标识文档字节（输出文件用强 ETag，上传的模板用内容 SHA-256），
+ * 因此缓存条目永远不会过期，只按估算字节数（PNG 字节 + 固定开销）做 LRU 淘汰。线程安全。
+ */
+@Component
+public class PreviewCache {
+
+    /** 每个条目的大致固定开销：map 节点、key、数组头。 */
+    static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    public record Key(String document, int page, int dpi) {}
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public PreviewCache(
+            @Value("${pdf.preview.cache.enabled:true}") boolean enabled,
+            @Value("${pdf.preview.cache.max-bytes:67108864}") long maxBytes) {
+        this.enabled = enabled && maxBytes > 0;
+        this.maxBytes = maxBytes;
+    }
+
+    /** 默认限额的缓存（测试用）。 */
+    public PreviewCache() {
+        this(true, 64L * 1024 * 1024);
+    }
+
+    /** 返回缓存的 PNG，未命中时返回 null。 */
+    public byte[] get(Key key) {
+        if (!enabled) {
+            misses.increment();
+            return null;
+        }
+        byte[] png;
+        synchronized (this) {
+            png = entries.get(key);
+        }
+        (png != null ? hits : misses).increment();
+        return png;
+    }
+
+    public void put(Key key, byte[] png) {
+        if (!enabled || weigh(png) > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            byte[] previous = entries.put(key, png);
+            if (previous != null) {
+                bytes -= weigh(previous);
+            }
+            bytes += weigh(png);
+            Iterator<byte[]> it = entries.values().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                bytes -= weigh(it.next());
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /** 不计入命中统计的存在性检查（预取时判断哪些页还需要渲染）。 */
+    synchronized boolean contains(Key key) {
+        return entries.containsKey(key);
+    }
+
+    static long weigh(byte[] png) {
+        return ENTRY_OVERHEAD_BYTES + png.length;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** 缓存条目占用的估算内存（字节）。 */
+    public synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /** 启动以来 hits / (hits + misses)，尚无查询时为 0。 */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
@@ -0,0 +1,148 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.dto.ShardResponse;
+import com.pdfformfill.pdf.ContentHash;
+import com.pdfformfill.pdf.TemplateIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 分片填表（分片协调器 {@code com.pdfformfill.cli.ShardCoordinatorCommand} 把大批记录切成分片，经 HTTP 分发到各实例）：
+ * 模板来自模板库（协调器事先上传一次），每条记录填一份并写到 pdf.output.dir，可经下载接口取回。
+ * <p>
+ * 记录在请求线程中逐条处理，实例内的并行度由协调器对每个实例同时发出的分片数决定。
+ * 同一模板与定义的分片多半连续到达，准备好的模板（拍平一次）按 (templateId, 定义摘要) 缓存最近的几个。
+ * 单个分片最多 pdf.shard.max-records 条记录，更大的批次由协调器切成多个分片。
+ */
+@Service
+public class ShardFillService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardFillService.class);
+
+    private static final TypeReference<Map<String, Object>> RECORD = new TypeReference<>() {};
+
+    private static final int PREPARED_BATCHES = 4;
+
+    private final PdfFormFillService pdfFormFillService;
+    private final MockRecordGenerator mockRecordGenerator;
+    private final PdfOutputStore pdfOutputStore;
+    private final TemplateStore templateStore;
+    private final ObjectMapper objectMapper;
+    private final int maxRecords;
+    private final Map<String, PdfFormFillService.BatchFill> prepared;
+
+    public ShardFillService(PdfFormFillService pdfFormFillService, MockRecordGenerator mockRecordGenerator,
+                            PdfOutputStore pdfOutputStore, TemplateStore templateStore, ObjectMapper objectMapper,
+                            @Value("${pdf.shard.max-records:1000}") int maxRecords) {
+        this.pdfFormFillService = pdfFormFillService;
+        this.mockRecordGenerator = mockRecordGenerator;
+        this.pdfOutputStore = pdfOutputStore;
+        this.templateStore = templateStore;
+        this.objectMapper = objectMapper;
+        this.maxRecords = maxRecords;
+        this.prepared = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PdfFormFillService.BatchFill> eldest) {
+                return size() > PREPARED_BATCHES;
+            }
+        });
+    }
+
+    /**
+     * 填一个分片。records 不为 null 时逐条读取其中的记录（JSON Lines、JSON 数组或对象），否则按 seed 生成第
+     * first 条起的 count 条 mock 记录（与 merge?seed= 和批处理相同的序列）。单条记录失败只记在该条的 error 中。
+     *
+     * @param definition 定义 JSON；为 null 时使用模板库从 AcroForm 提取的草稿
+     * @throws IllegalArgumentException 参数无效、记录超过 pdf.shard.max-records 条或布局检查为 reject 且定义有布局问题时
+     * @throws IOException 模板无法解析或记录不是合法 JSON 时
+     */
+    public ShardResponse fill(String shard, String templateId, byte[] definition, InputStream records, long first,
+                              Integer count, long seed) throws IOException {
+        Optional<Path> template = templateStore.resolve(templateId);
+        if (template.isEmpty()) {
+            throw new IllegalArgumentException("Unknown template: " + templateId);
+        }
+        if (records == null && (count == null || count < 1 || first < 0)) {
+            throw new IllegalArgumentException("Send records, or count (positive) with first and seed for mock records.");
+        }
+        if (records == null && count > maxRecords) {
+            throw new IllegalArgumentException("count must be at most " + maxRecords + " per shard.");
+        }
+        long start = System.nanoTime();
+        PdfFormFillService.BatchFill batch = prepare(templateId, template.get(), definition);
+
+        List<ShardResponse.Output> outputs = new ArrayList<>();
+        if (records != null) {
+            try (MappingIterator<Map<String, Object>> it = objectMapper.readerFor(RECORD).readValues(records)) {
+                while (it.hasNextValue()) {
+                    if (outputs.size() == maxRecords) {
+                        throw new IllegalArgumentException("A shard holds at most " + maxRecords + " records.");
+                    }
+                    outputs.add(fillOne(batch, outputs.size(), it.nextValue()));
+                }
+            }
+        } else {
+            MockRecordGenerator.RecordSource source = mockRecordGenerator.source(batch.definition(), seed);
+            for (int i = 0; i < count; i++) {
+                outputs.add(fillOne(batch, i, source.record(first + i)));
+            }
+        }
+        int failed = (int) outputs.stream().filter(o -> o.error() != null).count();
+        long pages = outputs.stream().filter(o -> o.pages() != null).mapToLong(ShardResponse.Output::pages).sum();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Shard {}: {} records ({} failed), {} pages in {} ms", shard, outputs.size(), failed, pages, elapsedMs);
+        return new ShardResponse(shard, outputs.size(), failed, pages, elapsedMs, outputs);
+    }
+
+    private ShardResponse.Output fillOne(PdfFormFillService.BatchFill batch, int index, Map<String, Object> record) {
+        try {
+            Path output = pdfOutputStore.newFile();
+            Path tmp = pdfOutputStore.tempFile(output);
+            int pages;
+            try {
+                pages = batch.fill(record, tmp);
+                pdfOutputStore.moveIntoPlace(tmp, output);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            return new ShardResponse.Output(index, pdfOutputStore.downloadUrl(output), pages, null);
+        } catch (IOException | RuntimeException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new ShardResponse.Output(index, null, null, message);
+        }
+    }
+
+    private PdfFormFillService.BatchFill prepare(String templateId, Path template, byte[] definition) throws IOException {
+        String key = templateId + ":" + (definition != null ? ContentHash.sha256(definition) : "draft");
+        PdfFormFillService.BatchFill batch = prepared.get(key);
+        if (batch == null) {
+            FieldsDefinition fieldsDefinition;
+            if (definition != null) {
+                fieldsDefinition = objectMapper.readValue(definition, FieldsDefinition.class);
+            } else {
+                fieldsDefinition = templateStore.index(templateId).map(TemplateIndex::definition)
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown template: " + templateId));
+            }
+            batch = pdfFormFillService.batch(Files.readAllBytes(template), fieldsDefinition);
+            prepared.put(key, batch);
+        }
+        return batch;
+    }
+}
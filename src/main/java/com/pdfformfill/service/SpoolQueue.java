@@ -0,0 +1,446 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.dto.SpoolJobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 基于共享目录（pdf.spool.dir）的批量任务队列：多个实例挂载同一目录即可分担批量填表，不需要消息中间件。
+ * <pre>
+ *   jobs/&lt;jobId&gt;/job.json, template.pdf, definition.json, records-&lt;n&gt;.jsonl   提交时写好，之后只读
+ *   jobs/&lt;jobId&gt;/parts/&lt;n&gt;.json                                         各分片的结果（实例、份数、失败数、页数）
+ *   jobs/&lt;jobId&gt;/out/record-&lt;i&gt;.pdf                                       输出
+ *   pending/&lt;jobId&gt;.&lt;n&gt;   running/&lt;jobId&gt;.&lt;n&gt;   done/&lt;jobId&gt;.&lt;n&gt;         分片标记文件
+ * </pre>
+ * 一个任务按 chunk-records 条记录切成若干分片，每个分片是一个标记文件。实例用原子 rename 把标记从 pending/ 移到
+ * running/ 来领取分片（同一时刻只有一个 rename 能成功），处理期间定期更新标记的修改时间作为租约；
+ * 租约超过 lease-seconds 未更新（实例崩溃）的分片由任一实例移回 pending/ 重新处理。running/ 中的标记记录领取者的实例 id，
+ * 续租与完成前都先核对：分片已被其他实例重新领取时，原实例不再续租，结果也被丢弃。
+ * 所有文件先写临时文件再原子改名，读到的文件总是完整的；任务的文件全部写好之后才创建 pending 标记。
+ */
+@Component
+@ConditionalOnProperty(name = "pdf.spool.enabled", havingValue = "true")
+public class SpoolQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(SpoolQueue.class);
+
+    /** 任务 id：提交时间（base36 毫秒）+ 随机数，按名称排序即大致按提交顺序。 */
+    private static final Pattern JOB_ID = Pattern.compile("[0-9a-z]{8,9}-[0-9a-f]{8}");
+
+    private static final TypeReference<Map<String, Object>> RECORD = new TypeReference<>() {};
+
+    /** 提交时写入 job.json 的任务描述；records 为总记录数，mock 为 true 时按 seed 生成 mock 记录。 */
+    public record Job(String id, long createdAt, String submittedBy, long records, int parts, int chunkRecords,
+                      boolean mock, long seed) {
+
+        /** 第 part 个分片的第一条记录（0 起始，全任务编号）。 */
+        public long firstRecord(int part) {
+            return (long) part * chunkRecords;
+        }
+
+        public int partRecords(int part) {
+            return (int) Math.min(chunkRecords, records - firstRecord(part));
+        }
+
+        /** 第 index 条记录（0 起始）的输出文件名（不含 .pdf），按总数补零：record-0001。 */
+        public String outputName(long index) {
+            return String.format(Locale.ROOT, "record-%0" + String.valueOf(records).length() + "d", index + 1);
+        }
+    }
+
+    /** 一个分片的处理结果，写入 parts/&lt;n&gt;.json。 */
+    public record PartResult(int part, String instance, boolean failed, int records, int recordsFailed, long pages,
+                             long startedAt, long finishedAt, String error) {}
+
+    /** 本实例领取的分片。 */
+    public record Task(String jobId, int part) {
+
+        String name() {
+            return jobId + "." + part;
+        }
+    }
+
+    private final Path dir;
+    private final Path pending;
+    private final Path running;
+    private final Path done;
+    private final String instanceId;
+    private final int chunkRecords;
+    private final long maxRecords;
+    private final long leaseMillis;
+    private final ObjectMapper objectMapper;
+
+    public SpoolQueue(
+            @Value("${pdf.spool.dir:${user.dir}/spool}") String spoolDir,
+            @Value("${pdf.spool.instance-id:}") String instanceId,
+            @Value("${pdf.spool.chunk-records:200}") int chunkRecords,
+            @Value("${pdf.spool.lease-seconds:60}") long leaseSeconds,
+            @Value("${pdf.spool.max-records:1000000}") long maxRecords,
+            ObjectMapper objectMapper
+    ) throws IOException {
+        this.dir = Paths.get(spoolDir).toAbsolutePath().normalize();
+        this.pending = dir.resolve("pending");
+        this.running = dir.resolve("running");
+        this.done = dir.resolve("done");
+        this.instanceId = instanceId != null && !instanceId.isBlank()
+                ? instanceId.trim()
+                : ManagementFactory.getRuntimeMXBean().getName();
+        this.chunkRecords = Math.max(1, chunkRecords);
+        this.maxRecords = Math.max(1, maxRecords);
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(Math.max(1, leaseSeconds));
+        this.objectMapper = objectMapper;
+        for (Path d : List.of(dir.resolve("jobs"), dir.resolve("tmp"), pending, running, done)) {
+            Files.createDirectories(d);
+        }
+    }
+
+    public String instanceId() {
+        return instanceId;
+    }
+
+    public long leaseMillis() {
+        return leaseMillis;
+    }
+
+    /**
+     * 提交 count 条按 seed 生成的 mock 记录。
+     *
+     * @throws IllegalArgumentException count 不是正数或超过 pdf.spool.max-records 时
+     */
+    public Job submit(byte[] template, FieldsDefinition definition, long count, long seed) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        if (count > maxRecords) {
+            throw new IllegalArgumentException("count must be at most " + maxRecords + " per job.");
+        }
+        String id = newJobId();
+        Path jobDir = createJobDir(id, template, definition);
+        return publish(jobDir, new Job(id, System.currentTimeMillis(), instanceId, count, parts(count), chunkRecords,
+                true, seed));
+    }
+
+    /**
+     * 提交记录文件（JSON Lines、JSON 数组或单个对象，字段名 → 值）；记录流式读取并按 chunk-records 条切成分片文件。
+     *
+     * @throws IllegalArgumentException 没有记录或记录超过 pdf.spool.max-records 条时
+     */
+    public Job submit(byte[] template, FieldsDefinition definition, InputStream records) throws IOException {
+        String id = newJobId();
+        Path jobDir = createJobDir(id, template, definition);
+        long count;
+        try {
+            count = writeChunks(jobDir, records);
+            if (count == 0) {
+                throw new IllegalArgumentException("No records in records file.");
+            }
+        } catch (IOException | RuntimeException e) {
+            // 记录无效：删掉写了一半的任务目录（还没有 pending 标记，没有实例会看到它）
+            try (Stream<Path> files = Files.walk(jobDir)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(p);
+                }
+            }
+            throw e;
+        }
+        return publish(jobDir, new Job(id, System.currentTimeMillis(), instanceId, count, parts(count), chunkRecords,
+                false, 0L));
+    }
+
+    /** 把记录逐条写成每 chunk-records 条一个的 JSON Lines 分片文件，返回记录数。 */
+    private long writeChunks(Path jobDir, InputStream records) throws IOException {
+        long count = 0;
+        ObjectWriter line = objectMapper.writer();
+        BufferedWriter chunk = null;
+        try (MappingIterator<Map<String, Object>> it = objectMapper.readerFor(RECORD).readValues(records)) {
+            while (it.hasNextValue()) {
+                Map<String, Object> record = it.nextValue();
+                if (count == maxRecords) {
+                    throw new IllegalArgumentException("A job holds at most " + maxRecords + " records.");
+                }
+                if (count % chunkRecords == 0) {
+                    if (chunk != null) {
+                        chunk.close();
+                    }
+                    chunk = Files.newBufferedWriter(jobDir.resolve(recordsFile(parts(count))), StandardCharsets.UTF_8);
+                }
+                chunk.write(line.writeValueAsString(record));
+                chunk.newLine();
+                count++;
+            }
+        } finally {
+            if (chunk != null) {
+                chunk.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 领取一个待处理分片（按任务提交顺序）：先更新标记的修改时间（标记已被他人领取时失败），再原子 rename 到 running/，
+     * 这样新领取的分片不会被误判为租约过期。没有可领取的分片时返回 empty。
+     */
+    public Optional<Task> claim() throws IOException {
+        for (Path marker : list(pending)) {
+            Task task = parse(marker.getFileName().toString());
+            try {
+                Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+                Files.move(marker, running.resolve(task.name()), StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            Files.writeString(running.resolve(task.name()), instanceId);
+            return Optional.of(task);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 续租：更新标记的修改时间。标记已不在 running/（租约过期被移回），或已被其他实例重新领取时返回 false，
+     * 不会替别人的租约续期。
+     */
+    public boolean heartbeat(Task task) {
+        Path marker = running.resolve(task.name());
+        try {
+            if (!ownedBy(marker, instanceId)) {
+                return false;
+            }
+            Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 写出分片结果并把标记移到 done/，返回 true。分片已被其他实例重新领取时丢弃结果并返回 false：
+     * 那个实例仍在处理，标记与结果由它完成。
+     */
+    public boolean complete(Task task, PartResult result) throws IOException {
+        Path marker = running.resolve(task.name());
+        if (Files.exists(marker) && !ownedBy(marker, instanceId)) {
+            log.warn("Dropped result of spool part {}: its lease expired and another instance claimed it", task.name());
+            return false;
+        }
+        TemplateStore.write(jobDir(task.jobId()).resolve("parts").resolve(task.part() + ".json"), objectMapper.writeValueAsBytes(result));
+        try {
+            Files.move(running.resolve(task.name()), done.resolve(task.name()), StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            // 租约过期后被移回 pending：结果已写出，重新处理时输出相同；删掉标记避免重复处理
+            Files.deleteIfExists(pending.resolve(task.name()));
+            Files.writeString(done.resolve(task.name()), instanceId);
+            log.warn("Spool part {} finished after its lease expired", task.name());
+        }
+        return true;
+    }
+
+    /** 放回未处理完的分片（实例停止时），其他实例可立即领取；分片已被其他实例领取时什么都不做。 */
+    public void release(Task task) throws IOException {
+        Path marker = running.resolve(task.name());
+        if (Files.exists(marker) && !ownedBy(marker, instanceId)) {
+            return;
+        }
+        try {
+            Files.move(running.resolve(task.name()), pending.resolve(task.name()), StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            // 已被其他实例回收
+        }
+    }
+
+    /** 把租约过期的分片移回 pending/，返回移回的个数；多个实例同时回收时只有一个 rename 成功。 */
+    public int requeueExpired() throws IOException {
+        long expiredBefore = System.currentTimeMillis() - leaseMillis;
+        int requeued = 0;
+        for (Path marker : list(running)) {
+            try {
+                if (Files.getLastModifiedTime(marker).toMillis() >= expiredBefore) {
+                    continue;
+                }
+                String owner = Files.readString(marker).trim();
+                Files.move(marker, pending.resolve(marker.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                log.warn("Requeued spool part {}: lease of {} expired", marker.getFileName(), owner);
+                requeued++;
+            } catch (NoSuchFileException e) {
+                // 已完成或已被其他实例回收
+            }
+        }
+        return requeued;
+    }
+
+    public Job job(String jobId) throws IOException {
+        return objectMapper.readValue(jobDir(jobId).resolve("job.json").toFile(), Job.class);
+    }
+
+    public byte[] template(Job job) throws IOException {
+        return Files.readAllBytes(jobDir(job.id()).resolve("template.pdf"));
+    }
+
+    public FieldsDefinition definition(Job job) throws IOException {
+        return objectMapper.readValue(jobDir(job.id()).resolve("definition.json").toFile(), FieldsDefinition.class);
+    }
+
+    /** 记录文件任务第 part 个分片的记录，按顺序流式读取；调用方关闭。 */
+    public MappingIterator<Map<String, Object>> records(Job job, int part) throws IOException {
+        return objectMapper.readerFor(RECORD).readValues(jobDir(job.id()).resolve(recordsFile(part)).toFile());
+    }
+
+    /** 第 index 条记录（0 起始）的输出文件。 */
+    public Path output(Job job, long index) {
+        return jobDir(job.id()).resolve("out").resolve(job.outputName(index) + ".pdf");
+    }
+
+    /** 汇总任务状态（任一实例都能回答）；任务不存在或 id 不合法时返回 empty。 */
+    public Optional<SpoolJobStatus> status(String jobId) throws IOException {
+        if (jobId == null || !JOB_ID.matcher(jobId).matches() || !Files.isRegularFile(jobDir(jobId).resolve("job.json"))) {
+            return Optional.empty();
+        }
+        Job job = job(jobId);
+        int partsDone = 0;
+        int partsFailed = 0;
+        int partsRunning = 0;
+        long written = 0;
+        long failed = 0;
+        long pages = 0;
+        long finishedAt = 0;
+        Set<String> instances = new LinkedHashSet<>();
+        List<String> errors = new ArrayList<>();
+        for (int part = 0; part < job.parts(); part++) {
+            Path resultFile = jobDir(jobId).resolve("parts").resolve(part + ".json");
+            if (Files.isRegularFile(resultFile)) {
+                PartResult result = objectMapper.readValue(resultFile.toFile(), PartResult.class);
+                partsDone++;
+                instances.add(result.instance());
+                written += result.records() - result.recordsFailed();
+                failed += result.recordsFailed();
+                pages += result.pages();
+                finishedAt = Math.max(finishedAt, result.finishedAt());
+                if (result.failed()) {
+                    partsFailed++;
+                    errors.add("part " + part + ": " + result.error());
+                }
+                continue;
+            }
+            Path marker = running.resolve(new Task(jobId, part).name());
+            if (Files.exists(marker)) {
+                partsRunning++;
+                try {
+                    instances.add(Files.readString(marker).trim());
+                } catch (NoSuchFileException e) {
+                    // 刚刚完成
+                }
+            }
+        }
+        String state = partsDone == job.parts() ? (partsFailed > 0 ? "failed" : "done")
+                : partsDone + partsRunning > 0 ? "running" : "queued";
+        return Optional.of(new SpoolJobStatus(jobId, state, job.records(), written, failed, pages, job.parts(),
+                partsDone, partsRunning, List.copyOf(instances), jobDir(jobId).resolve("out").toString(),
+                job.createdAt(), partsDone == job.parts() ? finishedAt : null, errors.isEmpty() ? null : errors));
+    }
+
+    private Path createJobDir(String id, byte[] template, FieldsDefinition definition) throws IOException {
+        Path jobDir = jobDir(id);
+        Files.createDirectories(jobDir.resolve("parts"));
+        Files.createDirectories(jobDir.resolve("out"));
+        Files.write(jobDir.resolve("template.pdf"), template);
+        objectMapper.writeValue(jobDir.resolve("definition.json").toFile(), definition);
+        return jobDir;
+    }
+
+    /** 写出 job.json，然后为每个分片创建 pending 标记（先写在 tmp/ 再原子改名）。 */
+    private Job publish(Path jobDir, Job job) throws IOException {
+        TemplateStore.write(jobDir.resolve("job.json"), objectMapper.writeValueAsBytes(job));
+        for (int part = 0; part < job.parts(); part++) {
+            String name = new Task(job.id(), part).name();
+            Path tmp = Files.writeString(dir.resolve("tmp").resolve(name), "");
+            Files.move(tmp, pending.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        }
+        log.info("Spooled job {}: {} records in {} parts", job.id(), job.records(), job.parts());
+        return job;
+    }
+
+    /** 标记的领取者是否为 instance；标记不存在时为 false。 */
+    private static boolean ownedBy(Path marker, String instance) throws IOException {
+        try {
+            return instance.equals(Files.readString(marker).trim());
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private int parts(long records) {
+        return Math.toIntExact((records + chunkRecords - 1) / chunkRecords);
+    }
+
+    private Path jobDir(String jobId) {
+        return dir.resolve("jobs").resolve(jobId);
+    }
+
+    private static String recordsFile(int part) {
+        return "records-" + part + ".jsonl";
+    }
+
+    private static String newJobId() {
+        return String.format(Locale.ROOT, "%8s-%08x", Long.toString(System.currentTimeMillis(), 36),
+                ThreadLocalRandom.current().nextInt()).replace(' ', '0');
+    }
+
+    private static Task parse(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot <= 0 || !JOB_ID.matcher(name.substring(0, dot)).matches()) {
+            return null;
+        }
+        try {
+            return new Task(name.substring(0, dot), Integer.parseInt(name.substring(dot + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** 目录中的标记文件，按任务提交顺序与分片序号排序；忽略名称不合法的文件。 */
+    private static List<Path> list(Path d) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(d)) {
+            for (Path p : stream) {
+                if (parse(p.getFileName().toString()) != null) {
+                    files.add(p);
+                }
+            }
+        }
+        files.sort(Comparator.comparing((Path p) -> parse(p.getFileName().toString()).jobId())
+                .thenComparingInt(p -> parse(p.getFileName().toString()).part()));
+        return files;
+    }
+}
@@ -0,0 +1,265 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.pdfformfill.dto.FieldsDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * spool 队列（{@link SpoolQueue}）的本实例消费者：轮询线程每隔 poll-interval-ms 回收租约过期的分片并领取待处理分片，
+ * 分片内的记录交给本地的 threads 个填表线程（0 = CPU 核数）并行处理，与命令行批处理相同：模板只准备一次
+ * （按任务缓存最近的几个），每条记录加载拍平后的模板、绘制并写到任务的输出目录。
+ * <p>
+ * 处理分片期间定期续租；实例停止时未处理完的分片立即放回队列，其他实例接着处理（已写出的输出会被覆盖为相同内容）。
+ * 续租失败（租约已过期，分片被移回或被其他实例领取）时停止处理该分片，交给新的领取者。
+ * 只在 Web 应用中运行：命令行批处理加载同一份配置时不领取分片。
+ */
+@Component
+@ConditionalOnWebApplication
+@ConditionalOnProperty(name = "pdf.spool.enabled", havingValue = "true")
+public class SpoolWorker implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(SpoolWorker.class);
+
+    /** 缓存已准备好的任务数（同一任务的分片多半相继被同一实例领取）。 */
+    private static final int PREPARED_JOBS = 4;
+
+    private final SpoolQueue queue;
+    private final PdfFormFillService pdfFormFillService;
+    private final MockRecordGenerator mockRecordGenerator;
+    private final int threads;
+    private final long pollIntervalMillis;
+    private final Map<String, PdfFormFillService.BatchFill> prepared;
+
+    private volatile boolean running;
+    private ExecutorService workers;
+    private ScheduledExecutorService scheduler;
+
+    public SpoolWorker(
+            SpoolQueue queue,
+            PdfFormFillService pdfFormFillService,
+            MockRecordGenerator mockRecordGenerator,
+            @Value("${pdf.spool.threads:0}") int threads,
+            @Value("${pdf.spool.poll-interval-ms:1000}") long pollIntervalMillis
+    ) {
+        this.queue = queue;
+        this.pdfFormFillService = pdfFormFillService;
+        this.mockRecordGenerator = mockRecordGenerator;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pollIntervalMillis = Math.max(10, pollIntervalMillis);
+        this.prepared = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PdfFormFillService.BatchFill> eldest) {
+                return size() > PREPARED_JOBS;
+            }
+        });
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        workers = Executors.newFixedThreadPool(threads, spoolThreads("pdf-spool-worker-"));
+        // 一个线程轮询并处理分片，另一个续租
+        scheduler = Executors.newScheduledThreadPool(2, spoolThreads("pdf-spool-poller-"));
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Spool worker {} started with {} threads", queue.instanceId(), threads);
+    }
+
+    @Override
+    public void stop() {
+        ExecutorService w;
+        ScheduledExecutorService s;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            w = workers;
+            s = scheduler;
+        }
+        s.shutdown();
+        try {
+            // 正在处理的分片在当前记录结束后放回队列
+            s.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        w.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** 回收过期租约，然后连续领取并处理分片，直到队列为空或实例停止。 */
+    void poll() {
+        try {
+            queue.requeueExpired();
+            while (running) {
+                Optional<SpoolQueue.Task> task = queue.claim();
+                if (task.isEmpty()) {
+                    return;
+                }
+                process(task.get());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Spool poll failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(SpoolQueue.Task task) throws IOException, InterruptedException {
+        AtomicBoolean leaseLost = new AtomicBoolean();
+        ScheduledFuture<?> lease;
+        try {
+            lease = scheduler.scheduleAtFixedRate(() -> {
+                if (!queue.heartbeat(task)) {
+                    leaseLost.set(true);
+                }
+            }, queue.leaseMillis() / 3, queue.leaseMillis() / 3, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // stop() 在领取之后关闭了调度线程：立即放回，不等租约过期
+            queue.release(task);
+            log.info("Released spool part {} on shutdown", task.name());
+            return;
+        }
+        try {
+            SpoolQueue.Job job = queue.job(task.jobId());
+            long startedAt = System.currentTimeMillis();
+            int partRecords = job.partRecords(task.part());
+            PdfFormFillService.BatchFill batch;
+            try {
+                batch = prepare(job);
+            } catch (IOException | RuntimeException e) {
+                // 模板或定义本身有问题：整个分片失败，不重试
+                String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                queue.complete(task, new SpoolQueue.PartResult(task.part(), queue.instanceId(), true, partRecords,
+                        partRecords, 0, startedAt, System.currentTimeMillis(), message));
+                return;
+            }
+
+            LongAdder failed = new LongAdder();
+            LongAdder pages = new LongAdder();
+            int permits = threads * 2;
+            Semaphore inFlight = new Semaphore(permits);
+            boolean finished = fillRecords(job, task.part(), batch, inFlight, failed, pages, leaseLost);
+            inFlight.acquire(permits);
+            if (!finished && leaseLost.get()) {
+                log.warn("Stopped spool part {}: its lease expired", task.name());
+                return;
+            }
+            if (!finished) {
+                queue.release(task);
+                log.info("Released spool part {} on shutdown", task.name());
+                return;
+            }
+            queue.complete(task, new SpoolQueue.PartResult(task.part(), queue.instanceId(), false, partRecords,
+                    failed.intValue(), pages.sum(), startedAt, System.currentTimeMillis(), null));
+        } finally {
+            lease.cancel(false);
+        }
+    }
+
+    /** 把分片的每条记录交给填表线程；实例停止或租约丢失时提前返回 false。 */
+    private boolean fillRecords(SpoolQueue.Job job, int part, PdfFormFillService.BatchFill batch, Semaphore inFlight,
+                                LongAdder failed, LongAdder pages, AtomicBoolean leaseLost)
+            throws IOException, InterruptedException {
+        long first = job.firstRecord(part);
+        int count = job.partRecords(part);
+        MockRecordGenerator.RecordSource mock = job.mock()
+                ? mockRecordGenerator.source(queue.definition(job), job.seed())
+                : null;
+        try (MappingIterator<Map<String, Object>> records = job.mock() ? null : queue.records(job, part)) {
+            for (int i = 0; i < count; i++) {
+                if (!running || leaseLost.get()) {
+                    return false;
+                }
+                long index = first + i;
+                Map<String, Object> record = mock != null ? mock.record(index) : records.nextValue();
+                inFlight.acquire();
+                workers.execute(() -> {
+                    try {
+                        pages.add(fill(batch, record, queue.output(job, index)));
+                    } catch (IOException | RuntimeException e) {
+                        failed.increment();
+                        log.warn("Spool job {} record {} failed: {}", job.id(), index + 1, e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 先写到同目录的临时文件再改名，输出目录中只出现完整的 PDF。临时文件名带随机后缀：租约过期后两个实例可能同时处理
+     * 同一分片，各写各的临时文件，改名后输出是其中一份完整的 PDF。
+     */
+    private static int fill(PdfFormFillService.BatchFill batch, Map<String, Object> record, Path output) throws IOException {
+        Path tmp = output.resolveSibling("." + output.getFileName() + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            int pages = batch.fill(record, tmp);
+            try {
+                Files.move(tmp, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return pages;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private PdfFormFillService.BatchFill prepare(SpoolQueue.Job job) throws IOException {
+        PdfFormFillService.BatchFill batch = prepared.get(job.id());
+        if (batch == null) {
+            FieldsDefinition definition = queue.definition(job);
+            batch = pdfFormFillService.batch(queue.template(job), definition);
+            prepared.put(job.id(), batch);
+        }
+        return batch;
+    }
+
+    private static ThreadFactory spoolThreads(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
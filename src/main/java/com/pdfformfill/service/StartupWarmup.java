@@ -0,0 +1,221 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.synthetic.SyntheticTemplateGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热：Web 服务器启动之后、就绪探针（/actuator/health/readiness）变为 UP 之前，用合成模板
+ * （{@link SyntheticTemplateGenerator}，带 AcroForm 控件、多行文本与勾选框）经本机 HTTP 调用真实的 merge 接口
+ * merges 次（每隔几次用 pages=fields 走子集路径），再调一次预检。部署后前几百个请求要承担的类加载
+ * （Tomcat multipart、Jackson、PDFBox、Standard14 AFM 解析、ImageIO 插件发现）与 JIT 编译由预热承担。
+ * <p>
+ * ApplicationRunner 在 ApplicationReadyEvent 之前执行，预热期间就绪状态保持 REFUSING_TRAFFIC。
+ * 预热的输出文件随即删除；预热失败只记录日志，不阻止启动。每个请求的连接与读取超时取 max-seconds 的剩余时间，
+ * 卡住的请求不会让就绪无限推迟。启动到就绪的耗时、预热耗时以及预热中
+ * 第一次与最后一次 merge 的耗时记录为 pdf.startup.* 指标。pdf.warmup.exit=true 时预热后退出，供 AppCDS 训练运行使用。
+ */
+@Component
+@ConditionalOnWebApplication
+@ConditionalOnProperty(name = "pdf.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class StartupWarmup implements ApplicationRunner, ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    /** 每隔几次 merge 用一次 pages=fields（子集路径）。 */
+    private static final int SUBSET_EVERY = 4;
+
+    /** 一次预热的结果；merges 为成功的 merge 次数。 */
+    record Result(int merges, int failed, long elapsedNanos, long firstMergeNanos, long lastMergeNanos) {}
+
+    private final ApplicationContext context;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+    private final int merges;
+    private final int pages;
+    private final int fields;
+    private final long maxNanos;
+    private final boolean exitAfterWarmup;
+
+    private volatile Result result = new Result(0, 0, 0, 0, 0);
+    private volatile long readyMillis;
+
+    public StartupWarmup(
+            ApplicationContext context,
+            ObjectMapper objectMapper,
+            MeterRegistry registry,
+            @Value("${pdf.warmup.merges:20}") int merges,
+            @Value("${pdf.warmup.pages:3}") int pages,
+            @Value("${pdf.warmup.fields:60}") int fields,
+            @Value("${pdf.warmup.max-seconds:60}") long maxSeconds,
+            @Value("${pdf.warmup.exit:false}") boolean exitAfterWarmup
+    ) {
+        this.context = context;
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+        this.merges = Math.max(1, merges);
+        this.pages = Math.max(1, pages);
+        this.fields = Math.max(1, fields);
+        this.maxNanos = TimeUnit.SECONDS.toNanos(Math.max(1, maxSeconds));
+        this.exitAfterWarmup = exitAfterWarmup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!(context instanceof WebServerApplicationContext web) || web.getWebServer() == null
+                || web.getWebServer().getPort() <= 0) {
+            log.info("Startup warmup skipped: no local web server port");
+            return;
+        }
+        result = warmup(URI.create("http://localhost:" + web.getWebServer().getPort()));
+        TimeGauge.builder("pdf.startup.warmup", this, TimeUnit.NANOSECONDS, w -> w.result.elapsedNanos())
+                .description("Time spent in the startup warmup before readiness")
+                .register(registry);
+        TimeGauge.builder("pdf.startup.warmup.merge", this, TimeUnit.NANOSECONDS, w -> w.result.firstMergeNanos())
+                .description("First and last warmup merge latency (cold vs warm)")
+                .tag("merge", "first")
+                .register(registry);
+        TimeGauge.builder("pdf.startup.warmup.merge", this, TimeUnit.NANOSECONDS, w -> w.result.lastMergeNanos())
+                .description("First and last warmup merge latency (cold vs warm)")
+                .tag("merge", "last")
+                .register(registry);
+    }
+
+    /** 对 base 上的 merge 接口预热，直到完成 merges 次或超过 max-seconds。 */
+    Result warmup(URI base) {
+        long start = System.nanoTime();
+        // 单线程依次发请求：每次请求前把超时设为剩余时间
+        SimpleClientHttpRequestFactory requests = new SimpleClientHttpRequestFactory();
+        RestClient client = RestClient.builder().baseUrl(base.toString()).requestFactory(requests).build();
+        MultiValueMap<String, Object> form;
+        try {
+            SyntheticTemplateGenerator.SyntheticTemplate template = new SyntheticTemplateGenerator()
+                    .generate(SyntheticTemplateGenerator.Spec.of(pages, fields).withAcroFormWidgets(true));
+            form = new LinkedMultiValueMap<>();
+            form.add("template", file(template.pdf(), "warmup.pdf"));
+            form.add("definition", file(objectMapper.writeValueAsBytes(template.definition()), "warmup.json"));
+        } catch (IOException e) {
+            log.warn("Startup warmup skipped: {}", e.getMessage());
+            return new Result(0, 0, System.nanoTime() - start, 0, 0);
+        }
+
+        int done = 0;
+        int failed = 0;
+        long first = 0;
+        long last = 0;
+        for (int i = 0; i < merges && remainingTimeout(requests, start); i++) {
+            long t0 = System.nanoTime();
+            try {
+                String query = "/api/pdf/merge?seed=" + i + (i % SUBSET_EVERY == SUBSET_EVERY - 1 ? "&pages=fields" : "");
+                JsonNode response = client.post().uri(query)
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .body(form)
+                        .retrieve()
+                        .body(JsonNode.class);
+                deleteOutput(response);
+                last = System.nanoTime() - t0;
+                if (done++ == 0) {
+                    first = last;
+                }
+            } catch (RestClientException e) {
+                failed++;
+                log.warn("Startup warmup merge failed: {}", e.getMessage());
+            }
+        }
+        if (remainingTimeout(requests, start)) {
+            try {
+                client.post().uri("/api/pdf/merge/check?seed=0")
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .body(form)
+                        .retrieve()
+                        .toBodilessEntity();
+            } catch (RestClientException e) {
+                log.warn("Startup warmup check failed: {}", e.getMessage());
+            }
+        }
+        Result warm = new Result(done, failed, System.nanoTime() - start, first, last);
+        log.info("Startup warmup: {} merges ({} failed) of a {}-page, {}-field template in {} ms; first merge {} ms, last {} ms",
+                done, failed, pages, fields, TimeUnit.NANOSECONDS.toMillis(warm.elapsedNanos()),
+                TimeUnit.NANOSECONDS.toMillis(first), TimeUnit.NANOSECONDS.toMillis(last));
+        return warm;
+    }
+
+    /** 把下一个请求的连接与读取超时设为 max-seconds 的剩余时间；已用完时返回 false。 */
+    private boolean remainingTimeout(SimpleClientHttpRequestFactory requests, long start) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(maxNanos - (System.nanoTime() - start));
+        if (remainingMillis <= 0) {
+            return false;
+        }
+        int timeout = (int) Math.min(Integer.MAX_VALUE, remainingMillis);
+        requests.setConnectTimeout(timeout);
+        requests.setReadTimeout(timeout);
+        return true;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("pdf.startup.ready", this, TimeUnit.MILLISECONDS, w -> w.readyMillis)
+                .description("JVM start to readiness, including the startup warmup")
+                .register(registry);
+        log.info("Ready {} ms after JVM start (application started in {} ms)", readyMillis,
+                event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1);
+        if (exitAfterWarmup) {
+            // AppCDS 训练运行：就绪后正常退出，JVM 在退出时写出类归档
+            Thread exit = new Thread(() -> System.exit(SpringApplication.exit(event.getApplicationContext())),
+                    "pdf-warmup-exit");
+            exit.start();
+        }
+    }
+
+    /** 预热输出不保留：响应中的 outputPath 在本机输出目录中。 */
+    private static void deleteOutput(JsonNode response) {
+        JsonNode outputPath = response != null ? response.get("outputPath") : null;
+        if (outputPath == null || !outputPath.isTextual()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Path.of(outputPath.asText()));
+        } catch (IOException e) {
+            log.debug("Could not delete warmup output {}: {}", outputPath.asText(), e.getMessage());
+        }
+    }
+
+    private static ByteArrayResource file(byte[] content, String filename) {
+        return new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+}
@@ -0,0 +1,174 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.pdf.ContentHash;
+import com.pdfformfill.pdf.TemplateIndex;
+import com.pdfformfill.pdf.TemplateLayout;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * 模板库（pdf.templates.dir）：模板按内容 SHA-256 保存为 &lt;sha256&gt;.pdf，旁边是 sidecar 索引 &lt;sha256&gt;.index.json
+ * （{@link TemplateIndex}：页面尺寸、有值的控件、从 AcroForm 提取的字段定义草稿）。
+ * <p>
+ * 上传时遍历一次模板对象树并写出 sidecar；之后按 id 的 merge 与预检只读 sidecar（并缓存在内存中），不再遍历 PDF。
+ * sidecar 缺失、损坏或版本过旧时从模板重建。文件先写临时文件再原子改名，并发上传同一模板是安全的。
+ */
+@Component
+public class TemplateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TemplateStore.class);
+
+    /** 模板 id 为小写十六进制 SHA-256，避免路径穿越。 */
+    private static final Pattern TEMPLATE_ID = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+    private final Map<String, TemplateIndex> indexes;
+
+    public TemplateStore(
+            @Value("${pdf.templates.dir:${user.dir}/templates}") String templatesDir,
+            @Value("${pdf.templates.index-cache-size:256}") int indexCacheSize,
+            ObjectMapper objectMapper
+    ) {
+        this.dir = Paths.get(templatesDir).toAbsolutePath().normalize();
+        this.objectMapper = objectMapper;
+        int maxIndexes = Math.max(0, indexCacheSize);
+        this.indexes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TemplateIndex> eldest) {
+                return size() > maxIndexes;
+            }
+        });
+    }
+
+    /**
+     * 保存模板并建立 sidecar 索引，返回索引；同一内容已存在时直接返回已有索引。
+     *
+     * @throws IOException 模板无法解析、没有页面或写入失败时
+     */
+    public TemplateIndex put(byte[] pdf) throws IOException {
+        String id = ContentHash.sha256(pdf);
+        Optional<TemplateIndex> existing = index(id);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        TemplateIndex index;
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            if (document.getNumberOfPages() <= 0) {
+                throw new IOException("PDF template has no pages.");
+            }
+            index = TemplateIndex.of(id, pdf.length, document);
+        }
+        Files.createDirectories(dir);
+        write(templateFile(id), pdf);
+        writeIndex(index);
+        indexes.put(id, index);
+        return index;
+    }
+
+    /** 按 id 解析模板文件；id 不合法或模板不存在时返回 empty。 */
+    public Optional<Path> resolve(String id) {
+        if (id == null || !TEMPLATE_ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        Path file = templateFile(id);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * 模板的 sidecar 索引：先查内存，再读 sidecar，sidecar 不可用时从模板重建并重写；模板不存在时返回 empty。
+     */
+    public Optional<TemplateIndex> index(String id) throws IOException {
+        if (id == null || !TEMPLATE_ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        TemplateIndex index = indexes.get(id);
+        if (index != null) {
+            return Optional.of(index);
+        }
+        Optional<Path> template = resolve(id);
+        if (template.isEmpty()) {
+            return Optional.empty();
+        }
+        index = readIndex(id);
+        if (index == null) {
+            try (PDDocument document = Loader.loadPDF(template.get().toFile())) {
+                index = TemplateIndex.of(id, Files.size(template.get()), document);
+            }
+            writeIndex(index);
+        }
+        indexes.put(id, index);
+        return Optional.of(index);
+    }
+
+    /** 上传的模板若已在模板库中，返回其页面布局（来自 sidecar），否则返回 empty。 */
+    public Optional<TemplateLayout> layout(byte[] pdf) throws IOException {
+        return index(ContentHash.sha256(pdf)).map(TemplateIndex::layout);
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    private TemplateIndex readIndex(String id) {
+        Path file = indexFile(id);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            TemplateIndex index = objectMapper.readValue(file.toFile(), TemplateIndex.class);
+            if (index.version() == TemplateIndex.VERSION && id.equals(index.sha256())) {
+                return index;
+            }
+            log.info("Rebuilding template index {} (version {}, expected {})", file.getFileName(),
+                    index.version(), TemplateIndex.VERSION);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable template index {}: {}", file.getFileName(), e.getMessage());
+        }
+        return null;
+    }
+
+    private void writeIndex(TemplateIndex index) throws IOException {
+        write(indexFile(index.sha256()), objectMapper.writeValueAsBytes(index));
+    }
+
+    /** 原子写文件：同目录下的临时文件写完后 rename，读者只会看到旧内容或完整的新内容。 */
+    static void write(Path target, byte[] bytes) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path templateFile(String id) {
+        return dir.resolve(id + ".pdf");
+    }
+
+    private Path indexFile(String id) {
+        return dir.resolve(id + ".index.json");
+    }
+}
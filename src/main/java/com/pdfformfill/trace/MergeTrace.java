@@ -0,0 +1,116 @@
+package com.pdfformfill.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 单次 merge 的轻量追踪：各阶段耗时、最慢的 N 个页面与字段。绑定在当前线程上，
+ * 由 {@link MergeTracer} 开始/结束；未绑定时静态记录方法直接返回，几乎没有开销。
+ * 只保留 Top-N（最小堆），内存与字段数无关。
+ */
+public final class MergeTrace {
+
+    private static final ThreadLocal<MergeTrace> CURRENT = new ThreadLocal<>();
+
+    private final String label;
+    private final int topN;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private final PriorityQueue<FieldHotspot> slowestFields = new PriorityQueue<>(Comparator.comparingLong(FieldHotspot::micros));
+    private final PriorityQueue<PageSpan> slowestPages = new PriorityQueue<>(Comparator.comparingLong(PageSpan::micros));
+    private int pagesRendered;
+    private int fieldsFitted;
+
+    MergeTrace(String label, int topN) {
+        this.label = label;
+        this.topN = Math.max(1, topN);
+    }
+
+    /** 当前线程上的 trace；没有正在追踪的 merge 时为 null。 */
+    public static MergeTrace current() {
+        return CURRENT.get();
+    }
+
+    /** 记录一个流水线阶段的耗时（同名阶段累加）。 */
+    public static void recordStage(String stage, long nanos) {
+        MergeTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.stageNanos.merge(stage, nanos, Long::sum);
+        }
+    }
+
+    /** 附加一个请求级属性（如模板页数、字段数），写入慢日志。 */
+    public static void annotate(String key, Object value) {
+        MergeTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.attributes.put(key, value);
+        }
+    }
+
+    void bind() {
+        CURRENT.set(this);
+    }
+
+    void unbind() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    void recordField(String name, int textLength, float fontSize, int iterations, long nanos) {
+        fieldsFitted++;
+        offer(slowestFields, new FieldHotspot(name, textLength, fontSize, iterations, nanos / 1_000L));
+    }
+
+    void recordPage(int page, int fieldCount, long nanos) {
+        pagesRendered++;
+        offer(slowestPages, new PageSpan(page, fieldCount, nanos / 1_000L));
+    }
+
+    private <T> void offer(PriorityQueue<T> heap, T item) {
+        heap.offer(item);
+        if (heap.size() > topN) {
+            heap.poll();
+        }
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /** 生成写入慢日志的快照（慢的在前）。 */
+    public Snapshot snapshot(String outcome, long thresholdMs) {
+        Map<String, Double> stagesMs = new LinkedHashMap<>();
+        stageNanos.forEach((k, v) -> stagesMs.put(k, v / 1_000_000.0));
+        List<FieldHotspot> fields = new ArrayList<>(slowestFields);
+        fields.sort(Comparator.comparingLong(FieldHotspot::micros).reversed());
+        List<PageSpan> pages = new ArrayList<>(slowestPages);
+        pages.sort(Comparator.comparingLong(PageSpan::micros).reversed());
+        return new Snapshot(label, outcome, elapsedNanos() / 1_000_000.0, thresholdMs, attributes,
+                stagesMs, pagesRendered, pages, fieldsFitted, fields);
+    }
+
+    /** 单个字段的文字适配：值长度、最终字号、shrink/wrap 迭代次数与耗时（微秒）。 */
+    public record FieldHotspot(String name, int textLength, float fontSize, int wrapIterations, long micros) {}
+
+    /** 单个页面的 overlay 绘制耗时（微秒）。 */
+    public record PageSpan(int page, int fields, long micros) {}
+
+    public record Snapshot(
+            String label,
+            String outcome,
+            double totalMs,
+            long thresholdMs,
+            Map<String, Object> attributes,
+            Map<String, Double> stagesMs,
+            int pagesRendered,
+            List<PageSpan> slowestPages,
+            int fieldsFitted,
+            List<FieldHotspot> slowestFields
+    ) {}
+}
@@ -0,0 +1,73 @@
+package com.pdfformfill.trace;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 开始/结束单次 merge 的 {@link MergeTrace}；总耗时超过 pdf.trace.slow-threshold-ms 时，
+ * 将阶段分解与最慢的页面/字段写成一行 JSON 到专用慢日志（logger {@value #SLOW_LOGGER}）。
+ * 未超过阈值的 trace 直接丢弃。
+ */
+@Component
+public class MergeTracer {
+
+    public static final String SLOW_LOGGER = "pdf.slow-requests";
+
+    private static final Logger log = LoggerFactory.getLogger(MergeTracer.class);
+    private static final Logger slowLog = LoggerFactory.getLogger(SLOW_LOGGER);
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${pdf.trace.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${pdf.trace.slow-threshold-ms:2000}")
+    private long slowThresholdMs = 2000;
+
+    @Value("${pdf.trace.top-n:5}")
+    private int topN = 5;
+
+    public MergeTracer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 为当前线程开始追踪；关闭追踪时返回 null（{@link #finish} 接受 null）。
+     *
+     * @param label 写入慢日志的请求标识（如模板文件名）
+     */
+    public MergeTrace begin(String label) {
+        if (!enabled) {
+            return null;
+        }
+        MergeTrace trace = new MergeTrace(label, topN);
+        trace.bind();
+        return trace;
+    }
+
+    /**
+     * 结束追踪并解除线程绑定；超过阈值时写慢日志。
+     *
+     * @param outcome "ok" 或错误类别
+     */
+    public void finish(MergeTrace trace, String outcome) {
+        if (trace == null) {
+            return;
+        }
+        trace.unbind();
+        if (TimeUnit.NANOSECONDS.toMillis(trace.elapsedNanos()) < slowThresholdMs) {
+            return;
+        }
+        try {
+            slowLog.warn(objectMapper.writeValueAsString(trace.snapshot(outcome, slowThresholdMs)));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize slow merge trace: {}", e.getMessage());
+        }
+    }
+}
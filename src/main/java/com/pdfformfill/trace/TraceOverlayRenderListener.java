@@ -0,0 +1,27 @@
+package com.pdfformfill.trace;
+
+import com.pdfformfill.pdf.overlay.OverlayRenderListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 把 {@link com.pdfformfill.pdf.overlay.PdfOverlayRenderer} 的页面与字段耗时记入当前线程的 {@link MergeTrace}。
+ */
+@Component
+public class TraceOverlayRenderListener implements OverlayRenderListener {
+
+    @Override
+    public void fieldFitted(String fieldName, int textLength, float fontSize, int iterations, long nanos) {
+        MergeTrace trace = MergeTrace.current();
+        if (trace != null) {
+            trace.recordField(fieldName, textLength, fontSize, iterations, nanos);
+        }
+    }
+
+    @Override
+    public void pageRendered(int page, int fieldCount, long nanos) {
+        MergeTrace trace = MergeTrace.current();
+        if (trace != null) {
+            trace.recordPage(page, fieldCount, nanos);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.pdfformfill.api;
+
+import com.pdfformfill.service.PdfOutputStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 下载接口：完整下载、Range 部分下载、语法无效的 Range 忽略、ETag 304、非法文件名 404。
+ */
+class PdfDownloadControllerTest {
+
+    private static final String NAME = "filled-123e4567-e89b-12d3-a456-426614174000.pdf";
+
+    @TempDir
+    Path outputDir;
+
+    private MockMvc mockMvc;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(outputDir.resolve(NAME), content);
+        PdfOutputStore store = new PdfOutputStore(outputDir.toString());
+        mockMvc = MockMvcBuilders.standaloneSetup(new PdfDownloadController(store)).build();
+    }
+
+    @Test
+    void download_full_file_with_etag_and_cache_headers() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/pdf/outputs/" + NAME))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(content);
+        assertThat(result.getResponse().getHeader("Cache-Control")).contains("immutable");
+    }
+
+    @Test
+    void download_range_returns_partial_content() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/pdf/outputs/" + NAME).header("Range", "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 10-19/1000"))
+                .andReturn();
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertThat(body).hasSize(10);
+        assertThat(body[0]).isEqualTo((byte) 10);
+    }
+
+    @Test
+    void download_unsatisfiable_range_returns_416() throws Exception {
+        mockMvc.perform(get("/api/pdf/outputs/" + NAME).header("Range", "bytes=5000-6000"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */1000"));
+    }
+
+    @Test
+    void download_malformed_range_is_ignored_and_returns_the_full_file() throws Exception {
+        for (String range : new String[]{"bytes=abc", "bytes=20-10", "items=0-9"}) {
+            MvcResult result = mockMvc.perform(get("/api/pdf/outputs/" + NAME).header("Range", range))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Content-Range"))
+                    .andReturn();
+            assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void download_matching_etag_returns_304() throws Exception {
+        String etag = mockMvc.perform(get("/api/pdf/outputs/" + NAME)).andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/pdf/outputs/" + NAME).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void download_rejects_unknown_or_traversal_names() throws Exception {
+        mockMvc.perform(get("/api/pdf/outputs/other.pdf")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/pdf/outputs/..%2Fsecret.pdf")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,188 @@
+package com.pdfformfill.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.engine.FillEngine;
+import com.pdfformfill.metrics.MergeMetrics;
+import com.pdfformfill.pdf.PageSubsetter;
+import com.pdfformfill.pdf.PdfTemplateLoader;
+import com.pdfformfill.service.FieldDataPreparer;
+import com.pdfformfill.service.FieldLayoutAnalyzer;
+import com.pdfformfill.service.MockRecordGenerator;
+import com.pdfformfill.service.PdfFormFillService;
+import com.pdfformfill.service.PdfOutputStore;
+import com.pdfformfill.service.TemplateStore;
+import com.pdfformfill.trace.MergeTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 批处理：记录文件（JSON Lines / 数组 / 目录）逐条填表直接写到输出目录，输出文件按记录命名；无记录文件时按 seed 生成 mock 记录；
+ * 中断后重跑只填日志中尚未写出的记录，全部写出后日志删除。
+ */
+class BatchFillCommandTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private BatchFillCommand command;
+    private Path template;
+    private Path definition;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        PdfFormFillService service = new PdfFormFillService(new PdfTemplateLoader(), mapper, new FieldDataPreparer(),
+                new MockRecordGenerator(), new FillEngine(), new PdfOutputStore(dir.resolve("outputs").toString()),
+                new PageSubsetter(), new FieldLayoutAnalyzer(), new TemplateStore(dir.resolve("templates").toString(), 4, mapper),
+                new MergeMetrics(new SimpleMeterRegistry()), new MergeTracer(mapper));
+        command = new BatchFillCommand(service, new MockRecordGenerator(), new MergeMetrics(new SimpleMeterRegistry()),
+                mapper, new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+
+        template = dir.resolve("form.pdf");
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage(PDRectangle.A4));
+            doc.save(template.toFile());
+        }
+        definition = dir.resolve("form.json");
+        mapper.writeValue(definition.toFile(), new FieldsDefinition(List.of(
+                new FieldDefinition("Name", "string", null, 50d, 50d, 200d, 20d, 1))));
+    }
+
+    @Test
+    void fills_each_json_lines_record_into_its_own_file() throws Exception {
+        Path records = dir.resolve("people.jsonl");
+        Files.writeString(records, "{\"Name\":\"Alice\"}\n{\"Name\":\"Bob\"}\n{\"Name\":\"Carol\"}\n");
+
+        BatchFillCommand.Result result = command.execute(options(records, 0));
+
+        assertThat(result.records()).isEqualTo(3);
+        assertThat(result.failed()).isZero();
+        assertThat(result.pages()).isEqualTo(3);
+        assertThat(text(dir.resolve("out/people-1.pdf"))).contains("Alice");
+        assertThat(text(dir.resolve("out/people-2.pdf"))).contains("Bob");
+        assertThat(text(dir.resolve("out/people-3.pdf"))).contains("Carol");
+    }
+
+    @Test
+    void directory_records_are_named_after_their_files() throws Exception {
+        Path records = Files.createDirectory(dir.resolve("records"));
+        Files.writeString(records.resolve("a.json"), "{\"Name\":\"Alice\"}");
+        Files.writeString(records.resolve("b.json"), "[{\"Name\":\"Bob\"},{\"Name\":\"Carol\"}]");
+        Files.writeString(records.resolve("notes.txt"), "ignored");
+
+        BatchFillCommand.Result result = command.execute(options(records, 0));
+
+        assertThat(result.records()).isEqualTo(3);
+        try (Stream<Path> files = Files.list(dir.resolve("out"))) {
+            assertThat(files.map(f -> f.getFileName().toString()))
+                    .containsExactlyInAnyOrder("a.pdf", "b-1.pdf", "b-2.pdf");
+        }
+        assertThat(text(dir.resolve("out/b-2.pdf"))).contains("Carol");
+    }
+
+    @Test
+    void directory_records_with_colliding_output_names_are_rejected() throws Exception {
+        Path records = Files.createDirectory(dir.resolve("records"));
+        Files.writeString(records.resolve("a.json"), "{\"Name\":\"Alice\"}");
+        Files.writeString(records.resolve("a.jsonl"), "{\"Name\":\"Bob\"}");
+        assertThatThrownBy(() -> command.execute(options(records, 0)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("a.json");
+
+        Files.delete(records.resolve("a.json"));
+        Files.writeString(records.resolve("A-1.json"), "{\"Name\":\"Carol\"}");
+        assertThatThrownBy(() -> command.execute(options(records, 0)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("A-1.json");
+        assertThat(dir.resolve("out/a.pdf")).doesNotExist();
+    }
+
+    @Test
+    void latency_histogram_keeps_percentiles_within_its_bucket_width() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 1000; ms++) {
+            histogram.record(ms * 1_000_000L);
+        }
+
+        assertThat(histogram.count()).isEqualTo(1000);
+        assertThat(histogram.percentileNanos(0.50) / 1e6).isBetween(500.0, 510.0);
+        assertThat(histogram.percentileNanos(0.99) / 1e6).isBetween(990.0, 1000.0);
+        assertThat(histogram.maxNanos()).isEqualTo(1_000_000_000L);
+        assertThat(new LatencyHistogram().percentileNanos(0.5)).isZero();
+    }
+
+    @Test
+    void generates_mock_records_without_a_records_file() throws Exception {
+        BatchFillCommand.Result result = command.execute(options(null, 12));
+
+        assertThat(result.records()).isEqualTo(12);
+        assertThat(dir.resolve("out/record-01.pdf")).exists();
+        assertThat(dir.resolve("out/record-12.pdf")).exists();
+    }
+
+    @Test
+    void resumes_an_interrupted_run_from_its_journal() throws Exception {
+        BatchFillCommand.Options options = options(null, 5);
+        String key = BatchFillCommand.journalKey(options, Files.readAllBytes(template));
+        try (BatchJournal journal = BatchJournal.open(options.journal(), key, 1 << 16, 1000)) {
+            journal.record(0, 1, "record-1.pdf");
+            journal.record(2, 1, "record-3.pdf");
+            journal.record(3, 1, "record-4.pdf");
+        }
+        Files.writeString(dir.resolve("out/record-1.pdf"), "earlier run");
+        Files.writeString(dir.resolve("out/record-4.pdf"), "earlier run");
+
+        BatchFillCommand.Result result = command.execute(options);
+
+        // record-3.pdf was journaled but never reached the disk, so it is filled again
+        assertThat(result.resumed()).isEqualTo(2);
+        assertThat(result.records()).isEqualTo(3);
+        assertThat(dir.resolve("out/record-1.pdf")).hasContent("earlier run");
+        assertThat(text(dir.resolve("out/record-3.pdf"))).isNotBlank();
+        try (Stream<Path> files = Files.list(dir.resolve("out"))) {
+            assertThat(files.map(f -> f.getFileName().toString())).containsExactlyInAnyOrder(
+                    "record-1.pdf", "record-2.pdf", "record-3.pdf", "record-4.pdf", "record-5.pdf");
+        }
+    }
+
+    @Test
+    void requires_exactly_one_record_source() {
+        assertThatThrownBy(() -> BatchFillCommand.Options.parse(Map.of("template", "t.pdf", "definition", "d.json")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BatchFillCommand.Options.parse(Map.of("template", "t.pdf", "definition", "d.json",
+                "records", "r.jsonl", "count", "3")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(BatchFillCommand.run(new String[]{"--template", "t.pdf"})).isEqualTo(2);
+    }
+
+    private BatchFillCommand.Options options(Path records, long count) {
+        return new BatchFillCommand.Options(template, definition, records, count, 7L, dir.resolve("out"), 3,
+                dir.resolve("out/.journal"));
+    }
+
+    private static String text(Path pdf) throws IOException {
+        try (PDDocument doc = Loader.loadPDF(pdf.toFile())) {
+            return new PDFTextStripper().getText(doc);
+        }
+    }
+}
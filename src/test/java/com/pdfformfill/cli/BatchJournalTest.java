@@ -0,0 +1,128 @@
+package com.pdfformfill.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 批处理日志：重新打开时恢复已写出的记录与页数；段写满后以检查点开新段并删除旧段；
+ * 批次 key 不同则丢弃旧日志；末尾损坏的条目被忽略。
+ */
+class BatchJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopening_replays_written_records() throws IOException {
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-a", 1 << 16, 1000)) {
+            journal.record(0, 2, "r-1.pdf");
+            journal.record(2, 3, "r-3.pdf");
+            journal.record(2, 3, "r-3.pdf");
+        }
+
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-a", 1 << 16, 1000)) {
+            assertThat(journal.written(0)).isTrue();
+            assertThat(journal.written(1)).isFalse();
+            assertThat(journal.written(2)).isTrue();
+            assertThat(journal.writtenRecords()).isEqualTo(2);
+            assertThat(journal.writtenPages()).isEqualTo(5);
+        }
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void full_segments_are_compacted_into_a_checkpoint() throws IOException {
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-a", 4096, 1000)) {
+            for (int i = 0; i < 1000; i++) {
+                if (i != 500) {
+                    journal.record(i, 1, "record-" + (i + 1) + ".pdf");
+                }
+            }
+            assertThat(segments()).hasSize(1);
+        }
+
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-a", 4096, 1000)) {
+            assertThat(journal.writtenRecords()).isEqualTo(999);
+            assertThat(journal.writtenPages()).isEqualTo(999);
+            assertThat(journal.written(500)).isFalse();
+            assertThat(journal.written(999)).isTrue();
+        }
+    }
+
+    @Test
+    void a_different_batch_starts_a_new_journal() throws IOException {
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-a", 1 << 16, 1000)) {
+            journal.record(0, 1, "r-1.pdf");
+        }
+
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-b", 1 << 16, 1000)) {
+            assertThat(journal.writtenRecords()).isZero();
+        }
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-a", 1 << 16, 1000)) {
+            assertThat(journal.writtenRecords()).isZero();
+        }
+    }
+
+    @Test
+    void a_torn_entry_ends_the_replay() throws IOException {
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-a", 1 << 16, 1000)) {
+            journal.record(0, 1, "r-1.pdf");
+            journal.record(1, 1, "r-2.pdf");
+        }
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        int lastEntry = lastEntryOffset(bytes);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xff}), lastEntry + 12);
+        }
+
+        try (BatchJournal journal = BatchJournal.open(dir, "batch-a", 1 << 16, 1000)) {
+            assertThat(journal.written(0)).isTrue();
+            assertThat(journal.written(1)).isFalse();
+        }
+    }
+
+    @Test
+    void delete_removes_the_journal_directory() throws IOException {
+        Path journalDir = dir.resolve(".journal");
+        BatchJournal journal = BatchJournal.open(journalDir, "batch-a", 1 << 16, 1000);
+        journal.record(0, 1, "r-1.pdf");
+
+        journal.delete();
+
+        assertThat(journalDir).doesNotExist();
+    }
+
+    /** Walks the length-prefixed entries and returns the offset of the last one. */
+    private static int lastEntryOffset(byte[] bytes) {
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        int last = 0;
+        while (data.remaining() >= 9) {
+            int offset = data.position();
+            int length = data.getInt();
+            if (length <= 0) {
+                break;
+            }
+            last = offset;
+            data.position(offset + 9 + length);
+        }
+        return last;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+}
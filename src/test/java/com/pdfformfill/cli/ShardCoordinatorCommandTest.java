@@ -0,0 +1,165 @@
+package com.pdfformfill.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 分片协调器：记录按 shard-records 切片分发给各实例，失败的分片重试后换到其他实例，清单按记录顺序列出每条的下载地址；
+ * 实例返回 400 的分片不重试。实例用 JDK HttpServer 模拟。
+ */
+class ShardCoordinatorCommandTest {
+
+    private static final Pattern FIELD = Pattern.compile("name=\"(\\w+)\"\r\n\r\n([^\r]*)\r\n");
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(s -> s.stop(0));
+    }
+
+    @Test
+    void shards_are_spread_over_workers_and_a_failed_shard_is_retried() throws Exception {
+        AtomicInteger failures = new AtomicInteger(1);
+        URI a = worker("a", () -> failures.getAndDecrement() > 0 ? 503 : 200);
+        URI b = worker("b", () -> 200);
+        Path manifest = dir.resolve("out/manifest.json");
+
+        ShardCoordinatorCommand.Result result = command().execute(options(Map.of(
+                "count", "25", "workers", a + "," + b + "/", "shard-records", "4", "per-worker", "1",
+                "manifest", manifest.toString())));
+
+        assertThat(result.records()).isEqualTo(25);
+        assertThat(result.failed()).isZero();
+        assertThat(result.shards()).isEqualTo(7);
+        assertThat(result.retries()).isEqualTo(1);
+        assertThat(result.pages()).isEqualTo(25);
+
+        JsonNode json = mapper.readTree(manifest.toFile());
+        List<JsonNode> records = StreamSupport.stream(json.get("records").spliterator(), false).toList();
+        assertThat(records).extracting(r -> r.get("name").asText())
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, 25)
+                        .mapToObj(i -> String.format("record-%02d", i)).toList());
+        assertThat(records).allSatisfy(r -> {
+            assertThat(r.get("url").asText()).isEqualTo(r.get("worker").asText() + "/api/pdf/outputs/"
+                    + "record-" + (r.get("record").asLong() - 1) + ".pdf");
+            assertThat(r.has("error")).isFalse();
+        });
+        assertThat(records.get(24).get("shard").asInt()).isEqualTo(7);
+        assertThat(json.get("summary").get("retries").asInt()).isEqualTo(1);
+        assertThat(json.get("summary").get("shardsByWorker").get(b.toString()).asInt()).isPositive();
+    }
+
+    @Test
+    void records_file_is_sent_as_json_lines_and_rejected_shards_fail_without_retry() throws Exception {
+        URI a = worker("a", () -> 400);
+        Path records = dir.resolve("people.jsonl");
+        Files.writeString(records, "{\"Name\":\"A\"}\n{\"Name\":\"B\"}\n{\"Name\":\"C\"}\n");
+        Path manifest = dir.resolve("manifest.json");
+
+        ShardCoordinatorCommand.Result result = command().execute(options(Map.of(
+                "records", records.toString(), "workers", a.toString(), "shard-records", "2",
+                "manifest", manifest.toString())));
+
+        assertThat(result.records()).isEqualTo(3);
+        assertThat(result.failed()).isEqualTo(3);
+        assertThat(result.retries()).isZero();
+        JsonNode first = mapper.readTree(manifest.toFile()).get("records").get(0);
+        assertThat(first.get("name").asText()).isEqualTo("people-1");
+        assertThat(first.get("error").asText()).isEqualTo("HTTP 400: rejected 2 records");
+    }
+
+    @Test
+    void invalid_arguments_exit_with_status_2() {
+        assertThat(ShardCoordinatorCommand.run(new String[] {"--template", "t.pdf", "--count", "3"})).isEqualTo(2);
+        assertThatThrownBy(() -> options(Map.of("count", "0", "workers", "http://localhost:1")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ShardCoordinatorCommand command() {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        return new ShardCoordinatorCommand(mapper, http,
+                new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8), 50);
+    }
+
+    private ShardCoordinatorCommand.Options options(Map<String, String> extra) throws IOException {
+        Path template = dir.resolve("form.pdf");
+        Files.write(template, "%PDF-1.7".getBytes(StandardCharsets.US_ASCII));
+        Map<String, String> opts = new HashMap<>(extra);
+        opts.put("template", template.toString());
+        return ShardCoordinatorCommand.Options.parse(opts);
+    }
+
+    /** A fake instance: accepts the template upload and answers each shard with the status chosen by respond. */
+    private URI worker(String name, IntSupplier respond) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/pdf/templates", exchange ->
+                reply(exchange, 200, "{\"success\":true,\"templateId\":\"tpl-" + name + "\"}"));
+        server.createContext("/api/pdf/shards", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Map<String, String> fields = new HashMap<>();
+            for (Matcher m = FIELD.matcher(body); m.find(); ) {
+                fields.put(m.group(1), m.group(2));
+            }
+            assertThat(fields.get("templateId")).isEqualTo("tpl-" + name);
+            int count = Integer.parseInt(fields.get("count"));
+            long first = Long.parseLong(fields.get("first"));
+            int status = respond.getAsInt();
+            if (status != 200) {
+                reply(exchange, status, "{\"message\":\"rejected " + count + " records\"}");
+                return;
+            }
+            StringBuilder outputs = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                outputs.append(i > 0 ? "," : "").append("{\"index\":").append(i)
+                        .append(",\"downloadUrl\":\"/api/pdf/outputs/record-").append(first + i)
+                        .append(".pdf\",\"pages\":1}");
+            }
+            reply(exchange, 200, "{\"shard\":\"" + fields.get("shard") + "\",\"records\":" + count
+                    + ",\"failed\":0,\"pages\":" + count + ",\"elapsedMs\":1,\"outputs\":[" + outputs + "]}");
+        });
+        server.start();
+        servers.add(server);
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    private static void reply(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
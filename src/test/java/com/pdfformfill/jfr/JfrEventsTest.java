@@ -0,0 +1,69 @@
+package com.pdfformfill.jfr;
+
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.pdf.overlay.OverlayOptions;
+import com.pdfformfill.pdf.overlay.PdfOverlayRenderer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 领域 JFR 事件：渲染时产生 PageRender / FieldFit 事件，阶段事件按 stage 选择子类型。
+ */
+class JfrEventsTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void render_emits_page_and_field_fit_events() throws Exception {
+        Path file = tmp.resolve("test.jfr");
+        JfrEvents.register();
+        try (Recording recording = new Recording(); PDDocument doc = new PDDocument()) {
+            recording.enable(PageRenderEvent.class);
+            recording.enable(FieldFitEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(TemplateLoadEvent.class);
+            recording.start();
+
+            doc.addPage(new PDPage(PDRectangle.A4));
+            new PdfOverlayRenderer().render(doc,
+                    List.of(new FieldDefinition("Name", "string", null, 72d, 100d, 40d, 24d, 1)),
+                    Map.of("Name", "A value that needs shrinking"),
+                    new OverlayOptions(null, null, OverlayOptions.DEFAULT_FONT_SIZE, OverlayOptions.DEFAULT_MIN_FONT_SIZE,
+                            OverlayOptions.DEFAULT_FONT_COLOR_RGB, OverlayOptions.DEFAULT_PADDING_X, OverlayOptions.DEFAULT_PADDING_Y));
+            StageEvent load = StageEvent.forStage("load");
+            load.begin();
+            load.commit();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events).anySatisfy(e -> {
+            assertThat(e.getEventType().getName()).isEqualTo("com.pdfformfill.FieldFit");
+            assertThat(e.getString("field")).isEqualTo("Name");
+            assertThat(e.getInt("iterations")).isGreaterThan(1);
+        });
+        assertThat(events).anySatisfy(e -> {
+            assertThat(e.getEventType().getName()).isEqualTo("com.pdfformfill.PageRender");
+            assertThat(e.getInt("page")).isEqualTo(1);
+        });
+        assertThat(events).anySatisfy(e -> {
+            assertThat(e.getEventType().getName()).isEqualTo("com.pdfformfill.TemplateLoad");
+            assertThat(e.getString("stage")).isEqualTo("load");
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.pdfformfill.metrics;
+
+import com.pdfformfill.engine.Deadline;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 指标注册与 Prometheus 抓取格式：阶段计时、字段计数、错误计数都出现在 scrape 输出中；
+ * 截止时间到期时阶段不再执行，按原因与阶段计入 pdf.merge.cancelled。
+ */
+class MergeMetricsTest {
+
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private final MergeMetrics metrics = new MergeMetrics(registry);
+    private final MetricsOverlayRenderListener listener = new MetricsOverlayRenderListener(registry);
+
+    @Test
+    void stages_fields_and_errors_are_exported_for_prometheus() throws IOException {
+        String value = metrics.recordStage(MergeStage.PARSE, () -> "parsed");
+        metrics.runStage(MergeStage.SAVE, () -> { });
+        metrics.recordTemplate(2048, 3);
+        listener.fieldRendered("string");
+        listener.fieldRendered("something-custom");
+        listener.textTruncated("A");
+        metrics.recordError("IOException", 500);
+
+        assertThat(value).isEqualTo("parsed");
+        String scrape = registry.scrape();
+        assertThat(scrape).contains("pdf_merge_stage_seconds_bucket{");
+        assertThat(scrape).contains("stage=\"parse\"").contains("stage=\"save\"");
+        assertThat(scrape).contains("pdf_template_pages_count");
+        assertThat(scrape).contains("pdf_overlay_fields_total{type=\"string\"");
+        assertThat(scrape).contains("pdf_overlay_fields_total{type=\"other\"");
+        assertThat(scrape).contains("pdf_overlay_text_fit_total{event=\"truncate\"");
+        assertThat(scrape).contains("pdf_merge_errors_total{error=\"IOException\",status=\"500\"");
+    }
+
+    @Test
+    void stage_is_recorded_even_when_body_throws() {
+        try {
+            metrics.runStage(MergeStage.LOAD, () -> {
+                throw new IOException("broken");
+            });
+        } catch (IOException expected) {
+            // ignored
+        }
+        assertThat(registry.get("pdf.merge.stage").tag("stage", "load").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void expired_deadline_skips_the_stage_and_counts_the_cancellation() {
+        Deadline deadline = Deadline.none();
+        try (Deadline.Scope ignored = deadline.bind()) {
+            assertThatThrownBy(() -> metrics.runStage(MergeStage.RENDER, () -> {
+                deadline.cancel();
+                Deadline.check();
+            }))
+                    .isInstanceOf(Deadline.Cancelled.class);
+        }
+        try (Deadline.Scope ignored = Deadline.after(Duration.ZERO).bind()) {
+            assertThatThrownBy(() -> metrics.runStage(MergeStage.SAVE, () -> {
+                throw new AssertionError("stage must not run");
+            })).isInstanceOf(Deadline.Cancelled.class);
+        }
+
+        // 执行中被取消的阶段照常计时，开始前就到期的阶段不计时
+        assertThat(registry.get("pdf.merge.stage").tag("stage", "render").timer().count()).isEqualTo(1);
+        assertThat(registry.get("pdf.merge.stage").tag("stage", "save").timer().count()).isZero();
+        assertThat(registry.get("pdf.merge.cancelled").tags("reason", "cancelled", "stage", "render").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("pdf.merge.cancelled").tags("reason", "deadline", "stage", "save").counter().count())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,168 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.dto.MergeCheckResponse;
+import com.pdfformfill.dto.MergeCheckResponse.FieldIssue;
+import com.pdfformfill.pdf.FieldSpatialIndex;
+import com.pdfformfill.pdf.PdfTemplateLoader;
+import com.pdfformfill.pdf.TemplateLayout;
+import com.pdfformfill.pdf.overlay.PdfOverlayRenderer;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 预检：页面尺寸只从页面树读取；页码、坐标与矩形越界、字段重叠与有值控件上的字段被报告；文字适配结果与 merge 一致（缩小 / 截断）。
+ */
+class MergeCheckServiceTest {
+
+    @TempDir
+    static Path templatesDir;
+
+    private final FieldDataPreparer preparer = new FieldDataPreparer();
+    private final MergeCheckService service = new MergeCheckService(new PdfTemplateLoader(), new ObjectMapper(),
+            preparer, new MockRecordGenerator(), new PdfOverlayRenderer(), new FieldLayoutAnalyzer(),
+            new TemplateStore(templatesDir.toString(), 16, new ObjectMapper()), 16);
+
+    @Test
+    void layout_reads_page_sizes_including_inherited_media_box() throws IOException {
+        TemplateLayout layout = new PdfTemplateLoader().layout(pdf(PDRectangle.A4, PDRectangle.LETTER));
+
+        assertThat(layout.pageCount()).isEqualTo(2);
+        assertThat(layout.page(1).width()).isEqualTo(PDRectangle.A4.getWidth());
+        assertThat(layout.page(2).height()).isEqualTo(PDRectangle.LETTER.getHeight());
+        assertThat(layout.page(3)).isNull();
+    }
+
+    @Test
+    void reports_placement_problems() throws IOException {
+        TemplateLayout layout = new TemplateLayout(List.of(new TemplateLayout.PageSize(612, 792)));
+        FieldsDefinition definition = new FieldsDefinition(List.of(
+                new FieldDefinition("ok", "checkbox", null, 10d, 10d, 16d, 16d, 1),
+                new FieldDefinition("far", "checkbox", null, 600d, 10d, 20d, 16d, 1),
+                new FieldDefinition("nowhere", "checkbox", null, 10d, 10d, 16d, 16d, 2),
+                new FieldDefinition("unplaced", "checkbox", null, null, 10d, 16d, 16d, 1),
+                new FieldDefinition("photo", "image", null, 10d, 10d, null, 40d, 1)));
+
+        List<FieldIssue> issues = service.check(layout, definition, null);
+
+        assertThat(issues).extracting(FieldIssue::field, FieldIssue::problem).containsExactly(
+                tuple("nowhere", "pageOutOfRange"),
+                tuple("unplaced", "missingPosition"),
+                tuple("photo", "invalidSize"),
+                tuple("far", "outOfBounds"));
+    }
+
+    @Test
+    void reports_overlapping_fields_and_filled_widgets_underneath() throws IOException {
+        TemplateLayout layout = new TemplateLayout(List.of(new TemplateLayout.PageSize(612, 792)),
+                List.of(new FieldSpatialIndex.Rect("form.agree", 1, 300, 100, 12, 12)));
+        FieldsDefinition definition = new FieldsDefinition(List.of(
+                new FieldDefinition("a", "checkbox", null, 10d, 10d, 40d, 20d, 1),
+                new FieldDefinition("b", "checkbox", null, 30d, 15d, 40d, 20d, 1),
+                new FieldDefinition("c", "checkbox", null, 50d, 10d, 40d, 20d, 1),
+                new FieldDefinition("d", "checkbox", null, 295d, 95d, 20d, 20d, 1),
+                new FieldDefinition("e", "checkbox", null, 10d, 30d, 40d, 20d, 1)));
+
+        List<FieldIssue> issues = service.check(layout, definition, null);
+
+        // a-b, b-c and b-e overlap; a-c and a-e only share an edge
+        assertThat(issues).extracting(FieldIssue::field, FieldIssue::problem).containsExactlyInAnyOrder(
+                tuple("a", "overlap"), tuple("b", "overlap"), tuple("b", "overlap"), tuple("d", "widgetCollision"));
+        assertThat(issues).filteredOn(i -> i.problem().equals("widgetCollision"))
+                .extracting(FieldIssue::message).first().asString().contains("form.agree");
+    }
+
+    @Test
+    void acroform_fill_mode_does_not_report_a_field_over_its_own_widget() throws IOException {
+        TemplateLayout layout = new TemplateLayout(List.of(new TemplateLayout.PageSize(612, 792)), List.of(
+                new FieldSpatialIndex.Rect("form.agree", 1, 300, 100, 12, 12),
+                new FieldSpatialIndex.Rect("form.other", 1, 300, 100, 12, 12)));
+        FieldsDefinition definition = new FieldsDefinition(List.of(
+                new FieldDefinition("form.agree", "checkbox", null, 300d, 100d, 12d, 12d, 1)),
+                null, null, null, null, null, null, null, FieldsDefinition.FILL_MODE_ACROFORM, null);
+
+        List<FieldIssue> issues = service.check(layout, definition, null);
+
+        assertThat(issues).extracting(FieldIssue::field, FieldIssue::problem)
+                .containsExactly(tuple("form.agree", "widgetCollision"));
+        assertThat(issues.get(0).message()).contains("form.other");
+    }
+
+    @Test
+    void reports_shrunk_and_truncated_text() throws IOException {
+        TemplateLayout layout = new TemplateLayout(List.of(new TemplateLayout.PageSize(612, 792)));
+        FieldsDefinition definition = new FieldsDefinition(List.of(
+                new FieldDefinition("Email", "string", null, 10d, 10d, 300d, 20d, 1),
+                new FieldDefinition("Email address", "string", null, 10d, 40d, 100d, 20d, 1),
+                new FieldDefinition("Email contact", "string", null, 10d, 70d, 30d, 20d, 1)));
+
+        List<FieldIssue> issues = service.check(layout, definition, null);
+
+        assertThat(issues).extracting(FieldIssue::field).doesNotContain("Email");
+        FieldIssue shrunk = issues.stream().filter(i -> i.field().equals("Email address")).findFirst().orElseThrow();
+        assertThat(shrunk.problem()).isEqualTo("shrunk");
+        assertThat(shrunk.fontSize()).isLessThan(12f).isGreaterThanOrEqualTo(6f);
+        FieldIssue truncated = issues.stream().filter(i -> i.field().equals("Email contact")).findFirst().orElseThrow();
+        assertThat(truncated.problem()).isEqualTo("truncated");
+        assertThat(truncated.fontSize()).isEqualTo(6f);
+    }
+
+    @Test
+    void reports_fit_issues_on_the_page_of_each_field_with_a_repeated_name() throws IOException {
+        TemplateLayout layout = new TemplateLayout(List.of(new TemplateLayout.PageSize(612, 792),
+                new TemplateLayout.PageSize(612, 792)));
+        FieldsDefinition definition = new FieldsDefinition(List.of(
+                new FieldDefinition("Email", "string", null, 10d, 10d, 300d, 20d, 1),
+                new FieldDefinition("Email", "string", null, 10d, 10d, 30d, 20d, 2)));
+
+        List<FieldIssue> issues = service.check(layout, definition, null);
+
+        assertThat(issues).extracting(FieldIssue::field, FieldIssue::page, FieldIssue::problem)
+                .containsExactly(tuple("Email", 2, "truncated"));
+    }
+
+    @Test
+    void check_parses_uploads_and_summarises() throws IOException {
+        MockMultipartFile template = new MockMultipartFile("template", "t.pdf", "application/pdf", pdf(PDRectangle.A4));
+        String json = "{\"fields\":[{\"name\":\"Email\",\"type\":\"string\",\"x\":10,\"y\":10,\"width\":300,\"height\":20,\"page\":1}]}";
+        MockMultipartFile definition = new MockMultipartFile("definition", "d.json", "application/json",
+                json.getBytes(StandardCharsets.UTF_8));
+
+        MergeCheckResponse response = service.check(template, definition, null);
+
+        assertThat(response.success()).isTrue();
+        assertThat(response.templatePages()).isEqualTo(1);
+        assertThat(response.definitionFields()).isEqualTo(1);
+        assertThat(response.issues()).isEmpty();
+    }
+
+    private static byte[] pdf(PDRectangle... sizes) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (PDRectangle size : sizes) {
+                doc.addPage(new PDPage(size));
+            }
+            // First page inherits its MediaBox from the page tree
+            doc.getPages().getCOSObject().setItem(COSName.MEDIA_BOX, sizes[0].getCOSArray());
+            doc.getPage(0).getCOSObject().removeItem(COSName.MEDIA_BOX);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
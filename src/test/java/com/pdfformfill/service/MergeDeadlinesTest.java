@@ -0,0 +1,39 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.engine.Deadline;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * merge 截止时间：请求头与 pdf.merge.timeout-ms 取较小者，都没有时不限；请求头必须是正数。
+ */
+class MergeDeadlinesTest {
+
+    @Test
+    void header_can_only_shorten_the_configured_timeout() {
+        MergeDeadlines deadlines = new MergeDeadlines(5_000);
+
+        Deadline configured = deadlines.deadline(null);
+        Deadline shorter = deadlines.deadline(200L);
+        Deadline longer = deadlines.deadline(60_000L);
+
+        assertThat(configured.bounded()).isTrue();
+        assertThat(configured.remainingMillis()).isBetween(4_000L, 5_000L);
+        assertThat(shorter.remainingMillis()).isLessThanOrEqualTo(200L);
+        assertThat(longer.remainingMillis()).isLessThanOrEqualTo(5_000L);
+    }
+
+    @Test
+    void no_timeout_configured_or_requested_means_no_deadline() {
+        MergeDeadlines deadlines = new MergeDeadlines(0);
+
+        Deadline none = deadlines.deadline(null);
+
+        assertThat(none.bounded()).isFalse();
+        assertThat(none.reason()).isNull();
+        assertThat(deadlines.deadline(300L).bounded()).isTrue();
+        assertThatThrownBy(() -> deadlines.deadline(0L)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
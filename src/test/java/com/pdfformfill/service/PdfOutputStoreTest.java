@@ -0,0 +1,63 @@
+package com.pdfformfill.service;
+
+import com.pdfformfill.engine.Deadline;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 输出目录：保存经同目录的临时文件原子改名，完成后只留下输出文件；保存中途放弃时不留下任何文件；临时文件不能经下载解析。
+ */
+class PdfOutputStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void save_leaves_only_the_complete_output() throws IOException {
+        PdfOutputStore store = new PdfOutputStore(dir.toString());
+
+        Path output;
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage());
+            output = store.save(doc);
+        }
+
+        assertThat(files()).containsExactly(output.getFileName().toString());
+        assertThat(store.resolve(output.getFileName().toString())).contains(output);
+        assertThat(store.resolve(store.tempFile(output).getFileName().toString())).isEmpty();
+    }
+
+    @Test
+    void cancelled_save_leaves_no_file_behind() throws IOException {
+        PdfOutputStore store = new PdfOutputStore(dir.toString());
+        Deadline deadline = Deadline.none();
+        deadline.cancel();
+
+        Deadline.Scope scope = deadline.bind();
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage());
+            assertThatThrownBy(() -> store.save(doc)).isInstanceOf(Deadline.Cancelled.class);
+        } finally {
+            scope.close();
+        }
+
+        assertThat(files()).isEmpty();
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).toList();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.pdfformfill.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 页面预览：按 dpi 渲染 PNG；缓存命中不再打开文档；预取的后续页面不会被重复渲染；页码与 dpi 校验。
+ */
+class PdfPreviewServiceTest {
+
+    private final PreviewCache cache = new PreviewCache();
+    private final PdfPreviewService service = new PdfPreviewService(cache, 96, 300, 40_000_000L, 2, 2);
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void renders_page_at_requested_dpi() throws IOException {
+        byte[] pdf = pdf(3);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(service.templatePage(pdf, 1, 36)));
+
+        assertThat(image.getWidth()).isEqualTo(306);
+        assertThat(image.getHeight()).isEqualTo(396);
+    }
+
+    @Test
+    void cached_and_prefetched_pages_are_not_rendered_again() throws IOException {
+        byte[] pdf = pdf(5);
+        AtomicInteger opens = new AtomicInteger();
+        PdfPreviewService.DocumentOpener opener = () -> {
+            opens.incrementAndGet();
+            return Loader.loadPDF(pdf);
+        };
+
+        byte[] first = service.page("doc", opener, 1, 24);
+        int opensAfterFirst = opens.get();
+        // Pages 2 and 3 were prefetched: served from the cache or by waiting for the prefetch
+        service.page("doc", opener, 2, 24);
+        service.page("doc", opener, 3, 24);
+        byte[] again = service.page("doc", opener, 1, 24);
+
+        assertThat(again).isSameAs(first);
+        assertThat(opens.get()).isEqualTo(opensAfterFirst);
+        assertThat(service.renderedPages()).isEqualTo(3);
+        assertThat(service.prefetchedPages()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    void different_dpi_is_a_different_entry() throws IOException {
+        byte[] pdf = pdf(1);
+
+        byte[] low = service.templatePage(pdf, 1, 24);
+        byte[] high = service.templatePage(pdf, 1, 48);
+
+        assertThat(high).isNotEqualTo(low);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void invalid_page_or_dpi_is_rejected() throws IOException {
+        byte[] pdf = pdf(2);
+
+        assertThatThrownBy(() -> service.templatePage(pdf, 3, 72)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.templatePage(pdf, 0, 72)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.templatePage(pdf, 1, 301)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PdfPreviewService(cache, 96, 300, 1_000, 0, 1).templatePage(pdf, 1, 72))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("max-pixels");
+    }
+
+    private static byte[] pdf(int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                doc.addPage(new PDPage(PDRectangle.LETTER));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.dto.ShardResponse;
+import com.pdfformfill.engine.FillEngine;
+import com.pdfformfill.metrics.MergeMetrics;
+import com.pdfformfill.pdf.PageSubsetter;
+import com.pdfformfill.pdf.PdfTemplateLoader;
+import com.pdfformfill.trace.MergeTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 分片填表：记录文件或 mock 区间逐条填表，输出可经下载地址取回；mock 区间与整批生成的记录一致；模板须在模板库中。
+ */
+class ShardFillServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FieldsDefinition definition = new FieldsDefinition(List.of(
+            new FieldDefinition("Name", "string", null, 50d, 50d, 200d, 20d, 1)));
+    private PdfOutputStore outputs;
+    private ShardFillService service;
+    private String templateId;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        outputs = new PdfOutputStore(dir.resolve("outputs").toString());
+        TemplateStore templates = new TemplateStore(dir.resolve("templates").toString(), 4, objectMapper);
+        PdfFormFillService fill = new PdfFormFillService(new PdfTemplateLoader(), objectMapper, new FieldDataPreparer(),
+                new MockRecordGenerator(), new FillEngine(), outputs, new PageSubsetter(), new FieldLayoutAnalyzer(),
+                templates, new MergeMetrics(new SimpleMeterRegistry()), new MergeTracer(objectMapper));
+        service = new ShardFillService(fill, new MockRecordGenerator(), outputs, templates, objectMapper, 10);
+        templateId = templates.put(template()).sha256();
+    }
+
+    @Test
+    void fills_each_record_of_a_shard() throws IOException {
+        String jsonl = "{\"Name\":\"Ada\"}\n{\"Name\":\"Grace\"}\n";
+
+        ShardResponse response = service.fill("3", templateId, objectMapper.writeValueAsBytes(definition),
+                new ByteArrayInputStream(jsonl.getBytes(StandardCharsets.UTF_8)), 0, null, 0);
+
+        assertThat(response.shard()).isEqualTo("3");
+        assertThat(response.records()).isEqualTo(2);
+        assertThat(response.failed()).isZero();
+        assertThat(response.pages()).isEqualTo(2);
+        ShardResponse.Output second = response.outputs().get(1);
+        assertThat(second.index()).isEqualTo(1);
+        String filename = second.downloadUrl().substring(second.downloadUrl().lastIndexOf('/') + 1);
+        try (PDDocument doc = Loader.loadPDF(outputs.resolve(filename).orElseThrow().toFile())) {
+            assertThat(new PDFTextStripper().getText(doc)).contains("Grace");
+        }
+    }
+
+    @Test
+    void mock_range_matches_the_same_records_of_a_whole_batch() throws IOException {
+        byte[] def = objectMapper.writeValueAsBytes(definition);
+        MockRecordGenerator.RecordSource source = new MockRecordGenerator().source(definition, 7);
+
+        ShardResponse response = service.fill(null, templateId, def, null, 5, 2, 7);
+
+        assertThat(response.records()).isEqualTo(2);
+        String filename = response.outputs().get(0).downloadUrl().replace("/api/pdf/outputs/", "");
+        try (PDDocument doc = Loader.loadPDF(outputs.resolve(filename).orElseThrow().toFile())) {
+            assertThat(new PDFTextStripper().getText(doc)).contains(String.valueOf(source.record(5).get("Name")));
+        }
+    }
+
+    @Test
+    void rejects_unknown_templates_and_missing_records() {
+        assertThatThrownBy(() -> service.fill(null, "0".repeat(64), null, null, 0, 3, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.fill(null, templateId, null, null, 0, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejects_shards_over_the_record_limit() {
+        assertThatThrownBy(() -> service.fill(null, templateId, null, null, 0, 11, 0))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("10");
+        String jsonl = "{\"Name\":\"Ada\"}\n".repeat(11);
+        assertThatThrownBy(() -> service.fill(null, templateId, null,
+                new ByteArrayInputStream(jsonl.getBytes(StandardCharsets.UTF_8)), 0, null, 0))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("10");
+    }
+
+    private static byte[] template() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage(PDRectangle.A4));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
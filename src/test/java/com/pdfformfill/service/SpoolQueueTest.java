@@ -0,0 +1,187 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.dto.SpoolJobStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * spool 队列：任务按 chunk-records 切成分片；多个实例（同一目录的多个 SpoolQueue）并发领取时每个分片只被领取一次；
+ * 租约过期的分片回到队列；状态由分片结果汇总，任一实例读到的相同。
+ */
+class SpoolQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final byte[] template = "%PDF-1.7".getBytes(StandardCharsets.US_ASCII);
+    private final FieldsDefinition definition = new FieldsDefinition(List.of(
+            new FieldDefinition("Name", "string", null, 50d, 50d, 200d, 20d, 1)));
+
+    @Test
+    void records_are_split_into_parts_of_chunk_records() throws IOException {
+        SpoolQueue queue = queue("a", 60);
+        String jsonl = "{\"Name\":\"r1\"}\n{\"Name\":\"r2\"}\n{\"Name\":\"r3\"}\n{\"Name\":\"r4\"}\n{\"Name\":\"r5\"}\n";
+
+        SpoolQueue.Job job = queue.submit(template, definition, new ByteArrayInputStream(jsonl.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(job.records()).isEqualTo(5);
+        assertThat(job.parts()).isEqualTo(3);
+        assertThat(job.partRecords(2)).isEqualTo(1);
+        assertThat(job.outputName(job.firstRecord(2))).isEqualTo("record-5");
+        try (MappingIterator<Map<String, Object>> part = queue.records(job, 1)) {
+            assertThat(part.readAll()).extracting(r -> r.get("Name")).containsExactly("r3", "r4");
+        }
+        assertThat(queue.definition(job)).isEqualTo(definition);
+        assertThat(queue.template(job)).isEqualTo(template);
+        assertThat(queue.status(job.id()).orElseThrow().state()).isEqualTo("queued");
+    }
+
+    @Test
+    void each_part_is_claimed_by_exactly_one_instance() throws Exception {
+        SpoolQueue submitter = queue("submitter", 60);
+        List<String> jobs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            jobs.add(submitter.submit(template, definition, 50, i).id());
+        }
+        List<SpoolQueue> instances = List.of(queue("a", 60), queue("b", 60), queue("c", 60));
+        List<SpoolQueue.Task> claimed = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 6; t++) {
+            SpoolQueue instance = instances.get(t % instances.size());
+            futures.add(pool.submit(() -> {
+                go.await();
+                for (Optional<SpoolQueue.Task> task; (task = instance.claim()).isPresent(); ) {
+                    claimed.add(task.get());
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        assertThat(claimed).hasSize(4 * 25).doesNotHaveDuplicates();
+        assertThat(claimed).extracting(SpoolQueue.Task::jobId).isSubsetOf(jobs).containsAll(jobs);
+        assertThat(list("pending")).isEmpty();
+        assertThat(list("running")).hasSize(100);
+    }
+
+    @Test
+    void expired_leases_return_to_the_queue() throws IOException {
+        SpoolQueue a = queue("a", 1);
+        SpoolQueue b = queue("b", 1);
+        a.submit(template, definition, 5, 0);
+        SpoolQueue.Task task = a.claim().orElseThrow();
+
+        assertThat(b.requeueExpired()).isZero();
+        Path marker = dir.resolve("running").resolve(task.name());
+        assertThat(marker).hasContent("a");
+        Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis() - 5_000));
+
+        assertThat(b.requeueExpired()).isEqualTo(1);
+        assertThat(a.heartbeat(task)).isFalse();
+        assertThat(b.claim()).contains(task);
+
+        // The old owner neither renews nor completes the part b now holds
+        Files.setLastModifiedTime(marker, FileTime.fromMillis(1_000));
+        assertThat(a.heartbeat(task)).isFalse();
+        assertThat(Files.getLastModifiedTime(marker).toMillis()).isEqualTo(1_000);
+        assertThat(a.complete(task, new SpoolQueue.PartResult(task.part(), "a", false, 1, 0, 1, 1L, 2L, null))).isFalse();
+        assertThat(marker).hasContent("b");
+        assertThat(list("done")).isEmpty();
+        assertThat(b.heartbeat(task)).isTrue();
+        assertThat(b.complete(task, new SpoolQueue.PartResult(task.part(), "b", false, 1, 0, 1, 1L, 2L, null))).isTrue();
+        assertThat(list("done")).hasSize(1);
+    }
+
+    @Test
+    void status_sums_completed_parts_from_any_instance() throws IOException {
+        SpoolQueue a = queue("a", 60);
+        SpoolQueue b = queue("b", 60);
+        SpoolQueue.Job job = a.submit(template, definition, 3, 0);
+        SpoolQueue.Task first = a.claim().orElseThrow();
+        SpoolQueue.Task second = b.claim().orElseThrow();
+
+        a.complete(first, new SpoolQueue.PartResult(first.part(), "a", false, 2, 1, 4, 1L, 2L, null));
+        SpoolJobStatus running = b.status(job.id()).orElseThrow();
+        assertThat(running.state()).isEqualTo("running");
+        assertThat(running.partsDone()).isEqualTo(1);
+        assertThat(running.partsRunning()).isEqualTo(1);
+        assertThat(running.instances()).containsExactly("a", "b");
+
+        b.complete(second, new SpoolQueue.PartResult(second.part(), "b", false, 1, 0, 2, 1L, 3L, null));
+        SpoolJobStatus done = a.status(job.id()).orElseThrow();
+        assertThat(done.state()).isEqualTo("done");
+        assertThat(done.recordsWritten()).isEqualTo(2);
+        assertThat(done.recordsFailed()).isEqualTo(1);
+        assertThat(done.pages()).isEqualTo(6);
+        assertThat(done.finishedAt()).isEqualTo(3L);
+        assertThat(list("done")).hasSize(2);
+    }
+
+    @Test
+    void rejects_empty_records_without_leaving_a_job_behind() throws IOException {
+        SpoolQueue queue = queue("a", 60);
+
+        assertThatThrownBy(() -> queue.submit(template, definition, new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> queue.submit(template, definition, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(list("jobs")).isEmpty();
+        assertThat(queue.status("../pending")).isEmpty();
+    }
+
+    @Test
+    void rejects_jobs_over_the_record_limit_without_leaving_a_job_behind() throws IOException {
+        SpoolQueue queue = queue("a", 60);
+        String jsonl = "{\"Name\":\"Ada\"}\n".repeat(101);
+
+        assertThatThrownBy(() -> queue.submit(template, definition, 101, 0))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("100");
+        assertThatThrownBy(() -> queue.submit(template, definition, Long.MAX_VALUE, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> queue.submit(template, definition,
+                new ByteArrayInputStream(jsonl.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("100");
+        assertThat(list("jobs")).isEmpty();
+        assertThat(list("pending")).isEmpty();
+    }
+
+    private SpoolQueue queue(String instance, long leaseSeconds) throws IOException {
+        return new SpoolQueue(dir.toString(), instance, 2, leaseSeconds, 100, objectMapper);
+    }
+
+    private List<Path> list(String sub) throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve(sub))) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.dto.FieldsDefinition;
+import com.pdfformfill.dto.SpoolJobStatus;
+import com.pdfformfill.engine.FillEngine;
+import com.pdfformfill.metrics.MergeMetrics;
+import com.pdfformfill.pdf.PageSubsetter;
+import com.pdfformfill.pdf.PdfTemplateLoader;
+import com.pdfformfill.trace.MergeTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * spool 消费者：同一共享目录上的两个实例分担一个任务的分片，每条记录输出一个 PDF；模板无效时分片整体失败而不是反复重试。
+ */
+class SpoolWorkerTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FieldsDefinition definition = new FieldsDefinition(List.of(
+            new FieldDefinition("Name", "string", null, 50d, 50d, 200d, 20d, 1)));
+
+    @Test
+    void instances_sharing_a_directory_fill_every_record_once() throws Exception {
+        SpoolQueue submitter = queue("submitter");
+        StringBuilder jsonl = new StringBuilder();
+        for (int i = 1; i <= 9; i++) {
+            jsonl.append("{\"Name\":\"Person ").append(i).append("\"}\n");
+        }
+        SpoolQueue.Job job = submitter.submit(template(), definition,
+                new ByteArrayInputStream(jsonl.toString().getBytes(StandardCharsets.UTF_8)));
+
+        SpoolWorker a = worker(queue("a"));
+        SpoolWorker b = worker(queue("b"));
+        a.start();
+        b.start();
+        SpoolJobStatus status;
+        try {
+            status = await(submitter, job.id());
+        } finally {
+            a.stop();
+            b.stop();
+        }
+
+        assertThat(status.state()).isEqualTo("done");
+        assertThat(status.recordsWritten()).isEqualTo(9);
+        assertThat(status.pages()).isEqualTo(9);
+        assertThat(status.partsDone()).isEqualTo(5);
+        assertThat(status.instances()).isSubsetOf("a", "b");
+        try (Stream<Path> files = Files.list(Path.of(status.outputDir()))) {
+            assertThat(files.map(f -> f.getFileName().toString())).hasSize(9).allMatch(n -> n.matches("record-\\d\\.pdf"));
+        }
+        try (PDDocument doc = Loader.loadPDF(Path.of(status.outputDir(), "record-7.pdf").toFile())) {
+            assertThat(new PDFTextStripper().getText(doc)).contains("Person 7");
+        }
+    }
+
+    @Test
+    void invalid_template_fails_its_parts_without_retrying() throws Exception {
+        SpoolQueue queue = queue("a");
+        SpoolQueue.Job job = queue.submit("not a pdf".getBytes(StandardCharsets.US_ASCII), definition, 3, 0);
+
+        SpoolWorker worker = worker(queue);
+        worker.start();
+        SpoolJobStatus status;
+        try {
+            status = await(queue, job.id());
+        } finally {
+            worker.stop();
+        }
+
+        assertThat(status.state()).isEqualTo("failed");
+        assertThat(status.recordsFailed()).isEqualTo(3);
+        assertThat(status.errors()).hasSize(2);
+        assertThat(queue.claim()).isEmpty();
+    }
+
+    private SpoolQueue queue(String instance) throws IOException {
+        return new SpoolQueue(dir.resolve("spool").toString(), instance, 2, 60, 1000, objectMapper);
+    }
+
+    private SpoolWorker worker(SpoolQueue queue) {
+        PdfFormFillService service = new PdfFormFillService(new PdfTemplateLoader(), objectMapper, new FieldDataPreparer(),
+                new MockRecordGenerator(), new FillEngine(), new PdfOutputStore(dir.resolve("outputs").toString()),
+                new PageSubsetter(), new FieldLayoutAnalyzer(), new TemplateStore(dir.resolve("templates").toString(), 4, objectMapper),
+                new MergeMetrics(new SimpleMeterRegistry()), new MergeTracer(objectMapper));
+        return new SpoolWorker(queue, service, new MockRecordGenerator(), 2, 20);
+    }
+
+    private static SpoolJobStatus await(SpoolQueue queue, String jobId) throws Exception {
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        SpoolJobStatus status = queue.status(jobId).orElseThrow();
+        while (status.finishedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            status = queue.status(jobId).orElseThrow();
+        }
+        return status;
+    }
+
+    private static byte[] template() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage(PDRectangle.A4));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
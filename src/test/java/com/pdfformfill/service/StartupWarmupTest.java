@@ -0,0 +1,126 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 启动预热：对 merge 接口发出 merges 次带合成模板的请求（每 4 次一次 pages=fields），再调一次预检，删除预热输出；
+ * 请求失败只计数，不抛出；不响应的服务端不会让预热超过 max-seconds。服务端用 JDK HttpServer 模拟。
+ */
+class StartupWarmupTest {
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final CountDownLatch hang = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        hang.countDown();
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void runs_merges_and_a_check_and_deletes_the_outputs() throws IOException {
+        URI base = start(200);
+
+        StartupWarmup.Result result = warmup(5).warmup(base);
+
+        assertThat(result.merges()).isEqualTo(5);
+        assertThat(result.failed()).isZero();
+        assertThat(result.firstMergeNanos()).isPositive();
+        assertThat(requests).containsExactly("/api/pdf/merge?seed=0", "/api/pdf/merge?seed=1", "/api/pdf/merge?seed=2",
+                "/api/pdf/merge?seed=3&pages=fields", "/api/pdf/merge?seed=4", "/api/pdf/merge/check?seed=0");
+        try (var files = Files.list(dir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void failed_merges_are_counted_without_failing_startup() throws IOException {
+        URI base = start(500);
+
+        StartupWarmup.Result result = warmup(3).warmup(base);
+
+        assertThat(result.merges()).isZero();
+        assertThat(result.failed()).isEqualTo(3);
+    }
+
+    @Test
+    void a_hanging_merge_times_out_within_max_seconds() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/pdf/merge", exchange -> {
+            requests.add(exchange.getRequestURI().toString());
+            try {
+                hang.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+        URI base = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+
+        StartupWarmup.Result result = new StartupWarmup(null, new ObjectMapper(), new SimpleMeterRegistry(), 5, 1, 10, 1,
+                false).warmup(base);
+
+        assertThat(result.merges()).isZero();
+        assertThat(result.failed()).isEqualTo(1);
+        assertThat(result.elapsedNanos()).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(requests).containsExactly("/api/pdf/merge?seed=0");
+    }
+
+    private StartupWarmup warmup(int merges) {
+        return new StartupWarmup(null, new ObjectMapper(), new SimpleMeterRegistry(), merges, 1, 10, 60, false);
+    }
+
+    /** A fake service: each merge writes an output file and returns its path, as the real merge does. */
+    private URI start(int status) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/pdf/merge", exchange -> {
+            requests.add(exchange.getRequestURI().toString());
+            exchange.getRequestBody().readAllBytes();
+            if (exchange.getRequestURI().getPath().endsWith("/check")) {
+                reply(exchange, 200, "{\"issues\":[]}");
+                return;
+            }
+            Path output = Files.createTempFile(dir, "filled-", ".pdf");
+            reply(exchange, status, "{\"success\":true,\"outputPath\":\"" + output.toString().replace("\\", "\\\\") + "\"}");
+            if (status != 200) {
+                Files.delete(output);
+            }
+        });
+        server.start();
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    private static void reply(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,159 @@
+package com.pdfformfill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.pdf.ContentHash;
+import com.pdfformfill.pdf.TemplateIndex;
+import com.pdfformfill.synthetic.SyntheticTemplateGenerator;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDCheckBox;
+import org.apache.pdfbox.pdmodel.interactive.form.PDRadioButton;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 模板库：上传时从 AcroForm 提取字段定义草稿（左上角坐标系），sidecar 与模板按 SHA-256 保存；
+ * 之后读取索引不再打开 PDF；sidecar 缺失或版本过旧时从模板重建。
+ */
+class TemplateStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void extracts_draft_definition_matching_widget_rectangles() throws IOException {
+        SyntheticTemplateGenerator.SyntheticTemplate t = new SyntheticTemplateGenerator()
+                .generate(SyntheticTemplateGenerator.Spec.of(3, 40).withAcroFormWidgets(true));
+
+        TemplateIndex index = store().put(t.pdf());
+
+        assertThat(index.pages()).hasSize(3);
+        List<FieldDefinition> expected = t.definition().fields();
+        assertThat(index.fields()).hasSize(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            FieldDefinition want = expected.get(i);
+            FieldDefinition got = index.fields().get(i);
+            assertThat(got.name()).isEqualTo(want.name());
+            assertThat(got.page()).isEqualTo(want.page());
+            assertThat(got.type()).isEqualTo("checkbox".equals(want.type()) ? "checkbox" : "text");
+            assertThat(got.x()).isCloseTo(want.x(), within(0.01));
+            assertThat(got.y()).isCloseTo(want.y(), within(0.01));
+            assertThat(got.width()).isCloseTo(want.width(), within(0.01));
+            assertThat(got.height()).isCloseTo(want.height(), within(0.01));
+            assertThat(got.verticalAlign()).isEqualTo(want.height() >= 50 && !"checkbox".equals(want.type()) ? "top" : null);
+        }
+    }
+
+    @Test
+    void radio_groups_are_left_out_of_the_draft() throws IOException {
+        byte[] pdf;
+        try (PDDocument doc = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            doc.addPage(page);
+            PDAcroForm form = new PDAcroForm(doc);
+            doc.getDocumentCatalog().setAcroForm(form);
+            PDRadioButton radio = new PDRadioButton(form);
+            radio.setPartialName("Gender");
+            List<PDAnnotationWidget> widgets = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                PDAnnotationWidget widget = new PDAnnotationWidget();
+                widget.setRectangle(new PDRectangle(100 + i * 40, 700, 12, 12));
+                widget.setPage(page);
+                widget.getCOSObject().setItem(COSName.PARENT, radio);
+                page.getAnnotations().add(widget);
+                widgets.add(widget);
+            }
+            radio.setWidgets(widgets);
+            PDCheckBox checkBox = new PDCheckBox(form);
+            checkBox.setPartialName("Agree");
+            PDAnnotationWidget widget = checkBox.getWidgets().get(0);
+            widget.setRectangle(new PDRectangle(100, 650, 12, 12));
+            widget.setPage(page);
+            page.getAnnotations().add(widget);
+            form.setFields(List.of(radio, checkBox));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            pdf = out.toByteArray();
+        }
+
+        TemplateIndex index = store().put(pdf);
+
+        assertThat(index.fields()).extracting(FieldDefinition::name, FieldDefinition::type)
+                .containsExactly(tuple("Agree", "checkbox"));
+    }
+
+    @Test
+    void stores_template_and_sidecar_by_content_hash() throws IOException {
+        byte[] pdf = new SyntheticTemplateGenerator().generate(SyntheticTemplateGenerator.Spec.of(2, 10)).pdf();
+
+        TemplateIndex index = store().put(pdf);
+
+        assertThat(index.sha256()).isEqualTo(ContentHash.sha256(pdf)).hasSize(64);
+        assertThat(index.bytes()).isEqualTo(pdf.length);
+        assertThat(index.fields()).isEmpty();
+        assertThat(dir.resolve(index.sha256() + ".pdf")).hasBinaryContent(pdf);
+        assertThat(dir.resolve(index.sha256() + ".index.json")).exists();
+        assertThat(store().put(pdf)).isEqualTo(index);
+        assertThat(store().layout(pdf)).contains(index.layout());
+    }
+
+    @Test
+    void later_lookups_read_the_sidecar_without_parsing_the_template() throws IOException {
+        byte[] pdf = new SyntheticTemplateGenerator()
+                .generate(SyntheticTemplateGenerator.Spec.of(2, 12).withAcroFormWidgets(true)).pdf();
+        TemplateIndex index = store().put(pdf);
+
+        // 模板被替换为无法解析的字节：只要 sidecar 有效，新实例仍能给出索引
+        Files.write(dir.resolve(index.sha256() + ".pdf"), "not a pdf".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(store().index(index.sha256())).contains(index);
+    }
+
+    @Test
+    void rebuilds_stale_or_missing_sidecar() throws IOException {
+        byte[] pdf = new SyntheticTemplateGenerator()
+                .generate(SyntheticTemplateGenerator.Spec.of(1, 5).withAcroFormWidgets(true)).pdf();
+        TemplateIndex index = store().put(pdf);
+        Path sidecar = dir.resolve(index.sha256() + ".index.json");
+
+        TemplateIndex stale = new TemplateIndex(TemplateIndex.VERSION - 1, index.sha256(), index.bytes(),
+                index.pages(), List.of(), List.of());
+        objectMapper.writeValue(sidecar.toFile(), stale);
+        assertThat(store().index(index.sha256())).contains(index);
+        assertThat(objectMapper.readValue(sidecar.toFile(), TemplateIndex.class)).isEqualTo(index);
+
+        Files.delete(sidecar);
+        assertThat(store().index(index.sha256())).contains(index);
+        assertThat(sidecar).exists();
+    }
+
+    @Test
+    void unknown_or_malformed_ids_are_not_found() throws IOException {
+        assertThat(store().index("0".repeat(64))).isEmpty();
+        assertThat(store().index("../etc/passwd")).isEmpty();
+        assertThat(store().resolve(null)).isEmpty();
+    }
+
+    private TemplateStore store() {
+        return new TemplateStore(dir.toString(), 16, objectMapper);
+    }
+}
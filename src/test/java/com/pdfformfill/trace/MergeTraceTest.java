@@ -0,0 +1,74 @@
+package com.pdfformfill.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfformfill.dto.FieldDefinition;
+import com.pdfformfill.pdf.overlay.OverlayOptions;
+import com.pdfformfill.pdf.overlay.PdfOverlayRenderer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 追踪：渲染时记录页面与字段耗时，只保留最慢的 top-n；结束后解除线程绑定。
+ */
+class MergeTraceTest {
+
+    private final MergeTracer tracer = new MergeTracer(new ObjectMapper());
+    private final PdfOverlayRenderer renderer = new PdfOverlayRenderer(List.of(new TraceOverlayRenderListener()));
+
+    @Test
+    void render_records_pages_and_slowest_fields() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage(PDRectangle.A4));
+            doc.addPage(new PDPage(PDRectangle.A4));
+            List<FieldDefinition> fields = List.of(
+                    new FieldDefinition("A", "string", null, 72d, 100d, 200d, 24d, 1),
+                    new FieldDefinition("B", "string", null, 72d, 200d, 40d, 24d, 1),
+                    new FieldDefinition("C", "string", null, 72d, 300d, 200d, 24d, 1),
+                    new FieldDefinition("D", "string", null, 72d, 300d, 200d, 24d, 1),
+                    new FieldDefinition("E", "string", null, 72d, 300d, 200d, 24d, 1),
+                    new FieldDefinition("F", "string", null, 72d, 300d, 200d, 80d, 2)
+            );
+            Map<String, Object> data = Map.of("A", "a", "B", "A much longer value that must shrink",
+                    "C", "c", "D", "d", "E", "e", "F", "wrapped text ".repeat(20));
+
+            MergeTrace trace = tracer.begin("test.pdf");
+            try {
+                MergeTrace.annotate("templatePages", 2);
+                MergeTrace.recordStage("render", 1_000_000L);
+                renderer.render(doc, fields, data, options());
+
+                MergeTrace.Snapshot snapshot = trace.snapshot("ok", 0);
+                assertThat(snapshot.pagesRendered()).isEqualTo(2);
+                assertThat(snapshot.fieldsFitted()).isEqualTo(6);
+                assertThat(snapshot.slowestFields()).hasSize(5);
+                assertThat(snapshot.stagesMs()).containsEntry("render", 1.0);
+                assertThat(snapshot.attributes()).containsEntry("templatePages", 2);
+                assertThat(snapshot.slowestFields().get(0).micros())
+                        .isGreaterThanOrEqualTo(snapshot.slowestFields().get(4).micros());
+            } finally {
+                tracer.finish(trace, "ok");
+            }
+            assertThat(MergeTrace.current()).isNull();
+        }
+    }
+
+    @Test
+    void static_recorders_are_noops_without_a_bound_trace() {
+        MergeTrace.recordStage("load", 10);
+        MergeTrace.annotate("x", 1);
+        assertThat(MergeTrace.current()).isNull();
+    }
+
+    private static OverlayOptions options() {
+        return new OverlayOptions(null, null, OverlayOptions.DEFAULT_FONT_SIZE, OverlayOptions.DEFAULT_MIN_FONT_SIZE,
+                OverlayOptions.DEFAULT_FONT_COLOR_RGB, OverlayOptions.DEFAULT_PADDING_X, OverlayOptions.DEFAULT_PADDING_Y);
+    }
+}